@@ -0,0 +1,28 @@
+package brown.auction.marketstate;
+
+/**
+ * The changes to a market's public state since a previous public state of the
+ * same market, sent to an agent instead of the whole state.
+ * 
+ * @author andrewcoggins
+ */
+public interface IMarketPublicStateDelta {
+
+  /**
+   * whether or not the delta was taken against this state.
+   * 
+   * @param base
+   * @return
+   */
+  public boolean appliesTo(IMarketPublicState base);
+
+  /**
+   * rebuild the full public state. The base is not changed.
+   * 
+   * @param base
+   * the state the delta was taken against.
+   * @return
+   */
+  public IMarketPublicState applyTo(IMarketPublicState base);
+
+}
@@ -3,6 +3,7 @@ package brown.auction.marketstate;
 import java.util.List;
 import java.util.Map;
 
+import brown.auction.value.valuation.IGeneralValuation;
 import brown.communication.messages.ITradeMessage;
 import brown.communication.messages.library.TradeRequestMessage;
 import brown.platform.accounting.IAccountUpdate;
@@ -53,5 +54,15 @@ public interface IMarketState {
   public List<List<ITradeMessage>> getTradeHistory(); 
   
   public void addToTradeHistory(List<ITradeMessage> tradeMessages); 
+  
+  // the same rounds, stored by column, with the reserves and allocations 
+  // rules record for each. 
+  public IRoundHistory getRoundHistory(); 
+  
+  // Market agents: valuations of the agents in this market, for rules 
+  // that depend on private agent information. 
+  public Map<Integer, IGeneralValuation> getAgentValuations(); 
+  
+  public void setAgentValuations(Map<Integer, IGeneralValuation> agentValuations); 
 
 }
@@ -0,0 +1,112 @@
+package brown.auction.marketstate;
+
+import java.util.List;
+import java.util.Map;
+
+import brown.communication.messages.ITradeMessage;
+
+/**
+ * A market's history, round by round: the bids, and the reserves and
+ * allocation rules record for each round. Agents and items are referred to by
+ * dense indexes, and everything is stored in primitive columns, so rules can
+ * look up a round's data directly instead of scanning the trade history.
+ *
+ * @author andrewcoggins
+ */
+public interface IRoundHistory {
+
+  /**
+   * start a new round, with the round's accepted bids. Every item in a cart
+   * gets its own row, at the cart's price.
+   *
+   * @param bids
+   */
+  public void addRound(List<ITradeMessage> bids);
+
+  public int getNumRounds();
+
+  // agent index
+  public int getNumAgents();
+
+  /**
+   * @param agentID
+   * @return the agent's index, or -1 if it has never been seen.
+   */
+  public int getAgentIndex(Integer agentID);
+
+  public Integer getAgentID(int agent);
+
+  // item index
+  public int getNumItems();
+
+  /**
+   * @param itemName
+   * @return the item's index, or -1 if it has never been seen.
+   */
+  public int getItemIndex(String itemName);
+
+  public String getItemName(int item);
+
+  // bids; a round's rows are ordered by agent.
+  public int getNumBids(int round);
+
+  public int getBidAgent(int round, int row);
+
+  public int getBidItem(int round, int row);
+
+  public double getBidPrice(int round, int row);
+
+  /**
+   * @param round
+   * @param agent
+   * @return the items the agent bid on in the round.
+   */
+  public int[] getBundle(int round, int agent);
+
+  /**
+   * @param round
+   * @param item
+   * @return the rows of the round's bids on the item.
+   */
+  public int[] getItemBids(int round, int item);
+
+  // reserves
+  public void setReserves(int round, Map<String, Double> reserves);
+
+  public boolean hasReserves(int round);
+
+  /**
+   * @param round
+   * @param item
+   * @return the item's reserve in the round, or NaN if it had none.
+   */
+  public double getReserve(int round, int item);
+
+  // allocation
+  public void allocate(int round, Integer agentID, String itemName,
+      double price);
+
+  public boolean hasAllocation(int round);
+
+  /**
+   * @param round
+   * @param item
+   * @return the index of the agent the item was allocated to in the round, or
+   * -1 if it was not allocated.
+   */
+  public int getOwner(int round, int item);
+
+  public double getPrice(int round, int item);
+
+  // total price of everything allocated in the round.
+  public double getRevenue(int round);
+
+  /**
+   * kept up to date as items are allocated.
+   *
+   * @return the allocated round with the most revenue, the latest of any ties,
+   * or -1 if no round has an allocation.
+   */
+  public int getBestRound();
+
+}
@@ -0,0 +1,164 @@
+package brown.auction.marketstate.library;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.IMarketPublicStateDelta;
+import brown.communication.messages.ITradeMessage;
+import brown.platform.accounting.IAccountUpdate;
+import brown.platform.item.ICart;
+
+/**
+ * A public state delta holds the trade history rounds added since the base
+ * state, and the allocation, payments and reserves if they changed. Public
+ * trade histories are only ever appended to, so the new rounds are enough to
+ * rebuild the history.
+ * 
+ * @author andrewcoggins
+ */
+public class MarketPublicStateDelta implements IMarketPublicStateDelta {
+
+  // identifies the base state.
+  private long baseTime;
+  private int historyStart;
+
+  private int ticks;
+  private long time;
+  private List<List<ITradeMessage>> newHistory;
+
+  private boolean allocationChanged;
+  private Map<Integer, List<ICart>> allocation;
+  private boolean paymentsChanged;
+  private List<IAccountUpdate> payments;
+  private boolean reservesChanged;
+  private Map<String, Double> reserves;
+
+  // for kryo, do not use
+  public MarketPublicStateDelta() {
+    this.newHistory = new LinkedList<List<ITradeMessage>>();
+  }
+
+  /**
+   * take the delta between two public states of a market. Only valid if
+   * canEncode(base, current).
+   * 
+   * @param base
+   * @param current
+   */
+  public MarketPublicStateDelta(IMarketPublicState base,
+      IMarketPublicState current) {
+    this.baseTime = base.getTime();
+    this.historyStart = base.getTradeHistory().size();
+    this.ticks = current.getTicks();
+    this.time = current.getTime();
+    List<List<ITradeMessage>> history = current.getTradeHistory();
+    this.newHistory = new LinkedList<List<ITradeMessage>>(
+        history.subList(this.historyStart, history.size()));
+    this.allocationChanged =
+        !Objects.equals(base.getAllocation(), current.getAllocation());
+    this.allocation = this.allocationChanged ? current.getAllocation() : null;
+    this.paymentsChanged =
+        !Objects.equals(base.getPayments(), current.getPayments());
+    this.payments = this.paymentsChanged ? current.getPayments() : null;
+    this.reservesChanged =
+        !Objects.equals(base.getReserves(), current.getReserves());
+    this.reserves = this.reservesChanged ? current.getReserves() : null;
+  }
+
+  /**
+   * whether or not current can be sent as a delta against base: both must be
+   * states of the same market, and base's history a prefix of current's.
+   * 
+   * @param base
+   * @param current
+   * @return
+   */
+  public static boolean canEncode(IMarketPublicState base,
+      IMarketPublicState current) {
+    if (base == null || current == null || base.getTime() != current.getTime()) {
+      return false;
+    }
+    List<List<ITradeMessage>> baseHistory = base.getTradeHistory();
+    List<List<ITradeMessage>> history = current.getTradeHistory();
+    if (baseHistory.size() > history.size()) {
+      return false;
+    }
+    // checking the last shared round is enough, since histories only grow.
+    int last = baseHistory.size() - 1;
+    return last < 0 || baseHistory.get(last).equals(history.get(last));
+  }
+
+  /**
+   * copy a public state, so that later changes to it do not change the copy.
+   * 
+   * @param state
+   * @return
+   */
+  public static IMarketPublicState copyOf(IMarketPublicState state) {
+    IMarketPublicState copy = new MarketPublicState();
+    copy.setTicks(state.getTicks());
+    copy.setTime(state.getTime());
+    for (List<ITradeMessage> round : state.getTradeHistory()) {
+      copy.addToTradeHistory(round);
+    }
+    copy.setAllocation(state.getAllocation() == null ? null
+        : new HashMap<Integer, List<ICart>>(state.getAllocation()));
+    copy.setPayments(state.getPayments() == null ? null
+        : new LinkedList<IAccountUpdate>(state.getPayments()));
+    copy.setReserves(state.getReserves() == null ? null
+        : new HashMap<String, Double>(state.getReserves()));
+    return copy;
+  }
+
+  @Override
+  public boolean appliesTo(IMarketPublicState base) {
+    return base != null && base.getTime() == this.baseTime
+        && base.getTradeHistory().size() == this.historyStart;
+  }
+
+  @Override
+  public IMarketPublicState applyTo(IMarketPublicState base) {
+    IMarketPublicState state = copyOf(base);
+    update(state);
+    return state;
+  }
+
+  /**
+   * apply the delta in place, to a copy of its base made by copyOf. What 
+   * changed is copied, so that later changes to the current state do not 
+   * change the copy. 
+   * 
+   * @param copy
+   */
+  public void update(IMarketPublicState copy) {
+    copy.setTicks(this.ticks);
+    copy.setTime(this.time);
+    for (List<ITradeMessage> round : this.newHistory) {
+      copy.addToTradeHistory(round);
+    }
+    if (this.allocationChanged) {
+      copy.setAllocation(this.allocation == null ? null
+          : new HashMap<Integer, List<ICart>>(this.allocation));
+    }
+    if (this.paymentsChanged) {
+      copy.setPayments(this.payments == null ? null
+          : new LinkedList<IAccountUpdate>(this.payments));
+    }
+    if (this.reservesChanged) {
+      copy.setReserves(this.reserves == null ? null
+          : new HashMap<String, Double>(this.reserves));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MarketPublicStateDelta [historyStart=" + historyStart
+        + ", newHistory=" + newHistory + ", allocation=" + allocation
+        + ", payments=" + payments + ", reserves=" + reserves + "]";
+  }
+
+}
@@ -6,6 +6,8 @@ import java.util.List;
 import java.util.Map;
 
 import brown.auction.marketstate.IMarketState;
+import brown.auction.marketstate.IRoundHistory;
+import brown.auction.value.valuation.IGeneralValuation;
 import brown.communication.messages.ITradeMessage;
 import brown.communication.messages.library.TradeRequestMessage;
 import brown.platform.accounting.IAccountUpdate;
@@ -26,6 +28,7 @@ public class MarketState implements IMarketState {
   
   // history
   private List<List<ITradeMessage>> tradeHistory;
+  private IRoundHistory roundHistory;
 
   // Allocation rule
 
@@ -45,12 +48,17 @@ public class MarketState implements IMarketState {
   // Termination condition
   private boolean isOpen;
 
+  // valuations of the market's agents
+  private Map<Integer, IGeneralValuation> agentValuations;
+
   public MarketState() {
     this.allocation = new HashMap<Integer, List<ICart>>();
     this.payments = new LinkedList<IAccountUpdate>();
     this.time = System.currentTimeMillis();
     this.isOpen = true;
     this.tradeHistory = new LinkedList<List<ITradeMessage>>();
+    this.roundHistory = new RoundHistory();
+    this.agentValuations = new HashMap<Integer, IGeneralValuation>();
   }
 
   @Override
@@ -126,6 +134,12 @@ public class MarketState implements IMarketState {
   @Override
   public void addToTradeHistory(List<ITradeMessage> tradeMessages) {
     this.tradeHistory.add(tradeMessages);
+    this.roundHistory.addRound(tradeMessages);
+  }
+
+  @Override
+  public IRoundHistory getRoundHistory() {
+    return this.roundHistory;
   }
 
   @Override
@@ -138,4 +152,15 @@ public class MarketState implements IMarketState {
     this.reserves = reserves; 
   }
 
+  @Override
+  public Map<Integer, IGeneralValuation> getAgentValuations() {
+    return this.agentValuations;
+  }
+
+  @Override
+  public void setAgentValuations(
+      Map<Integer, IGeneralValuation> agentValuations) {
+    this.agentValuations = agentValuations;
+  }
+
 }
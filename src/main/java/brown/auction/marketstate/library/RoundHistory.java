@@ -0,0 +1,382 @@
+package brown.auction.marketstate.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import brown.auction.marketstate.IRoundHistory;
+import brown.communication.messages.ITradeMessage;
+import brown.platform.item.ICart;
+import brown.platform.item.IItem;
+
+/**
+ * Round history kept in growable primitive arrays. Bids of all rounds share
+ * one set of columns; each round's rows are sorted by agent, with offsets per
+ * agent, and a second ordering by item, so that an agent's bundle or an
+ * item's bids in a round are found without a scan. Reserves and allocations
+ * are one array per round, by item index.
+ *
+ * @author andrewcoggins
+ */
+public class RoundHistory implements IRoundHistory {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int[] NONE = new int[0];
+
+  private final Map<Integer, Integer> agentIndex;
+  private final List<Integer> agentIDs;
+  private final Map<String, Integer> itemIndex;
+  private final List<String> itemNames;
+
+  // bid columns, for all rounds.
+  private int[] bidAgent;
+  private int[] bidItem;
+  private double[] bidPrice;
+  private int numBids;
+
+  // the rows of round r are roundStart[r] to roundStart[r + 1].
+  private int[] roundStart;
+  private int numRounds;
+  // by round: agent a's rows, from the round's start, are offsets[a] to
+  // offsets[a + 1]. Agents seen after the round have no rows.
+  private final List<int[]> agentOffsets;
+  // by round: the round's rows ordered by item, with offsets as above.
+  private final List<int[]> itemRows;
+  private final List<int[]> itemOffsets;
+
+  // by round, by item; null for rounds without any.
+  private final List<double[]> reserves;
+  private final List<int[]> owners;
+  private final List<double[]> prices;
+  private final List<Double> revenues;
+  private int bestRound;
+
+  public RoundHistory() {
+    this.agentIndex = new HashMap<Integer, Integer>();
+    this.agentIDs = new ArrayList<Integer>();
+    this.itemIndex = new HashMap<String, Integer>();
+    this.itemNames = new ArrayList<String>();
+    this.bidAgent = new int[INITIAL_CAPACITY];
+    this.bidItem = new int[INITIAL_CAPACITY];
+    this.bidPrice = new double[INITIAL_CAPACITY];
+    this.numBids = 0;
+    this.roundStart = new int[INITIAL_CAPACITY];
+    this.numRounds = 0;
+    this.agentOffsets = new ArrayList<int[]>();
+    this.itemRows = new ArrayList<int[]>();
+    this.itemOffsets = new ArrayList<int[]>();
+    this.reserves = new ArrayList<double[]>();
+    this.owners = new ArrayList<int[]>();
+    this.prices = new ArrayList<double[]>();
+    this.revenues = new ArrayList<Double>();
+    this.bestRound = -1;
+  }
+
+  @Override
+  public void addRound(List<ITradeMessage> bids) {
+    // rows in submission order first.
+    int rows = 0;
+    for (ITradeMessage bid : bids) {
+      if (bid.getBid() == null) {
+        continue;
+      }
+      for (ICart cart : bid.getBid().getBids().keySet()) {
+        rows += cart.getItems().size();
+      }
+    }
+    int[] agents = new int[rows];
+    int[] items = new int[rows];
+    double[] bidPrices = new double[rows];
+    int row = 0;
+    for (ITradeMessage bid : bids) {
+      if (bid.getBid() == null) {
+        continue;
+      }
+      int agent = indexAgent(bid.getAgentID());
+      for (Map.Entry<ICart, Double> entry : bid.getBid().getBids()
+          .entrySet()) {
+        for (IItem item : entry.getKey().getItems()) {
+          agents[row] = agent;
+          items[row] = indexItem(item.getName());
+          bidPrices[row] = entry.getValue();
+          row++;
+        }
+      }
+    }
+
+    // then stably sorted by agent into the columns.
+    int start = this.numBids;
+    ensureBidCapacity(start + rows);
+    int[] offsets = countingOffsets(agents, getNumAgents());
+    int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+    for (int i = 0; i < rows; i++) {
+      int to = start + next[agents[i]]++;
+      this.bidAgent[to] = agents[i];
+      this.bidItem[to] = items[i];
+      this.bidPrice[to] = bidPrices[i];
+    }
+    this.numBids += rows;
+
+    // and indexed by item.
+    int[] sortedItems = Arrays.copyOfRange(this.bidItem, start, start + rows);
+    int[] byItemOffsets = countingOffsets(sortedItems, getNumItems());
+    int[] byItem = new int[rows];
+    next = Arrays.copyOf(byItemOffsets, byItemOffsets.length - 1);
+    for (int i = 0; i < rows; i++) {
+      byItem[next[sortedItems[i]]++] = i;
+    }
+
+    if (this.numRounds + 2 > this.roundStart.length) {
+      this.roundStart = Arrays.copyOf(this.roundStart, this.roundStart.length * 2);
+    }
+    this.roundStart[this.numRounds] = start;
+    this.roundStart[this.numRounds + 1] = this.numBids;
+    this.numRounds++;
+    this.agentOffsets.add(offsets);
+    this.itemRows.add(byItem);
+    this.itemOffsets.add(byItemOffsets);
+    this.reserves.add(null);
+    this.owners.add(null);
+    this.prices.add(null);
+    this.revenues.add(0.0);
+  }
+
+  @Override
+  public int getNumRounds() {
+    return this.numRounds;
+  }
+
+  @Override
+  public int getNumAgents() {
+    return this.agentIDs.size();
+  }
+
+  @Override
+  public int getAgentIndex(Integer agentID) {
+    return this.agentIndex.getOrDefault(agentID, -1);
+  }
+
+  @Override
+  public Integer getAgentID(int agent) {
+    return this.agentIDs.get(agent);
+  }
+
+  @Override
+  public int getNumItems() {
+    return this.itemNames.size();
+  }
+
+  @Override
+  public int getItemIndex(String itemName) {
+    return this.itemIndex.getOrDefault(itemName, -1);
+  }
+
+  @Override
+  public String getItemName(int item) {
+    return this.itemNames.get(item);
+  }
+
+  @Override
+  public int getNumBids(int round) {
+    return this.roundStart[round + 1] - this.roundStart[round];
+  }
+
+  @Override
+  public int getBidAgent(int round, int row) {
+    return this.bidAgent[this.roundStart[round] + row];
+  }
+
+  @Override
+  public int getBidItem(int round, int row) {
+    return this.bidItem[this.roundStart[round] + row];
+  }
+
+  @Override
+  public double getBidPrice(int round, int row) {
+    return this.bidPrice[this.roundStart[round] + row];
+  }
+
+  @Override
+  public int[] getBundle(int round, int agent) {
+    int[] offsets = this.agentOffsets.get(round);
+    if (agent < 0 || agent + 1 >= offsets.length) {
+      return NONE;
+    }
+    int start = this.roundStart[round];
+    return Arrays.copyOfRange(this.bidItem, start + offsets[agent],
+        start + offsets[agent + 1]);
+  }
+
+  @Override
+  public int[] getItemBids(int round, int item) {
+    int[] offsets = this.itemOffsets.get(round);
+    if (item < 0 || item + 1 >= offsets.length) {
+      return NONE;
+    }
+    return Arrays.copyOfRange(this.itemRows.get(round), offsets[item],
+        offsets[item + 1]);
+  }
+
+  @Override
+  public void setReserves(int round, Map<String, Double> roundReserves) {
+    for (String itemName : roundReserves.keySet()) {
+      indexItem(itemName);
+    }
+    double[] column = new double[getNumItems()];
+    Arrays.fill(column, Double.NaN);
+    for (Map.Entry<String, Double> entry : roundReserves.entrySet()) {
+      column[getItemIndex(entry.getKey())] = entry.getValue();
+    }
+    this.reserves.set(round, column);
+  }
+
+  @Override
+  public boolean hasReserves(int round) {
+    return this.reserves.get(round) != null;
+  }
+
+  @Override
+  public double getReserve(int round, int item) {
+    double[] column = this.reserves.get(round);
+    return column == null || item < 0 || item >= column.length ? Double.NaN
+        : column[item];
+  }
+
+  @Override
+  public void allocate(int round, Integer agentID, String itemName,
+      double price) {
+    int agent = indexAgent(agentID);
+    int item = indexItem(itemName);
+    int[] roundOwners = this.owners.get(round);
+    double[] roundPrices = this.prices.get(round);
+    if (roundOwners == null || item >= roundOwners.length) {
+      int size = getNumItems();
+      int from = roundOwners == null ? 0 : roundOwners.length;
+      roundOwners = roundOwners == null ? new int[size]
+          : Arrays.copyOf(roundOwners, size);
+      roundPrices = roundPrices == null ? new double[size]
+          : Arrays.copyOf(roundPrices, size);
+      Arrays.fill(roundOwners, from, size, -1);
+      this.owners.set(round, roundOwners);
+      this.prices.set(round, roundPrices);
+    }
+    double revenue = this.revenues.get(round);
+    if (roundOwners[item] != -1) {
+      revenue -= roundPrices[item];
+    }
+    roundOwners[item] = agent;
+    roundPrices[item] = price;
+    double previous = this.revenues.get(round);
+    this.revenues.set(round, revenue + price);
+    updateBestRound(round, previous);
+  }
+
+  @Override
+  public boolean hasAllocation(int round) {
+    return this.owners.get(round) != null;
+  }
+
+  @Override
+  public int getOwner(int round, int item) {
+    int[] roundOwners = this.owners.get(round);
+    return roundOwners == null || item < 0 || item >= roundOwners.length ? -1
+        : roundOwners[item];
+  }
+
+  @Override
+  public double getPrice(int round, int item) {
+    double[] roundPrices = this.prices.get(round);
+    return roundPrices == null || item < 0 || item >= roundPrices.length ? 0.0
+        : roundPrices[item];
+  }
+
+  @Override
+  public double getRevenue(int round) {
+    return this.revenues.get(round);
+  }
+
+  @Override
+  public int getBestRound() {
+    return this.bestRound;
+  }
+
+  // only the round just allocated can have changed. Only if the best round
+  // loses revenue can another round overtake it, so just then, search again.
+  private void updateBestRound(int round, double previous) {
+    double revenue = this.revenues.get(round);
+    if (round == this.bestRound) {
+      if (revenue < previous) {
+        this.bestRound = -1;
+        for (int r = 0; r < this.numRounds; r++) {
+          if (isBetterRound(r)) {
+            this.bestRound = r;
+          }
+        }
+      }
+    } else if (isBetterRound(round)) {
+      this.bestRound = round;
+    }
+  }
+
+  private boolean isBetterRound(int round) {
+    if (!hasAllocation(round)) {
+      return false;
+    }
+    double revenue = this.revenues.get(round);
+    if (this.bestRound == -1) {
+      return revenue >= 0.0;
+    }
+    double best = this.revenues.get(this.bestRound);
+    return revenue > best || (revenue == best && round > this.bestRound);
+  }
+
+  private int indexAgent(Integer agentID) {
+    Integer agent = this.agentIndex.get(agentID);
+    if (agent == null) {
+      agent = this.agentIDs.size();
+      this.agentIndex.put(agentID, agent);
+      this.agentIDs.add(agentID);
+    }
+    return agent;
+  }
+
+  private int indexItem(String itemName) {
+    Integer item = this.itemIndex.get(itemName);
+    if (item == null) {
+      item = this.itemNames.size();
+      this.itemIndex.put(itemName, item);
+      this.itemNames.add(itemName);
+    }
+    return item;
+  }
+
+  private void ensureBidCapacity(int capacity) {
+    if (capacity > this.bidAgent.length) {
+      int size = Math.max(capacity, this.bidAgent.length * 2);
+      this.bidAgent = Arrays.copyOf(this.bidAgent, size);
+      this.bidItem = Arrays.copyOf(this.bidItem, size);
+      this.bidPrice = Arrays.copyOf(this.bidPrice, size);
+    }
+  }
+
+  // offsets[k] to offsets[k + 1] is where key k goes, once sorted.
+  private static int[] countingOffsets(int[] keys, int numKeys) {
+    int[] offsets = new int[numKeys + 1];
+    for (int key : keys) {
+      offsets[key + 1]++;
+    }
+    for (int k = 0; k < numKeys; k++) {
+      offsets[k + 1] += offsets[k];
+    }
+    return offsets;
+  }
+
+  @Override
+  public String toString() {
+    return "RoundHistory [rounds=" + numRounds + ", bids=" + numBids
+        + ", agents=" + agentIDs.size() + ", items=" + itemNames.size() + "]";
+  }
+
+}
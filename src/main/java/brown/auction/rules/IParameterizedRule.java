@@ -0,0 +1,18 @@
+package brown.auction.rules;
+
+/**
+ * A rule built with parameters from the config, rather than from its 
+ * no-argument constructor. A market's fresh set of rules keeps them. 
+ * @author andrewcoggins
+ *
+ */
+public interface IParameterizedRule {
+
+  /**
+   * a new rule, with none of this one's state, built with the same 
+   * parameters. 
+   * @return
+   */
+  public IParameterizedRule newInstance(); 
+
+}
@@ -0,0 +1,25 @@
+package brown.auction.rules;
+
+import java.util.List;
+
+import brown.auction.marketstate.IMarketState;
+import brown.communication.messages.ITradeMessage;
+
+/**
+ * Computes the allocation and payments of a sealed-bid auction together, in
+ * place of its allocation and payment rules, with the same results.
+ *
+ * @author andrewcoggins
+ */
+public interface ISealedBidKernel {
+
+  /**
+   * Sets the allocation and the payments in the market internal state.
+   *
+   * @param state market state.
+   * @param messages the bids.
+   */
+  public void setAllocationAndOrders(IMarketState state,
+      List<ITradeMessage> messages);
+
+}
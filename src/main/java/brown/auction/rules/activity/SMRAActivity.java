@@ -3,31 +3,57 @@ package brown.auction.rules.activity;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import brown.auction.marketstate.IMarketState;
+import brown.auction.marketstate.IRoundHistory;
 import brown.auction.rules.IActivityRule;
-import brown.auction.value.valuation.library.GSVM18Valuation;
+import brown.auction.value.valuation.IGeneralValuation;
 import brown.communication.bid.IBidBundle;
-import brown.communication.bid.library.OneSidedBidBundle;
 import brown.communication.messages.ITradeMessage;
 import brown.platform.item.ICart;
 import brown.platform.item.IItem;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
 
 public class SMRAActivity extends AbsActivity implements IActivityRule {
 	public static final double EPSILON = 2.5;
+	// asks a GSVM valuation for the bidder's position.
+	private static final ICart POSITION_QUERY = new Cart(Collections.<IItem>singletonList(new Item("position")));
+
+	// an agent's bundle in a past round, and that round's reserves, both by
+	// item index. Agents without a bid that round have a null bundle.
+	private static final class RoundRecord {
+
+		private final long[][] bundles;
+		private final double[] reserves;
+
+		private RoundRecord(long[][] bundles, double[] reserves) {
+			this.bundles = bundles;
+			this.reserves = reserves;
+		}
+
+		// how much a good's reserve has gone up since the round.
+		private double increase(double[] current, int good) {
+			return good < this.reserves.length ? current[good] - this.reserves[good] : Double.NaN;
+		}
+
+	}
+
+	// revealed preference records of the market's rounds so far. Each market
+	// has its own rule, and its bids are checked one at a time.
+	private final List<RoundRecord> records = new ArrayList<>();
+	private IRoundHistory recordedHistory;
+	private int recordedRounds;
+	private Map<String, Double> currentReservesMap;
+	private double[] currentReserves;
 
 	@Override
 	public void isAcceptable(IMarketState state, ITradeMessage aBid, List<ITradeMessage> currentBids, ICart items) {
 		// check that the submitted bid is greater than or equal to the reserve for
 		// that agent (they should all be the same here).
 		Map<String, Double> reserves = state.getReserves();
-		if (reserves != null) {
-			reserves = new HashMap<>(reserves);
-		}
 		
 		int agent = aBid.getAgentID();
 
@@ -67,64 +93,110 @@ public class SMRAActivity extends AbsActivity implements IActivityRule {
 			}
 		}
 		
-		Integer pos = GSVM18Valuation.positionOf(agent);
+		Integer pos = null;
+		IGeneralValuation valuation = state.getAgentValuations().get(agent);
+		if (valuation != null) {
+			pos = valuation.getValuation(POSITION_QUERY).intValue();
+		}
 		if (pos == null || pos.intValue() < 1 || pos.intValue() > 7 || (pos.intValue() != 7 && numItems > 4) || numItems > 12) {
 			state.setAcceptable(false);
 			return;
 		}
 		
-		// revealed preference rule
-		Set<String> newBundle = new HashSet<>();
-		double currPriceNewBundle = 0.0;
-		for (Map.Entry<ICart, Double> ent : carts.entrySet()) {
-			for (IItem item : ent.getKey().getItems()) {
-				newBundle.add(item.getName());
-				currPriceNewBundle += state.getReserves().get(item.getName());
+		// revealed preference rule: for every past round, the agent's bundle then
+		// must not have gone up in price by less than the new bundle has.
+		IRoundHistory rounds = state.getRoundHistory();
+		updateRecords(rounds);
+		if (this.records.isEmpty()) {
+			return;
+		}
+		double[] current = currentReserves(rounds, reserves);
+		long[] newBundle = new long[words(rounds.getNumItems())];
+		for (ICart cart : carts.keySet()) {
+			for (IItem item : cart.getItems()) {
+				int index = rounds.getItemIndex(item.getName());
+				if (index != -1) {
+					newBundle[index >> 6] |= 1L << index;
+				}
 			}
 		}
 		
-		List<List<ITradeMessage>> history = state.getTradeHistory();
-		for (int round = 0; round < history.size(); round++) {
-			// get this bidder's bid and the reserve
-			Set<String> oldBundle = new HashSet<>();
-			Map<String, Double> oldReserves = new HashMap<>();
-			for (ITradeMessage message : history.get(round)) {
-				if (message.getAgentID().intValue() == agent && message.getAuctionID().intValue() >= 0) {
-					for (Map.Entry<ICart, Double> ent : message.getBid().getBids().entrySet()) {
-						for (IItem item : ent.getKey().getItems()) {
-							oldBundle.add(item.getName());
-						}
-					}
-				} else if (message.getAgentID().intValue() == -1 && message.getAuctionID().intValue() == -1) {
-					for (Map.Entry<ICart, Double> ent : message.getBid().getBids().entrySet()) {
-						for (IItem item : ent.getKey().getItems()) {
-							oldReserves.put(item.getName(), ent.getValue());
-						}
-					}
+		int agentIndex = rounds.getAgentIndex(agent);
+		for (RoundRecord record : this.records) {
+			long[] oldBundle = agentIndex != -1 && agentIndex < record.bundles.length
+					? record.bundles[agentIndex] : null;
+			boolean same = true;
+			double oldIncrease = 0.0;
+			double newIncrease = 0.0;
+			// goods in both bundles add the same to each side.
+			for (int word = 0; word < newBundle.length; word++) {
+				long old = oldBundle != null && word < oldBundle.length ? oldBundle[word] : 0L;
+				long onlyOld = old & ~newBundle[word];
+				long onlyNew = newBundle[word] & ~old;
+				same &= (onlyOld | onlyNew) == 0;
+				for (; onlyOld != 0; onlyOld &= onlyOld - 1) {
+					int good = (word << 6) + Long.numberOfTrailingZeros(onlyOld);
+					oldIncrease += record.increase(current, good);
+				}
+				for (; onlyNew != 0; onlyNew &= onlyNew - 1) {
+					int good = (word << 6) + Long.numberOfTrailingZeros(onlyNew);
+					newIncrease += record.increase(current, good);
 				}
 			}
-			if (oldReserves.isEmpty() || newBundle.equals(oldBundle)) {
+			if (!same && oldIncrease < newIncrease) {
+				state.setAcceptable(false);
+				return;
+			}
+		}
+	}
+
+	// add a record for each round since the last call that has reserves.
+	private void updateRecords(IRoundHistory rounds) {
+		if (rounds != this.recordedHistory) {
+			this.recordedHistory = rounds;
+			this.recordedRounds = 0;
+			this.records.clear();
+			this.currentReserves = null;
+		}
+		int numItems = rounds.getNumItems();
+		for (; this.recordedRounds < rounds.getNumRounds(); this.recordedRounds++) {
+			int round = this.recordedRounds;
+			if (!rounds.hasReserves(round)) {
 				continue;
 			}
-			
-			double currPriceOldBundle = 0.0;
-			double oldPriceNewBundle = 0.0;
-			double oldPriceOldBundle = 0.0;
-			
-			for (String good : newBundle) {
-				oldPriceNewBundle += oldReserves.get(good);
+			double[] roundReserves = new double[numItems];
+			for (int item = 0; item < numItems; item++) {
+				roundReserves[item] = rounds.getReserve(round, item);
 			}
-			
-			for (String good : oldBundle) {
-				oldPriceOldBundle += oldReserves.get(good);
-				currPriceOldBundle += state.getReserves().get(good);
+			long[][] bundles = new long[rounds.getNumAgents()][];
+			for (int agent = 0; agent < bundles.length; agent++) {
+				int[] bundle = rounds.getBundle(round, agent);
+				if (bundle.length > 0) {
+					bundles[agent] = new long[words(numItems)];
+					for (int item : bundle) {
+						bundles[agent][item >> 6] |= 1L << item;
+					}
+				}
 			}
-			
-			if ((currPriceOldBundle - oldPriceOldBundle) < (currPriceNewBundle - oldPriceNewBundle)) {
-				state.setAcceptable(false);
-				return;
+			this.records.add(new RoundRecord(bundles, roundReserves));
+		}
+	}
+
+	// the current reserves by item index, built once per round.
+	private double[] currentReserves(IRoundHistory rounds, Map<String, Double> reserves) {
+		if (reserves != this.currentReservesMap || this.currentReserves == null
+				|| this.currentReserves.length != rounds.getNumItems()) {
+			this.currentReservesMap = reserves;
+			this.currentReserves = new double[rounds.getNumItems()];
+			for (int item = 0; item < this.currentReserves.length; item++) {
+				this.currentReserves[item] = reserves.getOrDefault(rounds.getItemName(item), Double.NaN);
 			}
 		}
+		return this.currentReserves;
+	}
+
+	private static int words(int numItems) {
+		return (numItems + 63) >> 6;
 	}
 
 	@Override
@@ -140,7 +212,8 @@ public class SMRAActivity extends AbsActivity implements IActivityRule {
 			}
 		}
 		
-		if (state.getTicks() == 0 || state.getTradeHistory().size() < 2) {
+		IRoundHistory rounds = state.getRoundHistory();
+		if (state.getTicks() == 0 || rounds.getNumRounds() < 2) {
 			state.setReserves(reserves);
 			return;
 		}
@@ -148,38 +221,7 @@ public class SMRAActivity extends AbsActivity implements IActivityRule {
 		// for each good
 		// if multiple bidders, set to second highest bid
 		// else if the good changed hands, increment by epsilon
-		
-		// good -> agent -> bid
-		Map<String, Map<Integer, Double>> demands = new HashMap<>();
-		List<List<ITradeMessage>> history = state.getTradeHistory();
-		for (ITradeMessage msg : history.get(history.size() - 1)) {
-			if (msg.getAgentID().intValue() == -1) {
-				continue;
-			}
-			for (Map.Entry<ICart, Double> ent : msg.getBid().getBids().entrySet()) {
-				ICart cart = ent.getKey();
-				Double bid = ent.getValue();
-				for (IItem item : cart.getItems()) {
-					demands.putIfAbsent(item.getName(), new HashMap<>());
-					demands.get(item.getName()).put(msg.getAgentID(), bid);
-				}
-			}
-		}
-		
-		// get the previous allocation
-		Map<String, Integer> prevAlloc = new HashMap<>();
-		for (ITradeMessage message : history.get(history.size() - 2)) {
-			if (message.getAuctionID().intValue() != -2) {
-				continue;
-			}
-			
-			int agent = message.getAgentID().intValue();
-			for (ICart cart : message.getBid().getBids().keySet()) {
-				for (IItem item : cart.getItems()) {
-					prevAlloc.put(item.getName(), agent);
-				}
-			}
-		}
+		int last = rounds.getNumRounds() - 1;
 		
 		Map<String, Integer> currAlloc = new HashMap<>();
 		for (Map.Entry<Integer, List<ICart>> ent : state.getAllocation().entrySet()) {
@@ -191,17 +233,27 @@ public class SMRAActivity extends AbsActivity implements IActivityRule {
 			}
 		}
 		
-		
-		for (String item : demands.keySet()) {
-			if (demands.get(item).size() <= 1) {
-				Integer previousOwner = prevAlloc.getOrDefault(item, null);
-				if (previousOwner == null || previousOwner.intValue() != currAlloc.get(item).intValue()) {
-					reserves.put(item, reserves.get(item) + EPSILON);
+		for (int item = 0; item < rounds.getNumItems(); item++) {
+			int[] rows = rounds.getItemBids(last, item);
+			if (rows.length == 0) {
+				continue;
+			}
+			// agent -> bid
+			Map<Integer, Double> demands = new HashMap<>();
+			for (int row : rows) {
+				demands.put(rounds.getBidAgent(last, row), rounds.getBidPrice(last, row));
+			}
+			String good = rounds.getItemName(item);
+			if (demands.size() <= 1) {
+				// the previous allocation
+				int previousOwner = rounds.getOwner(last - 1, item);
+				if (previousOwner == -1 || rounds.getAgentID(previousOwner).intValue() != currAlloc.get(good).intValue()) {
+					reserves.put(good, reserves.get(good) + EPSILON);
 				}
 			} else {
-				List<Double> bids = new ArrayList<>(demands.get(item).values());
+				List<Double> bids = new ArrayList<>(demands.values());
 				Collections.sort(bids);
-				reserves.put(item, bids.get(bids.size() - 2) + EPSILON);
+				reserves.put(good, bids.get(bids.size() - 2) + EPSILON);
 			}
 		}
 		state.setReserves(reserves);
@@ -1,16 +1,15 @@
 package brown.auction.rules.allocation;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 
 import brown.auction.marketstate.IMarketState;
 import brown.auction.rules.AbsRule;
 import brown.auction.rules.IAllocationRule;
-import brown.communication.bid.IBidBundle;
 import brown.communication.messages.ITradeMessage;
 import brown.platform.item.ICart;
 import brown.platform.item.IItem;
@@ -21,63 +20,67 @@ public class LastBidderMultiItem extends AbsRule implements IAllocationRule {
 	// sets the allocation to the 'last bid standing' in an ascending auction.
 	// if there are multiple last bids standing, chooses one at random.
 
+	// for each item, the last round it was bid on, and the agents that bid on
+	// it that round. Updated with each round as it is added to the history.
+	private final Map<IItem, Integer> lastRounds = new HashMap<>();
+	private final Map<IItem, List<Integer>> lastBidders = new HashMap<>();
+	private List<List<ITradeMessage>> recordedHistory;
+	private int recordedRounds;
+	private boolean anyMessages;
+
 	@Override
 	public void setAllocation(IMarketState state, List<ITradeMessage> messages) {
 
 		Map<Integer, List<ICart>> allocation = new HashMap<Integer, List<ICart>>();
 
-		// get the most recent history.
-		List<List<ITradeMessage>> tradeHistory = state.getTradeHistory();
-		System.out.println(tradeHistory);
-		if (this.tradeHistoryEmpty(tradeHistory)) {
+		// bring the last bidders up to date with the most recent history.
+		updateBidders(state.getTradeHistory());
+		if (!this.anyMessages) {
 			return;
 		}
 
-		Map<IItem, List<Integer>> bidders = new HashMap<>();
-		Map<IItem, Integer> rounds = new HashMap<>();
-		for (int round = 0; round < tradeHistory.size(); round++) {
-			// copy + shuffle
-			List<ITradeMessage> bids = new ArrayList<>(tradeHistory.get(round));
-			Collections.shuffle(bids);
-			for (ITradeMessage message : bids) {
-				for (Map.Entry<ICart, Double> ent : message.getBid().getBids().entrySet()) {
-					for (IItem item : ent.getKey().getItems()) {
-						if (rounds.getOrDefault(item, -1) < round) {
-							rounds.put(item, round);
-							bidders.put(item, new ArrayList<>());
-						}
-						bidders.get(item).add(message.getAgentID());
-					}
-				}
-			}
-		}
-		
-		for (Map.Entry<IItem, List<Integer>> ent : bidders.entrySet()) {
+		for (Map.Entry<IItem, List<Integer>> ent : this.lastBidders.entrySet()) {
 			List<Integer> winners = ent.getValue();
-			Collections.shuffle(winners);
-			int winner = winners.get(0);
+			int winner = winners.get((int) (Math.random() * winners.size()));
 			
 			if (!allocation.containsKey(winner)) {
 				allocation.put(winner, new LinkedList<>());
 				allocation.get(winner).add(new Cart());
 			}
-			allocation.get(winner).get(0).addToCart(ent.getKey());;
+			allocation.get(winner).get(0).addToCart(ent.getKey());
 		}
 
 		state.setAllocation(allocation);
 	}
 
-	private boolean tradeHistoryEmpty(List<List<ITradeMessage>> tradeHistory) {
-		boolean allEmpty = true;
-		if (tradeHistory.isEmpty())
-			return true;
-		for (List<ITradeMessage> tradeMessageList : tradeHistory) {
-			if (!tradeMessageList.isEmpty()) {
-				allEmpty = false;
-				break;
+	private void updateBidders(List<List<ITradeMessage>> tradeHistory) {
+		if (tradeHistory != this.recordedHistory || tradeHistory.size() < this.recordedRounds) {
+			this.recordedHistory = tradeHistory;
+			this.recordedRounds = 0;
+			this.anyMessages = false;
+			this.lastRounds.clear();
+			this.lastBidders.clear();
+		}
+		ListIterator<List<ITradeMessage>> newRounds = tradeHistory.listIterator(this.recordedRounds);
+		while (newRounds.hasNext()) {
+			int round = this.recordedRounds++;
+			List<ITradeMessage> bids = newRounds.next();
+			this.anyMessages |= !bids.isEmpty();
+			for (ITradeMessage message : bids) {
+				if (message.getBid() == null) {
+					continue;
+				}
+				for (ICart cart : message.getBid().getBids().keySet()) {
+					for (IItem item : cart.getItems()) {
+						if (this.lastRounds.getOrDefault(item, -1) < round) {
+							this.lastRounds.put(item, round);
+							this.lastBidders.put(item, new ArrayList<>());
+						}
+						this.lastBidders.get(item).add(message.getAgentID());
+					}
+				}
 			}
 		}
-		return allEmpty;
 	}
 
 }
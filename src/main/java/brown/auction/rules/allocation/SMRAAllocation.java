@@ -20,6 +20,7 @@ import org.spectrumauctions.sats.opt.domain.Allocation;
 import org.spectrumauctions.sats.opt.xor.XORWinnerDetermination;
 
 import brown.auction.marketstate.IMarketState;
+import brown.auction.marketstate.IRoundHistory;
 import brown.auction.rules.AbsRule;
 import brown.auction.rules.IAllocationRule;
 import brown.communication.bid.library.OneSidedBidBundle;
@@ -29,6 +30,7 @@ import brown.platform.item.ICart;
 import brown.platform.item.IItem;
 import brown.platform.item.library.Cart;
 import brown.platform.item.library.GSVM18Item;
+import brown.platform.item.library.Item;
 
 public class SMRAAllocation extends AbsRule implements IAllocationRule {
 
@@ -115,35 +117,17 @@ public class SMRAAllocation extends AbsRule implements IAllocationRule {
 				}
 			}
 		} else {
-			// auction over; search all rounds
-			List<List<ITradeMessage>> history = state.getTradeHistory();
-			double bestRev = 0.0;
-			Map<Integer, List<ICart>> bestAlloc = null;
-			for (int round = 0; round < history.size(); round++) {
-				if (history.get(round).isEmpty()) {
-					continue;
-				}
-				
-				double rev = 0.0;
-				Map<Integer, List<ICart>> alloc = new HashMap<>();
-				for (ITradeMessage msg : history.get(round)) {
-					if (msg.getAuctionID().intValue() == -2) {
-						int agent = msg.getAgentID().intValue();
-						alloc.putIfAbsent(agent, new ArrayList<>());
-						for (Map.Entry<ICart, Double> ent : msg.getBid().getBids().entrySet()) {
-							alloc.get(agent).add(ent.getKey());
-							rev += ent.getValue();
-						}
+			// auction over; the round with the most revenue
+			IRoundHistory rounds = state.getRoundHistory();
+			int bestRound = rounds.getBestRound();
+			if (bestRound >= 0) {
+				for (int item = 0; item < rounds.getNumItems(); item++) {
+					int owner = rounds.getOwner(bestRound, item);
+					if (owner != -1) {
+						allocation.computeIfAbsent(rounds.getAgentID(owner), agent -> Lists.newArrayList(new Cart()))
+								.get(0).addToCart(new Item(rounds.getItemName(item)));
 					}
 				}
-				if (rev >= bestRev) {
-					bestRev = rev;
-					bestAlloc = alloc;
-				}
-			}
-			
-			if (bestAlloc != null) {
-				allocation = bestAlloc;
 			}
 		}
 		
@@ -0,0 +1,180 @@
+package brown.auction.rules.kernel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import brown.auction.marketstate.IMarketState;
+import brown.auction.rules.ISealedBidKernel;
+import brown.auction.rules.allocation.CombinedSingleItemBidHighestPriceAllocation;
+import brown.auction.rules.allocation.SimpleHighestPriceAllocation;
+import brown.auction.rules.payment.CombinedSingleItemBidFirstPricePayment;
+import brown.auction.rules.payment.CombinedSingleItemBidSecondPricePayment;
+import brown.auction.rules.payment.FirstPricePayment;
+import brown.auction.rules.payment.SecondPricePayment;
+import brown.communication.bid.IBidBundle;
+import brown.communication.messages.ITradeMessage;
+import brown.platform.accounting.IAccountUpdate;
+import brown.platform.accounting.library.AccountUpdate;
+import brown.platform.item.ICart;
+import brown.platform.item.IItem;
+import brown.platform.item.library.Cart;
+import brown.platform.market.IFlexibleRules;
+
+/**
+ * Highest-price allocation with first- or second-price payments, in one pass
+ * over the bids. Each cart, or each item for the combined single item rules,
+ * gets an index the first time it is bid on in a call, and its highest and
+ * second highest bids and winner are kept in arrays by index. The arrays are
+ * kept between calls, but the indices are not, so they only grow to the most
+ * carts bid on in one call. As in the rules, the earliest of equal highest
+ * bids wins.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class SealedBidKernel implements ISealedBidKernel {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // combined single item rules: bids are keyed by item, and a bid must be
+  // above zero to win. Otherwise, bids are keyed by cart.
+  private final boolean byItem;
+  private final boolean secondPrice;
+
+  // carts or items bid on in the current call, to their index, numbered in
+  // the order they were first bid on.
+  private final Map<Object, Integer> index;
+
+  // by index, for the current call.
+  private double[] highest;
+  private double[] secondHighest;
+  private int[] numBids;
+  private int[] winner;
+  // the winning bid's own cart.
+  private ICart[] winningCart;
+
+  public SealedBidKernel(boolean byItem, boolean secondPrice) {
+    this.byItem = byItem;
+    this.secondPrice = secondPrice;
+    this.index = new HashMap<Object, Integer>();
+    this.highest = new double[INITIAL_CAPACITY];
+    this.secondHighest = new double[INITIAL_CAPACITY];
+    this.numBids = new int[INITIAL_CAPACITY];
+    this.winner = new int[INITIAL_CAPACITY];
+    this.winningCart = new ICart[INITIAL_CAPACITY];
+  }
+
+  /**
+   * @param rules
+   * @return a kernel for the rules' allocation and payment rules, or null if
+   * they are not a combination it computes.
+   */
+  public static ISealedBidKernel forRules(IFlexibleRules rules) {
+    Class<?> aRule = rules.getARule().getClass();
+    Class<?> pRule = rules.getPRule().getClass();
+    if (aRule == SimpleHighestPriceAllocation.class) {
+      if (pRule == FirstPricePayment.class) {
+        return new SealedBidKernel(false, false);
+      } else if (pRule == SecondPricePayment.class) {
+        return new SealedBidKernel(false, true);
+      }
+    } else if (aRule == CombinedSingleItemBidHighestPriceAllocation.class) {
+      if (pRule == CombinedSingleItemBidFirstPricePayment.class) {
+        return new SealedBidKernel(true, false);
+      } else if (pRule == CombinedSingleItemBidSecondPricePayment.class) {
+        return new SealedBidKernel(true, true);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void setAllocationAndOrders(IMarketState state,
+      List<ITradeMessage> messages) {
+    this.index.clear();
+    Map<Integer, List<ICart>> allocation = new HashMap<Integer, List<ICart>>();
+
+    for (ITradeMessage message : messages) {
+      IBidBundle bundle = message.getBid();
+      if (bundle == null) {
+        continue;
+      }
+      int agent = message.getAgentID();
+      for (Map.Entry<ICart, Double> bid : bundle.getBids().entrySet()) {
+        int key = indexOf(
+            this.byItem ? bid.getKey().getItems().get(0) : bid.getKey());
+        double price = bid.getValue();
+        if ((this.numBids[key] == 0 && !this.byItem)
+            || price > this.highest[key]) {
+          this.secondHighest[key] = this.highest[key];
+          this.highest[key] = price;
+          this.winner[key] = agent;
+          this.winningCart[key] = bid.getKey();
+          if (!this.byItem) {
+            // as the rule does, anyone who was ever winning is in the
+            // allocation, if only with no carts.
+            allocation.putIfAbsent(agent, new LinkedList<ICart>());
+          }
+        } else if ((this.numBids[key] == 1 && !this.byItem)
+            || price > this.secondHighest[key]) {
+          this.secondHighest[key] = price;
+        }
+        this.numBids[key]++;
+      }
+    }
+
+    List<IAccountUpdate> accountUpdates = new LinkedList<IAccountUpdate>();
+    for (int key = 0; key < this.index.size(); key++) {
+      if (this.winner[key] == -1) {
+        continue;
+      }
+      // under the cart rules, a lone bid pays its own price.
+      double price = this.secondPrice && (this.byItem || this.numBids[key] > 1)
+          ? this.secondHighest[key] : this.highest[key];
+      ICart cart = this.winningCart[key];
+      this.winningCart[key] = null;
+      if (this.byItem) {
+        IItem item = cart.getItems().get(0);
+        allocation.computeIfAbsent(this.winner[key], agent -> {
+          List<ICart> carts = new ArrayList<ICart>(1);
+          carts.add(new Cart());
+          return carts;
+        }).get(0).addToCart(item);
+        cart = new Cart();
+        cart.addToCart(item);
+      } else {
+        allocation.get(this.winner[key]).add(cart);
+      }
+      accountUpdates.add(new AccountUpdate(this.winner[key], price, cart));
+    }
+
+    state.setAllocation(allocation);
+    state.setPayments(accountUpdates);
+  }
+
+  private int indexOf(Object key) {
+    Integer i = this.index.get(key);
+    if (i == null) {
+      i = this.index.size();
+      this.index.put(key, i);
+      if (i == this.highest.length) {
+        int size = this.highest.length * 2;
+        this.highest = Arrays.copyOf(this.highest, size);
+        this.secondHighest = Arrays.copyOf(this.secondHighest, size);
+        this.numBids = Arrays.copyOf(this.numBids, size);
+        this.winner = Arrays.copyOf(this.winner, size);
+        this.winningCart = Arrays.copyOf(this.winningCart, size);
+      }
+      this.highest[i] = 0.0;
+      this.secondHighest[i] = 0.0;
+      this.numBids[i] = 0;
+      this.winner[i] = -1;
+    }
+    return i;
+  }
+
+}
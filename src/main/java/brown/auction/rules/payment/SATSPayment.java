@@ -1,69 +1,95 @@
 package brown.auction.rules.payment;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.spectrumauctions.sats.core.bidlang.xor.XORBid;
-import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
 import org.spectrumauctions.sats.core.model.Good;
-import org.spectrumauctions.sats.mechanism.domain.Payment;
-import org.spectrumauctions.sats.mechanism.vcg.VCGMechanism;
-import org.spectrumauctions.sats.opt.domain.Allocation;
-import org.spectrumauctions.sats.opt.xor.XORWinnerDetermination;
 
 import brown.auction.marketstate.IMarketState;
+import brown.auction.rules.IParameterizedRule;
 import brown.auction.rules.IPaymentRule;
+import brown.auction.wd.IWinnerDetermination;
+import brown.auction.wd.library.BranchAndBoundWinnerDetermination;
+import brown.auction.wd.library.VCG;
+import brown.auction.wd.library.XORAllocation;
+import brown.auction.wd.library.XORBids;
 import brown.communication.messages.ITradeMessage;
 import brown.communication.messages.library.SATSTradeMessage;
+import brown.logging.library.ErrorLogging;
 import brown.platform.accounting.IAccountUpdate;
 import brown.platform.accounting.library.AccountUpdate;
 import brown.platform.item.ICart;
 import brown.platform.item.library.Cart;
-import brown.platform.item.library.GSVM18Item;
 
-public class SATSPayment implements IPaymentRule {
+public class SATSPayment implements IPaymentRule, IParameterizedRule {
+	// time allowed for each call to solve the rounds it has not seen yet.
+	public static final long DEFAULT_DEADLINE_MILLIS = 30000;
 
+	private final IWinnerDetermination wd;
+	private final long deadlineMillis;
+
+	// VCG payments by agent ID of each round solved so far; a round is solved
+	// once, when first seen.
+	private final List<Map<Integer, Double>> roundPayments = new ArrayList<>();
+	private List<List<ITradeMessage>> solvedHistory;
+	private Map<Integer, Double> bestPayment;
+	private double bestRev;
+	// index of each good bid on in the current history.
+	private final Map<Good, Integer> goods = new HashMap<>();
+
+	public SATSPayment() {
+		this(new BranchAndBoundWinnerDetermination(), DEFAULT_DEADLINE_MILLIS);
+	}
+
+	public SATSPayment(IWinnerDetermination wd, long deadlineMillis) {
+		this.wd = wd;
+		this.deadlineMillis = deadlineMillis;
+	}
+
+	// the winner determination is shared; it keeps no state between solves.
 	@Override
-	public void setOrders(IMarketState state, List<ITradeMessage> tradeMessages) {
-		Map<Bidder<Good>, Integer> bidderToAgentID = new HashMap<>();
+	public SATSPayment newInstance() {
+		return new SATSPayment(this.wd, this.deadlineMillis);
+	}
 
-		double bestRev = 0;
-		Payment<Good> bestPayment = null;
+	@Override
+	public void setOrders(IMarketState state, List<ITradeMessage> tradeMessages) {
 		List<List<ITradeMessage>> tradeHistory = state.getTradeHistory();
-		for (List<ITradeMessage> round : tradeHistory) {
-			List<XORBid<Good>> bids = new LinkedList<>();
-			for (ITradeMessage message : round) {
-				XORBid<Good> xor = ((SATSTradeMessage) message).getXOR();
-				bids.add(xor);
-				bidderToAgentID.put(xor.getBidder(), message.getAgentID());
-			}
-			XORWinnerDetermination<Good> wd = new XORWinnerDetermination<Good>(bids);
-			Payment<Good> payment = new VCGMechanism<Good>(wd).getPayment();
-			double rev = payment.getTotalPayments();
-			if (rev > bestRev) {
-				bestRev = rev;
-				bestPayment = payment;
+		if (tradeHistory != this.solvedHistory || tradeHistory.size() < this.roundPayments.size()) {
+			this.solvedHistory = tradeHistory;
+			this.roundPayments.clear();
+			this.goods.clear();
+			this.bestPayment = null;
+			this.bestRev = 0;
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.deadlineMillis);
+		ListIterator<List<ITradeMessage>> newRounds = tradeHistory.listIterator(this.roundPayments.size());
+		while (newRounds.hasNext()) {
+			Map<Integer, Double> payment = solveRound(newRounds.next(), deadline);
+			this.roundPayments.add(payment);
+			double rev = payment.values().stream().mapToDouble(Double::doubleValue).sum();
+			if (rev > this.bestRev) {
+				this.bestRev = rev;
+				this.bestPayment = payment;
 			}
 		}
 
-		if (bestPayment == null) {
+		if (this.bestPayment == null) {
 			return;
 		}
 
-		Map<Integer, Double> payment = new HashMap<>();
-		for (Bidder<Good> winner : bestPayment.getWinners()) {
-			int agentID = bidderToAgentID.get(winner);
-			payment.putIfAbsent(agentID, 0.0);
-			payment.put(agentID, payment.get(agentID) + bestPayment.paymentOf(winner).getAmount());
-		}
-		
 		List<IAccountUpdate> updates = new LinkedList<>();
-		for (Map.Entry<Integer, Double> ent : payment.entrySet()) {
+		for (Map.Entry<Integer, Double> ent : this.bestPayment.entrySet()) {
 			List<ICart> carts = state.getAllocation().get(ent.getKey());
 			ICart cart = new Cart();
-			if (carts != null && carts.isEmpty()) {
+			if (carts != null && !carts.isEmpty()) {
 				cart = carts.get(0);
 			}
 			updates.add(new AccountUpdate(ent.getKey(), ent.getValue(), cart));
@@ -71,4 +97,43 @@ public class SATSPayment implements IPaymentRule {
 		state.setPayments(updates);
 	}
 
+	// the VCG payments of the round's winners, by agent ID.
+	private Map<Integer, Double> solveRound(List<ITradeMessage> round, long deadline) {
+		List<Integer> agentIDs = new ArrayList<>();
+		List<XORBid<Good>> xors = new ArrayList<>();
+		for (ITradeMessage message : round) {
+			if (message instanceof SATSTradeMessage && ((SATSTradeMessage) message).getXOR() != null) {
+				agentIDs.add(message.getAgentID());
+				xors.add(((SATSTradeMessage) message).getXOR());
+			}
+		}
+		for (XORBid<Good> xor : xors) {
+			for (XORValue<Good> value : xor.getValues()) {
+				for (Good good : value.getLicenses()) {
+					this.goods.putIfAbsent(good, this.goods.size());
+				}
+			}
+		}
+
+		XORBids bids = new XORBids(xors.size(), this.goods.size());
+		for (int bidder = 0; bidder < xors.size(); bidder++) {
+			for (XORValue<Good> value : xors.get(bidder).getValues()) {
+				bids.addBid(bidder, value.getLicenses().stream().mapToInt(this.goods::get).toArray(), value.getValue());
+			}
+		}
+		XORAllocation allocation = this.wd.solve(bids, -1, null, deadline);
+		double[] payments = VCG.payments(this.wd, bids, allocation, deadline);
+		if (!allocation.isOptimal() || System.nanoTime() - deadline > 0) {
+			ErrorLogging.log("ERROR: SATSPayment: winner determination ran out of time, using the best allocation found: " + bids);
+		}
+
+		Map<Integer, Double> payment = new HashMap<>();
+		for (int bidder = 0; bidder < xors.size(); bidder++) {
+			if (allocation.getBid(bidder) != -1) {
+				payment.merge(agentIDs.get(bidder), payments[bidder], Double::sum);
+			}
+		}
+		return payment;
+	}
+
 }
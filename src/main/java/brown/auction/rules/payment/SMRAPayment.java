@@ -1,23 +1,19 @@
 package brown.auction.rules.payment;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import brown.auction.marketstate.IMarketState;
+import brown.auction.marketstate.IRoundHistory;
 import brown.auction.rules.IPaymentRule;
-import brown.communication.bid.library.OneSidedBidBundle;
 import brown.communication.messages.ITradeMessage;
-import brown.communication.messages.library.TradeMessage;
 import brown.platform.accounting.IAccountUpdate;
 import brown.platform.accounting.library.AccountUpdate;
 import brown.platform.item.ICart;
 import brown.platform.item.IItem;
 import brown.platform.item.library.Cart;
-import brown.platform.item.library.Item;
 
 public class SMRAPayment implements IPaymentRule {
 
@@ -27,7 +23,6 @@ public class SMRAPayment implements IPaymentRule {
 			return;
 		}
 		
-		List<List<ITradeMessage>> history = state.getTradeHistory();
 		List<IAccountUpdate> accountUpdates = new LinkedList<IAccountUpdate>();
 		
 		if (state.isOpen()) {
@@ -82,64 +77,33 @@ public class SMRAPayment implements IPaymentRule {
 				}
 			}
 			
-			// add allocations and reserves to trade history as "bids"
-			// this is the only way I can think of to keep persistent data on round-by-round allocations & reserves
-			// we should add a real way to do this later 
-			Map<ICart, Double> reserveBids = new HashMap<>();
-			for (Map.Entry<String, Double> ent : reserves.entrySet()) {
-				ICart cart = new Cart();
-				cart.addToCart(new Item(ent.getKey()));
-				reserveBids.put(cart, ent.getValue());
-			}
-			history.get(history.size() - 1).add(new TradeMessage(-1, -1, -1, new OneSidedBidBundle(reserveBids)));
+			// record the round's reserves and prices.
+			IRoundHistory rounds = state.getRoundHistory();
+			int round = rounds.getNumRounds() - 1;
+			rounds.setReserves(round, reserves);
 			for (Map.Entry<Integer, List<ICart>> ent : state.getAllocation().entrySet()) {
-				Map<ICart, Double> map = new HashMap<>();
 				for (ICart cart : ent.getValue()) {
-					double price = 0.0;
 					for (IItem item : cart.getItems()) {
-						price += itemPrices.get(item.getName());
+						rounds.allocate(round, ent.getKey(), item.getName(), itemPrices.get(item.getName()));
 					}
-					map.put(cart, price);
 				}
-				history.get(history.size() - 1).add(new TradeMessage(-1, ent.getKey(), -2, new OneSidedBidBundle(map)));
 			}
 		} else {
-			// auction over; search all rounds
-			double bestRev = 0.0;
-			Map<Integer, Double> bestPayment = null;
-			for (int round = 0; round < history.size(); round++) {
-				if (history.get(round).isEmpty()) {
-					continue;
-				}
-				
-				double rev = 0.0;
-				Map<Integer, Double> payment = new HashMap<>();
-				for (ITradeMessage msg : history.get(round)) {
-					if (msg.getAuctionID().intValue() == -2) {
-						int agent = msg.getAgentID().intValue();
-						payment.putIfAbsent(agent, 0.0);
-						for (Map.Entry<ICart, Double> ent : msg.getBid().getBids().entrySet()) {
-							rev += ent.getValue();
-							payment.put(agent, payment.get(agent) + ent.getValue());
-						}
+			// auction over; the round with the most revenue
+			IRoundHistory rounds = state.getRoundHistory();
+			int bestRound = rounds.getBestRound();
+			if (bestRound >= 0) {
+				Map<Integer, Double> bestPayment = new HashMap<>();
+				for (int item = 0; item < rounds.getNumItems(); item++) {
+					int owner = rounds.getOwner(bestRound, item);
+					if (owner != -1) {
+						bestPayment.merge(rounds.getAgentID(owner), rounds.getPrice(bestRound, item), Double::sum);
 					}
 				}
-				if (rev >= bestRev) {
-					bestRev = rev;
-					bestPayment = payment;
-				}
-			}
-			
-			if (bestPayment != null) {
 				for (Map.Entry<Integer, Double> ent : bestPayment.entrySet()) {
 					accountUpdates.add(new AccountUpdate(ent.getKey(), ent.getValue(), state.getAllocation().get(ent.getKey()).get(0)));
 				}
 			}
-			
-			// remove hacky entries from trade history
-			for (List<ITradeMessage> lst : history) {
-				lst.removeIf(message -> message.getAuctionID().intValue() < 0);
-			}
 		}
 		
 		state.setPayments(accountUpdates);
@@ -18,12 +18,12 @@ import brown.platform.item.IItem;
 public class SMRATermination extends AbsRule implements ITerminationCondition {
 	private static final double LAMBDA = 0.25;
 	private static final int MIN_END_ROUND = 30;
-	private static Integer END_ROUND = null;
+	private Integer endRound = null;
 	
 
 	@Override
 	public void checkTerminated(IMarketState state, List<ITradeMessage> messages) {
-		if (END_ROUND == null) {
+		if (this.endRound == null) {
 			reset();
 		}
 		
@@ -48,15 +48,15 @@ public class SMRATermination extends AbsRule implements ITerminationCondition {
 			return;
 		}
 		
-		if (state.getTicks() > END_ROUND) {
+		if (state.getTicks() > this.endRound) {
 			state.close();
 			reset();
 			return;
 		}
 	}
 	
-	private static void reset() {
-		END_ROUND = new Double((Math.log(1 - Math.random()) / -LAMBDA) + MIN_END_ROUND).intValue();
+	private void reset() {
+		this.endRound = new Double((Math.log(1 - Math.random()) / -LAMBDA) + MIN_END_ROUND).intValue();
 	}
 	
 }
@@ -25,7 +25,7 @@ public class GSVM18Valuation implements ISpecificValuation {
 	private long populationID;
 	private Set<String> dqResult;
 	private int agentID;
-	private static Map<Integer, Integer> idToPosition = new HashMap<>();
+	private Integer position;
 	
 	public GSVM18Valuation() {
 		this.seed = 0;
@@ -33,6 +33,7 @@ public class GSVM18Valuation implements ISpecificValuation {
 		this.populationID = 0;
 		this.dqResult = new HashSet<>();
 		this.agentID = -1;
+		this.position = null;
 	}
 	
 	public GSVM18Valuation(int seed, int index, long populationID, int agentID) {
@@ -41,6 +42,7 @@ public class GSVM18Valuation implements ISpecificValuation {
 		this.populationID = populationID;
 		this.dqResult = new HashSet<>();
 		this.agentID = agentID;
+		this.position = null;
 		this.getPosition();
 	}
 	
@@ -55,16 +57,14 @@ public class GSVM18Valuation implements ISpecificValuation {
 	}
 	
 	private int getPosition() {
-		int pos = getBidder().getBidderPosition() + 1;
-		if (pos == 0) {
-			pos = 7;
+		if (this.position == null) {
+			int pos = getBidder().getBidderPosition() + 1;
+			if (pos == 0) {
+				pos = 7;
+			}
+			this.position = pos;
 		}
-		idToPosition.put(this.agentID, pos);
-		return pos;
-	}
-	
-	public static Integer positionOf(int agentID) {
-		return idToPosition.get(agentID);
+		return this.position;
 	}
 
 	@Override
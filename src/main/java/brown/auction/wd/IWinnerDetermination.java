@@ -0,0 +1,31 @@
+package brown.auction.wd;
+
+import brown.auction.wd.library.XORAllocation;
+import brown.auction.wd.library.XORBids;
+
+/**
+ * Finds the allocation of XOR bids with the most value: at most one bid per
+ * bidder, and no good in more than one bid.
+ *
+ * @author andrewcoggins
+ */
+public interface IWinnerDetermination {
+
+  /**
+   * deadline for a solve that may take as long as it needs.
+   */
+  public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+  /**
+   * @param bids
+   * @param excludedBidder a bidder whose bids are left out, or -1.
+   * @param incumbent a feasible allocation without the excluded bidder, to
+   * search only for better ones; may be null.
+   * @param deadline in System.nanoTime() terms, or NO_DEADLINE. Once past it,
+   * the best allocation found so far is returned, and it is not optimal.
+   * @return an allocation at least as good as the incumbent.
+   */
+  public XORAllocation solve(XORBids bids, int excludedBidder,
+      XORAllocation incumbent, long deadline);
+
+}
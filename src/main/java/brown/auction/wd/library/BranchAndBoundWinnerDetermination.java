@@ -0,0 +1,210 @@
+package brown.auction.wd.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import brown.auction.wd.IWinnerDetermination;
+
+/**
+ * Depth-first branch and bound over the bidders. Each bidder in turn wins
+ * one of its bids that fits with the goods already taken, or none. A branch
+ * is cut once it cannot beat the best allocation found so far, which starts
+ * out as the better of the incumbent and a greedy allocation. The bound is
+ * the lesser of two: every remaining bidder winning its best bid that still
+ * fits, and every free good selling at the best price per good of any bid
+ * that still fits. Safe to use from several threads at once.
+ *
+ * @author andrewcoggins
+ */
+public class BranchAndBoundWinnerDetermination implements IWinnerDetermination {
+
+  // nodes between checks of the deadline.
+  private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+  @Override
+  public XORAllocation solve(XORBids bids, int excludedBidder,
+      XORAllocation incumbent, long deadline) {
+    return new Search(bids, excludedBidder, deadline).run(incumbent);
+  }
+
+  private static final class Search {
+
+    private final XORBids bids;
+    private final long deadline;
+    // bidders with positive bids, by their best bid, highest first; and each
+    // one's positive bids, highest first.
+    private final int[] order;
+    private final int[][] bidderBids;
+    // sum of the best bids of the bidders from a depth on.
+    private final double[] suffixBest;
+    // by bid: its goods, and its value per good. Bids without goods have no
+    // price per good, and then only the bidders' bound is used.
+    private final int[][] bidGoods;
+    private final double[] perGood;
+    private boolean emptyBundles;
+    private final double[] goodBound;
+
+    private final long[] taken;
+    private final int[] current;
+    private int[] best;
+    private double bestValue;
+    private long nodes;
+    private boolean timedOut;
+
+    private Search(XORBids bids, int excludedBidder, long deadline) {
+      this.bids = bids;
+      this.deadline = deadline;
+      List<List<Integer>> byBidder = new ArrayList<List<Integer>>();
+      for (int bidder = 0; bidder < bids.getNumBidders(); bidder++) {
+        byBidder.add(new ArrayList<Integer>());
+      }
+      for (int bid = 0; bid < bids.getNumBids(); bid++) {
+        int bidder = bids.getBidder(bid);
+        if (bidder != excludedBidder && bids.getValue(bid) > 0.0) {
+          byBidder.get(bidder).add(bid);
+        }
+      }
+      List<int[]> bidders = new ArrayList<int[]>();
+      for (List<Integer> bidderBids : byBidder) {
+        if (!bidderBids.isEmpty()) {
+          bidders.add(bidderBids.stream()
+              .sorted(Comparator.comparingDouble(
+                  (Integer bid) -> bids.getValue(bid)).reversed())
+              .mapToInt(Integer::intValue).toArray());
+        }
+      }
+      bidders.sort(Comparator.comparingDouble(
+          (int[] bidderBids) -> bids.getValue(bidderBids[0])).reversed());
+      this.bidderBids = bidders.toArray(new int[bidders.size()][]);
+      this.order = new int[this.bidderBids.length];
+      this.suffixBest = new double[this.bidderBids.length + 1];
+      for (int depth = this.bidderBids.length - 1; depth >= 0; depth--) {
+        this.order[depth] = bids.getBidder(this.bidderBids[depth][0]);
+        this.suffixBest[depth] = this.suffixBest[depth + 1]
+            + bids.getValue(this.bidderBids[depth][0]);
+      }
+      this.bidGoods = new int[bids.getNumBids()][];
+      this.perGood = new double[bids.getNumBids()];
+      for (int[] bidderBids : this.bidderBids) {
+        for (int bid : bidderBids) {
+          this.bidGoods[bid] = bids.getGoods(bid);
+          this.emptyBundles |= this.bidGoods[bid].length == 0;
+          this.perGood[bid] = bids.getValue(bid) / this.bidGoods[bid].length;
+        }
+      }
+      this.goodBound = new double[bids.getNumGoods()];
+      this.taken = bids.noGoods();
+      this.current = new int[bids.getNumBidders()];
+      Arrays.fill(this.current, -1);
+    }
+
+    private XORAllocation run(XORAllocation incumbent) {
+      this.best = Arrays.copyOf(this.current, this.current.length);
+      this.bestValue = 0.0;
+      greedy();
+      if (incumbent != null && incumbent.getValue() > this.bestValue) {
+        for (int bidder = 0; bidder < this.best.length; bidder++) {
+          this.best[bidder] = incumbent.getBid(bidder);
+        }
+        this.bestValue = incumbent.getValue();
+      }
+      search(0, 0.0);
+      return new XORAllocation(this.best, this.bestValue, !this.timedOut);
+    }
+
+    // each bidder in turn takes its best bid that still fits.
+    private void greedy() {
+      double value = 0.0;
+      for (int depth = 0; depth < this.order.length; depth++) {
+        for (int bid : this.bidderBids[depth]) {
+          if (!this.bids.overlaps(bid, this.taken)) {
+            this.bids.toggle(bid, this.taken);
+            this.current[this.order[depth]] = bid;
+            value += this.bids.getValue(bid);
+            break;
+          }
+        }
+      }
+      if (value > this.bestValue) {
+        this.best = Arrays.copyOf(this.current, this.current.length);
+        this.bestValue = value;
+      }
+      for (int bidder = 0; bidder < this.current.length; bidder++) {
+        if (this.current[bidder] != -1) {
+          this.bids.toggle(this.current[bidder], this.taken);
+          this.current[bidder] = -1;
+        }
+      }
+    }
+
+    private void search(int depth, double value) {
+      if (value > this.bestValue) {
+        this.best = Arrays.copyOf(this.current, this.current.length);
+        this.bestValue = value;
+      }
+      if (depth == this.order.length || this.timedOut) {
+        return;
+      }
+      if (++this.nodes % DEADLINE_CHECK_INTERVAL == 0
+          && this.deadline != NO_DEADLINE
+          && System.nanoTime() - this.deadline > 0) {
+        this.timedOut = true;
+        return;
+      }
+      if (value + this.suffixBest[depth] <= this.bestValue
+          || bound(depth, value) <= this.bestValue) {
+        return;
+      }
+
+      int bidder = this.order[depth];
+      for (int bid : this.bidderBids[depth]) {
+        if (this.bids.overlaps(bid, this.taken)) {
+          continue;
+        }
+        this.bids.toggle(bid, this.taken);
+        this.current[bidder] = bid;
+        search(depth + 1, value + this.bids.getValue(bid));
+        this.current[bidder] = -1;
+        this.bids.toggle(bid, this.taken);
+        if (this.timedOut) {
+          return;
+        }
+      }
+      search(depth + 1, value);
+    }
+
+    // the value plus the lesser of the bidders' and the goods' bounds.
+    private double bound(int depth, double value) {
+      double bidders = 0.0;
+      Arrays.fill(this.goodBound, 0.0);
+      for (int d = depth; d < this.order.length; d++) {
+        boolean first = true;
+        for (int bid : this.bidderBids[d]) {
+          if (this.bids.overlaps(bid, this.taken)) {
+            continue;
+          }
+          if (first) {
+            bidders += this.bids.getValue(bid);
+            first = false;
+          }
+          for (int good : this.bidGoods[bid]) {
+            this.goodBound[good] = Math.max(this.goodBound[good],
+                this.perGood[bid]);
+          }
+        }
+      }
+      if (this.emptyBundles) {
+        return value + bidders;
+      }
+      double goods = 0.0;
+      for (double price : this.goodBound) {
+        goods += price;
+      }
+      return value + Math.min(bidders, goods);
+    }
+
+  }
+
+}
@@ -0,0 +1,149 @@
+package brown.auction.wd.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import brown.auction.wd.IWinnerDetermination;
+import brown.logging.library.ErrorLogging;
+import lpsolve.LpSolve;
+import lpsolve.LpSolveException;
+
+/**
+ * Winner determination as an integer program for lp_solve: a binary variable
+ * per bid, and at most one bid per bidder and per good. lp_solve needs its
+ * native library, lpsolve55j; where it cannot be loaded, or lp_solve fails,
+ * the fallback solves instead.
+ *
+ * @author andrewcoggins
+ */
+public class LPSolveWinnerDetermination implements IWinnerDetermination {
+
+  private static final long NANOS_PER_SECOND = 1000000000L;
+
+  // whether lp_solve's native library loaded; null until first tried.
+  private static Boolean available = null;
+
+  private final IWinnerDetermination fallback;
+
+  public LPSolveWinnerDetermination() {
+    this(new BranchAndBoundWinnerDetermination());
+  }
+
+  public LPSolveWinnerDetermination(IWinnerDetermination fallback) {
+    this.fallback = fallback;
+  }
+
+  public static synchronized boolean isAvailable() {
+    if (available == null) {
+      try {
+        LpSolve.lpSolveVersion();
+        available = true;
+      } catch (LinkageError e) {
+        ErrorLogging.log("ERROR: LPSolveWinnerDetermination: lp_solve is not "
+            + "available, using the fallback: " + e);
+        available = false;
+      }
+    }
+    return available;
+  }
+
+  @Override
+  public XORAllocation solve(XORBids bids, int excludedBidder,
+      XORAllocation incumbent, long deadline) {
+    if (!isAvailable()) {
+      return this.fallback.solve(bids, excludedBidder, incumbent, deadline);
+    }
+    try {
+      return solveLP(bids, excludedBidder, incumbent, deadline);
+    } catch (LpSolveException e) {
+      ErrorLogging.log("ERROR: LPSolveWinnerDetermination: " + e);
+      return this.fallback.solve(bids, excludedBidder, incumbent, deadline);
+    }
+  }
+
+  private XORAllocation solveLP(XORBids bids, int excludedBidder,
+      XORAllocation incumbent, long deadline) throws LpSolveException {
+    int numBids = bids.getNumBids();
+    LpSolve lp = LpSolve.makeLp(0, numBids);
+    try {
+      lp.setVerbose(LpSolve.NEUTRAL);
+      // lp_solve's columns start at 1.
+      int[] columns = new int[numBids];
+      double[] values = new double[numBids];
+      List<List<Integer>> byBidder = new ArrayList<List<Integer>>();
+      List<List<Integer>> byGood = new ArrayList<List<Integer>>();
+      for (int bidder = 0; bidder < bids.getNumBidders(); bidder++) {
+        byBidder.add(new ArrayList<Integer>());
+      }
+      for (int good = 0; good < bids.getNumGoods(); good++) {
+        byGood.add(new ArrayList<Integer>());
+      }
+      for (int bid = 0; bid < numBids; bid++) {
+        columns[bid] = bid + 1;
+        values[bid] = bids.getValue(bid);
+        byBidder.get(bids.getBidder(bid)).add(bid + 1);
+        for (int good : bids.getGoods(bid)) {
+          byGood.get(good).add(bid + 1);
+        }
+      }
+      lp.setObjFnex(numBids, values, columns);
+      lp.setAddRowmode(true);
+      for (List<List<Integer>> rows : Arrays.asList(byBidder, byGood)) {
+        for (List<Integer> row : rows) {
+          if (row.size() > 1) {
+            double[] ones = new double[row.size()];
+            Arrays.fill(ones, 1.0);
+            lp.addConstraintex(row.size(), ones,
+                row.stream().mapToInt(Integer::intValue).toArray(),
+                LpSolve.LE, 1.0);
+          }
+        }
+      }
+      lp.setAddRowmode(false);
+      for (int bid = 0; bid < numBids; bid++) {
+        lp.setBinary(bid + 1, true);
+        if (bids.getBidder(bid) == excludedBidder || values[bid] <= 0.0) {
+          lp.setUpbo(bid + 1, 0.0);
+        }
+      }
+      lp.setMaxim();
+      if (deadline != NO_DEADLINE) {
+        lp.setTimeout(Math.max(1L,
+            (deadline - System.nanoTime()) / NANOS_PER_SECOND));
+      }
+
+      int result = lp.solve();
+      if (result != LpSolve.OPTIMAL && result != LpSolve.SUBOPTIMAL) {
+        return this.fallback.solve(bids, excludedBidder, incumbent, deadline);
+      }
+      double[] chosen = new double[numBids];
+      lp.getVariables(chosen);
+      int[] won = new int[bids.getNumBidders()];
+      Arrays.fill(won, -1);
+      double value = 0.0;
+      for (int bid = 0; bid < numBids; bid++) {
+        if (chosen[bid] > 0.5) {
+          won[bids.getBidder(bid)] = bid;
+          value += values[bid];
+        }
+      }
+      if (incumbent != null && incumbent.getValue() > value) {
+        return new XORAllocation(getBids(incumbent), incumbent.getValue(),
+            false);
+      }
+      return new XORAllocation(won, value, result == LpSolve.OPTIMAL);
+    } finally {
+      lp.deleteLp();
+    }
+  }
+
+  private static int[] getBids(XORAllocation allocation) {
+    int[] bids = new int[allocation.getNumBidders()];
+    for (int bidder = 0; bidder < bids.length; bidder++) {
+      bids[bidder] = allocation.getBid(bidder);
+    }
+    return bids;
+  }
+
+}
@@ -0,0 +1,43 @@
+package brown.auction.wd.library;
+
+import java.util.stream.IntStream;
+
+import brown.auction.wd.IWinnerDetermination;
+
+/**
+ * VCG payments for XOR bids. Each winner pays the value the others would
+ * have without it, less the value they get with it. The problems without
+ * each winner are solved in parallel, each starting from the main allocation
+ * without the winner, which is feasible for it.
+ *
+ * @author andrewcoggins
+ */
+public class VCG {
+
+  private VCG() {
+  }
+
+  /**
+   * @param wd
+   * @param bids
+   * @param allocation the main allocation, optimal or the best found.
+   * @param deadline as for IWinnerDetermination; a problem cut off by it may
+   * misprice its winner, but never below zero or above its bid.
+   * @return by bidder, the payment.
+   */
+  public static double[] payments(IWinnerDetermination wd, XORBids bids,
+      XORAllocation allocation, long deadline) {
+    double[] payments = new double[bids.getNumBidders()];
+    IntStream.range(0, payments.length).parallel()
+        .filter(bidder -> allocation.getBid(bidder) != -1)
+        .forEach(bidder -> {
+          XORAllocation rest = allocation.without(bidder, bids);
+          XORAllocation without = wd.solve(bids, bidder, rest, deadline);
+          double payment = without.getValue() - rest.getValue();
+          payments[bidder] = Math.max(0.0, Math.min(payment,
+              bids.getValue(allocation.getBid(bidder))));
+        });
+    return payments;
+  }
+
+}
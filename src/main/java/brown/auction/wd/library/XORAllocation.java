@@ -0,0 +1,75 @@
+package brown.auction.wd.library;
+
+import java.util.Arrays;
+
+/**
+ * An allocation of XOR bids: the bid each bidder won, if any, and the total
+ * value.
+ *
+ * @author andrewcoggins
+ */
+public class XORAllocation {
+
+  private final int[] bids;
+  private final double value;
+  private final boolean optimal;
+
+  /**
+   * @param bids by bidder, the index of the bid won, or -1.
+   * @param value
+   * @param optimal whether no allocation is known to be better.
+   */
+  public XORAllocation(int[] bids, double value, boolean optimal) {
+    this.bids = bids;
+    this.value = value;
+    this.optimal = optimal;
+  }
+
+  public static XORAllocation empty(int numBidders) {
+    int[] bids = new int[numBidders];
+    Arrays.fill(bids, -1);
+    return new XORAllocation(bids, 0.0, true);
+  }
+
+  public int getNumBidders() {
+    return this.bids.length;
+  }
+
+  /**
+   * @param bidder
+   * @return the index of the bid the bidder won, or -1.
+   */
+  public int getBid(int bidder) {
+    return this.bids[bidder];
+  }
+
+  public double getValue() {
+    return this.value;
+  }
+
+  public boolean isOptimal() {
+    return this.optimal;
+  }
+
+  /**
+   * @param bidder
+   * @param xorBids
+   * @return this allocation, without the bidder's bid.
+   */
+  public XORAllocation without(int bidder, XORBids xorBids) {
+    if (this.bids[bidder] == -1) {
+      return this;
+    }
+    int[] rest = Arrays.copyOf(this.bids, this.bids.length);
+    rest[bidder] = -1;
+    return new XORAllocation(rest,
+        this.value - xorBids.getValue(this.bids[bidder]), this.optimal);
+  }
+
+  @Override
+  public String toString() {
+    return "XORAllocation [bids=" + Arrays.toString(bids) + ", value=" + value
+        + ", optimal=" + optimal + "]";
+  }
+
+}
@@ -0,0 +1,139 @@
+package brown.auction.wd.library;
+
+import java.util.Arrays;
+
+/**
+ * XOR bids in primitive columns. Bidders and goods are dense indexes, and
+ * each bid's bundle is a bitmask over the goods.
+ *
+ * @author andrewcoggins
+ */
+public class XORBids {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final int numBidders;
+  private final int numGoods;
+  // longs per bundle.
+  private final int words;
+
+  private int[] bidder;
+  private double[] value;
+  // bid b's bundle is words b * words to (b + 1) * words.
+  private long[] bundles;
+  private int numBids;
+
+  public XORBids(int numBidders, int numGoods) {
+    this.numBidders = numBidders;
+    this.numGoods = numGoods;
+    this.words = Math.max(1, (numGoods + 63) >> 6);
+    this.bidder = new int[INITIAL_CAPACITY];
+    this.value = new double[INITIAL_CAPACITY];
+    this.bundles = new long[INITIAL_CAPACITY * this.words];
+    this.numBids = 0;
+  }
+
+  /**
+   * @param bidder
+   * @param goods
+   * @param value
+   * @return the bid's index.
+   */
+  public int addBid(int bidder, int[] goods, double value) {
+    if (this.numBids == this.bidder.length) {
+      int size = this.bidder.length * 2;
+      this.bidder = Arrays.copyOf(this.bidder, size);
+      this.value = Arrays.copyOf(this.value, size);
+      this.bundles = Arrays.copyOf(this.bundles, size * this.words);
+    }
+    int bid = this.numBids++;
+    this.bidder[bid] = bidder;
+    this.value[bid] = value;
+    for (int good : goods) {
+      this.bundles[bid * this.words + (good >> 6)] |= 1L << good;
+    }
+    return bid;
+  }
+
+  public int getNumBidders() {
+    return this.numBidders;
+  }
+
+  public int getNumGoods() {
+    return this.numGoods;
+  }
+
+  public int getNumBids() {
+    return this.numBids;
+  }
+
+  public int getBidder(int bid) {
+    return this.bidder[bid];
+  }
+
+  public double getValue(int bid) {
+    return this.value[bid];
+  }
+
+  public int[] getGoods(int bid) {
+    int[] goods = new int[getSize(bid)];
+    int i = 0;
+    for (int word = 0; word < this.words; word++) {
+      for (long bits = this.bundles[bid * this.words + word]; bits != 0;
+          bits &= bits - 1) {
+        goods[i++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+    }
+    return goods;
+  }
+
+  public int getSize(int bid) {
+    int size = 0;
+    for (int word = 0; word < this.words; word++) {
+      size += Long.bitCount(this.bundles[bid * this.words + word]);
+    }
+    return size;
+  }
+
+  /**
+   * @param bid
+   * @param goods a bitmask as long as a bundle.
+   * @return whether the bid's bundle has any of the goods.
+   */
+  public boolean overlaps(int bid, long[] goods) {
+    int start = bid * this.words;
+    for (int word = 0; word < this.words; word++) {
+      if ((this.bundles[start + word] & goods[word]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * add the bid's bundle to goods it does not overlap, or take it back out.
+   *
+   * @param bid
+   * @param goods
+   */
+  public void toggle(int bid, long[] goods) {
+    int start = bid * this.words;
+    for (int word = 0; word < this.words; word++) {
+      goods[word] ^= this.bundles[start + word];
+    }
+  }
+
+  /**
+   * @return an empty bitmask, as long as a bundle.
+   */
+  public long[] noGoods() {
+    return new long[this.words];
+  }
+
+  @Override
+  public String toString() {
+    return "XORBids [bidders=" + numBidders + ", goods=" + numGoods
+        + ", bids=" + numBids + "]";
+  }
+
+}
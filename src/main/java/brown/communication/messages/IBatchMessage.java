@@ -0,0 +1,14 @@
+package brown.communication.messages;
+
+import java.util.List;
+
+public interface IBatchMessage extends IServerToAgentMessage {
+  
+  /**
+   * the messages in the batch, in the order they were sent. Each carries its 
+   * own IDs. 
+   * @return
+   */
+  public List<IServerToAgentMessage> getMessages(); 
+  
+}
@@ -3,5 +3,19 @@ package brown.communication.messages;
 public interface IRegistrationMessage extends IAgentToServerMessage {
   
   public String getName();  
+
+  /**
+   * fingerprint of the agent's kryo registration table, or null for agents 
+   * that are not connected over the network. 
+   * @return
+   */
+  public Integer getRegistrationTable(); 
+
+  /**
+   * name of the shared memory channel the agent made for the server, or null 
+   * if it only talks over TCP. 
+   * @return
+   */
+  public String getSharedMemoryChannel(); 
   
 }
@@ -1,5 +1,7 @@
 package brown.communication.messages;
 
+import java.util.List;
+
 public interface IRegistrationResponseMessage extends IServerToAgentMessage {
 
   public Integer getPublicAgentID(); 
@@ -8,4 +10,10 @@ public interface IRegistrationResponseMessage extends IServerToAgentMessage {
   
   public String getSimulationJsonFileName(); 
   
+  /**
+   * names in the server's item table, in index order. 
+   * @return
+   */
+  public List<String> getItemNames(); 
+  
 }
@@ -0,0 +1,13 @@
+package brown.communication.messages;
+
+public interface IReserveRequestMessage extends IAgentToServerMessage {
+  
+  public Integer getAuctionID(); 
+  
+  /**
+   * the update the agent is missing. 
+   * @return
+   */
+  public Integer getSequence(); 
+  
+}
@@ -0,0 +1,18 @@
+package brown.communication.messages;
+
+import java.util.Map;
+
+public interface IReserveUpdateMessage extends IServerToAgentMessage {
+  
+  public Integer getAuctionID(); 
+  
+  /**
+   * the number of the update, counting up for each market. Each update holds 
+   * every reserve, so only the latest matters. 
+   * @return
+   */
+  public Integer getSequence(); 
+  
+  public Map<String, Double> getReserves(); 
+  
+}
@@ -0,0 +1,11 @@
+package brown.communication.messages;
+
+public interface IStateRequestMessage extends IAgentToServerMessage {
+  
+  /**
+   * the market whose public state the agent could not rebuild. 
+   * @return
+   */
+  public Integer getAuctionID(); 
+  
+}
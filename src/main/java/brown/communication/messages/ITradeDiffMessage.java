@@ -0,0 +1,32 @@
+package brown.communication.messages;
+
+import java.util.List;
+
+import brown.platform.item.ICart;
+
+/**
+ * a bid given as its changes from the agent's previous bid in the same 
+ * market. getBid holds only the added and repriced carts. 
+ */
+public interface ITradeDiffMessage extends ITradeMessage {
+  
+  /**
+   * the message ID of the previous bid this one changes. 
+   * @return
+   */
+  public Integer getBaseID(); 
+  
+  /**
+   * carts bid on in the previous bid, but not in this one. 
+   * @return
+   */
+  public List<ICart> getRemoved(); 
+  
+  /**
+   * the whole bid, from the previous bid it changes. 
+   * @param previous
+   * @return
+   */
+  public ITradeMessage expand(ITradeMessage previous); 
+  
+}
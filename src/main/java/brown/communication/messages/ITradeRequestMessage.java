@@ -1,6 +1,7 @@
 package brown.communication.messages;
 
 import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.IMarketPublicStateDelta;
 import brown.platform.item.ICart;
 
 public interface ITradeRequestMessage extends IServerToAgentMessage {
@@ -15,4 +16,31 @@ public interface ITradeRequestMessage extends IServerToAgentMessage {
   
   public void addInformation(IMarketPublicState publicState); 
   
+  /**
+   * get the changes to the public state since the last request for this 
+   * market, sent in place of the state itself. null if the state was sent. 
+   * @return
+   */
+  public IMarketPublicStateDelta getStateDelta(); 
+  
+  public void setStateDelta(IMarketPublicStateDelta stateDelta); 
+  
+  /**
+   * get the sequence number of the reserve update that holds this market's 
+   * reserves, sent apart from the state. null if the state holds them. 
+   * @return
+   */
+  public Integer getReserveSequence(); 
+  
+  public void setReserveSequence(Integer reserveSequence); 
+  
+  /**
+   * get the message ID of the agent's last bid the market holds, that a 
+   * trade diff may be taken from. null if it holds none. 
+   * @return
+   */
+  public Integer getLastBidID(); 
+  
+  public void setLastBidID(Integer lastBidID); 
+  
 }
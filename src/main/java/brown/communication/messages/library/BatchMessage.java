@@ -0,0 +1,47 @@
+package brown.communication.messages.library;
+
+import java.util.List;
+
+import brown.communication.messages.IBatchMessage;
+import brown.communication.messages.IServerToAgentMessage;
+import brown.user.agent.IAgentBackend;
+
+/**
+ * everything the server sends one agent in one step, in one frame. The 
+ * agent handles the messages one after another, as if they had been sent 
+ * on their own. 
+ * @author andrewcoggins
+ */
+public class BatchMessage extends AbsServerToAgentMessage
+    implements IBatchMessage {
+  
+  private List<IServerToAgentMessage> messages; 
+  
+  public BatchMessage() {
+    super(null, null); 
+  }
+  
+  public BatchMessage(Integer messageID, Integer agentID,
+      List<IServerToAgentMessage> messages) {
+    super(messageID, agentID); 
+    this.messages = messages; 
+  }
+  
+  @Override
+  public void agentDispatch(IAgentBackend agent) {
+    for (IServerToAgentMessage message : this.messages) {
+      message.agentDispatch(agent); 
+    }
+  }
+
+  @Override
+  public List<IServerToAgentMessage> getMessages() {
+    return this.messages; 
+  }
+
+  @Override
+  public String toString() {
+    return "BatchMessage [messages=" + messages + "]";
+  }
+
+}
@@ -15,20 +15,38 @@ import brown.user.agent.IAgentBackend;
 public class RegistrationMessage extends AbsAgentToServerMessage implements IRegistrationMessage {
   
   private String name; 
+  private Integer registrationTable; 
+  private String sharedMemoryChannel; 
   
   public RegistrationMessage() {
     super(null, null);
     this.name = null; 
+    this.registrationTable = null; 
+    this.sharedMemoryChannel = null; 
   }
   
   public RegistrationMessage(Integer messageID) {
     super(messageID, 0); 
     this.name = "default"; 
+    this.registrationTable = null; 
+    this.sharedMemoryChannel = null; 
   }
   
   public RegistrationMessage(Integer messageID, String name) {
+    this(messageID, name, null); 
+  }
+  
+  public RegistrationMessage(Integer messageID, String name, 
+      Integer registrationTable) {
+    this(messageID, name, registrationTable, null); 
+  }
+  
+  public RegistrationMessage(Integer messageID, String name, 
+      Integer registrationTable, String sharedMemoryChannel) {
     super(messageID, 0); 
     this.name = name; 
+    this.registrationTable = registrationTable; 
+    this.sharedMemoryChannel = sharedMemoryChannel; 
   }
   
   @Override
@@ -41,9 +59,21 @@ public class RegistrationMessage extends AbsAgentToServerMessage implements IReg
     return this.name; 
   }
 
+  @Override
+  public Integer getRegistrationTable() {
+    return this.registrationTable; 
+  }
+
+  @Override
+  public String getSharedMemoryChannel() {
+    return this.sharedMemoryChannel; 
+  }
+
   @Override
   public String toString() {
-    return "RegistrationMessage [name=" + name + "]";
+    return "RegistrationMessage [name=" + name + ", registrationTable="
+        + registrationTable + ", sharedMemoryChannel=" + sharedMemoryChannel
+        + "]";
   }
 
   @Override
@@ -51,6 +81,10 @@ public class RegistrationMessage extends AbsAgentToServerMessage implements IReg
     final int prime = 31;
     int result = 1;
     result = prime * result + ((name == null) ? 0 : name.hashCode());
+    result = prime * result
+        + ((registrationTable == null) ? 0 : registrationTable.hashCode());
+    result = prime * result + ((sharedMemoryChannel == null) ? 0
+        : sharedMemoryChannel.hashCode());
     return result;
   }
 
@@ -68,6 +102,16 @@ public class RegistrationMessage extends AbsAgentToServerMessage implements IReg
         return false;
     } else if (!name.equals(other.name))
       return false;
+    if (registrationTable == null) {
+      if (other.registrationTable != null)
+        return false;
+    } else if (!registrationTable.equals(other.registrationTable))
+      return false;
+    if (sharedMemoryChannel == null) {
+      if (other.sharedMemoryChannel != null)
+        return false;
+    } else if (!sharedMemoryChannel.equals(other.sharedMemoryChannel))
+      return false;
     return true;
   }
 
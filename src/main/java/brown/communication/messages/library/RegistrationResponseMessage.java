@@ -1,5 +1,8 @@
 package brown.communication.messages.library;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import brown.communication.messages.IRegistrationResponseMessage;
 import brown.user.agent.IAgentBackend;
 
@@ -9,18 +12,28 @@ public class RegistrationResponseMessage extends AbsServerToAgentMessage
   private String name;
   private Integer publicAgentID;
   private String simulationJsonFileName;
+  private List<String> itemNames;
 
   public RegistrationResponseMessage() {
     super(null, null);
     this.name = null;
+    this.itemNames = new ArrayList<String>();
   }
 
   public RegistrationResponseMessage(Integer messageID, Integer agentID,
       Integer publicAgentID, String name, String simulationJsonFileName) {
+    this(messageID, agentID, publicAgentID, name, simulationJsonFileName,
+        new ArrayList<String>());
+  }
+
+  public RegistrationResponseMessage(Integer messageID, Integer agentID,
+      Integer publicAgentID, String name, String simulationJsonFileName,
+      List<String> itemNames) {
     super(messageID, agentID);
     this.publicAgentID = publicAgentID;
     this.name = name;
     this.simulationJsonFileName = simulationJsonFileName;
+    this.itemNames = itemNames;
   }
 
   public void agentDispatch(IAgentBackend agent) {
@@ -42,6 +55,11 @@ public class RegistrationResponseMessage extends AbsServerToAgentMessage
     return this.simulationJsonFileName; 
   }
 
+  @Override
+  public List<String> getItemNames() {
+    return this.itemNames;
+  }
+
   @Override
   public String toString() {
     return "RegistrationResponseMessage [name=" + name + ", publicAgentID="
@@ -0,0 +1,61 @@
+package brown.communication.messages.library;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import brown.communication.messages.IReserveRequestMessage;
+import brown.communication.messageserver.IOfflineMessageServer;
+import brown.communication.messageserver.IOnlineMessageServer;
+import brown.user.agent.IAgentBackend;
+
+/**
+ * sent by an agent that got a trade request without the reserve update it 
+ * refers to, which was lost or is late over UDP. The server answers over 
+ * TCP. 
+ * @author andrewcoggins
+ */
+public class ReserveRequestMessage extends AbsAgentToServerMessage
+    implements IReserveRequestMessage {
+  
+  private Integer auctionID; 
+  private Integer sequence; 
+  
+  public ReserveRequestMessage() {
+    super(null, null); 
+  }
+  
+  public ReserveRequestMessage(Integer messageID, Integer agentID,
+      Integer auctionID, Integer sequence) {
+    super(messageID, agentID); 
+    this.auctionID = auctionID; 
+    this.sequence = sequence; 
+  }
+  
+  @Override
+  public void serverDispatch(Connection connection,
+      IOnlineMessageServer server) {
+    server.onReserveRequest(connection, this);
+  }
+
+  @Override
+  public void offlineServerDispatch(IAgentBackend connection,
+      IOfflineMessageServer server) {
+    // offline agents get reserves with their trade requests.
+  }
+
+  @Override
+  public Integer getAuctionID() {
+    return this.auctionID; 
+  }
+
+  @Override
+  public Integer getSequence() {
+    return this.sequence; 
+  }
+
+  @Override
+  public String toString() {
+    return "ReserveRequestMessage [auctionID=" + auctionID + ", sequence="
+        + sequence + "]";
+  }
+
+}
@@ -0,0 +1,59 @@
+package brown.communication.messages.library;
+
+import java.util.Map;
+
+import brown.communication.messages.IReserveUpdateMessage;
+import brown.user.agent.IAgentBackend;
+
+/**
+ * the reserve prices of a market, sent to its agents once a tick, ahead of 
+ * their trade requests. Sent over UDP where possible, since every agent 
+ * in the market gets the same update. 
+ * @author andrewcoggins
+ */
+public class ReserveUpdateMessage extends AbsServerToAgentMessage
+    implements IReserveUpdateMessage {
+  
+  private Integer auctionID; 
+  private Integer sequence; 
+  private Map<String, Double> reserves; 
+  
+  public ReserveUpdateMessage() {
+    super(null, null); 
+  }
+  
+  public ReserveUpdateMessage(Integer messageID, Integer agentID,
+      Integer auctionID, Integer sequence, Map<String, Double> reserves) {
+    super(messageID, agentID); 
+    this.auctionID = auctionID; 
+    this.sequence = sequence; 
+    this.reserves = reserves; 
+  }
+  
+  @Override
+  public void agentDispatch(IAgentBackend agent) {
+    agent.onReserveUpdate(this);
+  }
+
+  @Override
+  public Integer getAuctionID() {
+    return this.auctionID; 
+  }
+
+  @Override
+  public Integer getSequence() {
+    return this.sequence; 
+  }
+
+  @Override
+  public Map<String, Double> getReserves() {
+    return this.reserves; 
+  }
+
+  @Override
+  public String toString() {
+    return "ReserveUpdateMessage [auctionID=" + auctionID + ", sequence="
+        + sequence + ", reserves=" + reserves + "]";
+  }
+
+}
@@ -0,0 +1,53 @@
+package brown.communication.messages.library;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import brown.communication.messages.IStateRequestMessage;
+import brown.communication.messageserver.IOfflineMessageServer;
+import brown.communication.messageserver.IOnlineMessageServer;
+import brown.user.agent.IAgentBackend;
+
+/**
+ * sent by an agent that got a trade request with a public state delta it 
+ * could not apply, as when it does not have the state the delta was taken 
+ * against. The server sends the request again, with the whole state. 
+ * @author andrewcoggins
+ */
+public class StateRequestMessage extends AbsAgentToServerMessage
+    implements IStateRequestMessage {
+  
+  private Integer auctionID; 
+  
+  public StateRequestMessage() {
+    super(null, null); 
+  }
+  
+  public StateRequestMessage(Integer messageID, Integer agentID,
+      Integer auctionID) {
+    super(messageID, agentID); 
+    this.auctionID = auctionID; 
+  }
+  
+  @Override
+  public void serverDispatch(Connection connection,
+      IOnlineMessageServer server) {
+    server.onStateRequest(connection, this);
+  }
+
+  @Override
+  public void offlineServerDispatch(IAgentBackend connection,
+      IOfflineMessageServer server) {
+    // offline agents are always sent the whole state.
+  }
+
+  @Override
+  public Integer getAuctionID() {
+    return this.auctionID; 
+  }
+
+  @Override
+  public String toString() {
+    return "StateRequestMessage [auctionID=" + auctionID + "]";
+  }
+
+}
@@ -0,0 +1,116 @@
+package brown.communication.messages.library;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import brown.communication.bid.IBidBundle;
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.ITradeDiffMessage;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messageserver.IOfflineMessageServer;
+import brown.communication.messageserver.IOnlineMessageServer;
+import brown.platform.item.ICart;
+import brown.user.agent.IAgentBackend;
+
+/**
+ * A trade message that only states what changed since the agent's previous 
+ * bid for the same market, for auctions like SMRA where most rounds repeat 
+ * the previous bundle. The market expands it into a whole trade message 
+ * before the activity rule sees it, if the bid it holds is the one the diff 
+ * was taken from. 
+ * 
+ * @author andrewcoggins
+ */
+public class TradeDiffMessage extends AbsAgentToServerMessage
+    implements ITradeDiffMessage {
+
+  private Integer auctionID;
+  private Integer baseID;
+  private OneSidedBidBundle changed;
+  private List<ICart> removed;
+
+  public TradeDiffMessage() {
+    super(null, null);
+  }
+
+  public TradeDiffMessage(Integer messageID, Integer agentID,
+      Integer responseID, Integer auctionID, Integer baseID,
+      OneSidedBidBundle changed, List<ICart> removed) {
+    super(messageID, agentID, responseID);
+    this.auctionID = auctionID;
+    this.baseID = baseID;
+    this.changed = changed;
+    this.removed = removed;
+  }
+
+  public TradeDiffMessage(Integer messageID, Integer agentID,
+      Integer auctionID, Integer baseID, OneSidedBidBundle changed,
+      List<ICart> removed) {
+    this(messageID, agentID, null, auctionID, baseID, changed, removed);
+  }
+
+  @Override
+  public Integer getAgentID() {
+    return this.agentID;
+  }
+
+  @Override
+  public Integer getAuctionID() {
+    return this.auctionID;
+  }
+
+  @Override
+  public Integer getBaseID() {
+    return this.baseID;
+  }
+
+  @Override
+  public IBidBundle getBid() {
+    return this.changed;
+  }
+
+  @Override
+  public List<ICart> getRemoved() {
+    return this.removed;
+  }
+
+  @Override
+  public ITradeMessage expand(ITradeMessage previous) {
+    Map<ICart, Double> bids = new HashMap<ICart, Double>();
+    if (previous.getBid() != null && previous.getBid().getBids() != null) {
+      bids.putAll(previous.getBid().getBids());
+    }
+    for (ICart cart : this.removed) {
+      bids.remove(cart);
+    }
+    if (this.changed.getBids() != null) {
+      bids.putAll(this.changed.getBids());
+    }
+    return new TradeMessage(this.messageID, this.agentID,
+        this.getCorrespondingMessageID(), this.auctionID,
+        new OneSidedBidBundle(bids));
+  }
+
+  @Override
+  public void serverDispatch(Connection connection,
+      IOnlineMessageServer server) {
+    server.onBid(connection, this);
+  }
+
+  @Override
+  public void offlineServerDispatch(IAgentBackend connection,
+      IOfflineMessageServer server) {
+    server.onBid(connection, this);
+  }
+
+  @Override
+  public String toString() {
+    return "TradeDiffMessage [changed=" + changed + ", removed=" + removed
+        + ", auctionID=" + auctionID + ", baseID=" + baseID + ", agentID="
+        + agentID + "]";
+  }
+
+}
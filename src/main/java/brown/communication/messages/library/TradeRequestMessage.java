@@ -1,6 +1,7 @@
 package brown.communication.messages.library;
 
 import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.IMarketPublicStateDelta;
 import brown.communication.messages.ITradeRequestMessage;
 import brown.platform.item.ICart;
 import brown.user.agent.IAgentBackend;
@@ -18,6 +19,9 @@ public class TradeRequestMessage extends AbsServerToAgentMessage implements ITra
   private ICart items; 
   private Integer auctionID; 
   private IMarketPublicState publicState;
+  private IMarketPublicStateDelta stateDelta;
+  private Integer reserveSequence;
+  private Integer lastBidID;
   
   public TradeRequestMessage() {
     super(null, null);
@@ -57,6 +61,36 @@ public class TradeRequestMessage extends AbsServerToAgentMessage implements ITra
     return this.publicState;
   }
 
+  @Override
+  public IMarketPublicStateDelta getStateDelta() {
+    return this.stateDelta;
+  }
+
+  @Override
+  public void setStateDelta(IMarketPublicStateDelta stateDelta) {
+    this.stateDelta = stateDelta;
+  }
+
+  @Override
+  public Integer getReserveSequence() {
+    return this.reserveSequence;
+  }
+
+  @Override
+  public void setReserveSequence(Integer reserveSequence) {
+    this.reserveSequence = reserveSequence;
+  }
+
+  @Override
+  public Integer getLastBidID() {
+    return this.lastBidID;
+  }
+
+  @Override
+  public void setLastBidID(Integer lastBidID) {
+    this.lastBidID = lastBidID;
+  }
+
   @Override
   public String toString() {
     return "TradeRequestMessage [items=" + items + ", auctionID=" + auctionID
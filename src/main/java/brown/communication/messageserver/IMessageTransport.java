@@ -0,0 +1,30 @@
+package brown.communication.messageserver;
+
+/**
+ * A message transport carries serialized messages to one agent.
+ *
+ * @author andrewcoggins
+ *
+ */
+public interface IMessageTransport {
+
+  /**
+   * write a message, or one piece of one.
+   *
+   * @param message
+   */
+  public void send(Object message);
+
+  /**
+   * whether or not the transport can take more messages without waiting.
+   *
+   * @return
+   */
+  public boolean hasRoom();
+
+  /**
+   * close the transport, and the agent's connection with it.
+   */
+  public void close();
+
+}
@@ -1,9 +1,12 @@
 package brown.communication.messageserver;
 
+import java.util.Map;
+
 import brown.communication.messages.IAgentToServerMessage;
 import brown.communication.messages.IRegistrationMessage;
 import brown.communication.messages.IServerToAgentMessage;
 import brown.communication.messages.ITradeMessage;
+import brown.user.agent.IAgent;
 import brown.user.agent.IAgentBackend;
 
 public interface IOfflineMessageServer {
@@ -23,5 +26,16 @@ public interface IOfflineMessageServer {
   
   public boolean ready();
 
+  // wait until every message sent with wait has been acknowledged, or its
+  // response deadline has passed.
+  public void awaitMessages() throws InterruptedException;
+
+  // print how long each agent took to answer, and how often it was late.
+  public void logResponseTimes(Map<Integer, Integer> privateToPublic,
+      Map<Integer, String> idToName);
+
+  // create the agent's end of this transport, and register the agent.
+  public IAgentBackend createAgentBackend(IAgent agent);
+
   public void stopMessageServer();
 }
@@ -1,9 +1,13 @@
 package brown.communication.messageserver;
 
+import java.util.Map;
+
 import com.esotericsoftware.kryonet.Connection;
 
 import brown.communication.messages.IRegistrationMessage;
+import brown.communication.messages.IReserveRequestMessage;
 import brown.communication.messages.IServerToAgentMessage;
+import brown.communication.messages.IStateRequestMessage;
 import brown.communication.messages.ITradeMessage;
 
 /**
@@ -19,9 +23,33 @@ public interface IOnlineMessageServer {
   // server receives bid message from agent. 
   public void onBid(Connection connection, ITradeMessage bidMessage); 
   
+  // server receives a request for a reserve update the agent missed. 
+  public void onReserveRequest(Connection connection, IReserveRequestMessage reserveRequest); 
+  
+  // server receives a request for the whole public state of a market, from an
+  // agent that could not rebuild it from a delta. 
+  public void onStateRequest(Connection connection, IStateRequestMessage stateRequest); 
+  
   // server sends message to agent.
   public void sendMessage(Integer agentPrivateID, IServerToAgentMessage message); 
   
+  // server sends messages to many agents, by agent private ID. Public states
+  // shared between the messages are sanitized once. 
+  public void sendMessages(Map<Integer, ? extends IServerToAgentMessage> messages); 
+  
+  // server sends the same message to many agents, by agent private ID. The
+  // messages may differ only in their message and agent IDs. 
+  public void broadcastMessage(Map<Integer, ? extends IServerToAgentMessage> messages); 
+  
+  // until endBatch, what the calling thread sends each agent is held, and then 
+  // sent to it in one frame, to be handled in the same order. 
+  public void beginBatch(); 
+  
+  public void endBatch(); 
+  
+  // forget what was sent to agents during the simulation that ended. 
+  public void reset(); 
+  
   
   public void stopMessageServer(); 
   
@@ -0,0 +1,21 @@
+package brown.communication.messageserver;
+
+/**
+ * What an online message server does when an agent has too many messages
+ * waiting to be written to it.
+ *
+ * @author andrewcoggins
+ *
+ */
+public enum SlowConsumerPolicy {
+
+  // the sender waits until the agent catches up. Threads that read from
+  // connections never wait; for them, this is DROP_INFORMATION.
+  BLOCK,
+  // the agent's oldest waiting information messages are dropped. Other
+  // messages are never dropped.
+  DROP_INFORMATION,
+  // the agent is disconnected.
+  DISCONNECT;
+
+}
@@ -0,0 +1,236 @@
+package brown.communication.messageserver.library;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import brown.communication.messageserver.IMessageTransport;
+import brown.communication.messageserver.SlowConsumerPolicy;
+import brown.logging.library.ErrorLogging;
+
+/**
+ * Writes messages to one agent connection, off the sender's thread. Messages
+ * wait in a queue, and are written in order on a shared pool whenever the
+ * connection's transport has room; everything waiting is written in one
+ * go, so kryonet can send it in as few socket writes as it can. When more
+ * than maxPending messages are waiting, the slow consumer policy applies.
+ * Senders that must not wait, like the threads that read from connections,
+ * fall back from BLOCK to DROP_INFORMATION.
+ *
+ * A message may be sent as several pieces, like the chunks of a large
+ * message. Its pieces are written back to back, and it is only ever dropped
+ * whole, before its first piece is written.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class ConnectionWriter {
+
+  private static final class Pending {
+
+    private final List<Object> pieces;
+    private final boolean droppable;
+    private int written;
+
+    private Pending(List<Object> pieces, boolean droppable) {
+      this.pieces = pieces;
+      this.droppable = droppable;
+      this.written = 0;
+    }
+
+  }
+
+  private final IMessageTransport transport;
+  private final Executor pool;
+  private final SlowConsumerPolicy policy;
+  private final int maxPending;
+
+  // guarded by this.
+  private final Deque<Pending> pending;
+  private boolean scheduled;
+  private boolean closed;
+
+  /**
+   * @param connection
+   * @param pool
+   * pool the writes are run on.
+   * @param policy
+   * @param maxPending
+   * most messages that may wait before the policy applies.
+   * @param highWater
+   * bytes in the connection's write buffer above which nothing more is
+   * written, until kryonet reports the connection idle.
+   */
+  public ConnectionWriter(Connection connection, Executor pool,
+      SlowConsumerPolicy policy, int maxPending, int highWater) {
+    this(new TcpTransport(connection, highWater), pool, policy, maxPending);
+  }
+
+  /**
+   * @param transport
+   * @param pool
+   * @param policy
+   * @param maxPending
+   */
+  public ConnectionWriter(IMessageTransport transport, Executor pool,
+      SlowConsumerPolicy policy, int maxPending) {
+    this.transport = transport;
+    this.pool = pool;
+    this.policy = policy;
+    this.maxPending = maxPending;
+    this.pending = new ArrayDeque<Pending>();
+    this.scheduled = false;
+    this.closed = false;
+  }
+
+  /**
+   * queue a message to be written.
+   *
+   * @param message
+   * @param droppable
+   * whether or not the message may be dropped under DROP_INFORMATION.
+   */
+  public void send(Object message, boolean droppable) {
+    send(Collections.singletonList(message), droppable);
+  }
+
+  /**
+   * queue a message, sent as pieces, to be written.
+   *
+   * @param pieces
+   * @param droppable
+   */
+  public void send(List<Object> pieces, boolean droppable) {
+    send(pieces, droppable, true);
+  }
+
+  /**
+   * queue a message, sent as pieces, to be written.
+   *
+   * @param pieces
+   * @param droppable
+   * @param mayBlock
+   * whether or not the sender may wait under BLOCK. If not, the oldest
+   * droppable messages are dropped instead, and if there are none, the queue
+   * goes over its limit.
+   */
+  public synchronized void send(List<Object> pieces, boolean droppable,
+      boolean mayBlock) {
+    while (!this.closed && this.pending.size() >= this.maxPending) {
+      if (this.policy == SlowConsumerPolicy.BLOCK && mayBlock) {
+        try {
+          this.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      } else if (this.policy != SlowConsumerPolicy.DISCONNECT) {
+        if (!dropOldest()) {
+          // nothing may be dropped, so the queue goes over its limit.
+          break;
+        }
+      } else {
+        ErrorLogging.log("ERROR: ConnectionWriter: disconnecting slow agent "
+            + this.transport);
+        close();
+        this.transport.close();
+      }
+    }
+    if (this.closed) {
+      return;
+    }
+    this.pending.add(new Pending(pieces, droppable));
+    schedule();
+  }
+
+  /**
+   * write whatever is waiting, if the connection has room. Called when
+   * kryonet reports the connection idle.
+   */
+  public synchronized void flush() {
+    schedule();
+  }
+
+  /**
+   * wait until every queued message has been handed to kryonet.
+   *
+   * @param timeoutMillis
+   * @return whether or not the queue emptied before the timeout.
+   * @throws InterruptedException
+   */
+  public synchronized boolean awaitWritten(long timeoutMillis)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    long remaining = timeoutMillis;
+    while ((!this.pending.isEmpty() || this.scheduled) && remaining > 0) {
+      this.wait(remaining);
+      remaining = deadline - System.currentTimeMillis();
+    }
+    return this.pending.isEmpty() && !this.scheduled;
+  }
+
+  /**
+   * drop everything waiting and stop accepting messages.
+   */
+  public synchronized void close() {
+    this.closed = true;
+    this.pending.clear();
+    this.notifyAll();
+  }
+
+  public synchronized int pendingMessages() {
+    return this.pending.size();
+  }
+
+  private boolean dropOldest() {
+    Iterator<Pending> iterator = this.pending.iterator();
+    while (iterator.hasNext()) {
+      Pending next = iterator.next();
+      if (next.droppable && next.written == 0) {
+        iterator.remove();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void schedule() {
+    if (!this.scheduled && !this.pending.isEmpty()
+        && this.transport.hasRoom()) {
+      this.scheduled = true;
+      this.pool.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      Object piece;
+      synchronized (this) {
+        if (this.pending.isEmpty() || !this.transport.hasRoom()) {
+          // the rest is written when the connection next goes idle.
+          this.scheduled = false;
+          this.notifyAll();
+          return;
+        }
+        Pending next = this.pending.peek();
+        piece = next.pieces.get(next.written++);
+        if (next.written == next.pieces.size()) {
+          this.pending.poll();
+          this.notifyAll();
+        }
+      }
+      try {
+        this.transport.send(piece);
+      } catch (RuntimeException e) {
+        ErrorLogging.log("ERROR: ConnectionWriter: failed to write to "
+            + this.transport + ": " + e);
+      }
+    }
+  }
+
+}
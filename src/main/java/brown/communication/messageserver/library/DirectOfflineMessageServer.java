@@ -0,0 +1,82 @@
+package brown.communication.messageserver.library;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import brown.communication.messages.IAgentToServerMessage;
+import brown.communication.messages.IServerToAgentMessage;
+import brown.logging.library.ErrorLogging;
+import brown.platform.managers.ISimulationManager;
+import brown.user.agent.IAgent;
+import brown.user.agent.IAgentBackend;
+import brown.user.agent.library.DirectOfflineAgentBackend;
+
+/**
+ * Offline message server that hands messages straight to the agents, on the
+ * simulation thread. A message has been fully handled by its agent by the time
+ * sendMessage returns, so there are no queues, agent threads or acks, and the
+ * server is always ready.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class DirectOfflineMessageServer extends OfflineMessageServer {
+
+	public DirectOfflineMessageServer(ISimulationManager manager) {
+		this(manager, new HashMap<String, Integer>());
+	}
+
+	/**
+	 * @param manager
+	 * @param responseDeadlines
+	 * only recorded against: agents run on the simulation thread, so there is
+	 * no way to stop waiting for one.
+	 */
+	public DirectOfflineMessageServer(ISimulationManager manager,
+			Map<String, Integer> responseDeadlines) {
+		super(manager, responseDeadlines);
+		if (!responseDeadlines.isEmpty()) {
+			ErrorLogging.log("ERROR: DirectOfflineMessageServer: response deadlines "
+					+ "are only recorded, not enforced, with direct transport");
+		}
+	}
+
+	@Override
+	public void receiveMessage(IAgentBackend connection, IAgentToServerMessage message) {
+		// agents only send messages while handling one of ours, so there is
+		// nothing to synchronize with.
+		message.offlineServerDispatch(connection, this);
+	}
+
+	@Override
+	public void sendMessage(Integer agentPrivateID, IServerToAgentMessage message, boolean wait) {
+		message.setMessageID(nextMessageID());
+		long sentAt = System.nanoTime();
+		this.agentConnections.get(agentPrivateID).receiveMessage(message);
+		if (wait) {
+			String type = message.getClass().getSimpleName();
+			long nanos = System.nanoTime() - sentAt;
+			this.responseTimes.recordAnswer(agentPrivateID, type, nanos);
+			int deadline = deadlineMillis(type);
+			if (deadline > 0 && nanos > deadline * 1000000L) {
+				this.responseTimes.recordTimeout(agentPrivateID, type);
+			}
+		}
+	}
+
+	@Override
+	public boolean ready() {
+		return true;
+	}
+
+	@Override
+	public void awaitMessages() {
+		// messages are handled as they are sent.
+	}
+
+	@Override
+	public IAgentBackend createAgentBackend(IAgent agent) {
+		return new DirectOfflineAgentBackend(this, agent);
+	}
+
+}
@@ -1,24 +1,49 @@
 package brown.communication.messageserver.library;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.esotericsoftware.kryonet.Connection;
 import com.esotericsoftware.kryonet.Listener;
 
+import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.library.MarketPublicStateDelta;
 import brown.communication.messages.IAgentToServerMessage;
+import brown.communication.messages.IInformationMessage;
 import brown.communication.messages.IRegistrationMessage;
+import brown.communication.messages.IReserveRequestMessage;
+import brown.communication.messages.IReserveUpdateMessage;
 import brown.communication.messages.IServerToAgentMessage;
+import brown.communication.messages.IStateRequestMessage;
 import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.ITradeRequestMessage;
 import brown.communication.messages.library.RegistrationResponseMessage;
+import brown.communication.messages.library.ReserveUpdateMessage;
+import brown.communication.messages.library.TradeRequestMessage;
+import brown.communication.messageserver.IMessageTransport;
 import brown.communication.messageserver.IOnlineMessageServer;
+import brown.communication.messageserver.SlowConsumerPolicy;
 import brown.logging.library.ErrorLogging;
 import brown.logging.library.PlatformLogging;
 import brown.platform.managers.ISimulationManager;
 import brown.platform.utils.Utils;
+import brown.system.kryoserver.library.BroadcastSerialization;
 import brown.system.kryoserver.library.KryoServer;
+import brown.system.sharedmemory.IRingBuffer;
+import brown.system.sharedmemory.ISharedMemoryChannel;
+import brown.system.sharedmemory.library.RingPoller;
+import brown.system.sharedmemory.library.SharedMemoryChannel;
 import brown.system.setup.ISetup;
+import brown.system.setup.library.Setup;
 
 /**
  * Message passing server for Trading Platform
@@ -31,20 +56,157 @@ public class MessageServer extends KryoServer implements IOnlineMessageServer {
   private ISimulationManager manager;
   private Map<Integer, Connection> agentConnections;
   private final int IDMULTIPLIER = 1000000000;
+  private static final int DEFAULT_MAX_PENDING = 1024;
+  // how long stopping the server waits for queued messages to be written.
+  private static final long STOP_TIMEOUT = 5000;
+  // messages larger than this are sent in chunks, so that no message needs a
+  // larger write buffer, or object buffer on the agent.
+  private static final int CHUNK_SIZE = WRITE_BUFFER_SIZE / 4;
+  // reserve updates larger than this go over TCP, so that no datagram is
+  // fragmented on a typical network.
+  private static final int MAX_DATAGRAM = 1400;
+  // whether or not the current thread reads from agents' connections. Those
+  // threads also let queued writes go out, so must never wait for them.
+  private static final ThreadLocal<Boolean> NETWORK_THREAD =
+      ThreadLocal.withInitial(() -> false);
+
+  private boolean deltaPublicState;
+  // the last trade request sent to each agent, by agent and market, with the
+  // whole public state the agent has.
+  private Map<Integer, Map<Integer, ITradeRequestMessage>> sentStates;
+
+  private SlowConsumerPolicy slowConsumerPolicy;
+  private int maxPendingMessages;
+  private Map<Connection, ConnectionWriter> writers;
+  private ExecutorService writerPool;
+
+  private boolean sharedMemory;
+  // the ring each co-located agent writes to, by connection.
+  private Map<Connection, IRingBuffer> agentRings;
+  private RingPoller ringPoller;
+
+  private boolean udpReserves;
+  // the latest reserve update sent for each market, kept for agents that miss
+  // it.
+  private Map<Integer, IReserveUpdateMessage> reserveUpdates;
+
+  // while a batch is open, the messages its thread sends each agent, by agent
+  // private ID.
+  private Map<Integer, PendingBatch> batches;
+  private volatile Thread batchThread;
 
   public MessageServer(int port, ISetup gameSetup, ISimulationManager manager) {
-    super(port, gameSetup);
+    this(port, gameSetup, manager, false);
+  }
+
+  /**
+   * @param deltaPublicState
+   * if true, trade requests carry only the changes to the public state since 
+   * the previous request for the same market, rather than the whole state. 
+   */
+  public MessageServer(int port, ISetup gameSetup, ISimulationManager manager,
+      boolean deltaPublicState) {
+    this(port, gameSetup, manager, deltaPublicState, SlowConsumerPolicy.BLOCK,
+        DEFAULT_MAX_PENDING);
+  }
+
+  /**
+   * messages are written to agents on a pool of writer threads, so senders
+   * never wait on the network. 
+   * 
+   * @param slowConsumerPolicy
+   * what to do when an agent has more than maxPendingMessages waiting to be 
+   * written to it. 
+   * @param maxPendingMessages
+   */
+  public MessageServer(int port, ISetup gameSetup, ISimulationManager manager,
+      boolean deltaPublicState, SlowConsumerPolicy slowConsumerPolicy,
+      int maxPendingMessages) {
+    this(port, gameSetup, manager, deltaPublicState, slowConsumerPolicy,
+        maxPendingMessages, false);
+  }
+
+  /**
+   * @param sharedMemory
+   * if true, agents that register with a shared memory channel the server can 
+   * open, which is only possible on the same host, exchange messages over it 
+   * rather than TCP. 
+   */
+  public MessageServer(int port, ISetup gameSetup, ISimulationManager manager,
+      boolean deltaPublicState, SlowConsumerPolicy slowConsumerPolicy,
+      int maxPendingMessages, boolean sharedMemory) {
+    this(port, gameSetup, manager, deltaPublicState, slowConsumerPolicy,
+        maxPendingMessages, sharedMemory, false);
+  }
+
+  /**
+   * @param udpReserves
+   * if true, the reserves of each market are sent once a tick as a numbered 
+   * reserve update, over UDP where the agent has it, and trade requests only 
+   * refer to the update. Agents ask for updates they miss over TCP. 
+   */
+  public MessageServer(int port, ISetup gameSetup, ISimulationManager manager,
+      boolean deltaPublicState, SlowConsumerPolicy slowConsumerPolicy,
+      int maxPendingMessages, boolean sharedMemory, boolean udpReserves) {
+    this(port, gameSetup, manager, deltaPublicState, slowConsumerPolicy,
+        maxPendingMessages, sharedMemory, udpReserves, 0);
+  }
+
+  /**
+   * @param ioThreads
+   * if positive, agents' connections are read on this many threads of a 
+   * NioServer rather than kryonet's one. Messages still reach the server one 
+   * at a time. 
+   */
+  public MessageServer(int port, ISetup gameSetup, ISimulationManager manager,
+      boolean deltaPublicState, SlowConsumerPolicy slowConsumerPolicy,
+      int maxPendingMessages, boolean sharedMemory, boolean udpReserves,
+      int ioThreads) {
+    super(port, gameSetup, ioThreads);
     this.manager = manager;
     this.agentConnections = new HashMap<Integer, Connection>();
-    final IOnlineMessageServer aServer = this;
-
+    this.deltaPublicState = deltaPublicState;
+    this.sentStates = new ConcurrentHashMap<Integer, Map<Integer, ITradeRequestMessage>>();
+    this.slowConsumerPolicy = slowConsumerPolicy;
+    this.maxPendingMessages = maxPendingMessages;
+    this.writers = new ConcurrentHashMap<Connection, ConnectionWriter>();
+    this.writerPool = Executors
+        .newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    this.sharedMemory = sharedMemory;
+    this.agentRings = new ConcurrentHashMap<Connection, IRingBuffer>();
+    this.ringPoller = new RingPoller("shared-memory-server",
+        SharedMemoryChannel.CAPACITY / 2);
+    this.udpReserves = udpReserves;
+    this.reserveUpdates = new ConcurrentHashMap<Integer, IReserveUpdateMessage>();
+    this.batches = new LinkedHashMap<Integer, PendingBatch>();
+    this.batchThread = null;
     kryoServer.addListener(new Listener() {
 
       public void received(Connection connection, Object message) {
-        if (message instanceof IAgentToServerMessage) {
-          IAgentToServerMessage castedMessage = (IAgentToServerMessage) message;
-          castedMessage.serverDispatch(connection, aServer);
+        receive(connection, message);
+      }
+
+      public void idle(Connection connection) {
+        ConnectionWriter writer = writers.get(connection);
+        if (writer != null) {
+          writer.flush();
+        }
+      }
+
+      public void disconnected(Connection connection) {
+        ConnectionWriter writer = writers.remove(connection);
+        if (writer != null) {
+          writer.close();
         }
+        IRingBuffer ring = agentRings.remove(connection);
+        if (ring != null) {
+          ringPoller.remove(ring);
+        }
+        agentConnections.forEach((agentPrivateID, agentConnection) -> {
+          if (agentConnection == connection) {
+            sentStates.remove(agentPrivateID);
+          }
+        });
       }
     });
 
@@ -62,6 +224,14 @@ public class MessageServer extends KryoServer implements IOnlineMessageServer {
             .log("[x] Server-onRegistration: encountered null registration");
         return;
       }
+      // anything else the agent sends would be read with the wrong classes.
+      if (!Setup.getTableFingerprint()
+          .equals(registrationMessage.getRegistrationTable())) {
+        ErrorLogging.log("ERROR: Server-onRegistration: kryo registration table of "
+            + registrationMessage.getName() + " does not match the server's");
+        connection.close();
+        return;
+      }
       // put connection in kryoServer
       // TODO: is this right?
       this.connections.put(connection, connection.getID());
@@ -75,6 +245,12 @@ public class MessageServer extends KryoServer implements IOnlineMessageServer {
         }
 
         this.agentConnections.put(agentPrivateID, connection);
+        // writing stops at half the write buffer, and resumes once kryonet
+        // has written out that half.
+        connection.setIdleThreshold(0.5f);
+        this.writers.put(connection, new ConnectionWriter(
+            transportFor(connection, registrationMessage), this.writerPool,
+            this.slowConsumerPolicy, this.maxPendingMessages));
 
         Integer agentID =
             this.manager.handleRegistration(registrationMessage, agentPrivateID);
@@ -82,7 +258,9 @@ public class MessageServer extends KryoServer implements IOnlineMessageServer {
             new RegistrationResponseMessage(0, agentID,
                 this.manager.getAgentIDs().get(agentID),
                 registrationMessage.getName(),
-                this.manager.getSimulationJsonFileName()));
+                this.manager.getSimulationJsonFileName(),
+                new ArrayList<String>(
+                    Setup.getItemTable(this.kryoServer.getKryo()).getItemNames())));
       } else {
         ErrorLogging.log(
             "[x] Server-onRegistration: encountered redundant registration");
@@ -90,6 +268,34 @@ public class MessageServer extends KryoServer implements IOnlineMessageServer {
     }
   }
 
+  private IMessageTransport transportFor(Connection connection,
+      IRegistrationMessage registrationMessage) {
+    ISharedMemoryChannel channel = null;
+    if (this.sharedMemory
+        && registrationMessage.getSharedMemoryChannel() != null) {
+      // fails for agents on other hosts, which then stay on TCP.
+      channel =
+          SharedMemoryChannel.attach(registrationMessage.getSharedMemoryChannel());
+    }
+    if (channel == null) {
+      return new TcpTransport(connection, WRITE_BUFFER_SIZE / 2);
+    }
+    PlatformLogging.log("[-] agent connection " + connection.getID()
+        + " uses shared memory channel " + channel.getName());
+    this.agentRings.put(connection, channel.getToServer());
+    this.ringPoller.add(channel.getToServer(), record -> receive(connection,
+        this.serialization.read(connection, record)));
+    return new SharedMemoryTransport(connection, channel.getToAgent(),
+        this.serialization, WRITE_BUFFER_SIZE);
+  }
+
+  private void receive(Connection connection, Object message) {
+    NETWORK_THREAD.set(true);
+    if (message instanceof IAgentToServerMessage) {
+      ((IAgentToServerMessage) message).serverDispatch(connection, this);
+    }
+  }
+
   @Override
   public void onBid(Connection connection, ITradeMessage bidMessage) {
     if (connections.containsKey(connection)) {
@@ -104,12 +310,322 @@ public class MessageServer extends KryoServer implements IOnlineMessageServer {
   @Override
   public void sendMessage(Integer agentPrivateID,
       IServerToAgentMessage message) {
-    this.kryoServer.sendToTCP(this.agentConnections.get(agentPrivateID).getID(),
-        Utils.sanitize(message, this.manager.getAgentIDs()));
+    send(agentPrivateID, Utils.sanitize(message, this.manager.getAgentIDs()));
+  }
+
+  @Override
+  public void sendMessages(
+      Map<Integer, ? extends IServerToAgentMessage> messages) {
+    Map<IMarketPublicState, IMarketPublicState> sanitizedStates =
+        new IdentityHashMap<IMarketPublicState, IMarketPublicState>();
+    Map<Integer, IServerToAgentMessage> sanitized =
+        new LinkedHashMap<Integer, IServerToAgentMessage>();
+    messages.forEach((agentPrivateID, message) -> sanitized.put(agentPrivateID,
+        Utils.sanitize(message, this.manager.getAgentIDs(), sanitizedStates)));
+    if (this.udpReserves) {
+      sendReserves(sanitized);
+    }
+    sanitized.forEach(this::send);
+  }
+
+  /**
+   * take the reserves out of a market's trade requests, and send them to the
+   * agents as one reserve update, ahead of the requests.
+   */
+  private void sendReserves(Map<Integer, IServerToAgentMessage> sanitized) {
+    Map<Integer, ReserveUpdateMessage> updates =
+        new HashMap<Integer, ReserveUpdateMessage>();
+    Map<Integer, byte[]> bodies = new HashMap<Integer, byte[]>();
+    for (Map.Entry<Integer, IServerToAgentMessage> message : sanitized
+        .entrySet()) {
+      if (!(message.getValue() instanceof ITradeRequestMessage)) {
+        continue;
+      }
+      ITradeRequestMessage tradeRequest =
+          (ITradeRequestMessage) message.getValue();
+      IMarketPublicState state = tradeRequest.getState();
+      if (state == null || state.getReserves() == null
+          || state.getReserves().isEmpty()) {
+        continue;
+      }
+      Integer marketID = tradeRequest.getAuctionID();
+      ReserveUpdateMessage update = updates.get(marketID);
+      if (update == null) {
+        IReserveUpdateMessage previous = this.reserveUpdates.get(marketID);
+        update = new ReserveUpdateMessage(0, null, marketID,
+            previous == null ? 0 : previous.getSequence() + 1,
+            state.getReserves());
+        updates.put(marketID, update);
+        bodies.put(marketID, this.serialization.encodeBody(update));
+        this.reserveUpdates.put(marketID, update);
+      } else if (!update.getReserves().equals(state.getReserves())) {
+        // the state differs from the market's other requests, so keeps its own.
+        continue;
+      }
+      sendReserveUpdate(message.getKey(), this.serialization.encode(
+          new ReserveUpdateMessage(0, tradeRequest.getAgentID(), null, null,
+              null), bodies.get(marketID)));
+      tradeRequest.setReserveSequence(update.getSequence());
+    }
+    // sanitized states are only shared between the requests sent here.
+    for (IServerToAgentMessage message : sanitized.values()) {
+      if (message instanceof ITradeRequestMessage
+          && ((ITradeRequestMessage) message).getReserveSequence() != null) {
+        ((ITradeRequestMessage) message).getState().setReserves(null);
+      }
+    }
+  }
+
+  private void sendReserveUpdate(Integer agentPrivateID,
+      BroadcastSerialization.Frame update) {
+    Connection connection = this.agentConnections.get(agentPrivateID);
+    // agents on shared memory, or without UDP, get it ahead of the request.
+    if (connection != null && update.length() <= MAX_DATAGRAM
+        && !this.agentRings.containsKey(connection)
+        && connection.getRemoteAddressUDP() != null) {
+      try {
+        connection.sendUDP(update);
+        return;
+      } catch (RuntimeException e) {
+        ErrorLogging.log("ERROR: Server-sendReserveUpdate: UDP send to agent "
+            + "connection " + connection.getID() + " failed: " + e);
+      }
+    }
+    write(agentPrivateID, update, false);
+  }
+
+  @Override
+  public void onReserveRequest(Connection connection,
+      IReserveRequestMessage reserveRequest) {
+    ConnectionWriter writer = this.writers.get(connection);
+    IReserveUpdateMessage update =
+        this.reserveUpdates.get(reserveRequest.getAuctionID());
+    if (writer == null || update == null) {
+      ErrorLogging.log("ERROR: Server-onReserveRequest: no reserves for auction "
+          + reserveRequest.getAuctionID());
+      return;
+    }
+    // the latest update answers requests for any earlier one.
+    writer.send(Collections.singletonList(new ReserveUpdateMessage(0,
+        reserveRequest.getAgentID(), update.getAuctionID(),
+        update.getSequence(), update.getReserves())), false,
+        !NETWORK_THREAD.get());
+  }
+
+  @Override
+  public void onStateRequest(Connection connection,
+      IStateRequestMessage stateRequest) {
+    Integer agentPrivateID = stateRequest.getAgentID();
+    Map<Integer, ITradeRequestMessage> agentStates =
+        this.sentStates.get(agentPrivateID);
+    TradeRequestMessage request = null;
+    if (this.agentConnections.get(agentPrivateID) == connection
+        && agentStates != null) {
+      synchronized (agentStates) {
+        ITradeRequestMessage sent =
+            agentStates.get(stateRequest.getAuctionID());
+        if (sent != null) {
+          // the latest request, whole; the agent takes its state as the new
+          // base.
+          request = new TradeRequestMessage(0, sent.getAuctionID(),
+              sent.getAgentID(), sent.getItems());
+          request.addInformation(
+              MarketPublicStateDelta.copyOf(sent.getState()));
+          request.setReserveSequence(sent.getReserveSequence());
+          request.setLastBidID(sent.getLastBidID());
+        }
+      }
+    }
+    if (request == null) {
+      ErrorLogging.log("ERROR: Server-onStateRequest: no public state sent for "
+          + "auction " + stateRequest.getAuctionID());
+      return;
+    }
+    write(agentPrivateID, request, false);
+  }
+
+  @Override
+  public void reset() {
+    this.sentStates.clear();
+  }
+
+  private void send(Integer agentPrivateID, IServerToAgentMessage sanitized) {
+    if (this.deltaPublicState && sanitized instanceof ITradeRequestMessage) {
+      encodeState(agentPrivateID, (ITradeRequestMessage) sanitized);
+    }
+    write(agentPrivateID, sanitized, sanitized instanceof IInformationMessage);
+  }
+
+  private void write(Integer agentPrivateID, Object message,
+      boolean droppable) {
+    write(agentPrivateID, Collections.singletonList(message), droppable);
+  }
+
+  private void write(Integer agentPrivateID, List<Object> pieces,
+      boolean droppable) {
+    ConnectionWriter writer =
+        this.writers.get(this.agentConnections.get(agentPrivateID));
+    // agents that have disconnected have no writer.
+    if (writer == null) {
+      return;
+    }
+    if (Thread.currentThread() == this.batchThread) {
+      BroadcastSerialization.Frame frame =
+          pieces.size() == 1 ? frameOf(pieces.get(0)) : null;
+      if (frame != null && frame.length() <= CHUNK_SIZE) {
+        PendingBatch batch = this.batches.get(agentPrivateID);
+        if (batch != null && batch.length + frame.length() > CHUNK_SIZE) {
+          flushBatch(agentPrivateID);
+          batch = null;
+        }
+        if (batch == null) {
+          batch = new PendingBatch();
+          this.batches.put(agentPrivateID, batch);
+        }
+        batch.add(frame, droppable);
+        return;
+      }
+      // chunked messages are sent on their own, after what came before.
+      flushBatch(agentPrivateID);
+    }
+    writer.send(pieces, droppable, !NETWORK_THREAD.get());
+  }
+
+  private BroadcastSerialization.Frame frameOf(Object piece) {
+    if (piece instanceof BroadcastSerialization.Frame) {
+      return (BroadcastSerialization.Frame) piece;
+    }
+    if (!(piece instanceof IServerToAgentMessage)) {
+      return null;
+    }
+    try {
+      return this.serialization.encode((IServerToAgentMessage) piece);
+    } catch (RuntimeException e) {
+      // sent on its own, so the writer reports the failure.
+      return null;
+    }
+  }
+
+  @Override
+  public void beginBatch() {
+    this.batchThread = Thread.currentThread();
+  }
+
+  @Override
+  public void endBatch() {
+    for (Integer agentPrivateID : new ArrayList<Integer>(
+        this.batches.keySet())) {
+      flushBatch(agentPrivateID);
+    }
+    this.batchThread = null;
+  }
+
+  private void flushBatch(Integer agentPrivateID) {
+    PendingBatch batch = this.batches.remove(agentPrivateID);
+    ConnectionWriter writer =
+        this.writers.get(this.agentConnections.get(agentPrivateID));
+    if (batch == null || writer == null) {
+      return;
+    }
+    // a batch of one is just sent as the message.
+    writer.send(Collections.singletonList(batch.frames.size() == 1
+        ? batch.frames.get(0) : this.serialization.batch(batch.frames)),
+        batch.droppable);
+  }
+
+  /**
+   * messages held for one agent until the batch is sent.
+   */
+  private static final class PendingBatch {
+
+    private final List<BroadcastSerialization.Frame> frames =
+        new ArrayList<BroadcastSerialization.Frame>();
+    private int length = 0;
+    // only if every message in it is.
+    private boolean droppable = true;
+
+    private void add(BroadcastSerialization.Frame frame, boolean droppable) {
+      this.frames.add(frame);
+      this.length += frame.length();
+      this.droppable &= droppable;
+    }
+
+  }
+
+  @Override
+  public void broadcastMessage(
+      Map<Integer, ? extends IServerToAgentMessage> messages) {
+    if (messages.isEmpty()) {
+      return;
+    }
+    // the body is the same for everyone, so it is sanitized and serialized once.
+    IServerToAgentMessage shared = Utils.sanitize(
+        messages.values().iterator().next(), this.manager.getAgentIDs());
+    if (!this.serialization.canBroadcast(shared)) {
+      messages.forEach(this::sendMessage);
+      return;
+    }
+    byte[] body = this.serialization.encodeBody(shared);
+    for (Map.Entry<Integer, ? extends IServerToAgentMessage> message : messages
+        .entrySet()) {
+      write(message.getKey(),
+          this.serialization.encode(message.getValue(), body).split(CHUNK_SIZE),
+          shared instanceof IInformationMessage);
+    }
+  }
+
+  private void encodeState(Integer agentPrivateID,
+      ITradeRequestMessage message) {
+    IMarketPublicState state = message.getState();
+    if (state == null) {
+      return;
+    }
+    Map<Integer, ITradeRequestMessage> agentStates = this.sentStates
+        .computeIfAbsent(agentPrivateID,
+            id -> new ConcurrentHashMap<Integer, ITradeRequestMessage>());
+    // copied by onStateRequest, on the network thread.
+    synchronized (agentStates) {
+      ITradeRequestMessage previous = agentStates.get(message.getAuctionID());
+      IMarketPublicState sent;
+      // TCP delivers in order, so the agent has every state sent before this
+      // one.
+      if (previous != null
+          && MarketPublicStateDelta.canEncode(previous.getState(), state)) {
+        MarketPublicStateDelta delta =
+            new MarketPublicStateDelta(previous.getState(), state);
+        message.setStateDelta(delta);
+        message.addInformation(null);
+        // the server's copy is brought up to date, rather than copied again.
+        sent = previous.getState();
+        delta.update(sent);
+      } else {
+        sent = MarketPublicStateDelta.copyOf(state);
+      }
+      TradeRequestMessage record = new TradeRequestMessage(0,
+          message.getAuctionID(), message.getAgentID(), message.getItems());
+      record.addInformation(sent);
+      record.setReserveSequence(message.getReserveSequence());
+      record.setLastBidID(message.getLastBidID());
+      agentStates.put(message.getAuctionID(), record);
+    }
   }
 
   @Override
   public void stopMessageServer() {
+    // the last messages, like simulation reports, may still be queued.
+    for (ConnectionWriter writer : this.writers.values()) {
+      try {
+        if (!writer.awaitWritten(STOP_TIMEOUT)) {
+          ErrorLogging.log("ERROR: Server-stop: dropping "
+              + writer.pendingMessages() + " unwritten messages");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    this.writerPool.shutdown();
+    this.ringPoller.stop();
     this.kryoServer.close();
     this.kryoServer.stop();
   }
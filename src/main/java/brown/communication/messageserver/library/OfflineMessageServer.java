@@ -1,10 +1,15 @@
 package brown.communication.messageserver.library;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import brown.communication.messages.IAgentToServerMessage;
 import brown.communication.messages.IRegistrationMessage;
@@ -15,45 +20,128 @@ import brown.communication.messageserver.IOfflineMessageServer;
 import brown.logging.library.ErrorLogging;
 import brown.logging.library.PlatformLogging;
 import brown.platform.managers.ISimulationManager;
+import brown.user.agent.IAgent;
 import brown.user.agent.IAgentBackend;
+import brown.user.agent.library.OfflineAgentBackend;
 
 public class OfflineMessageServer implements IOfflineMessageServer {
 
-	private ISimulationManager manager;
-	private Map<Integer, IAgentBackend> agentConnections;
+	// key of the deadline for message types without their own.
+	public static final String DEFAULT_DEADLINE = "default";
 
-	//  private Map<String, Integer> messagesReceived; 
-	private Set<Integer> messagesAwaiting;
+	private static final long NO_DEADLINE = -1;
 
-	private static int ID = 0;
+	// a message sent with wait, not yet acknowledged.
+	private static final class PendingMessage {
+
+		private final Integer agentID;
+		private final String type;
+		private final long sentAt;
+		private final long deadline;
+
+		private PendingMessage(Integer agentID, String type, long sentAt,
+				long deadline) {
+			this.agentID = agentID;
+			this.type = type;
+			this.sentAt = sentAt;
+			this.deadline = deadline;
+		}
+
+	}
+
+	protected ISimulationManager manager;
+	protected Map<Integer, IAgentBackend> agentConnections;
+
+	// messages sent with wait, not yet acknowledged. Together with the lock
+	// below, this is the barrier for the current broadcast.
+	private Map<Integer, PendingMessage> messagesAwaiting;
+	private final Object broadcastLock;
+
+	// messages whose deadline passed before they were acknowledged, by agent.
+	// Until an agent acknowledges them, anything else it sends is dropped.
+	// Changed only while holding the agent's connection.
+	private Map<Integer, Map<Integer, PendingMessage>> lateMessages;
+
+	// milliseconds each type of message has to be acknowledged in.
+	protected final Map<String, Integer> responseDeadlines;
+	protected final ResponseTimes responseTimes;
+
+	private AtomicInteger messageID;
+
+	// agents handle their messages on this pool, rather than a thread each.
+	// It has a thread more for each late agent, which may be holding one.
+	private ThreadPoolExecutor agentPool;
 
 	private final int IDMULTIPLIER = 1000000000;
 
 	public OfflineMessageServer(ISimulationManager manager) {
+		this(manager, new HashMap<String, Integer>());
+	}
+
+	/**
+	 * @param manager
+	 * @param responseDeadlines
+	 * milliseconds agents have to answer each type of message, by the message
+	 * class's simple name, with DEFAULT_DEADLINE for the rest. Without a
+	 * deadline, the server waits as long as it takes.
+	 */
+	public OfflineMessageServer(ISimulationManager manager,
+			Map<String, Integer> responseDeadlines) {
 		this.manager = manager;
 		this.agentConnections = new ConcurrentHashMap<Integer, IAgentBackend>();
-		this.messagesAwaiting = new HashSet<>();
-		// final IOfflineMessageServer aServer = this;
+		this.messagesAwaiting = new ConcurrentHashMap<Integer, PendingMessage>();
+		this.broadcastLock = new Object();
+		this.lateMessages =
+				new ConcurrentHashMap<Integer, Map<Integer, PendingMessage>>();
+		this.responseDeadlines = responseDeadlines;
+		this.responseTimes = new ResponseTimes();
+		this.messageID = new AtomicInteger(0);
+		this.agentPool = null;
 
 		PlatformLogging.log("[-] server started");
 	}
 
 	@Override
 	public void receiveMessage(IAgentBackend connection, IAgentToServerMessage message) {
-		// maintain ordering from OfflineSimulationManager.
-		synchronized (this.manager) {
-			synchronized (this) {
-				if (message.getCorrespondingMessageID() == null) {
-					message.offlineServerDispatch(connection, this);
+		// agents answer a message before acknowledging it, so everything an agent
+		// sends for a broadcast is dispatched before the broadcast completes.
+		synchronized (connection) {
+			Map<Integer, PendingMessage> late =
+					this.lateMessages.get(connection.getPrivateID());
+			if (message.getCorrespondingMessageID() == null) {
+				if (late != null && !late.isEmpty()) {
+					// the default action for a late agent is to do nothing.
+					PlatformLogging.log("[x] dropped late "
+							+ message.getClass().getSimpleName() + " from agent "
+							+ connection.getPrivateID());
 					return;
 				}
+				message.offlineServerDispatch(connection, this);
+				return;
+			}
 
-				if (this.messagesAwaiting.contains(message.getCorrespondingMessageID())) {
-					message.offlineServerDispatch(connection, this);
-					this.messagesAwaiting.remove(message.getCorrespondingMessageID());
-					this.manager.notify();
-					return;
-				} 
+			PendingMessage pending =
+					this.messagesAwaiting.get(message.getCorrespondingMessageID());
+			if (pending != null) {
+				message.offlineServerDispatch(connection, this);
+				this.responseTimes.recordAnswer(pending.agentID, pending.type,
+						System.nanoTime() - pending.sentAt);
+				this.messagesAwaiting.remove(message.getCorrespondingMessageID());
+				if (this.messagesAwaiting.isEmpty()) {
+					// only the last acknowledgement of a broadcast takes the lock.
+					synchronized (this.broadcastLock) {
+						this.broadcastLock.notifyAll();
+					}
+				}
+			} else if (late != null) {
+				pending = late.remove(message.getCorrespondingMessageID());
+				if (pending != null) {
+					this.responseTimes.recordAnswer(pending.agentID, pending.type,
+							System.nanoTime() - pending.sentAt);
+					if (late.isEmpty()) {
+						resizeAgentPool(-1);
+					}
+				}
 			}
 		}
 	}
@@ -101,24 +189,141 @@ public class OfflineMessageServer implements IOfflineMessageServer {
 	}
 
 	@Override
-	public synchronized void sendMessage(Integer agentPrivateID,
+	public void sendMessage(Integer agentPrivateID,
 			IServerToAgentMessage message, boolean wait) {
-		message.setMessageID(ID++);
+		message.setMessageID(nextMessageID());
 		if (wait) {
-			this.messagesAwaiting.add(message.getMessageID());
+			String type = message.getClass().getSimpleName();
+			long sentAt = System.nanoTime();
+			int deadline = deadlineMillis(type);
+			this.messagesAwaiting.put(message.getMessageID(),
+					new PendingMessage(agentPrivateID, type, sentAt, deadline > 0
+							? sentAt + TimeUnit.MILLISECONDS.toNanos(deadline) : NO_DEADLINE));
 		}
 		this.agentConnections.get(agentPrivateID).receiveMessage(message); 
 	}
 
 	@Override
-	public void stopMessageServer() {
-		// TODO Auto-generated method stub
+	public IAgentBackend createAgentBackend(IAgent agent) {
+		if (this.agentPool == null) {
+			// daemon threads, so that an agent that never returns does not keep
+			// the platform running after the simulation.
+			int threads = Runtime.getRuntime().availableProcessors();
+			this.agentPool = new ThreadPoolExecutor(threads, threads, 0L,
+					TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), task -> {
+						Thread thread = Executors.defaultThreadFactory().newThread(task);
+						thread.setDaemon(true);
+						return thread;
+					});
+		}
+		return new OfflineAgentBackend(this, agent, this.agentPool);
+	}
 
+	@Override
+	public void stopMessageServer() {
+		// every message has been acknowledged or given up on by now, so the pool
+		// is idle, apart from late agents.
+		if (this.agentPool != null) {
+			this.agentPool.shutdown();
+		}
 	}
 
 	@Override
-	public synchronized boolean ready() {
+	public boolean ready() {
 		return this.messagesAwaiting.isEmpty();
 	}
 
+	@Override
+	public void awaitMessages() throws InterruptedException {
+		while (true) {
+			// expiring takes the agents' connections, so it is done without the
+			// broadcast lock, which acknowledgements take while holding them.
+			long wait = expireLateMessages();
+			synchronized (this.broadcastLock) {
+				if (this.messagesAwaiting.isEmpty()) {
+					return;
+				}
+				if (wait == NO_DEADLINE) {
+					this.broadcastLock.wait();
+				} else {
+					TimeUnit.NANOSECONDS.timedWait(this.broadcastLock, wait);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void logResponseTimes(Map<Integer, Integer> privateToPublic,
+			Map<Integer, String> idToName) {
+		this.responseTimes.logResponseTimes(privateToPublic, idToName);
+	}
+
+	public ResponseTimes getResponseTimes() {
+		return this.responseTimes;
+	}
+
+	protected Integer nextMessageID() {
+		return this.messageID.getAndIncrement();
+	}
+
+	protected int deadlineMillis(String messageType) {
+		Integer deadline = this.responseDeadlines.get(messageType);
+		if (deadline == null) {
+			deadline = this.responseDeadlines.get(DEFAULT_DEADLINE);
+		}
+		return deadline == null ? 0 : deadline;
+	}
+
+	// a late agent may be holding a pool thread; give the others one more.
+	private synchronized void resizeAgentPool(int change) {
+		if (this.agentPool == null) {
+			return;
+		}
+		int threads = this.agentPool.getCorePoolSize() + change;
+		if (change > 0) {
+			this.agentPool.setMaximumPoolSize(threads);
+			this.agentPool.setCorePoolSize(threads);
+		} else {
+			this.agentPool.setCorePoolSize(threads);
+			this.agentPool.setMaximumPoolSize(threads);
+		}
+	}
+
+	// give up on messages past their deadline. Returns the nanoseconds until
+	// the next deadline, or NO_DEADLINE if no message has one.
+	private long expireLateMessages() {
+		long now = System.nanoTime();
+		long next = NO_DEADLINE;
+		for (Map.Entry<Integer, PendingMessage> entry : this.messagesAwaiting
+				.entrySet()) {
+			PendingMessage pending = entry.getValue();
+			if (pending.deadline == NO_DEADLINE) {
+				continue;
+			}
+			long remaining = pending.deadline - now;
+			if (remaining > 0) {
+				next = next == NO_DEADLINE ? remaining : Math.min(next, remaining);
+				continue;
+			}
+			IAgentBackend connection = this.agentConnections.get(pending.agentID);
+			synchronized (connection) {
+				// the agent may have answered in the meantime.
+				if (this.messagesAwaiting.remove(entry.getKey(), pending)) {
+					Map<Integer, PendingMessage> late = this.lateMessages
+							.computeIfAbsent(pending.agentID,
+									id -> new ConcurrentHashMap<Integer, PendingMessage>());
+					if (late.isEmpty()) {
+						resizeAgentPool(1);
+					}
+					late.put(entry.getKey(), pending);
+					this.responseTimes.recordTimeout(pending.agentID, pending.type);
+					ErrorLogging.log("ERROR: OfflineMessageServer: agent "
+							+ pending.agentID + " did not answer " + pending.type
+							+ " within " + deadlineMillis(pending.type) + " ms");
+				}
+			}
+		}
+		return next;
+	}
+
 }
@@ -0,0 +1,114 @@
+package brown.communication.messageserver.library;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * How long each agent took to answer each type of message, and how many times
+ * it missed the deadline for that type. Safe to update from agent threads.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class ResponseTimes {
+
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  private static final class Entry {
+
+    private int answered;
+    private long totalNanos;
+    private long maxNanos;
+    private int timedOut;
+
+  }
+
+  // agent private ID to message type to entry.
+  private final Map<Integer, Map<String, Entry>> entries;
+
+  public ResponseTimes() {
+    this.entries = new HashMap<Integer, Map<String, Entry>>();
+  }
+
+  /**
+   * record an answer, on time or not.
+   *
+   * @param agentID
+   * @param messageType
+   * @param nanos
+   * time from sending the message to the answer.
+   */
+  public synchronized void recordAnswer(Integer agentID, String messageType,
+      long nanos) {
+    Entry entry = entry(agentID, messageType);
+    entry.answered++;
+    entry.totalNanos += nanos;
+    entry.maxNanos = Math.max(entry.maxNanos, nanos);
+  }
+
+  /**
+   * record a message not answered by its deadline.
+   *
+   * @param agentID
+   * @param messageType
+   */
+  public synchronized void recordTimeout(Integer agentID, String messageType) {
+    entry(agentID, messageType).timedOut++;
+  }
+
+  public synchronized int getAnswered(Integer agentID, String messageType) {
+    return entry(agentID, messageType).answered;
+  }
+
+  public synchronized int getTimeouts(Integer agentID, String messageType) {
+    return entry(agentID, messageType).timedOut;
+  }
+
+  public synchronized int getTimeouts(Integer agentID) {
+    int timeouts = 0;
+    if (this.entries.containsKey(agentID)) {
+      for (Entry entry : this.entries.get(agentID).values()) {
+        timeouts += entry.timedOut;
+      }
+    }
+    return timeouts;
+  }
+
+  /**
+   * print a line per agent and message type, ordered by public ID.
+   *
+   * @param privateToPublic
+   * @param idToName
+   */
+  public synchronized void logResponseTimes(
+      Map<Integer, Integer> privateToPublic, Map<Integer, String> idToName) {
+    List<Integer> agentIDs = new LinkedList<Integer>(this.entries.keySet());
+    agentIDs.sort((a, b) -> Integer.compare(
+        privateToPublic.getOrDefault(a, -1),
+        privateToPublic.getOrDefault(b, -1)));
+    System.out.println("Response Times: ");
+    for (Integer agentID : agentIDs) {
+      for (Map.Entry<String, Entry> typeEntry : this.entries.get(agentID)
+          .entrySet()) {
+        Entry entry = typeEntry.getValue();
+        double mean = entry.answered == 0 ? 0.0
+            : entry.totalNanos / (double) entry.answered / NANOS_PER_MILLI;
+        System.out.println(String.format(
+            "Agent %d (%s) %s: %d answered, mean %.3f ms, max %.3f ms, %d timed out",
+            privateToPublic.get(agentID), idToName.get(agentID),
+            typeEntry.getKey(), entry.answered, mean,
+            entry.maxNanos / NANOS_PER_MILLI, entry.timedOut));
+      }
+    }
+  }
+
+  private Entry entry(Integer agentID, String messageType) {
+    return this.entries
+        .computeIfAbsent(agentID, id -> new TreeMap<String, Entry>())
+        .computeIfAbsent(messageType, type -> new Entry());
+  }
+
+}
@@ -0,0 +1,91 @@
+package brown.communication.messageserver.library;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.KryoSerialization;
+
+import brown.communication.messageserver.IMessageTransport;
+import brown.logging.library.ErrorLogging;
+import brown.system.sharedmemory.IRingBuffer;
+
+/**
+ * Transport that writes to a ring buffer shared with an agent on the same
+ * host. Each record holds the bytes kryonet would have written to the socket
+ * for the message, so anything that can be sent over TCP, like broadcast
+ * frames and chunks, can be sent here. The agent's TCP connection stays open
+ * for registration, and is closed with the transport.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class SharedMemoryTransport implements IMessageTransport {
+
+  // how long a write waits for the agent to make room before giving up.
+  private static final long WRITE_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+  private static final long PARK_NANOS = 50000;
+
+  private final Connection connection;
+  private final IRingBuffer ring;
+  private final KryoSerialization serialization;
+  // only the connection's writer sends, one message at a time.
+  private final ByteBuffer record;
+  private volatile boolean closed;
+
+  /**
+   * @param connection
+   * the agent's TCP connection.
+   * @param ring
+   * the ring the agent reads from.
+   * @param serialization
+   * @param maxMessageSize
+   * largest serialized message that will be sent.
+   */
+  public SharedMemoryTransport(Connection connection, IRingBuffer ring,
+      KryoSerialization serialization, int maxMessageSize) {
+    this.connection = connection;
+    this.ring = ring;
+    this.serialization = serialization;
+    this.record =
+        ByteBuffer.allocate(Math.min(maxMessageSize, ring.maxRecordSize()));
+    this.closed = false;
+  }
+
+  @Override
+  public void send(Object message) {
+    this.record.clear();
+    this.serialization.write(this.connection, this.record, message);
+    this.record.flip();
+    long deadline = System.nanoTime() + WRITE_TIMEOUT;
+    // the ring is only full while the agent is behind, so this waits briefly.
+    while (!this.closed && !this.ring.write(this.record)) {
+      if (System.nanoTime() - deadline > 0) {
+        ErrorLogging.log("ERROR: SharedMemoryTransport: agent connection "
+            + this.connection.getID() + " stopped reading, disconnecting");
+        close();
+        return;
+      }
+      LockSupport.parkNanos(PARK_NANOS);
+    }
+  }
+
+  @Override
+  public boolean hasRoom() {
+    // a full ring makes send wait, rather than queueing in a buffer.
+    return true;
+  }
+
+  @Override
+  public void close() {
+    this.closed = true;
+    this.connection.close();
+  }
+
+  @Override
+  public String toString() {
+    return "SharedMemoryTransport [connection=" + connection.getID() + "]";
+  }
+
+}
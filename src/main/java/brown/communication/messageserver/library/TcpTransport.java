@@ -0,0 +1,48 @@
+package brown.communication.messageserver.library;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import brown.communication.messageserver.IMessageTransport;
+
+/**
+ * Transport that writes to an agent's kryonet connection.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class TcpTransport implements IMessageTransport {
+
+  private final Connection connection;
+  private final int highWater;
+
+  /**
+   * @param connection
+   * @param highWater
+   * bytes in the connection's write buffer above which it has no room.
+   */
+  public TcpTransport(Connection connection, int highWater) {
+    this.connection = connection;
+    this.highWater = highWater;
+  }
+
+  @Override
+  public void send(Object message) {
+    this.connection.sendTCP(message);
+  }
+
+  @Override
+  public boolean hasRoom() {
+    return this.connection.getTcpWriteBufferSize() <= this.highWater;
+  }
+
+  @Override
+  public void close() {
+    this.connection.close();
+  }
+
+  @Override
+  public String toString() {
+    return "TcpTransport [connection=" + connection.getID() + "]";
+  }
+
+}
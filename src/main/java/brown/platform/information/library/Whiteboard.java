@@ -1,15 +1,16 @@
 package brown.platform.information.library;
 
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import brown.auction.marketstate.IMarketPublicState;
 import brown.platform.information.IWhiteboard;
  
 
 // whiteboard has to to with IR, meaning sometimes 
+// markets may post to the whiteboard concurrently, so its maps are concurrent.
 public class Whiteboard implements IWhiteboard {
 
   // map from market IDs to market public states 
@@ -25,30 +26,21 @@ public class Whiteboard implements IWhiteboard {
 	
 	
 	public Whiteboard() {
-		this.innerMarketWhiteboard = new HashMap<Integer, Map<Integer, List<IMarketPublicState>>>(); 
-		this.outerMarketWhiteboard = new HashMap<Integer, IMarketPublicState>(); 
-		this.simulationReportWhiteboard = new HashMap<Integer, IMarketPublicState>(); 
+		this.innerMarketWhiteboard = new ConcurrentHashMap<Integer, Map<Integer, List<IMarketPublicState>>>(); 
+		this.outerMarketWhiteboard = new ConcurrentHashMap<Integer, IMarketPublicState>(); 
+		this.simulationReportWhiteboard = new ConcurrentHashMap<Integer, IMarketPublicState>(); 
 	}
 
   @Override
   public void postInnerInformation(Integer marketID, Integer agentID, 
       IMarketPublicState marketPublicState) {
-    Map<Integer, List<IMarketPublicState>> innerMarketPublicStates;  
-    if (this.innerMarketWhiteboard.containsKey(marketID)) {
-      innerMarketPublicStates = this.innerMarketWhiteboard.get(marketID); 
-    } else {
-      innerMarketPublicStates = new HashMap<Integer, List<IMarketPublicState>>(); 
-    }
-    List<IMarketPublicState> agentPublicStates; 
-    if (innerMarketPublicStates.containsKey(agentID)) {
-      agentPublicStates = innerMarketPublicStates.get(agentID); 
-    } else {
-      agentPublicStates = new LinkedList<IMarketPublicState>(); 
-    }
+    Map<Integer, List<IMarketPublicState>> innerMarketPublicStates = 
+        this.innerMarketWhiteboard.computeIfAbsent(marketID, 
+            id -> new ConcurrentHashMap<Integer, List<IMarketPublicState>>()); 
+    List<IMarketPublicState> agentPublicStates = 
+        innerMarketPublicStates.computeIfAbsent(agentID, 
+            id -> new LinkedList<IMarketPublicState>()); 
     agentPublicStates.add(marketPublicState); 
-    innerMarketPublicStates.put(agentID, agentPublicStates); 
-    
-    this.innerMarketWhiteboard.put(marketID, innerMarketPublicStates);  
   }
 
   @Override
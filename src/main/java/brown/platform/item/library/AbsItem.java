@@ -50,6 +50,14 @@ public abstract class AbsItem implements IItem {
   public int getItemCount() {
     return this.count;
   }
+  
+  /**
+   * whether the item has a count; items made for kryo have none until read. 
+   * @return
+   */
+  public boolean hasItemCount() {
+    return this.count != null; 
+  }
 
   @Override
   public String toString() {
@@ -1,6 +1,8 @@
 
 package brown.platform.managers;
 
+import java.util.List;
+
 import brown.platform.item.IItem;
 
 /**
@@ -27,6 +29,12 @@ public interface IItemManager {
      */
     public IItem getItems(String name);
     
+    /**
+     * get the names of all items created. 
+     * @return
+     */
+    public List<String> getItemNames();
+    
     /**
      * lock the manager. No items can be created after this method is called. 
      */
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import brown.auction.value.valuation.IGeneralValuation;
 import brown.communication.messages.IInformationMessage;
 import brown.communication.messages.ISimulationReportMessage;
 import brown.communication.messages.IStatusMessage;
@@ -42,21 +43,34 @@ public interface IMarketManager {
   public Integer getNumMarketBlocks(); 
   
   /**
-   * 
+   * open the markets of a market block for a group of agents. Each market 
+   * gets its own instance of its rules. 
    * @param index
    * @param agents
+   * @param agentValuations
+   * valuations of the agents in the group, available to the market rules. 
    * @param groupIndex
    * @param numGroups
    */
-  public void openMarkets(int index, Set<Integer> agents, int groupIndex, int numGroups); 
+  public void openMarkets(int index, Set<Integer> agents, 
+      Map<Integer, IGeneralValuation> agentValuations, int groupIndex, int numGroups); 
   
   /**
    * handle a tradeMessage, meaning to redirect it to its intended market. 
+   * The bid is queued, and only checked by the activity rule once the market 
+   * processes its bids. 
    * @param message ITradeMessage from an agent
    * @return
-   * IStatusMessage specifying whether or not the ITradeMessage was rejected or not. 
+   * IStatusMessage specifying whether or not the ITradeMessage was queued. 
    */
   public IStatusMessage handleTradeMessage(ITradeMessage message); 
+
+  /**
+   * process the bids queued for a market. Called at the start of each of the 
+   * market's ticks, by whichever thread ticks the market. 
+   * @param marketID
+   */
+  public void processBids(Integer marketID); 
   
   /**
    * get the IDs of all the active, open markets. 
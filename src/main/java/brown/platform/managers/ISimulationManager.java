@@ -41,9 +41,13 @@ public interface ISimulationManager {
   /**
    * Run the simulation
    * @param startingDelayTime
-   * delay time at the beginning of the simulation, during which agents can register.
+   * maximum delay time at the beginning of the simulation, during which agents can register.
+   * @param numAgents
+   * number of agents expected to register. Registration ends as soon as this many 
+   * agents have registered. If not positive, the full startingDelayTime is waited out. 
    * @param simulationDelayTime
    * delay time between when markets send TradeRequestMessage and when they cycle again. 
+   * Markets cycle early once every agent has responded to its TradeRequestMessage. 
    * @param learningDelayTime
    * delay time at beginning of simulation given for agents to learn using fictitious play. 
    * Amount of time that agent has to 'think' 
@@ -51,8 +55,8 @@ public interface ISimulationManager {
    * number of times the simulation will be run.  
    * @throws InterruptedException
    */
-  void runSimulation(int startingDelayTime, double simulationDelayTime, int learningDelayTime, 
-      int numRuns, int serverPort, String simulationJsonFileName) throws InterruptedException;
+  void runSimulation(int startingDelayTime, int numAgents, double simulationDelayTime, 
+      int learningDelayTime, int numRuns, int serverPort, String simulationJsonFileName) throws InterruptedException;
 
   /**
    * handle an IRegistrationMessage sent from an agent. 
@@ -80,5 +84,17 @@ public interface ISimulationManager {
    */
   Map<Integer, Integer> getAgentIDs(); 
   
+  /**
+   * get the utility manager recording agent utilities for each run. 
+   * @return
+   * the simulation manager's utility manager. 
+   */
+  IUtilityManager getUtilityManager(); 
+  
+  /**
+   * log the final utilities and leaderboard of all runs. 
+   */
+  void logResults(); 
+  
 
 }
@@ -52,5 +52,15 @@ public interface IUtilityManager {
    */
   public Map<Integer, List<Double>> getAgentRecords(); 
   
+  /**
+   * add another utility manager's records to this one, e.g. from simulation
+   * runs that were done in parallel. 
+   * @param other
+   * utility manager whose records are added. 
+   * @param agentIDs
+   * map from the other manager's agent IDs to this manager's agent IDs. 
+   */
+  public void mergeRecords(IUtilityManager other, Map<Integer, Integer> agentIDs); 
+  
   
 }
@@ -9,7 +9,6 @@ import brown.logging.library.ErrorLogging;
 import brown.platform.managers.IAgentManager;
 import brown.user.agent.IAgent;
 import brown.user.agent.IAgentBackend;
-import brown.user.agent.library.OfflineAgentBackend;
 import brown.user.main.IAgentConfig;
 
 public class AgentManager implements IAgentManager {
@@ -75,7 +74,7 @@ public class AgentManager implements IAgentManager {
         Constructor<?> cons = cl.getConstructor(String.class);
         IAgent agent = (IAgent) cons.newInstance(this.agentName);
         
-        IAgentBackend agentBackend = new OfflineAgentBackend(this.messageServer, agent);
+        IAgentBackend agentBackend = this.messageServer.createAgentBackend(agent);
         agent.addAgentBackend(agentBackend);
 
       } catch (Exception e) {
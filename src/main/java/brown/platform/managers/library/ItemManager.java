@@ -1,6 +1,8 @@
 package brown.platform.managers.library;
 
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.math3.exception.NotStrictlyPositiveException;
@@ -57,4 +59,9 @@ public class ItemManager implements IItemManager {
     }
   }
 
+  @Override
+  public List<String> getItemNames() {
+    return new LinkedList<String>(this.items.keySet());
+  }
+
 }
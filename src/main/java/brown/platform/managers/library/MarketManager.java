@@ -10,6 +10,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import brown.auction.marketstate.IMarketPublicState;
 import brown.auction.marketstate.library.MarketPublicState;
 import brown.auction.marketstate.library.MarketState;
+import brown.auction.value.valuation.IGeneralValuation;
 import brown.communication.messages.IInformationMessage;
 import brown.communication.messages.ISimulationReportMessage;
 import brown.communication.messages.IStatusMessage;
@@ -80,7 +81,8 @@ public class MarketManager implements IMarketManager {
 	}
 
 	@Override
-	public void openMarkets(int index, Set<Integer> agents, int groupIndex,
+	public void openMarkets(int index, Set<Integer> agents,
+			Map<Integer, IGeneralValuation> agentValuations, int groupIndex,
 			int numGroups) {
 		// TODO: somehow open markets using whiteboard information.
 		IMarketBlock currentMarketBlock = this.allMarkets.get(index);
@@ -90,8 +92,10 @@ public class MarketManager implements IMarketManager {
 		
 		for (int i = 0; i < marketRules.size(); i++) {
 			int marketID = i + (marketRules.size() * groupIndex) + (index * marketRules.size() * numGroups);
-			this.activeMarkets.put(marketID, new Market(marketID, marketRules.get(i),
-					new MarketState(), new MarketPublicState(), agents, marketTradeables.get(i)));
+			MarketState marketState = new MarketState();
+			marketState.setAgentValuations(agentValuations);
+			this.activeMarkets.put(marketID, new Market(marketID, marketRules.get(i).newInstance(),
+					marketState, new MarketPublicState(), agents, marketTradeables.get(i)));
 		}
 	}
 
@@ -100,18 +104,10 @@ public class MarketManager implements IMarketManager {
 		Integer marketID = message.getAuctionID();
 		Integer agentID = message.getAgentID();
 		if (this.activeMarkets.containsKey(marketID)) {
-			IMarket market = this.activeMarkets.get(marketID);
-			boolean accepted = market.processBid(message);
-			// jake: synchronized block removed -- it's already synchronized in sim manager.
-			// synchronizing here too causes deadlock with multiple threads.
-			if (!accepted) {
-				return new TradeRejectionMessage(0, agentID,
-						"[x] REJECTED: Trade message for auction "
-								+ message.getAuctionID().toString()
-								+ " denied: rejected by activity rule.");
-			} else {
-				return new TradeRejectionMessage(-1, -1, "");
-			}
+			// bids may come from several threads at once, and while the market is
+			// ticking; the market checks them itself, at its next tick.
+			this.activeMarkets.get(marketID).submitBid(message);
+			return new TradeRejectionMessage(-1, -1, "");
 		} else {
 			return new ErrorMessage(0, agentID,
 					"[x] ERROR: Trade message for auction "
@@ -120,6 +116,15 @@ public class MarketManager implements IMarketManager {
 		}
 	}
 
+	@Override
+	public void processBids(Integer marketID) {
+		for (ITradeMessage rejected : this.activeMarkets.get(marketID).processBids()) {
+			PlatformLogging.log("[x] REJECTED: Trade message from agent "
+					+ rejected.getAgentID() + " for auction " + marketID
+					+ " denied: rejected by activity rule.");
+		}
+	}
+
 	@Override
 	public List<Integer> getActiveMarketIDs() {
 		return new LinkedList<Integer>(this.activeMarkets.keySet());
@@ -224,12 +229,9 @@ public class MarketManager implements IMarketManager {
 
 	@Override
 	public boolean anyMarketsOpen() {
-		for (Integer marketID : this.activeMarkets.keySet()) {
-			if (this.activeMarkets.get(marketID).isOpen()) {
-				return true;
-			}
-		}
-		return false;
+		// the termination condition is checked when a market ticks, after its bids
+		// are processed, and a market that closes is finalized in that tick.
+		return !this.activeMarkets.isEmpty();
 	}
 
 	@Override
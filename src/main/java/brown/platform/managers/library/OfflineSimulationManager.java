@@ -7,6 +7,12 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import brown.auction.endowment.IEndowment;
@@ -22,6 +28,7 @@ import brown.communication.messages.ITradeMessage;
 import brown.communication.messages.ITradeRequestMessage;
 import brown.communication.messages.IValuationMessage;
 import brown.communication.messageserver.IOfflineMessageServer;
+import brown.communication.messageserver.library.DirectOfflineMessageServer;
 import brown.communication.messageserver.library.OfflineMessageServer;
 import brown.logging.library.PlatformLogging;
 import brown.platform.accounting.IAccount;
@@ -37,7 +44,9 @@ import brown.platform.managers.IUtilityManager;
 import brown.platform.managers.IValuationManager;
 import brown.platform.managers.IWorldManager;
 import brown.platform.simulation.ISimulation;
+import brown.platform.simulation.ITickScheduler;
 import brown.platform.simulation.library.Simulation;
+import brown.platform.simulation.library.TickScheduler;
 import brown.platform.utils.Utils;
 
 /**
@@ -69,6 +78,10 @@ public class OfflineSimulationManager implements ISimulationManager {
 	private int groupSize;
 
 	private IOfflineMessageServer messageServer;
+	private ITickScheduler tickScheduler;
+	private ExecutorService marketPool;
+	private boolean directTransport;
+	private Map<String, Integer> responseDeadlines;
 	private String simulationJsonFileName;
 
 	/**
@@ -76,8 +89,30 @@ public class OfflineSimulationManager implements ISimulationManager {
    * 
 	 * @param agentManager
 	 * manages agents in an offline simulation. 
+	 * @param parallelMarkets
+	 * if true, markets are ticked in parallel on a work-stealing pool. Otherwise
+	 * they are ticked one at a time. Both modes give the same results.
+	 * @param directTransport
+	 * if true, agents handle messages directly on the simulation thread, 
+	 * instead of on their own threads. 
 	 */
-	public OfflineSimulationManager(IAgentManager agentManager) {
+	public OfflineSimulationManager(IAgentManager agentManager, boolean parallelMarkets,
+			boolean directTransport) {
+		this(agentManager, parallelMarkets, directTransport,
+				new HashMap<String, Integer>());
+	}
+
+	/**
+	 * @param agentManager
+	 * @param parallelMarkets
+	 * @param directTransport
+	 * @param responseDeadlines
+	 * milliseconds agents have to answer each type of message, by the message
+	 * class's simple name. An agent that misses a deadline is treated as
+	 * having done nothing, and the simulation moves on without it.
+	 */
+	public OfflineSimulationManager(IAgentManager agentManager, boolean parallelMarkets,
+			boolean directTransport, Map<String, Integer> responseDeadlines) {
 	  this.agentManager = agentManager; 
 		this.simulations = new LinkedList<>();
 		this.lock = false;
@@ -86,6 +121,10 @@ public class OfflineSimulationManager implements ISimulationManager {
 		this.privateToPublic = new HashMap<Integer, Integer>();
 		this.idToName = new HashMap<Integer, String>();
 		this.utilityManager = new UtilityManager();
+		this.tickScheduler = new TickScheduler();
+		this.marketPool = parallelMarkets ? Executors.newWorkStealingPool() : null;
+		this.directTransport = directTransport;
+		this.responseDeadlines = responseDeadlines;
 		this.agentCount = 0;
 	}
 
@@ -111,16 +150,17 @@ public class OfflineSimulationManager implements ISimulationManager {
 	}
 
 	@Override
-	public void runSimulation(int startingDelayTime, double simulationDelayTime,
-			int learningDelayTime, int numRuns, int serverPort,
-			String simulationJsonFileName) {
+	public void runSimulation(int startingDelayTime, int numAgents,
+			double simulationDelayTime, int learningDelayTime, int numRuns,
+			int serverPort, String simulationJsonFileName)
+			throws InterruptedException {
 		this.simulationJsonFileName = simulationJsonFileName;
 		// start the message server
 		startMessageServer();
 		// start the agents.
 		this.agentManager.startAgents(this.messageServer);
-		// initiate the simulation.
-		Utils.sleep(1000);
+		// initiate the simulation once every agent has registered.
+		this.tickScheduler.awaitRegistration(numAgents, MILLISECONDS);
 		this.privateToPublic.keySet()
 		.forEach(id -> this.utilityManager.addAgentRecord(id));
 		for (int i = 0; i < numRuns; i++) {
@@ -133,16 +173,19 @@ public class OfflineSimulationManager implements ISimulationManager {
 			}
 		}
 		this.messageServer.stopMessageServer();
-		this.utilityManager.logFinalUtility("", this.privateToPublic,
-				this.idToName);
-		System.out.println();
-		this.utilityManager.logLeaderboard("", this.privateToPublic, this.idToName);
+		this.messageServer.logResponseTimes(this.privateToPublic, this.idToName);
+		if (this.marketPool != null) {
+			this.marketPool.shutdown();
+		}
 	}
 
 	@Override
 	public Integer handleRegistration(IRegistrationMessage registrationMessage,
 			Integer agentPrivateID) {
 
+		if (!privateToPublic.containsKey(agentPrivateID)) {
+			this.tickScheduler.registerAgent();
+		}
 		privateToPublic.put(agentPrivateID, agentCount++);
 
 		if (registrationMessage.getName() != null) {
@@ -162,12 +205,18 @@ public class OfflineSimulationManager implements ISimulationManager {
 		this.currentMarketManager.handleTradeMessage(tradeMessage);
 	}
 
-	private synchronized void runAuction(double simulationDelayTime, int index) {
+	private synchronized void runAuction(double simulationDelayTime, int index)
+			throws InterruptedException {
 		PlatformLogging.log(this.agentGroups.size() + " Agent Groups");
 		PlatformLogging.log(this.agentGroups);
 		for (int i = 0; i < this.agentGroups.size(); i++) {
+			Map<Integer, IGeneralValuation> groupValuations =
+					new HashMap<Integer, IGeneralValuation>();
+			agentGroups.get(i).forEach(id -> groupValuations.put(id,
+					this.currentValuationManager.getAgentValuation(id)));
 			this.currentMarketManager.openMarkets(index,
-					new HashSet<Integer>(agentGroups.get(i)), i, this.agentGroups.size());
+					new HashSet<Integer>(agentGroups.get(i)), groupValuations, i,
+					this.agentGroups.size());
 		}
 		while (this.currentMarketManager.anyMarketsOpen()) {
 			// TODO: wait.
@@ -184,6 +233,18 @@ public class OfflineSimulationManager implements ISimulationManager {
 		return this.privateToPublic;
 	}
 
+	@Override
+	public IUtilityManager getUtilityManager() {
+		return this.utilityManager;
+	}
+
+	@Override
+	public void logResults() {
+		this.utilityManager.logFinalUtility("", this.privateToPublic, this.idToName);
+		System.out.println();
+		this.utilityManager.logLeaderboard("", this.privateToPublic, this.idToName);
+	}
+
 	private void setManagers(int j) {
 		this.currentMarketManager =
 				this.simulations.get(j).getWorldManager().getWorld().getMarketManager();
@@ -197,7 +258,7 @@ public class OfflineSimulationManager implements ISimulationManager {
 	}
 
 	private void runSingleSimulation(double simulationDelayTime,
-			int learningDelayTime) {
+			int learningDelayTime) throws InterruptedException {
 		this.initializeAgents();
 		// stop the simulation for learning after each agent
 		// initialization (after agents receive valuations).
@@ -230,53 +291,82 @@ public class OfflineSimulationManager implements ISimulationManager {
 	}
 
 	private void waitForMessages() {
-		synchronized (this) {
-			while (!this.messageServer.ready()) {
-				try {
-					wait();
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
+		try {
+			this.messageServer.awaitMessages();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
 		}
 	}
 
-	private void updateAuctions() {
-		for (Integer marketID : this.currentMarketManager.getActiveMarketIDs()) {
-			synchronized (this.currentMarketManager.getActiveMarket(marketID)) {
-				if (this.currentMarketManager.marketOpen(marketID)) {
-					// updating the market.
-					List<ITradeRequestMessage> tradeRequests =
-							this.currentMarketManager.updateMarket(marketID,
-									new LinkedList<Integer>(this.privateToPublic.keySet()));
-					for (ITradeRequestMessage message : tradeRequests) {
-						this.messageServer.sendMessage(message.getAgentID(),
-								message, true);
-					}
-					this.waitForMessages();
-				} else {
-					List<IAccountUpdate> accountUpdates =
-							this.currentMarketManager.finishMarket(marketID);
-					this.currentAccountManager.updateAccounts(accountUpdates);
-					Map<Integer, IBankUpdateMessage> bankUpdates =
-							this.currentAccountManager
-							.constructBankUpdateMessages(accountUpdates);
-					Map<Integer, IInformationMessage> informationMessages =
-							this.currentMarketManager.constructInformationMessages(marketID,
-									new LinkedList<Integer>(this.privateToPublic.keySet())); 
-					for (Integer agentID : bankUpdates.keySet()) {
-						this.messageServer.sendMessage(agentID,
-								informationMessages.get(agentID), true);
-					}
-					this.waitForMessages();
-					for (Integer agentID : bankUpdates.keySet()) {
-						this.messageServer.sendMessage(agentID, bankUpdates.get(agentID), true);
-					}
-					this.waitForMessages();
-					this.currentMarketManager.finalizeMarket(marketID);
+	private void updateAuctions() throws InterruptedException {
+		List<Integer> marketIDs = this.currentMarketManager.getActiveMarketIDs();
+		Map<Integer, List<ITradeRequestMessage>> tradeRequests =
+				new ConcurrentHashMap<Integer, List<ITradeRequestMessage>>();
+		Map<Integer, List<IAccountUpdate>> finishedMarkets =
+				new ConcurrentHashMap<Integer, List<IAccountUpdate>>();
+		// markets only touch their own state while ticking, so the ticks can run
+		// in parallel; everything shared is done afterwards, in market order.
+		if (this.marketPool == null) {
+			for (Integer marketID : marketIDs) {
+				tickMarket(marketID, tradeRequests, finishedMarkets);
+			}
+		} else {
+			List<Callable<Object>> ticks = new LinkedList<Callable<Object>>();
+			for (Integer marketID : marketIDs) {
+				ticks.add(Executors.callable(
+						() -> tickMarket(marketID, tradeRequests, finishedMarkets)));
+			}
+			try {
+				for (Future<Object> tick : this.marketPool.invokeAll(ticks)) {
+					tick.get();
+				}
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		for (Integer marketID : marketIDs) {
+			if (tradeRequests.containsKey(marketID)) {
+				for (ITradeRequestMessage message : tradeRequests.get(marketID)) {
+					this.messageServer.sendMessage(message.getAgentID(),
+							message, true);
 				}
+				this.waitForMessages();
+			} else {
+				List<IAccountUpdate> accountUpdates = finishedMarkets.get(marketID);
+				this.currentAccountManager.updateAccounts(accountUpdates);
+				Map<Integer, IBankUpdateMessage> bankUpdates =
+						this.currentAccountManager
+						.constructBankUpdateMessages(accountUpdates);
+				Map<Integer, IInformationMessage> informationMessages =
+						this.currentMarketManager.constructInformationMessages(marketID,
+								new LinkedList<Integer>(this.privateToPublic.keySet())); 
+				for (Integer agentID : bankUpdates.keySet()) {
+					this.messageServer.sendMessage(agentID,
+							informationMessages.get(agentID), true);
+				}
+				this.waitForMessages();
+				for (Integer agentID : bankUpdates.keySet()) {
+					this.messageServer.sendMessage(agentID, bankUpdates.get(agentID), true);
+				}
+				this.waitForMessages();
+				this.currentMarketManager.finalizeMarket(marketID);
 			}
+		}
+	}
 
+	private void tickMarket(Integer marketID,
+			Map<Integer, List<ITradeRequestMessage>> tradeRequests,
+			Map<Integer, List<IAccountUpdate>> finishedMarkets) {
+		synchronized (this.currentMarketManager.getActiveMarket(marketID)) {
+			this.currentMarketManager.processBids(marketID);
+			if (this.currentMarketManager.marketOpen(marketID)) {
+				// updating the market.
+				tradeRequests.put(marketID, this.currentMarketManager.updateMarket(
+						marketID, new LinkedList<Integer>(this.privateToPublic.keySet())));
+			} else {
+				finishedMarkets.put(marketID,
+						this.currentMarketManager.finishMarket(marketID));
+			}
 		}
 	}
 
@@ -375,7 +465,13 @@ public class OfflineSimulationManager implements ISimulationManager {
 	}
 
 	private void startMessageServer() {
-		this.messageServer = new OfflineMessageServer(this);
+		if (this.directTransport) {
+			this.messageServer =
+					new DirectOfflineMessageServer(this, this.responseDeadlines);
+		} else {
+			this.messageServer =
+					new OfflineMessageServer(this, this.responseDeadlines);
+		}
 	}
 
 }
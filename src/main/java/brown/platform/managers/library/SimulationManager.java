@@ -4,9 +4,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import brown.auction.endowment.IEndowment;
@@ -22,6 +31,7 @@ import brown.communication.messages.ITradeMessage;
 import brown.communication.messages.ITradeRequestMessage;
 import brown.communication.messages.IValuationMessage;
 import brown.communication.messageserver.IOnlineMessageServer;
+import brown.communication.messageserver.SlowConsumerPolicy;
 import brown.communication.messageserver.library.MessageServer;
 import brown.logging.library.PlatformLogging;
 import brown.platform.accounting.IAccount;
@@ -36,7 +46,9 @@ import brown.platform.managers.IUtilityManager;
 import brown.platform.managers.IValuationManager;
 import brown.platform.managers.IWorldManager;
 import brown.platform.simulation.ISimulation;
+import brown.platform.simulation.ITickScheduler;
 import brown.platform.simulation.library.Simulation;
+import brown.platform.simulation.library.TickScheduler;
 import brown.platform.utils.Utils;
 import brown.system.setup.library.Setup;
 
@@ -68,13 +80,97 @@ public class SimulationManager implements ISimulationManager {
 	private int groupSize;
 
 	private IOnlineMessageServer messageServer;
+	private ITickScheduler tickScheduler;
+	private ExecutorService marketPool;
+	private boolean deltaPublicState;
+	private SlowConsumerPolicy slowConsumerPolicy;
+	private int maxPendingMessages;
+	private boolean sharedMemory;
+	private boolean udpReserves;
+	private int ioThreads;
 	private String simulationJsonFileName;
 
 	/**
 	 * Simulation Manager manages the simulations being run by the platform.
 	 * 
+	 * @param parallelMarkets
+	 * if true, markets are ticked in parallel on a work-stealing pool. Otherwise
+	 * they are ticked one at a time. Both modes give the same results.
 	 */
-	public SimulationManager() {
+	public SimulationManager(boolean parallelMarkets) {
+		this(parallelMarkets, false);
+	}
+
+	/**
+	 * @param parallelMarkets
+	 * if true, markets are ticked in parallel on a work-stealing pool.
+	 * @param deltaPublicState
+	 * if true, trade requests carry only the changes to the public state since
+	 * the agent's previous request for the same market.
+	 */
+	public SimulationManager(boolean parallelMarkets, boolean deltaPublicState) {
+		this(parallelMarkets, deltaPublicState, SlowConsumerPolicy.BLOCK, 1024);
+	}
+
+	/**
+	 * @param parallelMarkets
+	 * @param deltaPublicState
+	 * @param slowConsumerPolicy
+	 * what the message server does when an agent falls behind.
+	 * @param maxPendingMessages
+	 * most messages that may wait to be written to an agent before the slow
+	 * consumer policy applies.
+	 */
+	public SimulationManager(boolean parallelMarkets, boolean deltaPublicState,
+			SlowConsumerPolicy slowConsumerPolicy, int maxPendingMessages) {
+		this(parallelMarkets, deltaPublicState, slowConsumerPolicy, maxPendingMessages, false);
+	}
+
+	/**
+	 * @param parallelMarkets
+	 * @param deltaPublicState
+	 * @param slowConsumerPolicy
+	 * @param maxPendingMessages
+	 * @param sharedMemory
+	 * if true, agents on the same host as the server that ask for it talk to it
+	 * over shared memory rather than TCP.
+	 */
+	public SimulationManager(boolean parallelMarkets, boolean deltaPublicState,
+			SlowConsumerPolicy slowConsumerPolicy, int maxPendingMessages, boolean sharedMemory) {
+		this(parallelMarkets, deltaPublicState, slowConsumerPolicy, maxPendingMessages, sharedMemory, false);
+	}
+
+	/**
+	 * @param parallelMarkets
+	 * @param deltaPublicState
+	 * @param slowConsumerPolicy
+	 * @param maxPendingMessages
+	 * @param sharedMemory
+	 * @param udpReserves
+	 * if true, each market's reserves are sent to its agents once a tick over
+	 * UDP, rather than in every trade request.
+	 */
+	public SimulationManager(boolean parallelMarkets, boolean deltaPublicState,
+			SlowConsumerPolicy slowConsumerPolicy, int maxPendingMessages, boolean sharedMemory,
+			boolean udpReserves) {
+		this(parallelMarkets, deltaPublicState, slowConsumerPolicy, maxPendingMessages, sharedMemory,
+				udpReserves, 0);
+	}
+
+	/**
+	 * @param parallelMarkets
+	 * @param deltaPublicState
+	 * @param slowConsumerPolicy
+	 * @param maxPendingMessages
+	 * @param sharedMemory
+	 * @param udpReserves
+	 * @param ioThreads
+	 * if positive, the message server reads agents' connections on this many
+	 * threads; if 0, on kryonet's one.
+	 */
+	public SimulationManager(boolean parallelMarkets, boolean deltaPublicState,
+			SlowConsumerPolicy slowConsumerPolicy, int maxPendingMessages, boolean sharedMemory,
+			boolean udpReserves, int ioThreads) {
 		this.simulations = new LinkedList<>();
 		this.lock = false;
 		this.numSimulationRuns = new LinkedList<Integer>();
@@ -82,6 +178,14 @@ public class SimulationManager implements ISimulationManager {
 		this.privateToPublic = new HashMap<Integer, Integer>();
 		this.idToName = new HashMap<Integer, String>();
 		this.utilityManager = new UtilityManager();
+		this.tickScheduler = new TickScheduler();
+		this.marketPool = parallelMarkets ? Executors.newWorkStealingPool() : null;
+		this.deltaPublicState = deltaPublicState;
+		this.slowConsumerPolicy = slowConsumerPolicy;
+		this.maxPendingMessages = maxPendingMessages;
+		this.sharedMemory = sharedMemory;
+		this.udpReserves = udpReserves;
+		this.ioThreads = ioThreads;
 		this.agentCount = 0;
 	}
 
@@ -106,16 +210,13 @@ public class SimulationManager implements ISimulationManager {
 	}
 
 	@Override
-	public void runSimulation(int startingDelayTime, double simulationDelayTime, int learningDelayTime, int numRuns,
-			int serverPort, String simulationJsonFileName) {
+	public void runSimulation(int startingDelayTime, int numAgents, double simulationDelayTime, int learningDelayTime,
+			int numRuns, int serverPort, String simulationJsonFileName) throws InterruptedException {
 		this.simulationJsonFileName = simulationJsonFileName;
 		startMessageServer(serverPort);
-		// xxx
-		PlatformLogging.log("Agent connection phase: sleeping for " + startingDelayTime + " seconds");
-		for (int i = 0; i < startingDelayTime; i++) {
-			PlatformLogging.log(startingDelayTime - i + " seconds left to register");
-			Utils.sleep(MILLISECONDS);
-		}
+		PlatformLogging.log("Agent connection phase: waiting up to " + startingDelayTime + " seconds for "
+				+ (numAgents > 0 ? numAgents : "any number of") + " agents to register");
+		this.tickScheduler.awaitRegistration(numAgents, (long) startingDelayTime * MILLISECONDS);
 		PlatformLogging.log("Agent connection phase: beginning simulation");
 		if (this.privateToPublic.isEmpty()) {
 			PlatformLogging.log("No agents joined.");
@@ -133,14 +234,17 @@ public class SimulationManager implements ISimulationManager {
 			}
 		}
 		this.messageServer.stopMessageServer();
-		this.utilityManager.logFinalUtility("", this.privateToPublic, this.idToName);
-		System.out.println();
-		this.utilityManager.logLeaderboard("", this.privateToPublic, this.idToName);
+		if (this.marketPool != null) {
+			this.marketPool.shutdown();
+		}
 	}
 
 	@Override
 	public Integer handleRegistration(IRegistrationMessage registrationMessage, Integer agentPrivateID) {
 
+		if (!privateToPublic.containsKey(agentPrivateID)) {
+			this.tickScheduler.registerAgent();
+		}
 		privateToPublic.put(agentPrivateID, agentCount++);
 
 		if (registrationMessage.getName() != null) {
@@ -158,23 +262,26 @@ public class SimulationManager implements ISimulationManager {
 	public void giveTradeMessage(ITradeMessage tradeMessage) {
 		// TODO: send back a status message
 		this.currentMarketManager.handleTradeMessage(tradeMessage);
+		this.tickScheduler.recordResponse(tradeMessage.getAuctionID(), tradeMessage.getAgentID());
 	}
 
-	private synchronized void runAuction(double simulationDelayTime, int index) {
+	private synchronized void runAuction(double simulationDelayTime, int index) throws InterruptedException {
 		PlatformLogging.log(this.agentGroups.size() + " Agent Groups");
 		PlatformLogging.log(this.agentGroups);
 		for (int i = 0; i < this.agentGroups.size(); i++) {
-			this.currentMarketManager.openMarkets(index, new HashSet<Integer>(agentGroups.get(i)), i,
+			Map<Integer, IGeneralValuation> groupValuations = new HashMap<Integer, IGeneralValuation>();
+			agentGroups.get(i).forEach(id -> groupValuations.put(id, this.currentValuationManager.getAgentValuation(id)));
+			this.currentMarketManager.openMarkets(index, new HashSet<Integer>(agentGroups.get(i)), groupValuations, i,
 					this.agentGroups.size());
 		}
+		// agents get the same window to respond as two fixed delays did, but the
+		// markets cycle as soon as every trade request has been answered.
+		long tickDeadline = (long) (2 * simulationDelayTime * MILLISECONDS);
 		while (this.currentMarketManager.anyMarketsOpen()) {
-			// xxx
-			Utils.sleep((int) (simulationDelayTime * MILLISECONDS));
-			// xxx
 			PlatformLogging.log("updating auctions");
 
 			updateAuctions();
-			Utils.sleep((int) (simulationDelayTime * MILLISECONDS));
+			this.tickScheduler.awaitTick(tickDeadline);
 		}
 		updateAuctions();
 	}
@@ -184,6 +291,18 @@ public class SimulationManager implements ISimulationManager {
 		return this.privateToPublic;
 	}
 
+	@Override
+	public IUtilityManager getUtilityManager() {
+		return this.utilityManager;
+	}
+
+	@Override
+	public void logResults() {
+		this.utilityManager.logFinalUtility("", this.privateToPublic, this.idToName);
+		System.out.println();
+		this.utilityManager.logLeaderboard("", this.privateToPublic, this.idToName);
+	}
+
 	private void setManagers(int j) {
 		this.currentMarketManager = this.simulations.get(j).getWorldManager().getWorld().getMarketManager();
 		this.currentAccountManager = this.simulations.get(j).getWorldManager().getWorld().getDomainManager().getDomain()
@@ -195,7 +314,7 @@ public class SimulationManager implements ISimulationManager {
 		this.groupSize = this.simulations.get(j).getGroupSize();
 	}
 
-	private void runSingleSimulation(double simulationDelayTime, int learningDelayTime) {
+	private void runSingleSimulation(double simulationDelayTime, int learningDelayTime) throws InterruptedException {
 		this.initializeAgents();
 		// stop the simulation for learning after each agent
 		// initialization (after agents receive valuations).
@@ -223,44 +342,86 @@ public class SimulationManager implements ISimulationManager {
 		this.currentAccountManager.reset();
 		this.currentValuationManager.reset();
 		this.currentEndowmentManager.reset();
+		this.messageServer.reset();
 	}
 
-	private void updateAuctions() {
-		for (Integer marketID : this.currentMarketManager.getActiveMarketIDs()) {
-			// we still need to synchronize on the market for this whole operation. or
-			// maybe can pare it down to MM methods?
-			synchronized (this.currentMarketManager.getActiveMarket(marketID)) {
-				if (this.currentMarketManager.marketOpen(marketID)) {
-					// updating the market.
-					List<ITradeRequestMessage> tradeRequests = this.currentMarketManager.updateMarket(marketID,
-							new LinkedList<Integer>(this.privateToPublic.keySet()));
-					for (ITradeRequestMessage tradeRequest : tradeRequests) {
-						this.messageServer.sendMessage(tradeRequest.getAgentID(), tradeRequest);
+	private void updateAuctions() throws InterruptedException {
+		this.tickScheduler.beginTick();
+		List<Integer> marketIDs = this.currentMarketManager.getActiveMarketIDs();
+		Map<Integer, List<ITradeRequestMessage>> tradeRequests = new ConcurrentHashMap<Integer, List<ITradeRequestMessage>>();
+		Map<Integer, List<IAccountUpdate>> finishedMarkets = new ConcurrentHashMap<Integer, List<IAccountUpdate>>();
+		// markets only touch their own state while ticking, so the ticks can run
+		// in parallel; everything shared is done afterwards, in market order.
+		if (this.marketPool == null) {
+			for (Integer marketID : marketIDs) {
+				tickMarket(marketID, tradeRequests, finishedMarkets);
+			}
+		} else {
+			List<Callable<Object>> ticks = new LinkedList<Callable<Object>>();
+			for (Integer marketID : marketIDs) {
+				ticks.add(Executors.callable(() -> tickMarket(marketID, tradeRequests, finishedMarkets)));
+			}
+			try {
+				for (Future<Object> tick : this.marketPool.invokeAll(ticks)) {
+					tick.get();
+				}
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		// everything an agent gets this tick, from every market, goes in one frame.
+		this.messageServer.beginBatch();
+		try {
+			for (Integer marketID : marketIDs) {
+				if (tradeRequests.containsKey(marketID)) {
+					List<ITradeRequestMessage> marketRequests = tradeRequests.get(marketID);
+					this.tickScheduler.expectResponses(marketID,
+							marketRequests.stream().map(ITradeRequestMessage::getAgentID).collect(Collectors.toList()));
+					// the requests share the market's public state, so it is sanitized once.
+					Map<Integer, ITradeRequestMessage> requestsByAgent = new LinkedHashMap<Integer, ITradeRequestMessage>();
+					for (ITradeRequestMessage tradeRequest : marketRequests) {
+						requestsByAgent.put(tradeRequest.getAgentID(), tradeRequest);
 					}
+					this.messageServer.sendMessages(requestsByAgent);
 				} else {
-					List<IAccountUpdate> accountUpdates = this.currentMarketManager.finishMarket(marketID);
+					List<IAccountUpdate> accountUpdates = finishedMarkets.get(marketID);
 					this.currentAccountManager.updateAccounts(accountUpdates);
 					Map<Integer, IBankUpdateMessage> bankUpdates = this.currentAccountManager
 							.constructBankUpdateMessages(accountUpdates);
 					Map<Integer, IInformationMessage> informationMessages = this.currentMarketManager
 							.constructInformationMessages(marketID,
 									new LinkedList<Integer>(this.privateToPublic.keySet()));
+					informationMessages.keySet().retainAll(bankUpdates.keySet());
+					this.messageServer.broadcastMessage(informationMessages);
 					for (Integer agentID : bankUpdates.keySet()) {
-						this.messageServer.sendMessage(agentID, informationMessages.get(agentID));
 						this.messageServer.sendMessage(agentID, bankUpdates.get(agentID));
 					}
 					this.currentMarketManager.finalizeMarket(marketID);
 				}
 			}
+		} finally {
+			this.messageServer.endBatch();
+		}
+	}
+
+	private void tickMarket(Integer marketID, Map<Integer, List<ITradeRequestMessage>> tradeRequests,
+			Map<Integer, List<IAccountUpdate>> finishedMarkets) {
+		synchronized (this.currentMarketManager.getActiveMarket(marketID)) {
+			this.currentMarketManager.processBids(marketID);
+			if (this.currentMarketManager.marketOpen(marketID)) {
+				// updating the market.
+				tradeRequests.put(marketID, this.currentMarketManager.updateMarket(marketID,
+						new LinkedList<Integer>(this.privateToPublic.keySet())));
+			} else {
+				finishedMarkets.put(marketID, this.currentMarketManager.finishMarket(marketID));
+			}
 		}
 	}
 
 	private void sendSimulationReportMessages() {
 		Map<Integer, ISimulationReportMessage> simReportMessages = this.currentMarketManager
 				.constructSimulationReportMessages(new LinkedList<Integer>(this.privateToPublic.keySet()));
-		for (Integer agentID : this.privateToPublic.keySet()) {
-			this.messageServer.sendMessage(agentID, simReportMessages.get(agentID));
-		}
+		this.messageServer.broadcastMessage(simReportMessages);
 	}
 
 	private void initializeAgents() {
@@ -288,9 +449,14 @@ public class SimulationManager implements ISimulationManager {
 		Map<Integer, IBankUpdateMessage> accountInitializations = this.currentAccountManager
 				.constructInitializationMessages();
 		Map<Integer, IValuationMessage> agentValuations = this.currentValuationManager.constructValuationMessages();
-		for (Integer agentID : accountInitializations.keySet()) {
-			this.messageServer.sendMessage(agentID, accountInitializations.get(agentID));
-			this.messageServer.sendMessage(agentID, agentValuations.get(agentID));
+		this.messageServer.beginBatch();
+		try {
+			for (Integer agentID : accountInitializations.keySet()) {
+				this.messageServer.sendMessage(agentID, accountInitializations.get(agentID));
+				this.messageServer.sendMessage(agentID, agentValuations.get(agentID));
+			}
+		} finally {
+			this.messageServer.endBatch();
 		}
 	}
 
@@ -336,7 +502,17 @@ public class SimulationManager implements ISimulationManager {
 	}
 
 	private void startMessageServer(int serverPort) {
-		this.messageServer = new MessageServer(serverPort, new Setup(), this);
+		// the item table covers the items of every simulation, so it is only
+		// sent to agents once.
+		Set<String> itemNames = new TreeSet<String>();
+		for (ISimulation simulation : this.simulations) {
+			itemNames.addAll(simulation.getWorldManager().getWorld().getDomainManager()
+					.getDomain().getItemManager().getItemNames());
+		}
+		this.messageServer = new MessageServer(serverPort,
+				new Setup(new LinkedList<String>(itemNames)), this, this.deltaPublicState,
+				this.slowConsumerPolicy, this.maxPendingMessages, this.sharedMemory, this.udpReserves,
+				this.ioThreads);
 	}
 
 }
\ No newline at end of file
@@ -168,4 +168,16 @@ public class UtilityManager implements IUtilityManager {
     return this.agentRecords;
   }
 
+  @Override
+  public void mergeRecords(IUtilityManager other, Map<Integer, Integer> agentIDs) {
+    for (Map.Entry<Integer, List<Double>> entry : other.getAgentRecords().entrySet()) {
+      Integer agentID = agentIDs.get(entry.getKey()); 
+      if (agentID != null && this.agentRecords.containsKey(agentID)) {
+        this.agentRecords.get(agentID).addAll(entry.getValue()); 
+      } else {
+        ErrorLogging.log("ERROR: UtilityManager: encountered unknown agent ID: " + entry.getKey().toString());
+      }
+    }
+  }
+
 }
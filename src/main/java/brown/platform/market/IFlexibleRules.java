@@ -8,4 +8,13 @@ package brown.platform.market;
  */
 public interface IFlexibleRules extends IMarketRules {
 
+  /**
+   * create a new set of the same market rules, with a fresh instance of each
+   * rule, so that markets running at the same time do not share rule state.
+   * 
+   * @return
+   * fresh copy of these rules.
+   */
+  public IFlexibleRules newInstance();
+
 }
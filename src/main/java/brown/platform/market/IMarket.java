@@ -37,6 +37,20 @@ public interface IMarket {
    * boolean determining whether or not the bid was accepted. 
    */
   public boolean processBid(ITradeMessage bid);
+
+  /**
+   * Queue a bid, to be processed at the market's next tick. Safe to call from
+   * any thread, and never blocks. 
+   * @param bid
+   */
+  public void submitBid(ITradeMessage bid);
+
+  /**
+   * Process every queued bid, in the order they were submitted. 
+   * @return
+   * the bids rejected by the activity rule. 
+   */
+  public List<ITradeMessage> processBids();
   
   /**
    * Construct account updates once the market has completed. 
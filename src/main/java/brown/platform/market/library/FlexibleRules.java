@@ -4,9 +4,11 @@ package brown.platform.market.library;
 import brown.auction.rules.IAllocationRule;
 import brown.auction.rules.IInformationRevelationPolicy;
 import brown.auction.rules.IInnerIRPolicy;
+import brown.auction.rules.IParameterizedRule;
 import brown.auction.rules.IPaymentRule;
 import brown.auction.rules.IQueryRule;
 import brown.auction.rules.ITerminationCondition;
+import brown.logging.library.ErrorLogging;
 import brown.platform.market.IFlexibleRules;  
  
 /**
@@ -40,4 +42,27 @@ import brown.platform.market.IFlexibleRules;
      public AbsMarketRules copy() { 
         return new FlexibleRules(aRule, pRule, qRule, actRule, infoPolicy, innerIRPolicy, tCondition);  
     } 
+    
+    @Override
+    public IFlexibleRules newInstance() {
+        return new FlexibleRules(newRule(aRule), newRule(pRule), newRule(qRule), newRule(actRule), 
+            newRule(infoPolicy), newRule(innerIRPolicy), newRule(tCondition)); 
+    }
+    
+    // rules are created from their no-argument constructors in the config parser, 
+    // so the same constructor gives a fresh rule, unless the rule was built 
+    // with parameters. 
+    @SuppressWarnings("unchecked")
+    private static <T> T newRule(T rule) {
+        if (rule instanceof IParameterizedRule) {
+            return (T) ((IParameterizedRule) rule).newInstance(); 
+        }
+        try {
+            return (T) rule.getClass().getConstructor().newInstance(); 
+        } catch (ReflectiveOperationException e) {
+            ErrorLogging.log("ERROR: FlexibleRules: could not create a new " 
+                + rule.getClass().getName() + ", sharing the existing rule"); 
+            return rule; 
+        }
+    }
 }
\ No newline at end of file
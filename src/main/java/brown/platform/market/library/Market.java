@@ -1,11 +1,18 @@
 package brown.platform.market.library;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import brown.auction.marketstate.IMarketPublicState;
 import brown.auction.marketstate.IMarketState;
+import brown.auction.rules.ISealedBidKernel;
+import brown.auction.rules.kernel.SealedBidKernel;
+import brown.communication.messages.ITradeDiffMessage;
 import brown.communication.messages.ITradeMessage;
 import brown.communication.messages.ITradeRequestMessage;
 import brown.communication.messages.library.TradeRequestMessage;
@@ -25,8 +32,16 @@ public class Market implements IMarket {
   private final IMarketPublicState PUBLICSTATE;
   private final Set<Integer> AGENTS; 
   private final ICart TRADEABLES;
+  // computes allocation and payments in place of the rules, if they are a
+  // sealed-bid combination it knows; null otherwise.
+  private final ISealedBidKernel KERNEL;
 
   private List<ITradeMessage> bids;
+  // bids submitted since the last tick, not yet checked by the activity rule.
+  private final Queue<ITradeMessage> inbox;
+  // the last whole bid each agent submitted, accepted or not, that its next 
+  // trade diff applies to. 
+  private final Map<Integer, ITradeMessage> lastBids;
 
   // TODO: make the market remember its history in a memory-efficient way. 
   // make the state a remembering thing. 
@@ -39,7 +54,10 @@ public class Market implements IMarket {
     this.PUBLICSTATE = publicState;
     this.AGENTS = agents; 
     this.TRADEABLES = tradeables;
+    this.KERNEL = SealedBidKernel.forRules(rules);
     this.bids = new LinkedList<ITradeMessage>();
+    this.inbox = new ConcurrentLinkedQueue<ITradeMessage>();
+    this.lastBids = new HashMap<Integer, ITradeMessage>();
   }
 
   @Override
@@ -51,6 +69,10 @@ public class Market implements IMarket {
   public ITradeRequestMessage constructTradeRequest(Integer agentID) {
     this.RULES.getQRule().makeTradeRequest(ID, STATE, TRADEABLES, bids, agentID);
     TradeRequestMessage request = this.STATE.getTRequest();
+    // the agent sends its next bid whole, unless this is the bid it would 
+    // take a diff from. 
+    ITradeMessage lastBid = this.lastBids.get(agentID);
+    request.setLastBidID(lastBid == null ? null : lastBid.getMessageID());
     return request;
   }
 
@@ -64,6 +86,37 @@ public class Market implements IMarket {
     return acceptable;
   }
 
+  @Override
+  public void submitBid(ITradeMessage bid) {
+    this.inbox.add(bid);
+  }
+
+  @Override
+  public List<ITradeMessage> processBids() {
+    List<ITradeMessage> rejected = new LinkedList<ITradeMessage>();
+    ITradeMessage bid;
+    while ((bid = this.inbox.poll()) != null) {
+      if (bid instanceof ITradeDiffMessage) {
+        ITradeMessage previous = this.lastBids.get(bid.getAgentID());
+        Integer baseID = ((ITradeDiffMessage) bid).getBaseID();
+        if (previous == null || baseID == null
+            || !baseID.equals(previous.getMessageID())) {
+          // nothing to apply it to, or the bid it was taken from never 
+          // arrived. the agent's next request tells it to send a whole bid. 
+          this.lastBids.remove(bid.getAgentID());
+          rejected.add(bid);
+          continue;
+        }
+        bid = ((ITradeDiffMessage) bid).expand(previous);
+      }
+      this.lastBids.put(bid.getAgentID(), bid);
+      if (!this.processBid(bid)) {
+        rejected.add(bid);
+      }
+    }
+    return rejected;
+  }
+
   public List<IAccountUpdate> constructAccountUpdates() {
     // ok... if the termination condition is that there are no bids, the allocation rule is not gonna do anything
     // because there are no bids. 
@@ -71,9 +124,14 @@ public class Market implements IMarket {
     // the allocation rule has to use a history. 
     
     AuctionLogging.log("Bids submitted to Auction " + this.ID.toString() + ": " + this.bids);
-    this.RULES.getARule().setAllocation(this.STATE, this.bids);
-    AuctionLogging.log("Allocations from Auction " + this.ID.toString() + ": " + this.STATE.getAllocation());
-    this.RULES.getPRule().setOrders(this.STATE, this.bids);
+    if (this.KERNEL != null) {
+      this.KERNEL.setAllocationAndOrders(this.STATE, this.bids);
+      AuctionLogging.log("Allocations from Auction " + this.ID.toString() + ": " + this.STATE.getAllocation());
+    } else {
+      this.RULES.getARule().setAllocation(this.STATE, this.bids);
+      AuctionLogging.log("Allocations from Auction " + this.ID.toString() + ": " + this.STATE.getAllocation());
+      this.RULES.getPRule().setOrders(this.STATE, this.bids);
+    }
     AuctionLogging.log("Payments from Auction " + this.ID.toString() + ": " + this.STATE.getPayments());
     return this.STATE.getPayments();
   }
@@ -0,0 +1,74 @@
+package brown.platform.simulation;
+
+import java.util.Collection;
+
+/**
+ * ITickScheduler decides when the platform may move on, either from the
+ * registration phase or from one market tick to the next. Rather than always
+ * sleeping for a fixed delay, it waits until every expected agent has
+ * responded or a deadline expires, whichever comes first.
+ *
+ * @author andrewcoggins
+ *
+ */
+public interface ITickScheduler {
+
+  /**
+   * record that an agent has registered with the platform.
+   */
+  public void registerAgent();
+
+  /**
+   * wait until the expected number of agents have registered, or until the
+   * deadline expires.
+   *
+   * @param expectedAgents
+   * number of agents expected to register. If this is not positive, the
+   * scheduler waits out the full deadline.
+   * @param timeoutMillis
+   * registration deadline, in milliseconds.
+   * @return
+   * true if the expected number of agents registered before the deadline.
+   */
+  public boolean awaitRegistration(int expectedAgents, long timeoutMillis)
+      throws InterruptedException;
+
+  /**
+   * begin a new tick. Forgets all outstanding responses from the previous
+   * tick.
+   */
+  public void beginTick();
+
+  /**
+   * expect a response from each of the given agents in a market during the
+   * current tick.
+   *
+   * @param marketID
+   * ID of the market sending trade requests.
+   * @param agentIDs
+   * private IDs of the agents that were sent trade requests.
+   */
+  public void expectResponses(Integer marketID, Collection<Integer> agentIDs);
+
+  /**
+   * record an agent's response to a market during the current tick.
+   *
+   * @param marketID
+   * ID of the market the agent responded to.
+   * @param agentID
+   * private ID of the responding agent.
+   */
+  public void recordResponse(Integer marketID, Integer agentID);
+
+  /**
+   * wait until every expected response for the current tick has arrived, or
+   * until the deadline expires.
+   *
+   * @param timeoutMillis
+   * tick deadline, in milliseconds.
+   * @return
+   * true if every expected response arrived before the deadline.
+   */
+  public boolean awaitTick(long timeoutMillis) throws InterruptedException;
+
+}
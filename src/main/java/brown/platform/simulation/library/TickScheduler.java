@@ -0,0 +1,85 @@
+package brown.platform.simulation.library;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import brown.platform.simulation.ITickScheduler;
+
+/**
+ * TickScheduler tracks outstanding registrations and trade responses, and
+ * wakes up the simulation thread as soon as none are left.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class TickScheduler implements ITickScheduler {
+
+  private int registeredAgents;
+  private Map<Integer, Set<Integer>> pendingResponses;
+
+  public TickScheduler() {
+    this.registeredAgents = 0;
+    this.pendingResponses = new HashMap<Integer, Set<Integer>>();
+  }
+
+  @Override
+  public synchronized void registerAgent() {
+    this.registeredAgents++;
+    this.notifyAll();
+  }
+
+  @Override
+  public synchronized boolean awaitRegistration(int expectedAgents,
+      long timeoutMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    long remaining = timeoutMillis;
+    while ((expectedAgents <= 0 || this.registeredAgents < expectedAgents)
+        && remaining > 0) {
+      this.wait(remaining);
+      remaining = deadline - System.currentTimeMillis();
+    }
+    return expectedAgents > 0 && this.registeredAgents >= expectedAgents;
+  }
+
+  @Override
+  public synchronized void beginTick() {
+    this.pendingResponses.clear();
+  }
+
+  @Override
+  public synchronized void expectResponses(Integer marketID,
+      Collection<Integer> agentIDs) {
+    if (!agentIDs.isEmpty()) {
+      this.pendingResponses.put(marketID, new HashSet<Integer>(agentIDs));
+    }
+  }
+
+  @Override
+  public synchronized void recordResponse(Integer marketID, Integer agentID) {
+    Set<Integer> pending = this.pendingResponses.get(marketID);
+    if (pending != null && pending.remove(agentID)) {
+      if (pending.isEmpty()) {
+        this.pendingResponses.remove(marketID);
+      }
+      if (this.pendingResponses.isEmpty()) {
+        this.notifyAll();
+      }
+    }
+  }
+
+  @Override
+  public synchronized boolean awaitTick(long timeoutMillis)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    long remaining = timeoutMillis;
+    while (!this.pendingResponses.isEmpty() && remaining > 0) {
+      this.wait(remaining);
+      remaining = deadline - System.currentTimeMillis();
+    }
+    return this.pendingResponses.isEmpty();
+  }
+
+}
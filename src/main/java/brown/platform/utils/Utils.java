@@ -1,6 +1,7 @@
 package brown.platform.utils;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -25,13 +26,34 @@ public class Utils {
 
   public static IServerToAgentMessage sanitize(IServerToAgentMessage message,
       Map<Integer, Integer> agentIDs) {
+    return sanitize(message, agentIDs,
+        new IdentityHashMap<IMarketPublicState, IMarketPublicState>());
+  }
+
+  /**
+   * sanitize a message, reusing states that were already sanitized. Messages
+   * sent together, like the trade requests of a market, mostly share one 
+   * public state, so it only needs to be sanitized once. The sanitized states
+   * are shared between messages, so must not be changed.
+   * 
+   * @param message
+   * @param agentIDs
+   * @param sanitized
+   * map from states to their sanitized versions, by identity. Only valid while
+   * the states do not change.
+   * @return
+   */
+  public static IServerToAgentMessage sanitize(IServerToAgentMessage message,
+      Map<Integer, Integer> agentIDs,
+      Map<IMarketPublicState, IMarketPublicState> sanitized) {
     // sanitize the private IDs from an information message
     if (message instanceof IInformationMessage) {
 
       IInformationMessage iMessage = (IInformationMessage) message;
       IMarketPublicState publicState = iMessage.getPublicState();
 
-      IMarketPublicState newPublicState = sanitizeState(publicState, agentIDs);
+      IMarketPublicState newPublicState =
+          sanitizeState(publicState, agentIDs, sanitized);
 
       IInformationMessage newMessage = new InformationMessage(
           iMessage.getMessageID(), iMessage.getAgentID(), newPublicState);
@@ -46,7 +68,7 @@ public class Utils {
       for (Integer marketID : reports.keySet()) {
         IMarketPublicState publicState = reports.get(marketID);
         IMarketPublicState newPublicState =
-            sanitizeState(publicState, agentIDs);
+            sanitizeState(publicState, agentIDs, sanitized);
         newReports.put(marketID, newPublicState);
       }
       ISimulationReportMessage newMessage = new SimulationReportMessage(
@@ -55,7 +77,8 @@ public class Utils {
     } else if (message instanceof ITradeRequestMessage) {
     	ITradeRequestMessage trMessage = (ITradeRequestMessage) message;
     	IMarketPublicState publicState = trMessage.getState();
-    	IMarketPublicState newPublicState = sanitizeState(publicState, agentIDs);
+    	IMarketPublicState newPublicState =
+    	    sanitizeState(publicState, agentIDs, sanitized);
     	trMessage.addInformation(newPublicState);
       return trMessage;
     }
@@ -63,6 +86,16 @@ public class Utils {
     return message;
   }
 
+  private static IMarketPublicState sanitizeState(
+      IMarketPublicState publicState, Map<Integer, Integer> agentIDs,
+      Map<IMarketPublicState, IMarketPublicState> sanitized) {
+    if (publicState == null) {
+      return null;
+    }
+    return sanitized.computeIfAbsent(publicState,
+        state -> sanitizeState(state, agentIDs));
+  }
+
   private static IMarketPublicState sanitizeState(
       IMarketPublicState publicState, Map<Integer, Integer> agentIDs) {
 
@@ -0,0 +1,178 @@
+package brown.system.kryoserver.library;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.KryoSerialization;
+
+import brown.communication.messages.IServerToAgentMessage;
+import brown.communication.messages.library.BatchMessage;
+import brown.system.serialization.library.AbsBroadcastSerializer;
+import brown.system.serialization.library.BatchMessageSerializer;
+import brown.system.serialization.library.MessageChunk;
+
+/**
+ * KryoSerialization that can also send pre-encoded messages. A broadcast
+ * message's body is encoded once, and each agent's copy is just its own small
+ * envelope followed by the shared body bytes. The bytes on the wire are the
+ * same as if each copy had been serialized on its own, so agents read them as
+ * usual.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class BroadcastSerialization extends KryoSerialization {
+
+  private static final int INITIAL_SIZE = 1024;
+  private static final byte[] EMPTY = new byte[0];
+
+  /**
+   * a message encoded for one agent, ready to be sent with sendToTCP.
+   */
+  public static final class Frame {
+
+    private final byte[] envelope;
+    private final byte[] body;
+
+    private Frame(byte[] envelope, byte[] body) {
+      this.envelope = envelope;
+      this.body = body;
+    }
+
+    public int length() {
+      return this.envelope.length + this.body.length;
+    }
+
+    /**
+     * split the frame into pieces to send one after another: the frame itself
+     * if it is no longer than chunkSize, or else chunks of at most chunkSize
+     * bytes. The chunks share the frame's arrays.
+     *
+     * @param chunkSize
+     * @return
+     */
+    public List<Object> split(int chunkSize) {
+      List<Object> pieces = new LinkedList<Object>();
+      if (length() <= chunkSize) {
+        pieces.add(this);
+        return pieces;
+      }
+      pieces.add(new MessageChunk(this.envelope, 0, this.envelope.length,
+          this.body.length == 0, length()));
+      for (int offset = 0; offset < this.body.length; offset += chunkSize) {
+        int length = Math.min(chunkSize, this.body.length - offset);
+        pieces.add(new MessageChunk(this.body, offset, length,
+            offset + length == this.body.length));
+      }
+      return pieces;
+    }
+
+  }
+
+  /**
+   * whether or not the message can be sent with a shared body.
+   *
+   * @param message
+   * @return
+   */
+  public synchronized boolean canBroadcast(IServerToAgentMessage message) {
+    return serializerOf(message) != null;
+  }
+
+  /**
+   * encode the body of a broadcast message, everything but its envelope.
+   *
+   * @param message
+   * a message for which canBroadcast is true.
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized byte[] encodeBody(IServerToAgentMessage message) {
+    Output output = new Output(INITIAL_SIZE, -1);
+    ((AbsBroadcastSerializer<IServerToAgentMessage>) serializerOf(message))
+        .writeBody(getKryo(), output, message);
+    return output.toBytes();
+  }
+
+  /**
+   * encode a message for one agent, reusing a body from encodeBody.
+   *
+   * @param envelope
+   * the message addressed to the agent; only its class and IDs are used.
+   * @param body
+   * @return
+   */
+  public synchronized Frame encode(IServerToAgentMessage envelope,
+      byte[] body) {
+    Output output = new Output(16, -1);
+    getKryo().writeClass(output, envelope.getClass());
+    serializerOf(envelope).writeEnvelope(output, envelope.getMessageID(),
+        envelope.getAgentID());
+    return new Frame(output.toBytes(), body);
+  }
+
+  /**
+   * encode a whole message, as write would.
+   *
+   * @param message
+   * @return
+   */
+  public synchronized Frame encode(IServerToAgentMessage message) {
+    Output output = new Output(INITIAL_SIZE, -1);
+    getKryo().writeClassAndObject(output, message);
+    return new Frame(output.toBytes(), EMPTY);
+  }
+
+  /**
+   * join frames into one, read by the agent as a BatchMessage of their
+   * messages, in order.
+   *
+   * @param frames
+   * frames of whole messages, not chunks.
+   * @return
+   */
+  public synchronized Frame batch(List<Frame> frames) {
+    Output output = new Output(16, -1);
+    getKryo().writeClass(output, BatchMessage.class);
+    BatchMessageSerializer.writeHeader(output, null, null, frames.size());
+    int length = 0;
+    for (Frame frame : frames) {
+      length += frame.length();
+    }
+    ByteBuffer body = ByteBuffer.allocate(length);
+    for (Frame frame : frames) {
+      body.put(frame.envelope);
+      body.put(frame.body);
+    }
+    return new Frame(output.toBytes(), body.array());
+  }
+
+  @Override
+  public void write(Connection connection, ByteBuffer buffer, Object object) {
+    if (object instanceof Frame) {
+      Frame frame = (Frame) object;
+      if (buffer.remaining() < frame.length()) {
+        throw new KryoException("Buffer overflow. Available: "
+            + buffer.remaining() + ", required: " + frame.length());
+      }
+      buffer.put(frame.envelope);
+      buffer.put(frame.body);
+    } else {
+      super.write(connection, buffer, object);
+    }
+  }
+
+  private AbsBroadcastSerializer<?> serializerOf(
+      IServerToAgentMessage message) {
+    Serializer<?> serializer =
+        getKryo().getRegistration(message.getClass()).getSerializer();
+    return serializer instanceof AbsBroadcastSerializer
+        ? (AbsBroadcastSerializer<?>) serializer : null;
+  }
+
+}
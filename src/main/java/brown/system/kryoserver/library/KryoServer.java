@@ -4,8 +4,8 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.EndPoint;
 import com.esotericsoftware.kryonet.Server;
 
 import brown.logging.library.SystemLogging;
@@ -15,8 +15,12 @@ import brown.system.setup.library.Setup;
 
 public class KryoServer implements IKryoServer {
 
+  protected static final int WRITE_BUFFER_SIZE = 65536;
+  protected static final int OBJECT_BUFFER_SIZE = 65536;
+
   protected final int PORT;
-  public final Server kryoServer;
+  public final EndPoint kryoServer;
+  protected final BroadcastSerialization serialization;
   protected Map<Connection, Integer> connections;
 
   /**
@@ -26,22 +30,49 @@ public class KryoServer implements IKryoServer {
    * @param setup a class that registers the necessary classes with kryo
    */
   public KryoServer(int port, ISetup setup) {
+    this(port, setup, 0);
+  }
+
+  /**
+   * @param ioThreads
+   * if positive, the server runs on a NioServer with this many selector 
+   * threads; if 0, on kryonet's single threaded Server. Agents connect to 
+   * either in the same way.
+   */
+  public KryoServer(int port, ISetup setup, int ioThreads) {
     this.PORT = port;
     this.connections = new ConcurrentHashMap<Connection, Integer>();
 
-    kryoServer = new Server(65536, 65536);
-    kryoServer.start();
-    Kryo serverKryo = kryoServer.getKryo();
-    Setup.start(serverKryo);
-    if (setup != null) {
-      setup.setup(serverKryo);
+    this.serialization = newSerialization(setup);
+    if (ioThreads > 0) {
+      kryoServer = new NioServer(ioThreads, WRITE_BUFFER_SIZE,
+          OBJECT_BUFFER_SIZE, this.serialization,
+          () -> newSerialization(setup), NioServer.DEFAULT_HANDOFF_CAPACITY);
+    } else {
+      kryoServer = new Server(WRITE_BUFFER_SIZE, OBJECT_BUFFER_SIZE,
+          this.serialization);
     }
+    kryoServer.start();
     try {
-      kryoServer.bind(PORT, PORT);
+      if (kryoServer instanceof NioServer) {
+        ((NioServer) kryoServer).bind(PORT, PORT);
+      } else {
+        ((Server) kryoServer).bind(PORT, PORT);
+      }
     } catch (IOException e) {
       SystemLogging.log(e + " [X] Server failed to start due to port conflict");
       return;
     }
   }
-  
+
+  // each thread that decodes needs its own, registered the same way.
+  private static BroadcastSerialization newSerialization(ISetup setup) {
+    BroadcastSerialization serialization = new BroadcastSerialization();
+    Setup.start(serialization.getKryo());
+    if (setup != null) {
+      setup.setup(serialization.getKryo());
+    }
+    return serialization;
+  }
+
 }
@@ -0,0 +1,388 @@
+package brown.system.kryoserver.library;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.EndPoint;
+import com.esotericsoftware.kryonet.KryoNetException;
+import com.esotericsoftware.kryonet.KryoSerialization;
+import com.esotericsoftware.kryonet.Listener;
+
+import brown.logging.library.ErrorLogging;
+
+/**
+ * A connection accepted by a NioServer. It frames messages the way kryonet
+ * does, each one after its length as a 4 byte int, so kryonet clients cannot
+ * tell the difference. Reads happen on the connection's selector thread;
+ * sends may come from any thread, and are written straight to the socket
+ * when nothing is waiting, or else by the selector thread. While the server
+ * holds events for the connection that its dispatch thread has no room for,
+ * the connection is not read.
+ *
+ * @author andrewcoggins
+ *
+ */
+final class NioConnection extends Connection {
+
+  private static final int LENGTH_SIZE = 4;
+
+  private final NioServer server;
+  private final int id;
+  private final SocketChannel channel;
+  private final KryoSerialization serialization;
+  // only touched by the selector thread.
+  private final ByteBuffer readBuffer;
+  private int currentObjectLength;
+  // guarded by writeLock.
+  private final ByteBuffer writeBuffer;
+  private final Object writeLock;
+  private SelectionKey key;
+  // events waiting for room on the server's dispatch thread, in order.
+  // Guarded by itself.
+  final Queue<Runnable> backlog;
+  private final List<Listener> listeners;
+
+  private volatile boolean connected;
+  private volatile boolean readPaused;
+  private volatile InetSocketAddress udpAddress;
+  private volatile float idleThreshold;
+  private volatile long lastReadTime;
+  private volatile long lastWriteTime;
+
+  /**
+   * @param server
+   * @param id
+   * @param channel
+   * a connected, non-blocking channel.
+   * @param serialization
+   * the serialization of the connection's selector thread.
+   * @param writeBufferSize
+   * @param objectBufferSize
+   */
+  NioConnection(NioServer server, int id, SocketChannel channel,
+      KryoSerialization serialization, int writeBufferSize,
+      int objectBufferSize) {
+    this.server = server;
+    this.id = id;
+    this.channel = channel;
+    this.serialization = serialization;
+    this.readBuffer = ByteBuffer.allocate(objectBufferSize);
+    this.readBuffer.flip();
+    this.currentObjectLength = 0;
+    this.writeBuffer = ByteBuffer.allocate(writeBufferSize);
+    this.writeLock = new Object();
+    this.key = null;
+    this.readPaused = false;
+    this.backlog = new ArrayDeque<Runnable>();
+    this.listeners = new CopyOnWriteArrayList<Listener>();
+    this.connected = true;
+    this.udpAddress = null;
+    this.idleThreshold = 0.1f;
+    this.lastReadTime = System.currentTimeMillis();
+    this.lastWriteTime = this.lastReadTime;
+  }
+
+  /**
+   * register with a selector. Called on the selector's thread.
+   *
+   * @param selector
+   * @throws IOException
+   */
+  void register(Selector selector) throws IOException {
+    synchronized (this.writeLock) {
+      this.key = this.channel.register(selector, interestOps(), this);
+    }
+  }
+
+  // what the selector waits for: reads, unless paused, and writes while
+  // anything is waiting. Guarded by writeLock.
+  private int interestOps() {
+    return (this.readPaused ? 0 : SelectionKey.OP_READ)
+        | (this.writeBuffer.position() > 0 ? SelectionKey.OP_WRITE : 0);
+  }
+
+  /**
+   * stop or resume reading, once the selector thread next calls
+   * updateInterest. The connection cannot time out while paused, since the
+   * agent's keep alives are not read.
+   *
+   * @param paused
+   */
+  void setReadPaused(boolean paused) {
+    if (!paused) {
+      this.lastReadTime = System.currentTimeMillis();
+    }
+    this.readPaused = paused;
+  }
+
+  boolean isReadPaused() {
+    return this.readPaused;
+  }
+
+  /**
+   * bring what the selector waits for up to date. Called on the selector
+   * thread.
+   */
+  void updateInterest() {
+    synchronized (this.writeLock) {
+      if (this.key != null && this.key.isValid()) {
+        this.key.interestOps(interestOps());
+      }
+    }
+  }
+
+  /**
+   * the listeners added to this connection alone. 
+   * 
+   * @return
+   */
+  List<Listener> getListeners() {
+    return this.listeners;
+  }
+
+  /**
+   * read whatever the socket has, and hand over every complete message.
+   * Called on the selector thread.
+   *
+   * @param handler
+   * @throws IOException
+   * if the connection was closed by the agent.
+   */
+  void readOperation(Consumer<Object> handler) throws IOException {
+    this.readBuffer.compact();
+    int read = this.channel.read(this.readBuffer);
+    this.readBuffer.flip();
+    if (read == -1) {
+      throw new IOException("Connection is closed.");
+    }
+    this.lastReadTime = System.currentTimeMillis();
+    while (true) {
+      if (this.currentObjectLength == 0) {
+        if (this.readBuffer.remaining() < LENGTH_SIZE) {
+          return;
+        }
+        this.currentObjectLength = this.readBuffer.getInt();
+        if (this.currentObjectLength <= 0
+            || this.currentObjectLength > this.readBuffer.capacity()) {
+          throw new KryoNetException(
+              "Invalid object length: " + this.currentObjectLength);
+        }
+      }
+      if (this.readBuffer.remaining() < this.currentObjectLength) {
+        return;
+      }
+      int limit = this.readBuffer.limit();
+      int end = this.readBuffer.position() + this.currentObjectLength;
+      this.readBuffer.limit(end);
+      Object message = this.serialization.read(this, this.readBuffer);
+      if (this.readBuffer.position() != end) {
+        throw new KryoNetException("Incorrect number of bytes ("
+            + (end - this.readBuffer.position())
+            + " remaining) used to deserialize object: " + message);
+      }
+      this.readBuffer.limit(limit);
+      this.currentObjectLength = 0;
+      handler.accept(message);
+    }
+  }
+
+  /**
+   * write what is waiting, now that the socket can take it. Called on the
+   * selector thread.
+   *
+   * @throws IOException
+   */
+  void writeOperation() throws IOException {
+    synchronized (this.writeLock) {
+      if (writeToSocket()) {
+        this.key.interestOps(interestOps());
+      }
+    }
+  }
+
+  // write as much as the socket takes; true if nothing is left.
+  private boolean writeToSocket() throws IOException {
+    this.writeBuffer.flip();
+    while (this.writeBuffer.hasRemaining()) {
+      if (this.channel.write(this.writeBuffer) == 0) {
+        break;
+      }
+    }
+    this.writeBuffer.compact();
+    this.lastWriteTime = System.currentTimeMillis();
+    return this.writeBuffer.position() == 0;
+  }
+
+  boolean needsKeepAlive(long time, int keepAliveMillis) {
+    return time - this.lastWriteTime > keepAliveMillis;
+  }
+
+  boolean isTimedOut(long time, int timeoutMillis) {
+    return !this.readPaused && time - this.lastReadTime > timeoutMillis;
+  }
+
+  void setRemoteAddressUDP(InetSocketAddress udpAddress) {
+    this.udpAddress = udpAddress;
+  }
+
+  @Override
+  public int sendTCP(Object object) {
+    if (object == null) {
+      throw new IllegalArgumentException("object cannot be null.");
+    }
+    synchronized (this.writeLock) {
+      if (!this.connected) {
+        return 0;
+      }
+      int start = this.writeBuffer.position();
+      try {
+        this.writeBuffer.position(start + LENGTH_SIZE);
+        this.serialization.write(this, this.writeBuffer, object);
+      } catch (RuntimeException e) {
+        // as kryonet does, a message that cannot be sent closes the
+        // connection.
+        this.writeBuffer.position(start);
+        ErrorLogging.log("ERROR: NioConnection: unable to send "
+            + object.getClass().getSimpleName() + " to connection " + this.id
+            + ": " + e);
+        close();
+        return 0;
+      }
+      int end = this.writeBuffer.position();
+      this.writeBuffer.putInt(start, end - start - LENGTH_SIZE);
+      // with something already waiting, the selector thread is writing.
+      if (start == 0) {
+        try {
+          if (!writeToSocket() && this.key != null) {
+            this.key.interestOps(interestOps());
+            this.key.selector().wakeup();
+          }
+        } catch (IOException | CancelledKeyException e) {
+          close();
+          return 0;
+        }
+      }
+      return end - start;
+    }
+  }
+
+  @Override
+  public int sendUDP(Object object) {
+    if (object == null) {
+      throw new IllegalArgumentException("object cannot be null.");
+    }
+    InetSocketAddress address = this.udpAddress;
+    if (address == null) {
+      throw new IllegalStateException("Connection is not connected via UDP.");
+    }
+    return this.server.sendUDP(this, address, object);
+  }
+
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (!this.connected) {
+        return;
+      }
+      this.connected = false;
+    }
+    try {
+      this.channel.close();
+    } catch (IOException e) {
+      // closed anyway.
+    }
+    this.server.closed(this);
+  }
+
+  @Override
+  public int getID() {
+    return this.id;
+  }
+
+  @Override
+  public boolean isConnected() {
+    return this.connected;
+  }
+
+  @Override
+  public EndPoint getEndPoint() {
+    return this.server;
+  }
+
+  @Override
+  public InetSocketAddress getRemoteAddressTCP() {
+    return (InetSocketAddress) this.channel.socket().getRemoteSocketAddress();
+  }
+
+  @Override
+  public InetSocketAddress getRemoteAddressUDP() {
+    return this.udpAddress;
+  }
+
+  @Override
+  public int getTcpWriteBufferSize() {
+    synchronized (this.writeLock) {
+      return this.writeBuffer.position();
+    }
+  }
+
+  @Override
+  public boolean isIdle() {
+    return getTcpWriteBufferSize()
+        / (float) this.writeBuffer.capacity() < this.idleThreshold;
+  }
+
+  @Override
+  public void setIdleThreshold(float idleThreshold) {
+    this.idleThreshold = idleThreshold;
+  }
+
+  @Override
+  public void setKeepAliveTCP(int keepAliveMillis) {
+    // the server keeps every connection alive the same way.
+  }
+
+  @Override
+  public void setTimeout(int timeoutMillis) {
+    // the server times out every connection the same way.
+  }
+
+  @Override
+  public void setBufferPositionFix(boolean bufferPositionFix) {
+    // not needed by NIO on any supported JVM.
+  }
+
+  // as with kryonet, called after the server's listeners, for this
+  // connection's events only.
+  @Override
+  public void addListener(Listener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("listener cannot be null.");
+    }
+    if (!this.listeners.contains(listener)) {
+      this.listeners.add(listener);
+    }
+  }
+
+  @Override
+  public void removeListener(Listener listener) {
+    this.listeners.remove(listener);
+  }
+
+  @Override
+  public String toString() {
+    return "Connection " + this.id;
+  }
+
+}
@@ -0,0 +1,590 @@
+package brown.system.kryoserver.library;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryonet.EndPoint;
+import com.esotericsoftware.kryonet.FrameworkMessage;
+import com.esotericsoftware.kryonet.KryoNetException;
+import com.esotericsoftware.kryonet.KryoSerialization;
+import com.esotericsoftware.kryonet.Listener;
+import com.esotericsoftware.kryonet.Serialization;
+
+import brown.logging.library.ErrorLogging;
+
+/**
+ * A server on plain NIO that speaks kryonet's protocol, so that kryonet
+ * clients connect to it unchanged, but reads connections on several selector
+ * threads instead of one. Connections are sharded over the selector threads
+ * by ID, and each thread decodes with its own serialization.
+ *
+ * Listeners are still called on one dispatch thread, in the order messages
+ * were read, so code written for kryonet's update thread needs no locking.
+ * Selector threads hand messages to it through a bounded queue, and never
+ * wait on it: when the queue is full, a connection's events wait with the
+ * connection, which is not read until the dispatch thread has taken them,
+ * and TCP pushes back on its agent. Writes, keep alives and time outs go on
+ * meanwhile.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class NioServer implements EndPoint {
+
+  public static final int DEFAULT_HANDOFF_CAPACITY = 4096;
+
+  // the same as kryonet's defaults, which the clients expect.
+  private static final int KEEP_ALIVE_MILLIS = 8000;
+  private static final int TIMEOUT_MILLIS = 12000;
+  private static final long SELECT_MILLIS = 250;
+
+  private final int writeBufferSize;
+  private final int objectBufferSize;
+  private final KryoSerialization serialization;
+  private final Shard[] shards;
+  private final BlockingQueue<Runnable> handoff;
+  // connections with events waiting for room in the handoff queue. Only the
+  // dispatch thread removes them.
+  private final Queue<NioConnection> backlogged;
+  private final List<Listener> listeners;
+  private final Map<Integer, NioConnection> connections;
+  private final Map<Integer, NioConnection> pendingUDP;
+  private final Map<InetSocketAddress, NioConnection> udpConnections;
+  private final AtomicInteger nextConnectionID;
+  private final KryoSerialization udpSerialization;
+  private final ByteBuffer udpReadBuffer;
+  private final ByteBuffer udpWriteBuffer;
+
+  private volatile boolean running;
+  private volatile ServerSocketChannel serverChannel;
+  private volatile DatagramChannel datagramChannel;
+  private volatile Thread dispatchThread;
+
+  /**
+   * @param ioThreads
+   * the number of selector threads.
+   * @param writeBufferSize
+   * @param objectBufferSize
+   * @param serialization
+   * the serialization given by getSerialization and getKryo.
+   * @param serializations
+   * makes a serialization, set up like the first, for each selector thread.
+   * @param handoffCapacity
+   * messages read but not yet given to the listeners.
+   */
+  public NioServer(int ioThreads, int writeBufferSize, int objectBufferSize,
+      KryoSerialization serialization,
+      Supplier<? extends KryoSerialization> serializations,
+      int handoffCapacity) {
+    if (ioThreads < 1) {
+      throw new IllegalArgumentException(
+          "ioThreads must be positive, not " + ioThreads);
+    }
+    this.writeBufferSize = writeBufferSize;
+    this.objectBufferSize = objectBufferSize;
+    this.serialization = serialization;
+    this.shards = new Shard[ioThreads];
+    for (int i = 0; i < ioThreads; i++) {
+      this.shards[i] = new Shard(i, serializations.get());
+    }
+    this.handoff = new ArrayBlockingQueue<Runnable>(handoffCapacity);
+    this.backlogged = new ConcurrentLinkedQueue<NioConnection>();
+    this.listeners = new CopyOnWriteArrayList<Listener>();
+    this.connections = new ConcurrentHashMap<Integer, NioConnection>();
+    this.pendingUDP = new ConcurrentHashMap<Integer, NioConnection>();
+    this.udpConnections =
+        new ConcurrentHashMap<InetSocketAddress, NioConnection>();
+    this.nextConnectionID = new AtomicInteger(1);
+    this.udpSerialization = serializations.get();
+    this.udpReadBuffer = ByteBuffer.allocate(objectBufferSize);
+    this.udpWriteBuffer = ByteBuffer.allocate(objectBufferSize);
+    this.running = false;
+    this.serverChannel = null;
+    this.datagramChannel = null;
+    this.dispatchThread = null;
+  }
+
+  /**
+   * start accepting connections on the given ports. A udpPort of -1 means
+   * no UDP, and connections are then connected as soon as they are accepted.
+   *
+   * @param tcpPort
+   * @param udpPort
+   * @throws IOException
+   */
+  public void bind(int tcpPort, int udpPort) throws IOException {
+    close();
+    ServerSocketChannel server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(tcpPort));
+    this.serverChannel = server;
+    if (udpPort != -1) {
+      DatagramChannel datagram = DatagramChannel.open();
+      datagram.bind(new InetSocketAddress(udpPort));
+      this.datagramChannel = datagram;
+      startThread(() -> receiveUDP(datagram), "Server UDP");
+    }
+    startThread(() -> accept(server), "Server accept");
+  }
+
+  @Override
+  public void start() {
+    this.running = true;
+    for (Shard shard : this.shards) {
+      startThread(shard, "Server I/O " + shard.index);
+    }
+    this.dispatchThread = startThread(this, "Server");
+  }
+
+  /**
+   * calls the listeners, one message at a time, until the server is stopped.
+   */
+  @Override
+  public void run() {
+    while (this.running) {
+      if (!this.backlogged.isEmpty()) {
+        handOverBacklogs();
+      }
+      Runnable event;
+      try {
+        event = this.handoff.poll(SELECT_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (event != null) {
+        try {
+          event.run();
+        } catch (RuntimeException e) {
+          ErrorLogging.log("ERROR: NioServer: listener failed: " + e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void stop() {
+    this.running = false;
+    for (Shard shard : this.shards) {
+      shard.selector.wakeup();
+    }
+  }
+
+  @Override
+  public void close() {
+    closeQuietly(this.serverChannel);
+    closeQuietly(this.datagramChannel);
+    this.serverChannel = null;
+    this.datagramChannel = null;
+    for (NioConnection connection : this.connections.values()) {
+      connection.close();
+    }
+  }
+
+  /**
+   * the selector and dispatch threads do what update does for kryonet, once
+   * started, so this only waits out the timeout, for callers that loop on it.
+   */
+  @Override
+  public void update(int timeout) throws IOException {
+    if (timeout <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(timeout);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public Thread getUpdateThread() {
+    return this.dispatchThread;
+  }
+
+  @Override
+  public void addListener(Listener listener) {
+    this.listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(Listener listener) {
+    this.listeners.remove(listener);
+  }
+
+  @Override
+  public Serialization getSerialization() {
+    return this.serialization;
+  }
+
+  @Override
+  public Kryo getKryo() {
+    return this.serialization.getKryo();
+  }
+
+  /**
+   * called by a connection once it is closed.
+   *
+   * @param connection
+   */
+  void closed(NioConnection connection) {
+    this.connections.remove(connection.getID());
+    this.pendingUDP.remove(connection.getID());
+    if (connection.getRemoteAddressUDP() != null) {
+      this.udpConnections.remove(connection.getRemoteAddressUDP());
+    }
+    Runnable event =
+        () -> notify(connection, listener -> listener.disconnected(connection));
+    // a listener closing a connection must not wait on its own queue.
+    if (Thread.currentThread() == this.dispatchThread) {
+      event.run();
+    } else {
+      dispatch(connection, event);
+    }
+  }
+
+  /**
+   * send a message to a connection's UDP address.
+   *
+   * @param connection
+   * @param address
+   * @param object
+   * @return the number of bytes sent.
+   */
+  int sendUDP(NioConnection connection, InetSocketAddress address,
+      Object object) {
+    DatagramChannel datagram = this.datagramChannel;
+    if (datagram == null) {
+      return 0;
+    }
+    synchronized (this.udpWriteBuffer) {
+      try {
+        this.udpWriteBuffer.clear();
+        this.udpSerialization.write(connection, this.udpWriteBuffer, object);
+        this.udpWriteBuffer.flip();
+        return datagram.send(this.udpWriteBuffer, address);
+      } catch (IOException | RuntimeException e) {
+        ErrorLogging.log("ERROR: NioServer: unable to send "
+            + object.getClass().getSimpleName() + " over UDP to "
+            + connection + ": " + e);
+        return 0;
+      }
+    }
+  }
+
+  // both run until their channel is closed.
+  private void accept(ServerSocketChannel server) {
+    while (true) {
+      SocketChannel channel;
+      try {
+        channel = server.accept();
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        ErrorLogging.log("ERROR: NioServer: unable to accept: " + e);
+        continue;
+      }
+      try {
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+      } catch (IOException e) {
+        ErrorLogging.log("ERROR: NioServer: unable to accept: " + e);
+        closeQuietly(channel);
+        continue;
+      }
+      int id = this.nextConnectionID.getAndIncrement();
+      Shard shard = this.shards[id % this.shards.length];
+      NioConnection connection = new NioConnection(this, id, channel,
+          shard.serialization, this.writeBufferSize, this.objectBufferSize);
+      this.connections.put(id, connection);
+      shard.add(connection);
+    }
+  }
+
+  private void receiveUDP(DatagramChannel datagram) {
+    while (true) {
+      InetSocketAddress from;
+      Object object;
+      try {
+        this.udpReadBuffer.clear();
+        from = (InetSocketAddress) datagram.receive(this.udpReadBuffer);
+        this.udpReadBuffer.flip();
+        object = this.udpSerialization.read(null, this.udpReadBuffer);
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException | RuntimeException e) {
+        ErrorLogging.log("ERROR: NioServer: unable to read UDP: " + e);
+        continue;
+      }
+      if (object instanceof FrameworkMessage.RegisterUDP) {
+        NioConnection connection = this.pendingUDP
+            .remove(((FrameworkMessage.RegisterUDP) object).connectionID);
+        if (connection != null) {
+          connection.setRemoteAddressUDP(from);
+          this.udpConnections.put(from, connection);
+          connection.sendTCP(new FrameworkMessage.RegisterUDP());
+          connected(connection);
+        }
+        continue;
+      }
+      NioConnection connection = this.udpConnections.get(from);
+      if (connection != null && !(object instanceof FrameworkMessage)) {
+        received(connection, object);
+      }
+    }
+  }
+
+  // called on the connection's selector thread.
+  private void handle(NioConnection connection, Object object) {
+    if (object instanceof FrameworkMessage.Ping) {
+      FrameworkMessage.Ping ping = (FrameworkMessage.Ping) object;
+      if (!ping.isReply) {
+        ping.isReply = true;
+        connection.sendTCP(ping);
+      }
+    } else if (!(object instanceof FrameworkMessage)) {
+      received(connection, object);
+    }
+  }
+
+  private void connected(NioConnection connection) {
+    dispatch(connection,
+        () -> notify(connection, listener -> listener.connected(connection)));
+  }
+
+  private void received(NioConnection connection, Object object) {
+    dispatch(connection, () -> notify(connection,
+        listener -> listener.received(connection, object)));
+  }
+
+  private void idle(NioConnection connection) {
+    notify(connection, listener -> listener.idle(connection));
+  }
+
+  // the server's listeners, then the connection's own.
+  private void notify(NioConnection connection, Consumer<Listener> call) {
+    for (Listener listener : this.listeners) {
+      call.accept(listener);
+    }
+    for (Listener listener : connection.getListeners()) {
+      call.accept(listener);
+    }
+  }
+
+  // never waits: an event with no room waits with its connection, after any
+  // already waiting, and the connection stops being read.
+  private void dispatch(NioConnection connection, Runnable event) {
+    synchronized (connection.backlog) {
+      if (connection.backlog.isEmpty() && this.handoff.offer(event)) {
+        return;
+      }
+      if (connection.backlog.isEmpty()) {
+        this.backlogged.add(connection);
+        pauseReading(connection, true);
+      }
+      connection.backlog.add(event);
+    }
+  }
+
+  // called on the dispatch thread, which makes room in the handoff queue.
+  private void handOverBacklogs() {
+    NioConnection connection;
+    while ((connection = this.backlogged.peek()) != null) {
+      synchronized (connection.backlog) {
+        Runnable event;
+        while ((event = connection.backlog.peek()) != null
+            && this.handoff.offer(event)) {
+          connection.backlog.poll();
+        }
+        if (!connection.backlog.isEmpty()) {
+          return;
+        }
+        this.backlogged.poll();
+        pauseReading(connection, false);
+      }
+    }
+  }
+
+  // the connection's selector thread changes what it waits for.
+  private void pauseReading(NioConnection connection, boolean paused) {
+    connection.setReadPaused(paused);
+    this.shards[connection.getID() % this.shards.length].update(connection);
+  }
+
+  private static Thread startThread(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // closed anyway.
+    }
+  }
+
+  /**
+   * a selector thread, with the connections whose IDs map to it.
+   */
+  private final class Shard implements Runnable {
+
+    private final int index;
+    private final KryoSerialization serialization;
+    private final Selector selector;
+    private final Queue<NioConnection> accepted;
+    // connections that stopped or resumed reading.
+    private final Queue<NioConnection> updated;
+
+    private Shard(int index, KryoSerialization serialization) {
+      this.index = index;
+      this.serialization = serialization;
+      try {
+        this.selector = Selector.open();
+      } catch (IOException e) {
+        throw new RuntimeException("Error opening selector.", e);
+      }
+      this.accepted = new ConcurrentLinkedQueue<NioConnection>();
+      this.updated = new ConcurrentLinkedQueue<NioConnection>();
+    }
+
+    private void add(NioConnection connection) {
+      this.accepted.add(connection);
+      this.selector.wakeup();
+    }
+
+    private void update(NioConnection connection) {
+      this.updated.add(connection);
+      this.selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+      long lastMaintenance = System.currentTimeMillis();
+      while (running) {
+        try {
+          this.selector.select(SELECT_MILLIS);
+        } catch (IOException e) {
+          ErrorLogging.log("ERROR: NioServer: select failed: " + e);
+          continue;
+        }
+        register();
+        NioConnection updated;
+        while ((updated = this.updated.poll()) != null) {
+          try {
+            updated.updateInterest();
+          } catch (CancelledKeyException e) {
+            // closed.
+          }
+        }
+        Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          NioConnection connection = (NioConnection) key.attachment();
+          try {
+            // a key selected before its connection paused is not read.
+            if (key.isValid() && key.isReadable()
+                && !connection.isReadPaused()) {
+              connection.readOperation(object -> handle(connection, object));
+            }
+            if (key.isValid() && key.isWritable()) {
+              connection.writeOperation();
+              if (connection.isIdle()) {
+                idle(connection);
+              }
+            }
+          } catch (IOException | CancelledKeyException e) {
+            connection.close();
+          } catch (KryoException | KryoNetException e) {
+            ErrorLogging.log("ERROR: NioServer: unable to read from "
+                + connection + ": " + e);
+            connection.close();
+          }
+        }
+        long time = System.currentTimeMillis();
+        if (time - lastMaintenance >= SELECT_MILLIS) {
+          lastMaintenance = time;
+          maintain(time);
+        }
+      }
+      try {
+        this.selector.close();
+      } catch (IOException e) {
+        // closed anyway.
+      }
+    }
+
+    private void register() {
+      NioConnection connection;
+      while ((connection = this.accepted.poll()) != null) {
+        try {
+          connection.register(this.selector);
+        } catch (IOException e) {
+          connection.close();
+          continue;
+        }
+        FrameworkMessage.RegisterTCP registerTCP =
+            new FrameworkMessage.RegisterTCP();
+        registerTCP.connectionID = connection.getID();
+        if (datagramChannel != null) {
+          // connected once the client registers its UDP address.
+          pendingUDP.put(connection.getID(), connection);
+          connection.sendTCP(registerTCP);
+        } else {
+          connection.sendTCP(registerTCP);
+          connected(connection);
+        }
+      }
+    }
+
+    // keep alive, time out and report idle connections, as kryonet does.
+    private void maintain(long time) {
+      for (SelectionKey key : this.selector.keys()) {
+        NioConnection connection = (NioConnection) key.attachment();
+        if (!connection.isConnected()) {
+          continue;
+        }
+        if (connection.isTimedOut(time, TIMEOUT_MILLIS)) {
+          connection.close();
+          continue;
+        }
+        if (connection.needsKeepAlive(time, KEEP_ALIVE_MILLIS)) {
+          connection.sendTCP(FrameworkMessage.keepAlive);
+        }
+        if (connection.isIdle()) {
+          idle(connection);
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,33 @@
+package brown.system.serialization;
+
+import java.nio.ByteBuffer;
+
+import brown.system.serialization.library.MessageChunk;
+
+/**
+ * A chunk assembler joins the chunks of a message received over one
+ * connection, in the order they arrive.
+ *
+ * @author andrewcoggins
+ *
+ */
+public interface IChunkAssembler {
+
+  /**
+   * add the next chunk.
+   *
+   * @param chunk
+   * @return the serialized message, if the chunk was its last; null otherwise,
+   * or if the message is too large to assemble. The assembler does not use
+   * the buffer again.
+   */
+  public ByteBuffer add(MessageChunk chunk);
+
+  /**
+   * the number of bytes held for the message being assembled.
+   *
+   * @return
+   */
+  public int size();
+
+}
@@ -0,0 +1,47 @@
+package brown.system.serialization;
+
+import java.util.List;
+
+/**
+ * An item table maps the names of a simulation's items to small indices, so
+ * that items can be sent by index rather than by name. The server sends its
+ * table to each agent once, at registration.
+ * 
+ * @author andrewcoggins
+ *
+ */
+public interface IItemTable {
+
+  /**
+   * replace the contents of the table.
+   * 
+   * @param itemNames
+   * names of the items, in index order.
+   */
+  public void setItemNames(List<String> itemNames);
+
+  /**
+   * get the names in the table, in index order.
+   * 
+   * @return
+   */
+  public List<String> getItemNames();
+
+  /**
+   * get the index of an item name.
+   * 
+   * @param itemName
+   * @return
+   * the index, or -1 if the name is not in the table.
+   */
+  public int indexOf(String itemName);
+
+  /**
+   * get the item name at an index.
+   * 
+   * @param index
+   * @return
+   */
+  public String nameOf(int index);
+
+}
@@ -0,0 +1,50 @@
+package brown.system.serialization.library;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.messages.IServerToAgentMessage;
+
+/**
+ * Base class for serializers of messages that are broadcast to every agent.
+ * The envelope, the message and agent IDs, is written apart from the body, so
+ * that a server can serialize the body once and reuse its bytes for every
+ * agent.
+ *
+ * @author andrewcoggins
+ *
+ * @param <T>
+ */
+public abstract class AbsBroadcastSerializer<T extends IServerToAgentMessage>
+    extends AbsCompactSerializer<T> {
+
+  @Override
+  public void write(Kryo kryo, Output output, T message) {
+    writeEnvelope(output, message.getMessageID(), message.getAgentID());
+    writeBody(kryo, output, message);
+  }
+
+  @Override
+  public T read(Kryo kryo, Input input, Class<T> type) {
+    Integer messageID = readInteger(input);
+    Integer agentID = readInteger(input);
+    return readBody(kryo, input, messageID, agentID);
+  }
+
+  public void writeEnvelope(Output output, Integer messageID,
+      Integer agentID) {
+    writeInteger(output, messageID);
+    writeInteger(output, agentID);
+  }
+
+  /**
+   * write everything but the envelope. Must not depend on the message or agent
+   * ID.
+   */
+  public abstract void writeBody(Kryo kryo, Output output, T message);
+
+  protected abstract T readBody(Kryo kryo, Input input, Integer messageID,
+      Integer agentID);
+
+}
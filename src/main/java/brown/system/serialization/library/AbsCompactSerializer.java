@@ -0,0 +1,40 @@
+package brown.system.serialization.library;
+
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Base class for the hand-written serializers, with helpers for the nullable
+ * Integer fields most messages carry.
+ * 
+ * @author andrewcoggins
+ *
+ * @param <T>
+ */
+public abstract class AbsCompactSerializer<T> extends Serializer<T> {
+
+  /**
+   * write an Integer that may be null, in one byte for small values.
+   */
+  protected static void writeInteger(Output output, Integer value) {
+    if (value == null) {
+      output.writeVarLong(0, true);
+    } else {
+      // zigzag, so small negative IDs like -1 stay small, then shifted by one
+      // to make room for null.
+      long zigzag = ((long) value << 1) ^ ((long) value >> 63);
+      output.writeVarLong(zigzag + 1, true);
+    }
+  }
+
+  protected static Integer readInteger(Input input) {
+    long encoded = input.readVarLong(true);
+    if (encoded == 0) {
+      return null;
+    }
+    long zigzag = encoded - 1;
+    return (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+  }
+
+}
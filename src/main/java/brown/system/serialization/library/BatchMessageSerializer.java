@@ -0,0 +1,48 @@
+package brown.system.serialization.library;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.messages.IServerToAgentMessage;
+import brown.communication.messages.library.BatchMessage;
+
+public class BatchMessageSerializer extends AbsCompactSerializer<BatchMessage> {
+
+  /**
+   * write everything before the messages, so that messages already encoded 
+   * with writeClassAndObject can follow as they are. 
+   */
+  public static void writeHeader(Output output, Integer messageID,
+      Integer agentID, int size) {
+    writeInteger(output, messageID);
+    writeInteger(output, agentID);
+    output.writeVarInt(size, true);
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output, BatchMessage batch) {
+    writeHeader(output, batch.getMessageID(), batch.getAgentID(),
+        batch.getMessages().size());
+    for (IServerToAgentMessage message : batch.getMessages()) {
+      kryo.writeClassAndObject(output, message);
+    }
+  }
+
+  @Override
+  public BatchMessage read(Kryo kryo, Input input, Class<BatchMessage> type) {
+    Integer messageID = readInteger(input);
+    Integer agentID = readInteger(input);
+    int size = input.readVarInt(true);
+    List<IServerToAgentMessage> messages =
+        new ArrayList<IServerToAgentMessage>(size);
+    for (int i = 0; i < size; i++) {
+      messages.add((IServerToAgentMessage) kryo.readClassAndObject(input));
+    }
+    return new BatchMessage(messageID, agentID, messages);
+  }
+
+}
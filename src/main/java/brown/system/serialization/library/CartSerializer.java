@@ -0,0 +1,41 @@
+package brown.system.serialization.library;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.platform.item.IItem;
+import brown.platform.item.library.Cart;
+
+/**
+ * Writes a cart as its item count followed by its items. The name index is
+ * rebuilt on read, rather than sent.
+ * 
+ * @author andrewcoggins
+ *
+ */
+public class CartSerializer extends AbsCompactSerializer<Cart> {
+
+  @Override
+  public void write(Kryo kryo, Output output, Cart cart) {
+    List<IItem> items = cart.getItems();
+    output.writeVarInt(items.size(), true);
+    for (IItem item : items) {
+      kryo.writeClassAndObject(output, item);
+    }
+  }
+
+  @Override
+  public Cart read(Kryo kryo, Input input, Class<Cart> type) {
+    int size = input.readVarInt(true);
+    List<IItem> items = new LinkedList<IItem>();
+    for (int i = 0; i < size; i++) {
+      items.add((IItem) kryo.readClassAndObject(input));
+    }
+    return new Cart(items);
+  }
+
+}
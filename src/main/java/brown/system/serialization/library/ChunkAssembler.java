@@ -0,0 +1,85 @@
+package brown.system.serialization.library;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import brown.logging.library.ErrorLogging;
+import brown.system.serialization.IChunkAssembler;
+
+/**
+ * Joins chunks into one buffer, sized once from the message length on the
+ * first chunk, or grown as chunks arrive if it has none. Only the message
+ * being assembled is held, and no message over the maximum size is; the
+ * buffer is handed over once it is complete.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class ChunkAssembler implements IChunkAssembler {
+
+  // largest message assembled, by default.
+  public static final int DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+  private static final int INITIAL_SIZE = 4096;
+
+  private final int maxSize;
+  private byte[] buffer;
+  private int size;
+  // set while the rest of a message over the maximum size is dropped.
+  private boolean discarding;
+
+  public ChunkAssembler() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param maxSize
+   * largest message to assemble, in bytes; larger ones are dropped.
+   */
+  public ChunkAssembler(int maxSize) {
+    this.maxSize = maxSize;
+    this.buffer = null;
+    this.size = 0;
+    this.discarding = false;
+  }
+
+  @Override
+  public ByteBuffer add(MessageChunk chunk) {
+    if (this.discarding) {
+      this.discarding = !chunk.isLast();
+      return null;
+    }
+    int needed = this.size + chunk.getLength();
+    if (needed > this.maxSize || chunk.getMessageLength() > this.maxSize) {
+      ErrorLogging.log("ERROR: ChunkAssembler: dropped a message over "
+          + this.maxSize + " bytes");
+      this.buffer = null;
+      this.size = 0;
+      this.discarding = !chunk.isLast();
+      return null;
+    }
+    if (this.buffer == null) {
+      this.buffer = new byte[chunk.getMessageLength() >= needed
+          ? chunk.getMessageLength()
+          : Math.min(this.maxSize, Math.max(INITIAL_SIZE, needed))];
+    } else if (needed > this.buffer.length) {
+      this.buffer = Arrays.copyOf(this.buffer,
+          Math.min(this.maxSize, Math.max(2 * this.buffer.length, needed)));
+    }
+    System.arraycopy(chunk.getData(), chunk.getOffset(), this.buffer,
+        this.size, chunk.getLength());
+    this.size = needed;
+    if (!chunk.isLast()) {
+      return null;
+    }
+    ByteBuffer message = ByteBuffer.wrap(this.buffer, 0, this.size);
+    this.buffer = null;
+    this.size = 0;
+    return message;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+}
@@ -0,0 +1,28 @@
+package brown.system.serialization.library;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.communication.messages.library.InformationMessage;
+
+public class InformationMessageSerializer
+    extends AbsBroadcastSerializer<InformationMessage> {
+
+  @Override
+  public void writeBody(Kryo kryo, Output output, InformationMessage message) {
+    kryo.writeClassAndObject(output, message.getPublicState());
+  }
+
+  @Override
+  protected InformationMessage readBody(Kryo kryo, Input input,
+      Integer messageID, Integer agentID) {
+    // information messages are always addressed to an agent.
+    InformationMessage message = new InformationMessage(0, agentID,
+        (IMarketPublicState) kryo.readClassAndObject(input));
+    message.setMessageID(messageID);
+    return message;
+  }
+
+}
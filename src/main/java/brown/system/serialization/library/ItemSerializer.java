@@ -0,0 +1,49 @@
+package brown.system.serialization.library;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.platform.item.library.Item;
+import brown.system.serialization.IItemTable;
+
+/**
+ * Writes an item as the index of its name in the item table, followed by its
+ * count. Names missing from the table are written out in full, and an item
+ * without a count is read back with a count of 1, as if made from its name.
+ * 
+ * @author andrewcoggins
+ *
+ */
+public class ItemSerializer extends AbsCompactSerializer<Item> {
+
+  private final IItemTable itemTable;
+
+  public ItemSerializer(IItemTable itemTable) {
+    this.itemTable = itemTable;
+  }
+
+  public IItemTable getItemTable() {
+    return this.itemTable;
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output, Item item) {
+    int index = item.getName() == null ? -1 : this.itemTable.indexOf(item.getName());
+    // 0 means the name follows.
+    output.writeVarInt(index + 1, true);
+    if (index < 0) {
+      output.writeString(item.getName());
+    }
+    output.writeVarInt(item.hasItemCount() ? item.getItemCount() : 1, false);
+  }
+
+  @Override
+  public Item read(Kryo kryo, Input input, Class<Item> type) {
+    int index = input.readVarInt(true) - 1;
+    // names from the table are shared by every item read.
+    String name = index < 0 ? input.readString() : this.itemTable.nameOf(index);
+    return new Item(name, input.readVarInt(false));
+  }
+
+}
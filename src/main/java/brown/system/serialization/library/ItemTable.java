@@ -0,0 +1,65 @@
+package brown.system.serialization.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import brown.system.serialization.IItemTable;
+
+/**
+ * ItemTable is safe to read from several threads while it is being replaced:
+ * a reader sees either the old table or the new one.
+ * 
+ * @author andrewcoggins
+ *
+ */
+public class ItemTable implements IItemTable {
+
+  private volatile Contents contents;
+
+  public ItemTable() {
+    this.contents = new Contents(new ArrayList<String>());
+  }
+
+  public ItemTable(List<String> itemNames) {
+    this.contents = new Contents(itemNames);
+  }
+
+  @Override
+  public void setItemNames(List<String> itemNames) {
+    this.contents = new Contents(itemNames);
+  }
+
+  @Override
+  public List<String> getItemNames() {
+    return this.contents.names;
+  }
+
+  @Override
+  public int indexOf(String itemName) {
+    Integer index = this.contents.indices.get(itemName);
+    return index == null ? -1 : index;
+  }
+
+  @Override
+  public String nameOf(int index) {
+    return this.contents.names.get(index);
+  }
+
+  private static class Contents {
+
+    private final List<String> names;
+    private final Map<String, Integer> indices;
+
+    private Contents(List<String> itemNames) {
+      this.names = Collections.unmodifiableList(new ArrayList<String>(itemNames));
+      this.indices = new HashMap<String, Integer>();
+      for (int i = 0; i < this.names.size(); i++) {
+        this.indices.put(this.names.get(i), i);
+      }
+    }
+  }
+
+}
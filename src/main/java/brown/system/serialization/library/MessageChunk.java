@@ -0,0 +1,74 @@
+package brown.system.serialization.library;
+
+/**
+ * One piece of a serialized message too large to send in one go. The pieces
+ * of a message are sent in order, one after another, and the last one is
+ * marked; the receiver joins them and reads the message from the result.
+ *
+ * A chunk refers to a slice of a larger array, so that a message sent to
+ * many agents is never copied to be split.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class MessageChunk {
+
+  private byte[] data;
+  private int offset;
+  private int length;
+  private boolean last;
+  private int messageLength;
+
+  // for kryo, do not use
+  public MessageChunk() {
+    this(new byte[0], 0, 0, true);
+  }
+
+  public MessageChunk(byte[] data, int offset, int length, boolean last) {
+    this(data, offset, length, last, 0);
+  }
+
+  /**
+   * @param data
+   * @param offset
+   * @param length
+   * @param last
+   * @param messageLength
+   * the length of the whole message, given on its first chunk so that the
+   * receiver can size its buffer once; 0 if not known.
+   */
+  public MessageChunk(byte[] data, int offset, int length, boolean last,
+      int messageLength) {
+    this.data = data;
+    this.offset = offset;
+    this.length = length;
+    this.last = last;
+    this.messageLength = messageLength;
+  }
+
+  public byte[] getData() {
+    return this.data;
+  }
+
+  public int getOffset() {
+    return this.offset;
+  }
+
+  public int getLength() {
+    return this.length;
+  }
+
+  public boolean isLast() {
+    return this.last;
+  }
+
+  public int getMessageLength() {
+    return this.messageLength;
+  }
+
+  @Override
+  public String toString() {
+    return "MessageChunk [length=" + length + ", last=" + last + "]";
+  }
+
+}
@@ -0,0 +1,27 @@
+package brown.system.serialization.library;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+public class MessageChunkSerializer extends AbsCompactSerializer<MessageChunk> {
+
+  @Override
+  public void write(Kryo kryo, Output output, MessageChunk chunk) {
+    output.writeBoolean(chunk.isLast());
+    output.writeVarInt(chunk.getLength(), true);
+    output.writeVarInt(chunk.getMessageLength(), true);
+    // only the chunk's slice of the array is sent.
+    output.writeBytes(chunk.getData(), chunk.getOffset(), chunk.getLength());
+  }
+
+  @Override
+  public MessageChunk read(Kryo kryo, Input input, Class<MessageChunk> type) {
+    boolean last = input.readBoolean();
+    int length = input.readVarInt(true);
+    int messageLength = input.readVarInt(true);
+    return new MessageChunk(input.readBytes(length), 0, length, last,
+        messageLength);
+  }
+
+}
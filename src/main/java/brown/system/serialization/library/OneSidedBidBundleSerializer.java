@@ -0,0 +1,51 @@
+package brown.system.serialization.library;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.platform.item.ICart;
+
+/**
+ * Writes a bid bundle as its size followed by each cart and its bid, as a
+ * raw double.
+ * 
+ * @author andrewcoggins
+ *
+ */
+public class OneSidedBidBundleSerializer
+    extends AbsCompactSerializer<OneSidedBidBundle> {
+
+  @Override
+  public void write(Kryo kryo, Output output, OneSidedBidBundle bundle) {
+    Map<ICart, Double> bids = bundle.getBids();
+    // 0 means no bids map at all.
+    output.writeVarInt(bids == null ? 0 : bids.size() + 1, true);
+    if (bids != null) {
+      for (Map.Entry<ICart, Double> bid : bids.entrySet()) {
+        kryo.writeClassAndObject(output, bid.getKey());
+        output.writeDouble(bid.getValue());
+      }
+    }
+  }
+
+  @Override
+  public OneSidedBidBundle read(Kryo kryo, Input input,
+      Class<OneSidedBidBundle> type) {
+    int size = input.readVarInt(true) - 1;
+    if (size < 0) {
+      return new OneSidedBidBundle();
+    }
+    Map<ICart, Double> bids = new HashMap<ICart, Double>();
+    for (int i = 0; i < size; i++) {
+      ICart cart = (ICart) kryo.readClassAndObject(input);
+      bids.put(cart, input.readDouble());
+    }
+    return new OneSidedBidBundle(bids);
+  }
+
+}
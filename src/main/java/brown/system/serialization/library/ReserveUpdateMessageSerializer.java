@@ -0,0 +1,32 @@
+package brown.system.serialization.library;
+
+import java.util.Map;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.messages.library.ReserveUpdateMessage;
+
+public class ReserveUpdateMessageSerializer
+    extends AbsBroadcastSerializer<ReserveUpdateMessage> {
+
+  @Override
+  public void writeBody(Kryo kryo, Output output,
+      ReserveUpdateMessage message) {
+    writeInteger(output, message.getAuctionID());
+    writeInteger(output, message.getSequence());
+    kryo.writeClassAndObject(output, message.getReserves());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  protected ReserveUpdateMessage readBody(Kryo kryo, Input input,
+      Integer messageID, Integer agentID) {
+    Integer auctionID = readInteger(input);
+    Integer sequence = readInteger(input);
+    return new ReserveUpdateMessage(messageID, agentID, auctionID, sequence,
+        (Map<String, Double>) kryo.readClassAndObject(input));
+  }
+
+}
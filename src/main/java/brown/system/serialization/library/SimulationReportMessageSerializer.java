@@ -0,0 +1,48 @@
+package brown.system.serialization.library;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.communication.messages.library.SimulationReportMessage;
+
+public class SimulationReportMessageSerializer
+    extends AbsBroadcastSerializer<SimulationReportMessage> {
+
+  @Override
+  public void writeBody(Kryo kryo, Output output,
+      SimulationReportMessage message) {
+    Map<Integer, IMarketPublicState> results = message.getMarketResults();
+    if (results == null) {
+      output.writeVarInt(0, true);
+      return;
+    }
+    // shifted by one to make room for null.
+    output.writeVarInt(results.size() + 1, true);
+    for (Map.Entry<Integer, IMarketPublicState> result : results.entrySet()) {
+      writeInteger(output, result.getKey());
+      kryo.writeClassAndObject(output, result.getValue());
+    }
+  }
+
+  @Override
+  protected SimulationReportMessage readBody(Kryo kryo, Input input,
+      Integer messageID, Integer agentID) {
+    int size = input.readVarInt(true) - 1;
+    Map<Integer, IMarketPublicState> results = null;
+    if (size >= 0) {
+      results = new HashMap<Integer, IMarketPublicState>();
+      for (int i = 0; i < size; i++) {
+        Integer marketID = readInteger(input);
+        results.put(marketID,
+            (IMarketPublicState) kryo.readClassAndObject(input));
+      }
+    }
+    return new SimulationReportMessage(messageID, agentID, results);
+  }
+
+}
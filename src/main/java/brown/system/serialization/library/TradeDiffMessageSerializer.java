@@ -0,0 +1,50 @@
+package brown.system.serialization.library;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.library.TradeDiffMessage;
+import brown.platform.item.ICart;
+
+public class TradeDiffMessageSerializer
+    extends AbsCompactSerializer<TradeDiffMessage> {
+
+  @Override
+  public void write(Kryo kryo, Output output, TradeDiffMessage message) {
+    writeInteger(output, message.getMessageID());
+    writeInteger(output, message.getAgentID());
+    writeInteger(output, message.getCorrespondingMessageID());
+    writeInteger(output, message.getAuctionID());
+    writeInteger(output, message.getBaseID());
+    // the class of both is known, so neither is written.
+    kryo.writeObject(output, message.getBid());
+    output.writeVarInt(message.getRemoved().size(), true);
+    for (ICart cart : message.getRemoved()) {
+      kryo.writeClassAndObject(output, cart);
+    }
+  }
+
+  @Override
+  public TradeDiffMessage read(Kryo kryo, Input input,
+      Class<TradeDiffMessage> type) {
+    Integer messageID = readInteger(input);
+    Integer agentID = readInteger(input);
+    Integer responseID = readInteger(input);
+    Integer auctionID = readInteger(input);
+    Integer baseID = readInteger(input);
+    OneSidedBidBundle changed = kryo.readObject(input, OneSidedBidBundle.class);
+    int size = input.readVarInt(true);
+    List<ICart> removed = new ArrayList<ICart>(size);
+    for (int i = 0; i < size; i++) {
+      removed.add((ICart) kryo.readClassAndObject(input));
+    }
+    return new TradeDiffMessage(messageID, agentID, responseID, auctionID,
+        baseID, changed, removed);
+  }
+
+}
@@ -0,0 +1,31 @@
+package brown.system.serialization.library;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.bid.IBidBundle;
+import brown.communication.messages.library.TradeMessage;
+
+public class TradeMessageSerializer extends AbsCompactSerializer<TradeMessage> {
+
+  @Override
+  public void write(Kryo kryo, Output output, TradeMessage message) {
+    writeInteger(output, message.getMessageID());
+    writeInteger(output, message.getAgentID());
+    writeInteger(output, message.getCorrespondingMessageID());
+    writeInteger(output, message.getAuctionID());
+    kryo.writeClassAndObject(output, message.getBid());
+  }
+
+  @Override
+  public TradeMessage read(Kryo kryo, Input input, Class<TradeMessage> type) {
+    Integer messageID = readInteger(input);
+    Integer agentID = readInteger(input);
+    Integer responseID = readInteger(input);
+    Integer auctionID = readInteger(input);
+    IBidBundle bid = (IBidBundle) kryo.readClassAndObject(input);
+    return new TradeMessage(messageID, agentID, responseID, auctionID, bid);
+  }
+
+}
@@ -0,0 +1,44 @@
+package brown.system.serialization.library;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.IMarketPublicStateDelta;
+import brown.communication.messages.library.TradeRequestMessage;
+import brown.platform.item.ICart;
+
+public class TradeRequestMessageSerializer
+    extends AbsCompactSerializer<TradeRequestMessage> {
+
+  @Override
+  public void write(Kryo kryo, Output output, TradeRequestMessage message) {
+    writeInteger(output, message.getMessageID());
+    writeInteger(output, message.getAgentID());
+    writeInteger(output, message.getAuctionID());
+    kryo.writeClassAndObject(output, message.getItems());
+    kryo.writeClassAndObject(output, message.getState());
+    kryo.writeClassAndObject(output, message.getStateDelta());
+    writeInteger(output, message.getReserveSequence());
+    writeInteger(output, message.getLastBidID());
+  }
+
+  @Override
+  public TradeRequestMessage read(Kryo kryo, Input input,
+      Class<TradeRequestMessage> type) {
+    Integer messageID = readInteger(input);
+    Integer agentID = readInteger(input);
+    Integer auctionID = readInteger(input);
+    ICart items = (ICart) kryo.readClassAndObject(input);
+    TradeRequestMessage message =
+        new TradeRequestMessage(messageID, auctionID, agentID, items);
+    message.addInformation((IMarketPublicState) kryo.readClassAndObject(input));
+    message.setStateDelta(
+        (IMarketPublicStateDelta) kryo.readClassAndObject(input));
+    message.setReserveSequence(readInteger(input));
+    message.setLastBidID(readInteger(input));
+    return message;
+  }
+
+}
@@ -3,20 +3,130 @@ package brown.system.setup.library;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.Serializer;
 
-import brown.logging.library.ErrorLogging;
+import brown.auction.marketstate.library.MarketPublicState;
+import brown.auction.marketstate.library.MarketPublicStateDelta;
+import brown.auction.marketstate.library.MarketState;
+import brown.auction.marketstate.library.RoundHistory;
+import brown.communication.bid.library.GVSM9BidBundle;
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.bid.library.PerItemBidBundle;
+import brown.communication.messages.library.AccountInitializationMessage;
+import brown.communication.messages.library.AckMessage;
+import brown.communication.messages.library.BankUpdateMessage;
+import brown.communication.messages.library.BatchMessage;
+import brown.communication.messages.library.ErrorMessage;
+import brown.communication.messages.library.InformationMessage;
+import brown.communication.messages.library.RegistrationMessage;
+import brown.communication.messages.library.RegistrationResponseMessage;
+import brown.communication.messages.library.ReserveRequestMessage;
+import brown.communication.messages.library.ReserveUpdateMessage;
+import brown.communication.messages.library.SATSTradeMessage;
+import brown.communication.messages.library.SATSTradeRequestMessage;
+import brown.communication.messages.library.SimulationReportMessage;
+import brown.communication.messages.library.StateRequestMessage;
+import brown.communication.messages.library.TradeDiffMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.communication.messages.library.TradeRejectionMessage;
+import brown.communication.messages.library.TradeRequestMessage;
+import brown.communication.messages.library.ValuationMessage;
+import brown.platform.accounting.library.Account;
+import brown.platform.accounting.library.AccountUpdate;
+import brown.platform.accounting.library.Transaction;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.DemandSet;
+import brown.platform.item.library.GSVM18Item;
+import brown.platform.item.library.Item;
+import brown.platform.item.library.PricedItem;
+import brown.system.serialization.IItemTable;
+import brown.system.serialization.library.BatchMessageSerializer;
+import brown.system.serialization.library.CartSerializer;
+import brown.system.serialization.library.InformationMessageSerializer;
+import brown.system.serialization.library.ItemSerializer;
+import brown.system.serialization.library.ItemTable;
+import brown.system.serialization.library.MessageChunk;
+import brown.system.serialization.library.MessageChunkSerializer;
+import brown.system.serialization.library.OneSidedBidBundleSerializer;
+import brown.system.serialization.library.ReserveUpdateMessageSerializer;
+import brown.system.serialization.library.SimulationReportMessageSerializer;
+import brown.system.serialization.library.TradeDiffMessageSerializer;
+import brown.system.serialization.library.TradeMessageSerializer;
+import brown.system.serialization.library.TradeRequestMessageSerializer;
 import brown.system.setup.ISetup;
 
 public final class Setup implements ISetup {
 
+  /**
+   * the ID given to the first class in the registration table. Kryo uses the
+   * IDs below this for primitives and strings.
+   */
+  public static final int FIRST_ID = 100;
+
+  /**
+   * every class sent between the server and agents, in registration order.
+   * Registration messages come first, so that the table check in
+   * onRegistration can always read them. Only ever append to this list, so
+   * that existing classes keep their IDs.
+   */
+  private static final List<Class<?>> REGISTRATION_TABLE =
+      Collections.unmodifiableList(Arrays.<Class<?>>asList(
+          // brown.communication
+          RegistrationMessage.class, RegistrationResponseMessage.class,
+          AccountInitializationMessage.class, AckMessage.class,
+          BankUpdateMessage.class, ErrorMessage.class, InformationMessage.class,
+          SATSTradeMessage.class, SATSTradeRequestMessage.class,
+          SimulationReportMessage.class, TradeMessage.class,
+          TradeRejectionMessage.class, TradeRequestMessage.class,
+          ValuationMessage.class, GVSM9BidBundle.class, OneSidedBidBundle.class,
+          PerItemBidBundle.class,
+          // brown.platform.item
+          Cart.class, DemandSet.class, GSVM18Item.class, Item.class,
+          PricedItem.class,
+          // brown.auction.marketstate
+          MarketPublicState.class, MarketState.class,
+          // brown.platform.accounting
+          Account.class, AccountUpdate.class, Transaction.class,
+          // collections used by the classes above
+          ArrayList.class, LinkedList.class, HashMap.class, LinkedHashMap.class,
+          HashSet.class,
+          // added later
+          MarketPublicStateDelta.class, StateRequestMessage.class,
+          MessageChunk.class, ReserveUpdateMessage.class,
+          ReserveRequestMessage.class, BatchMessage.class,
+          TradeDiffMessage.class, RoundHistory.class));
+
+  private final List<String> itemNames;
+
+  public Setup() {
+    this(new LinkedList<String>());
+  }
+
+  /**
+   * a Setup that also fills in the item table, for a server.
+   * 
+   * @param itemNames
+   * names of every item in the server's simulations.
+   */
+  public Setup(List<String> itemNames) {
+    this.itemNames = itemNames;
+  }
+
   @Override
   public void setup(Kryo kryo) {
     start(kryo);
+    getItemTable(kryo).setItemNames(this.itemNames);
   }
 
   /**
@@ -26,10 +136,83 @@ public final class Setup implements ISetup {
    * @return
    */
   public static boolean start(Kryo kryo) {
-	kryo.setRegistrationRequired(false);
+    // classes outside the table, like agent-specific valuations, are still
+    // sent, by name.
+    kryo.setRegistrationRequired(false);
+    for (int i = 0; i < REGISTRATION_TABLE.size(); i++) {
+      kryo.register(REGISTRATION_TABLE.get(i), FIRST_ID + i);
+    }
+    // the most frequently sent classes get compact serializers.
+    register(kryo, Item.class, new ItemSerializer(new ItemTable()));
+    register(kryo, Cart.class, new CartSerializer());
+    register(kryo, OneSidedBidBundle.class, new OneSidedBidBundleSerializer());
+    register(kryo, TradeMessage.class, new TradeMessageSerializer());
+    register(kryo, TradeRequestMessage.class,
+        new TradeRequestMessageSerializer());
+    register(kryo, InformationMessage.class, new InformationMessageSerializer());
+    register(kryo, SimulationReportMessage.class,
+        new SimulationReportMessageSerializer());
+    register(kryo, MessageChunk.class, new MessageChunkSerializer());
+    register(kryo, ReserveUpdateMessage.class,
+        new ReserveUpdateMessageSerializer());
+    register(kryo, BatchMessage.class, new BatchMessageSerializer());
+    register(kryo, TradeDiffMessage.class, new TradeDiffMessageSerializer());
     return true;
   }
 
+  private static void register(Kryo kryo, Class<?> type,
+      Serializer<?> serializer) {
+    kryo.register(type, serializer, FIRST_ID + REGISTRATION_TABLE.indexOf(type));
+  }
+
+  /**
+   * get the item table used by a kryo set up by start. Agents fill it in 
+   * with the table sent by the server on registration.
+   * 
+   * @param kryo
+   * @return
+   */
+  public static IItemTable getItemTable(Kryo kryo) {
+    return ((ItemSerializer) kryo.getRegistration(Item.class).getSerializer())
+        .getItemTable();
+  }
+
+  /**
+   * the classes registered by start, in ID order.
+   */
+  public static List<Class<?>> getRegistrationTable() {
+    return REGISTRATION_TABLE;
+  }
+
+  /**
+   * a fingerprint of the registration table, including the serializer of each
+   * class. A server and an agent can only talk to each other if their 
+   * fingerprints match.
+   * 
+   * @return
+   */
+  public static Integer getTableFingerprint() {
+    Kryo kryo = new Kryo();
+    start(kryo);
+    return getTableFingerprint(kryo);
+  }
+
+  /**
+   * the fingerprint of the registration table as registered with a kryo.
+   * 
+   * @param kryo
+   * @return
+   */
+  public static Integer getTableFingerprint(Kryo kryo) {
+    List<String> entries = new LinkedList<String>();
+    for (Class<?> cl : REGISTRATION_TABLE) {
+      Registration registration = kryo.getRegistration(cl);
+      entries.add(registration.getId() + "=" + cl.getName() + ":"
+          + registration.getSerializer().getClass().getName());
+    }
+    return String.join(",", entries).hashCode();
+  }
+
   /**
    * helper that returns every java class starting at a path
    * 
@@ -45,4 +228,4 @@ public final class Setup implements ISetup {
     return output;
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package brown.system.sharedmemory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A ring buffer of variable-length records, written by one thread and read by
+ * one thread, which may be in different processes.
+ * 
+ * @author andrewcoggins
+ *
+ */
+public interface IRingBuffer {
+
+  /**
+   * append a record, if there is room for it.
+   * 
+   * @param record
+   * the bytes from the record's position to its limit.
+   * @return whether or not the record was written.
+   */
+  public boolean write(ByteBuffer record);
+
+  /**
+   * take the oldest record, if there is one.
+   * 
+   * @param destination
+   * cleared and filled with the record, ready to be read.
+   * @return whether or not a record was read.
+   */
+  public boolean read(ByteBuffer destination);
+
+  /**
+   * the largest record that may be written.
+   * 
+   * @return
+   */
+  public int maxRecordSize();
+
+}
@@ -0,0 +1,28 @@
+package brown.system.sharedmemory;
+
+/**
+ * A pair of ring buffers between the server and one agent on the same host,
+ * named by the files they are mapped from.
+ * 
+ * @author andrewcoggins
+ *
+ */
+public interface ISharedMemoryChannel {
+
+  /**
+   * the name the server attaches to the channel by.
+   * 
+   * @return
+   */
+  public String getName();
+
+  public IRingBuffer getToServer();
+
+  public IRingBuffer getToAgent();
+
+  /**
+   * remove the channel's files. Only the agent that created it does this.
+   */
+  public void delete();
+
+}
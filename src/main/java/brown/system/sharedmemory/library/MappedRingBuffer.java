@@ -0,0 +1,184 @@
+package brown.system.sharedmemory.library;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import brown.system.sharedmemory.IRingBuffer;
+
+/**
+ * Single-producer, single-consumer ring buffer in a memory-mapped file, so
+ * that the producer and consumer may be different processes.
+ *
+ * The file starts with a header holding the capacity and the write and read
+ * positions, each on its own cache line, followed by the records. A record is
+ * its length followed by its bytes, padded to 8 bytes; a record that does not
+ * fit before the end of the buffer is written at the start, after a padding
+ * marker. The positions only ever grow, and each side only ever writes its
+ * own. They are published with ordered stores, after the data they cover, and
+ * read with volatile loads.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class MappedRingBuffer implements IRingBuffer {
+
+  private static final int MAGIC = 0x54505242;
+  private static final int CAPACITY_OFFSET = 4;
+  private static final int WRITE_OFFSET = 64;
+  private static final int READ_OFFSET = 128;
+  private static final int HEADER_SIZE = 192;
+  private static final int LENGTH_SIZE = 4;
+  private static final int PADDING = -1;
+
+  private final MappedByteBuffer buffer;
+  private final long address;
+  private final int capacity;
+  private final int mask;
+  // each side only uses its own view.
+  private final ByteBuffer writeView;
+  private final ByteBuffer readView;
+
+  private MappedRingBuffer(MappedByteBuffer buffer) {
+    this.buffer = buffer;
+    this.address = UnsafeAccess.address(buffer);
+    this.capacity = buffer.getInt(CAPACITY_OFFSET);
+    this.mask = this.capacity - 1;
+    this.writeView = buffer.duplicate();
+    this.readView = buffer.duplicate();
+  }
+
+  /**
+   * create a ring buffer file, replacing any file already there.
+   *
+   * @param file
+   * @param capacity
+   * bytes of records the buffer holds; a power of two.
+   * @return
+   * @throws IOException
+   */
+  public static MappedRingBuffer create(File file, int capacity)
+      throws IOException {
+    if (capacity < 64 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException(
+          "capacity must be a power of two, not " + capacity);
+    }
+    MappedByteBuffer buffer = map(file, HEADER_SIZE + capacity);
+    buffer.putInt(CAPACITY_OFFSET, capacity);
+    buffer.putLong(WRITE_OFFSET, 0);
+    buffer.putLong(READ_OFFSET, 0);
+    // written last, so that open only ever sees a complete header.
+    UnsafeAccess.putOrderedInt(UnsafeAccess.address(buffer), MAGIC);
+    return new MappedRingBuffer(buffer);
+  }
+
+  /**
+   * open a ring buffer file made by create, possibly in another process.
+   *
+   * @param file
+   * @return
+   * @throws IOException
+   * if the file is not a ring buffer.
+   */
+  public static MappedRingBuffer open(File file) throws IOException {
+    if (!file.isFile() || file.length() <= HEADER_SIZE) {
+      throw new IOException("not a ring buffer: " + file);
+    }
+    MappedByteBuffer buffer = map(file, file.length());
+    int capacity = buffer.getInt(CAPACITY_OFFSET);
+    if (UnsafeAccess.getIntVolatile(UnsafeAccess.address(buffer)) != MAGIC
+        || Integer.bitCount(capacity) != 1
+        || HEADER_SIZE + (long) capacity != file.length()) {
+      throw new IOException("not a ring buffer: " + file);
+    }
+    return new MappedRingBuffer(buffer);
+  }
+
+  private static MappedByteBuffer map(File file, long size)
+      throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      if (raf.length() != size) {
+        raf.setLength(size);
+      }
+      // the mapping stays valid after the file is closed.
+      return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  @Override
+  public boolean write(ByteBuffer record) {
+    int length = record.remaining();
+    if (length > maxRecordSize()) {
+      throw new IllegalArgumentException("record of " + length
+          + " bytes is larger than " + maxRecordSize());
+    }
+    int size = align(LENGTH_SIZE + length);
+    long write = UnsafeAccess.getLong(this.address + WRITE_OFFSET);
+    long read = UnsafeAccess.getLongVolatile(this.address + READ_OFFSET);
+    int index = (int) (write & this.mask);
+    int toEnd = this.capacity - index;
+    long needed = size > toEnd ? toEnd + size : size;
+    if (write + needed - read > this.capacity) {
+      return false;
+    }
+    if (size > toEnd) {
+      this.writeView.putInt(HEADER_SIZE + index, PADDING);
+      write += toEnd;
+      index = 0;
+    }
+    this.writeView.clear();
+    this.writeView.position(HEADER_SIZE + index + LENGTH_SIZE);
+    this.writeView.put(record);
+    this.writeView.putInt(HEADER_SIZE + index, length);
+    UnsafeAccess.putOrderedLong(this.address + WRITE_OFFSET, write + size);
+    return true;
+  }
+
+  @Override
+  public boolean read(ByteBuffer destination) {
+    long read = UnsafeAccess.getLong(this.address + READ_OFFSET);
+    while (true) {
+      long write = UnsafeAccess.getLongVolatile(this.address + WRITE_OFFSET);
+      if (read == write) {
+        return false;
+      }
+      int index = (int) (read & this.mask);
+      int length = this.readView.getInt(HEADER_SIZE + index);
+      if (length == PADDING) {
+        read += this.capacity - index;
+        UnsafeAccess.putOrderedLong(this.address + READ_OFFSET, read);
+        continue;
+      }
+      int start = HEADER_SIZE + index + LENGTH_SIZE;
+      this.readView.limit(start + length);
+      this.readView.position(start);
+      destination.clear();
+      destination.put(this.readView);
+      destination.flip();
+      this.readView.clear();
+      UnsafeAccess.putOrderedLong(this.address + READ_OFFSET,
+          read + align(LENGTH_SIZE + length));
+      return true;
+    }
+  }
+
+  @Override
+  public int maxRecordSize() {
+    // so that a record and the padding before it always fit.
+    return this.capacity / 2 - LENGTH_SIZE;
+  }
+
+  private static int align(int size) {
+    return (size + 7) & ~7;
+  }
+
+  @Override
+  public String toString() {
+    return "MappedRingBuffer [capacity=" + capacity + ", buffer=" + buffer
+        + "]";
+  }
+
+}
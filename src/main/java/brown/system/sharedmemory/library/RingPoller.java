@@ -0,0 +1,98 @@
+package brown.system.sharedmemory.library;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import brown.logging.library.ErrorLogging;
+import brown.system.sharedmemory.IRingBuffer;
+
+/**
+ * Reads records from any number of ring buffers on one thread, and hands each
+ * to its ring's handler. The thread spins while records keep coming, and
+ * backs off to short sleeps once they stop.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class RingPoller implements Runnable {
+
+  private static final int SPINS = 100;
+  private static final int YIELDS = 200;
+  private static final long PARK_NANOS = 50000;
+
+  private final String name;
+  private final int maxRecordSize;
+  private final Map<IRingBuffer, Consumer<ByteBuffer>> rings;
+  private volatile boolean running;
+  private Thread thread;
+
+  /**
+   * @param name
+   * name of the polling thread.
+   * @param maxRecordSize
+   * largest record any of the rings holds.
+   */
+  public RingPoller(String name, int maxRecordSize) {
+    this.name = name;
+    this.maxRecordSize = maxRecordSize;
+    this.rings = new ConcurrentHashMap<IRingBuffer, Consumer<ByteBuffer>>();
+    this.running = false;
+    this.thread = null;
+  }
+
+  /**
+   * poll a ring, starting the polling thread if it is not running.
+   *
+   * @param ring
+   * @param handler
+   * called with each record, on the polling thread.
+   */
+  public synchronized void add(IRingBuffer ring, Consumer<ByteBuffer> handler) {
+    this.rings.put(ring, handler);
+    if (this.thread == null) {
+      this.running = true;
+      this.thread = new Thread(this, this.name);
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+  }
+
+  public void remove(IRingBuffer ring) {
+    this.rings.remove(ring);
+  }
+
+  public synchronized void stop() {
+    this.running = false;
+    this.thread = null;
+  }
+
+  @Override
+  public void run() {
+    ByteBuffer record = ByteBuffer.allocate(this.maxRecordSize);
+    int idle = 0;
+    while (this.running) {
+      boolean read = false;
+      for (Map.Entry<IRingBuffer, Consumer<ByteBuffer>> ring : this.rings
+          .entrySet()) {
+        while (this.running && ring.getKey().read(record)) {
+          read = true;
+          try {
+            ring.getValue().accept(record);
+          } catch (RuntimeException e) {
+            ErrorLogging.log("ERROR: RingPoller: handler failed: " + e);
+          }
+        }
+      }
+      idle = read ? 0 : idle + 1;
+      if (idle > YIELDS) {
+        LockSupport.parkNanos(PARK_NANOS);
+      } else if (idle > SPINS) {
+        Thread.yield();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,97 @@
+package brown.system.sharedmemory.library;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+import brown.system.sharedmemory.IRingBuffer;
+import brown.system.sharedmemory.ISharedMemoryChannel;
+
+/**
+ * Shared memory channel made of two ring buffer files, NAME.toServer and
+ * NAME.toAgent. An agent creates the files and sends the name when it
+ * registers; a server that can open them is on the same host.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class SharedMemoryChannel implements ISharedMemoryChannel {
+
+  public static final int CAPACITY = 1 << 20;
+  private static final String TO_SERVER = ".toServer";
+  private static final String TO_AGENT = ".toAgent";
+
+  private final String name;
+  private final IRingBuffer toServer;
+  private final IRingBuffer toAgent;
+
+  private SharedMemoryChannel(String name, IRingBuffer toServer,
+      IRingBuffer toAgent) {
+    this.name = name;
+    this.toServer = toServer;
+    this.toAgent = toAgent;
+  }
+
+  /**
+   * create a channel with a new, unique name, for an agent.
+   *
+   * @param directory
+   * a directory the server can also see, ideally memory-backed like /dev/shm.
+   * @return
+   * @throws IOException
+   */
+  public static ISharedMemoryChannel create(File directory) throws IOException {
+    String name =
+        new File(directory, "tp-" + UUID.randomUUID()).getAbsolutePath();
+    IRingBuffer toServer =
+        MappedRingBuffer.create(new File(name + TO_SERVER), CAPACITY);
+    IRingBuffer toAgent =
+        MappedRingBuffer.create(new File(name + TO_AGENT), CAPACITY);
+    new File(name + TO_SERVER).deleteOnExit();
+    new File(name + TO_AGENT).deleteOnExit();
+    return new SharedMemoryChannel(name, toServer, toAgent);
+  }
+
+  /**
+   * attach to a channel created by an agent, for a server.
+   *
+   * @param name
+   * @return the channel, or null if it cannot be opened from this host.
+   */
+  public static ISharedMemoryChannel attach(String name) {
+    try {
+      return new SharedMemoryChannel(name,
+          MappedRingBuffer.open(new File(name + TO_SERVER)),
+          MappedRingBuffer.open(new File(name + TO_AGENT)));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public IRingBuffer getToServer() {
+    return this.toServer;
+  }
+
+  @Override
+  public IRingBuffer getToAgent() {
+    return this.toAgent;
+  }
+
+  @Override
+  public void delete() {
+    new File(this.name + TO_SERVER).delete();
+    new File(this.name + TO_AGENT).delete();
+  }
+
+  @Override
+  public String toString() {
+    return "SharedMemoryChannel [name=" + name + "]";
+  }
+
+}
@@ -0,0 +1,133 @@
+package brown.system.sharedmemory.library;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+
+/**
+ * The few memory accesses the ring buffer needs from sun.misc.Unsafe, and the
+ * address of a direct buffer. Unsafe is only ever found reflectively, so
+ * compiling against it needs no internal API; its methods are called through
+ * method handles held in constants, which the JIT compiles down to the plain
+ * accesses.
+ *
+ * @author andrewcoggins
+ *
+ */
+final class UnsafeAccess {
+
+  private static final MethodHandle GET_INT_VOLATILE;
+  private static final MethodHandle PUT_ORDERED_INT;
+  private static final MethodHandle GET_LONG;
+  private static final MethodHandle GET_LONG_VOLATILE;
+  private static final MethodHandle PUT_ORDERED_LONG;
+  // the offset of java.nio.Buffer's address field.
+  private static final long ADDRESS_OFFSET;
+
+  static {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      Object unsafe = field.get(null);
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      GET_INT_VOLATILE = bind(lookup, unsafeClass, unsafe, "getIntVolatile",
+          MethodType.methodType(int.class, Object.class, long.class));
+      PUT_ORDERED_INT = bind(lookup, unsafeClass, unsafe, "putOrderedInt",
+          MethodType.methodType(void.class, Object.class, long.class,
+              int.class));
+      GET_LONG = bind(lookup, unsafeClass, unsafe, "getLong",
+          MethodType.methodType(long.class, Object.class, long.class));
+      GET_LONG_VOLATILE = bind(lookup, unsafeClass, unsafe, "getLongVolatile",
+          MethodType.methodType(long.class, Object.class, long.class));
+      PUT_ORDERED_LONG = bind(lookup, unsafeClass, unsafe, "putOrderedLong",
+          MethodType.methodType(void.class, Object.class, long.class,
+              long.class));
+      MethodHandle objectFieldOffset = lookup
+          .findVirtual(unsafeClass, "objectFieldOffset",
+              MethodType.methodType(long.class, Field.class))
+          .bindTo(unsafe);
+      ADDRESS_OFFSET = (long) objectFieldOffset
+          .invokeExact(Buffer.class.getDeclaredField("address"));
+    } catch (Throwable e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private UnsafeAccess() {
+  }
+
+  // the method, on the unsafe instance.
+  private static MethodHandle bind(MethodHandles.Lookup lookup,
+      Class<?> unsafeClass, Object unsafe, String name, MethodType type)
+      throws ReflectiveOperationException {
+    return lookup.findVirtual(unsafeClass, name, type).bindTo(unsafe);
+  }
+
+  /**
+   * @param buffer
+   * a direct buffer.
+   * @return the address of the buffer's memory.
+   */
+  static long address(Buffer buffer) {
+    try {
+      return (long) GET_LONG.invokeExact((Object) buffer, ADDRESS_OFFSET);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  static int getIntVolatile(long address) {
+    try {
+      return (int) GET_INT_VOLATILE.invokeExact((Object) null, address);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  static void putOrderedInt(long address, int value) {
+    try {
+      PUT_ORDERED_INT.invokeExact((Object) null, address, value);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  static long getLong(long address) {
+    try {
+      return (long) GET_LONG.invokeExact((Object) null, address);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  static long getLongVolatile(long address) {
+    try {
+      return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  static void putOrderedLong(long address, long value) {
+    try {
+      PUT_ORDERED_LONG.invokeExact((Object) null, address, value);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  // the accesses throw nothing checked.
+  private static RuntimeException rethrow(Throwable e) {
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    }
+    if (e instanceof Error) {
+      throw (Error) e;
+    }
+    throw new IllegalStateException(e);
+  }
+
+}
@@ -4,6 +4,7 @@ import brown.communication.messages.IAgentToServerMessage;
 import brown.communication.messages.IBankUpdateMessage;
 import brown.communication.messages.IInformationMessage;
 import brown.communication.messages.IRegistrationResponseMessage;
+import brown.communication.messages.IReserveUpdateMessage;
 import brown.communication.messages.IServerToAgentMessage;
 import brown.communication.messages.ISimulationReportMessage;
 import brown.communication.messages.IStatusMessage;
@@ -53,6 +54,12 @@ public interface IAgentBackend {
    */
   public void onSimulationReportMessage(ISimulationReportMessage reportMessage); 
   
+  /**
+   * Respond to IReserveUpdateMessage
+   * @param reserveUpdate
+   */
+  public void onReserveUpdate(IReserveUpdateMessage reserveUpdate); 
+  
   /**
    * Receive a message from the server. 
    * @param message
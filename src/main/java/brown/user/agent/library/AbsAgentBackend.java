@@ -1,8 +1,17 @@
 package brown.user.agent.library;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.IMarketPublicStateDelta;
+import brown.auction.marketstate.library.MarketPublicStateDelta;
 import brown.communication.messages.IAgentToServerMessage;
 import brown.communication.messages.IRegistrationResponseMessage;
+import brown.communication.messages.IReserveUpdateMessage;
 import brown.communication.messages.IServerToAgentMessage;
+import brown.communication.messages.ITradeRequestMessage;
+import brown.logging.library.ErrorLogging;
 import brown.logging.library.SystemLogging;
 import brown.user.agent.IAgent;
 import brown.user.agent.IAgentBackend;
@@ -13,12 +22,15 @@ public abstract class AbsAgentBackend implements IAgentBackend {
   public Integer ID;
   public Integer publicID;
   public String simulationJsonFileName; 
+  // the last public state received for each market.
+  private Map<Integer, IMarketPublicState> marketStates; 
   
   public AbsAgentBackend(IAgent agent) {
     this.agent = agent; 
     this.ID = -1; 
     this.publicID = -1; 
     this.simulationJsonFileName = ""; 
+    this.marketStates = new HashMap<Integer, IMarketPublicState>(); 
   }
   
   @Override
@@ -46,6 +58,41 @@ public abstract class AbsAgentBackend implements IAgentBackend {
   }
   
 
+ /**
+  * rebuild the full public state of a trade request sent with a state delta, 
+  * so that agents always see the whole state. 
+  * @param tradeRequestMessage
+  * @return
+  * false if the delta does not apply to the last state received, and the 
+  * request should not be answered until the server sends the whole state. 
+  */
+  protected boolean reconstructState(ITradeRequestMessage tradeRequestMessage) {
+    Integer marketID = tradeRequestMessage.getAuctionID(); 
+    IMarketPublicStateDelta delta = tradeRequestMessage.getStateDelta(); 
+    if (delta != null) {
+      IMarketPublicState base = this.marketStates.get(marketID); 
+      if (!delta.appliesTo(base)) {
+        ErrorLogging.log("ERROR: agent " + this.ID 
+            + " cannot rebuild public state of market " + marketID 
+            + ", asking for the whole state"); 
+        return false; 
+      }
+      tradeRequestMessage.addInformation(delta.applyTo(base)); 
+      tradeRequestMessage.setStateDelta(null); 
+    }
+    if (tradeRequestMessage.getState() != null) {
+      // agents may change the state they are given. 
+      this.marketStates.put(marketID, 
+          MarketPublicStateDelta.copyOf(tradeRequestMessage.getState())); 
+    }
+    return true; 
+  }
+
+  @Override
+  public void onReserveUpdate(IReserveUpdateMessage reserveUpdate) {
+    // only agents connected over the network are sent reserve updates. 
+  }
+
   @Override
   public abstract void receiveMessage(IServerToAgentMessage message); 
   
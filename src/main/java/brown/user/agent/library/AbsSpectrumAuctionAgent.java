@@ -9,18 +9,19 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import brown.auction.marketstate.IMarketPublicState;
 import brown.auction.rules.activity.SMRAActivity;
 import brown.auction.value.valuation.IGeneralValuation;
-import brown.communication.bid.IBidBundle;
 import brown.communication.bid.library.OneSidedBidBundle;
 import brown.communication.messages.IInformationMessage;
 import brown.communication.messages.ISimulationReportMessage;
 import brown.communication.messages.ITradeMessage;
 import brown.communication.messages.ITradeRequestMessage;
 import brown.communication.messages.IValuationMessage;
+import brown.communication.messages.library.TradeDiffMessage;
 import brown.communication.messages.library.TradeMessage;
 import brown.platform.accounting.IAccountUpdate;
 import brown.platform.item.ICart;
@@ -38,6 +39,10 @@ public abstract class AbsSpectrumAuctionAgent extends AbsAgent implements IAgent
 	private Set<String> allocation;
 	private List<Set<String>> allBids;
 	private List<Map<String, Double>> allReserves;
+	// the bids last sent this auction, that the next trade diff is taken from,
+	// and the message ID they were sent with.
+	private Map<String, Double> lastBids;
+	private int lastBidID;
 	private Map<Integer, Integer> privateToPublic; // definitely needs fixing next year. server not sanitizing.
 
 	public AbsSpectrumAuctionAgent(String name) {
@@ -50,6 +55,8 @@ public abstract class AbsSpectrumAuctionAgent extends AbsAgent implements IAgent
 		this.allocation = new HashSet<>();
 		this.allBids = new LinkedList<>();
 		this.allReserves = new LinkedList<>();
+		this.lastBids = null;
+		this.lastBidID = 0;
 		this.privateToPublic = new HashMap<>();
 	}
 
@@ -62,6 +69,11 @@ public abstract class AbsSpectrumAuctionAgent extends AbsAgent implements IAgent
 	public void onTradeRequestMessage(ITradeRequestMessage tradeRequestMessage) {
 		synchronized (this) {
 			this.auctionID = tradeRequestMessage.getAuctionID();
+			// the market does not hold the last bid, so it has nothing to apply a
+			// diff to; this bid is sent whole.
+			if (!Objects.equals(tradeRequestMessage.getLastBidID(), this.lastBidID)) {
+				this.lastBids = null;
+			}
 
 			// set minBids
 			Map<String, Double> reserves = new HashMap<>(tradeRequestMessage.getState().getReserves());
@@ -86,9 +98,7 @@ public abstract class AbsSpectrumAuctionAgent extends AbsAgent implements IAgent
 			} else {
 				bids = this.getRegionalBids(Collections.unmodifiableMap(minBids));
 			}
-			IBidBundle bundle = this.createBidBundle(bids);
-			this.agentBackend
-					.sendMessage(new TradeMessage(0, this.agentBackend.getPrivateID(), this.auctionID, bundle));
+			this.agentBackend.sendMessage(this.createTradeMessage(bids));
 
 			this.allBids.add(bids.keySet());
 
@@ -122,6 +132,7 @@ public abstract class AbsSpectrumAuctionAgent extends AbsAgent implements IAgent
 
 			this.allBids.clear();
 			this.allReserves.clear();
+			this.lastBids = null;
 			this.allocation.clear();
 			this.round = 0;
 
@@ -336,7 +347,40 @@ public abstract class AbsSpectrumAuctionAgent extends AbsAgent implements IAgent
 		return status;
 	}
 
-	private IBidBundle createBidBundle(Map<String, Double> bids) {
+	private ITradeMessage createTradeMessage(Map<String, Double> bids) {
+		if (bids == null) {
+			bids = new HashMap<>();
+		}
+		Map<String, Double> previous = this.lastBids;
+		Integer baseID = this.lastBidID;
+		this.lastBids = new HashMap<>(bids);
+		this.lastBidID++;
+		// after the first round, only the changes are sent, when that is smaller.
+		if (previous != null) {
+			Map<String, Double> changed = new HashMap<>();
+			for (Map.Entry<String, Double> ent : bids.entrySet()) {
+				if (!previous.containsKey(ent.getKey()) || !Objects.equals(previous.get(ent.getKey()), ent.getValue())) {
+					changed.put(ent.getKey(), ent.getValue());
+				}
+			}
+			List<ICart> removed = new ArrayList<>();
+			for (String good : previous.keySet()) {
+				if (!bids.containsKey(good)) {
+					ICart cart = new Cart();
+					cart.addToCart(new Item(good));
+					removed.add(cart);
+				}
+			}
+			if (changed.size() + removed.size() < bids.size()) {
+				return new TradeDiffMessage(this.lastBidID, this.agentBackend.getPrivateID(), this.auctionID,
+						baseID, this.createBidBundle(changed), removed);
+			}
+		}
+		return new TradeMessage(this.lastBidID, this.agentBackend.getPrivateID(), this.auctionID,
+				this.createBidBundle(bids));
+	}
+
+	private OneSidedBidBundle createBidBundle(Map<String, Double> bids) {
 		if (bids == null) {
 			bids = new HashMap<>();
 		}
@@ -346,8 +390,7 @@ public abstract class AbsSpectrumAuctionAgent extends AbsAgent implements IAgent
 			cart.addToCart(new Item(ent.getKey()));
 			bundle.put(cart, ent.getValue());
 		}
-		IBidBundle bid = new OneSidedBidBundle(bundle);
-		return bid;
+		return new OneSidedBidBundle(bundle);
 	}
 
 	private void parseAllocation(IMarketPublicState state) {
@@ -0,0 +1,84 @@
+package brown.user.agent.library;
+
+import brown.communication.messages.IAgentToServerMessage;
+import brown.communication.messages.IBankUpdateMessage;
+import brown.communication.messages.IInformationMessage;
+import brown.communication.messages.IServerToAgentMessage;
+import brown.communication.messages.ISimulationReportMessage;
+import brown.communication.messages.IStatusMessage;
+import brown.communication.messages.ITradeRequestMessage;
+import brown.communication.messages.IValuationMessage;
+import brown.communication.messages.library.RegistrationMessage;
+import brown.communication.messageserver.IOfflineMessageServer;
+import brown.logging.library.ErrorLogging;
+import brown.logging.library.SystemLogging;
+import brown.user.agent.IAgent;
+import brown.user.agent.IAgentBackend;
+
+/**
+ * Offline agent backend that runs the agent's handlers on the calling thread,
+ * as soon as a message is received. Used with DirectOfflineMessageServer.
+ *
+ * @author andrewcoggins
+ *
+ */
+public class DirectOfflineAgentBackend extends AbsAgentBackend implements IAgentBackend {
+
+  protected IOfflineMessageServer messageServer;
+
+  public DirectOfflineAgentBackend(IOfflineMessageServer messageServer, IAgent agent) {
+    super(agent);
+    this.messageServer = messageServer;
+    this.sendMessage(new RegistrationMessage(-1, agent.getAgentName()));
+  }
+
+  @Override
+  public void onBankUpdate(IBankUpdateMessage bankUpdate) {
+    this.agent.onBankUpdate(bankUpdate);
+  }
+
+  @Override
+  public void onInformationMessage(IInformationMessage informationMessage) {
+    this.agent.onInformationMessage(informationMessage);
+  }
+
+  @Override
+  public void onTradeRequestMessage(ITradeRequestMessage tradeRequestMessage) {
+    this.agent.onTradeRequestMessage(tradeRequestMessage);
+  }
+
+  @Override
+  public void onValuationMessage(IValuationMessage valuationMessage) {
+    this.agent.onValuationMessage(valuationMessage);
+  }
+
+  @Override
+  public void
+      onSimulationReportMessage(ISimulationReportMessage reportMessage) {
+    this.agent.onSimulationReportMessage(reportMessage);
+  }
+
+  @Override
+  public void onStatusMessage(IStatusMessage message) {
+    SystemLogging
+        .log("[x] rej: " + message.getStatus() + ", agent ID: " + this.ID);
+  }
+
+  @Override
+  public void sendMessage(IAgentToServerMessage message) {
+    this.messageServer.receiveMessage(this, message);
+  }
+
+  @Override
+  public void receiveMessage(IServerToAgentMessage message) {
+    // the agent runs on the simulation thread, so a failing agent must not
+    // take the simulation down with it.
+    try {
+      message.agentDispatch(this);
+    } catch (RuntimeException e) {
+      ErrorLogging.log("ERROR: agent " + this.ID + " failed to handle "
+          + message.getClass().getSimpleName() + ": " + e);
+    }
+  }
+
+}
@@ -1,6 +1,6 @@
 package brown.user.agent.library;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executor;
 
 import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
 import org.spectrumauctions.sats.core.model.gsvm.GSVMBidderSetup;
@@ -17,6 +17,7 @@ import brown.communication.messages.IValuationMessage;
 import brown.communication.messages.library.AckMessage;
 import brown.communication.messages.library.RegistrationMessage;
 import brown.communication.messageserver.IOfflineMessageServer;
+import brown.logging.library.ErrorLogging;
 import brown.logging.library.SystemLogging;
 import brown.user.agent.IAgent;
 import brown.user.agent.IAgentBackend;
@@ -25,31 +26,15 @@ public class OfflineAgentBackend extends AbsAgentBackend implements IAgentBacken
   
   protected IOfflineMessageServer messageServer;
 
-  private final LinkedBlockingQueue<IServerToAgentMessage> tasks;
+  // handles this agent's messages in order, on the server's agent pool.
+  private final Executor tasks;
   
   
-  public OfflineAgentBackend(IOfflineMessageServer messageServer, IAgent agent) {
+  public OfflineAgentBackend(IOfflineMessageServer messageServer, IAgent agent,
+      Executor agentPool) {
     super(agent);
     this.messageServer = messageServer;
-    this.tasks = new LinkedBlockingQueue<>();
-
-    // "listener"
-    new Thread(new Runnable() {
-
-      @Override
-      public void run() {
-        while (true) {
-          IServerToAgentMessage message;
-          try {
-            message = OfflineAgentBackend.this.tasks.take();
-            message.agentDispatch(OfflineAgentBackend.this);
-          } catch (InterruptedException e) {
-            e.printStackTrace();
-          }
-
-        }
-      }
-    }).start();
+    this.tasks = new SerialAgentExecutor(agentPool);
 
     this.sendMessage(new RegistrationMessage(-1, agent.getAgentName()));
   }
@@ -98,12 +83,15 @@ public class OfflineAgentBackend extends AbsAgentBackend implements IAgentBacken
     this.messageServer.receiveMessage(this, message);
   }
 
-  public synchronized void receiveMessage(IServerToAgentMessage message) {
-    try {
-      this.tasks.put(message);
-    } catch (InterruptedException e) {
-      e.printStackTrace();
-    }
+  public void receiveMessage(IServerToAgentMessage message) {
+    this.tasks.execute(() -> {
+      try {
+        message.agentDispatch(this);
+      } catch (RuntimeException e) {
+        ErrorLogging.log("ERROR: agent " + this.ID + " failed to handle "
+            + message.getClass().getSimpleName() + ": " + e);
+      }
+    });
   }
   
   
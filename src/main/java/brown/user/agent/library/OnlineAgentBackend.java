@@ -1,8 +1,15 @@
 package brown.user.agent.library;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryonet.Client;
 import com.esotericsoftware.kryonet.Connection;
 import com.esotericsoftware.kryonet.Listener;
@@ -10,6 +17,8 @@ import com.esotericsoftware.kryonet.Listener;
 import brown.communication.messages.IAgentToServerMessage;
 import brown.communication.messages.IBankUpdateMessage;
 import brown.communication.messages.IInformationMessage;
+import brown.communication.messages.IRegistrationResponseMessage;
+import brown.communication.messages.IReserveUpdateMessage;
 import brown.communication.messages.IServerToAgentMessage;
 import brown.communication.messages.ISimulationReportMessage;
 import brown.communication.messages.IStatusMessage;
@@ -17,8 +26,17 @@ import brown.communication.messages.ITradeRequestMessage;
 import brown.communication.messages.IValuationMessage;
 import brown.communication.messages.library.AbsServerToAgentMessage;
 import brown.communication.messages.library.RegistrationMessage;
+import brown.communication.messages.library.ReserveRequestMessage;
+import brown.communication.messages.library.StateRequestMessage;
+import brown.logging.library.ErrorLogging;
 import brown.logging.library.SystemLogging;
+import brown.system.serialization.IChunkAssembler;
+import brown.system.serialization.library.ChunkAssembler;
+import brown.system.serialization.library.MessageChunk;
 import brown.system.setup.ISetup;
+import brown.system.sharedmemory.ISharedMemoryChannel;
+import brown.system.sharedmemory.library.RingPoller;
+import brown.system.sharedmemory.library.SharedMemoryChannel;
 import brown.system.setup.library.Setup;
 import brown.user.agent.IAgent;
 import brown.user.agent.IAgentBackend;
@@ -33,6 +51,24 @@ public class OnlineAgentBackend extends AbsAgentBackend implements IAgentBackend
   
   protected final IAgent agent; 
   public final Client CLIENT;
+  // joins large messages the server sends in chunks.
+  private final IChunkAssembler chunks;
+  private static final int BUFFER_SIZE = 65536;
+  private static final long PARK_NANOS = 50000;
+  // how long a send waits for the server to make room in the ring, as long as
+  // the server waits for the agent.
+  private static final long WRITE_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+  // null unless the agent offered the server a shared memory channel.
+  private volatile ISharedMemoryChannel channel;
+  private RingPoller ringPoller;
+  private ByteBuffer record;
+  // set once the server answers over the channel; after that, the agent
+  // writes to it too.
+  private volatile boolean sharedMemory;
+  // the latest reserve update, and any trade request waiting on a later one,
+  // for each market. Guarded by the agent.
+  private final Map<Integer, IReserveUpdateMessage> reserveUpdates;
+  private final Map<Integer, ITradeRequestMessage> waitingRequests;
 
   /**
    * 
@@ -44,10 +80,31 @@ public class OnlineAgentBackend extends AbsAgentBackend implements IAgentBackend
    * @throws AgentCreationException
    */
   public OnlineAgentBackend(String host, int port, ISetup setup, IAgent agent) {
+    this(host, port, setup, agent, null);
+  }
+
+  /**
+   * an agent on the same host as the server can offer it a shared memory 
+   * channel; if the server takes it, messages go over the channel rather than 
+   * TCP. 
+   * 
+   * @param sharedMemoryDirectory
+   * directory to make the channel in, ideally memory-backed like /dev/shm; 
+   * null for TCP only.
+   */
+  public OnlineAgentBackend(String host, int port, ISetup setup, IAgent agent,
+      String sharedMemoryDirectory) {
     super(agent); 
-    this.CLIENT = new Client(65536, 65536);
+    this.CLIENT = new Client(BUFFER_SIZE, BUFFER_SIZE);
     this.ID = null;
     this.publicID = null; 
+    this.chunks = new ChunkAssembler();
+    this.channel = null;
+    this.ringPoller = null;
+    this.record = null;
+    this.sharedMemory = false;
+    this.reserveUpdates = new HashMap<Integer, IReserveUpdateMessage>();
+    this.waitingRequests = new HashMap<Integer, ITradeRequestMessage>();
     CLIENT.start();
     Kryo agentKryo = CLIENT.getKryo();
     Setup.start(agentKryo);
@@ -65,19 +122,72 @@ public class OnlineAgentBackend extends AbsAgentBackend implements IAgentBackend
     // All agents listen for messages.
     CLIENT.addListener(new Listener() {
       public void received(Connection connection, Object message) {
-        synchronized (agent) {
-          if (message instanceof AbsServerToAgentMessage) {
-            AbsServerToAgentMessage theMessage =
-                (AbsServerToAgentMessage) message;
-            theMessage.agentDispatch(agentBackend);
-          }
-        }
+        agentBackend.handle(message, false);
       }
     });
+    if (sharedMemoryDirectory != null) {
+      openChannel(sharedMemoryDirectory);
+    }
     
-    this.sendMessage(new RegistrationMessage(-1, agent.getAgentName()));
+    this.sendMessage(new RegistrationMessage(-1, agent.getAgentName(),
+        Setup.getTableFingerprint(),
+        this.channel == null ? null : this.channel.getName()));
+  }
+
+  private void openChannel(String directory) {
+    try {
+      this.channel = SharedMemoryChannel.create(new File(directory));
+    } catch (IOException e) {
+      ErrorLogging.log("ERROR: OnlineAgentBackend: could not create shared "
+          + "memory channel in " + directory + ", using TCP: " + e);
+      return;
+    }
+    this.record = ByteBuffer.allocate(BUFFER_SIZE);
+    this.ringPoller = new RingPoller("shared-memory-agent", BUFFER_SIZE);
+    this.ringPoller.add(this.channel.getToAgent(), bytes -> handle(
+        this.CLIENT.getSerialization().read(null, bytes), true));
+  }
+
+  private void handle(Object message, boolean viaChannel) {
+    if (viaChannel) {
+      this.sharedMemory = true;
+    } else if (this.channel != null && !this.sharedMemory
+        && message instanceof IRegistrationResponseMessage) {
+      // the server answered over TCP, so it could not open the channel.
+      closeChannel();
+    }
+    if (message instanceof MessageChunk) {
+      message = assemble((MessageChunk) message);
+    }
+    synchronized (this.agent) {
+      if (message instanceof AbsServerToAgentMessage) {
+        AbsServerToAgentMessage theMessage = (AbsServerToAgentMessage) message;
+        theMessage.agentDispatch(this);
+      }
+    }
   }
   
+  private Object assemble(MessageChunk chunk) {
+    ByteBuffer serialized = this.chunks.add(chunk);
+    if (serialized == null) {
+      return null;
+    }
+    // the client's kryo is shared with its reads and writes.
+    synchronized (this.CLIENT.getSerialization()) {
+      return this.CLIENT.getKryo().readClassAndObject(new Input(
+          serialized.array(), serialized.position(), serialized.remaining()));
+    }
+  }
+
+  @Override
+  public void
+      onRegistrationResponse(IRegistrationResponseMessage registrationMessage) {
+    super.onRegistrationResponse(registrationMessage);
+    // every message after this one may refer to items by index.
+    Setup.getItemTable(this.CLIENT.getKryo())
+        .setItemNames(registrationMessage.getItemNames());
+  }
+
   @Override
   public void onBankUpdate(IBankUpdateMessage bankUpdate) {
     this.agent.onBankUpdate(bankUpdate);
@@ -90,9 +200,56 @@ public class OnlineAgentBackend extends AbsAgentBackend implements IAgentBackend
 
   @Override
   public void onTradeRequestMessage(ITradeRequestMessage tradeRequestMessage) {
+    if (!this.reconstructState(tradeRequestMessage)) {
+      // the server sends the request again, with the whole state.
+      this.sendMessage(new StateRequestMessage(0, this.ID,
+          tradeRequestMessage.getAuctionID()));
+      return;
+    }
+    Integer sequence = tradeRequestMessage.getReserveSequence();
+    if (sequence != null) {
+      Integer marketID = tradeRequestMessage.getAuctionID();
+      IReserveUpdateMessage update = this.reserveUpdates.get(marketID);
+      if (update == null || update.getSequence() < sequence) {
+        // the update was lost or is still on its way, so ask for it over TCP,
+        // and answer the request with whichever copy comes first.
+        this.waitingRequests.put(marketID, tradeRequestMessage);
+        this.sendMessage(
+            new ReserveRequestMessage(0, this.ID, marketID, sequence));
+        return;
+      }
+      addReserves(tradeRequestMessage, update);
+    }
     this.agent.onTradeRequestMessage(tradeRequestMessage);
   }
 
+  @Override
+  public void onReserveUpdate(IReserveUpdateMessage reserveUpdate) {
+    Integer marketID = reserveUpdate.getAuctionID();
+    IReserveUpdateMessage latest = this.reserveUpdates.get(marketID);
+    // UDP may deliver updates out of order, or twice.
+    if (latest != null && latest.getSequence() >= reserveUpdate.getSequence()) {
+      return;
+    }
+    this.reserveUpdates.put(marketID, reserveUpdate);
+    ITradeRequestMessage waiting = this.waitingRequests.get(marketID);
+    if (waiting != null
+        && waiting.getReserveSequence() <= reserveUpdate.getSequence()) {
+      this.waitingRequests.remove(marketID);
+      addReserves(waiting, reserveUpdate);
+      this.agent.onTradeRequestMessage(waiting);
+    }
+  }
+
+  private void addReserves(ITradeRequestMessage tradeRequestMessage,
+      IReserveUpdateMessage update) {
+    if (tradeRequestMessage.getState() != null) {
+      // agents may change the state they are given.
+      tradeRequestMessage.getState()
+          .setReserves(new HashMap<String, Double>(update.getReserves()));
+    }
+  }
+
   @Override
   public void onValuationMessage(IValuationMessage valuationMessage) {
     this.agent.onValuationMessage(valuationMessage);
@@ -107,7 +264,39 @@ public class OnlineAgentBackend extends AbsAgentBackend implements IAgentBackend
   
   @Override
   public void sendMessage(IAgentToServerMessage message) {
-    this.CLIENT.sendTCP(message);
+    ISharedMemoryChannel channel = this.channel;
+    if (!this.sharedMemory || channel == null) {
+      this.CLIENT.sendTCP(message);
+      return;
+    }
+    // the ring has a single writer.
+    synchronized (this.record) {
+      this.record.clear();
+      this.CLIENT.getSerialization().write(null, this.record, message);
+      this.record.flip();
+      long deadline = System.nanoTime() + WRITE_TIMEOUT;
+      while (!channel.getToServer().write(this.record)) {
+        if (System.nanoTime() - deadline > 0) {
+          // the server stopped reading, or gave up on the agent; the message
+          // goes over TCP, which fails too if the server has closed it.
+          ErrorLogging.log("ERROR: OnlineAgentBackend: server stopped reading "
+              + "the shared memory channel, using TCP");
+          closeChannel();
+          this.CLIENT.sendTCP(message);
+          return;
+        }
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+    }
+  }
+
+  private synchronized void closeChannel() {
+    if (this.channel != null) {
+      this.ringPoller.stop();
+      this.channel.delete();
+      this.channel = null;
+    }
+    this.sharedMemory = false;
   }
   
   @Override
@@ -0,0 +1,58 @@
+package brown.user.agent.library;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import brown.logging.library.ErrorLogging;
+
+/**
+ * Runs one agent's tasks on a shared worker pool, one at a time and in the
+ * order they were submitted. At most one task per agent is ever queued on the
+ * pool, so any number of agents can share a small, fixed set of threads.
+ * 
+ * @author andrewcoggins
+ *
+ */
+public class SerialAgentExecutor implements Executor {
+
+  private final Executor pool;
+  private final Queue<Runnable> tasks;
+  private final AtomicBoolean scheduled;
+
+  public SerialAgentExecutor(Executor pool) {
+    this.pool = pool;
+    this.tasks = new ConcurrentLinkedQueue<Runnable>();
+    this.scheduled = new AtomicBoolean(false);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    this.tasks.add(task);
+    this.schedule();
+  }
+
+  private void schedule() {
+    if (!this.tasks.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+      this.pool.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    Runnable task;
+    while ((task = this.tasks.poll()) != null) {
+      // a failing task must not hold up the ones queued behind it.
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        ErrorLogging.log("ERROR: SerialAgentExecutor: task failed: " + e);
+      }
+    }
+    this.scheduled.set(false);
+    // a task may have been added after the last poll, but before the flag
+    // was cleared.
+    this.schedule();
+  }
+
+}
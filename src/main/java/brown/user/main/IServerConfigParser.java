@@ -40,4 +40,13 @@ public interface IServerConfigParser extends IInputParser {
   public Map<String, Double> parseServerConfigDoubleParameters(String fileName)
       throws FileNotFoundException, IOException, ParseException; 
 
+  /**
+   * parse the milliseconds offline agents have to answer each type of
+   * message.
+   * @param fileName
+   * @return
+   */
+  public Map<String, Integer> parseResponseDeadlines(String fileName)
+      throws FileNotFoundException, IOException, ParseException;
+
 }
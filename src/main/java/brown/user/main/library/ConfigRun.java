@@ -1,9 +1,18 @@
 package brown.user.main.library;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import brown.communication.messageserver.SlowConsumerPolicy;
+import brown.logging.library.ErrorLogging;
 import brown.platform.item.ICart;
 import brown.platform.item.IItem;
 import brown.platform.item.library.Cart;
@@ -59,26 +68,132 @@ public class ConfigRun {
     this.agentConfig = agentConfig;
   }
 
-  public void run(Integer startingDelayTime, Double simulationDelayTime,
-      Integer learningDelayTime, Integer numSimulations, Integer serverPort,
-      String simulationJsonFileName) throws InstantiationException,
-      IllegalAccessException, IllegalArgumentException,
-      InvocationTargetException, InterruptedException {
-
-    ISimulationManager simulationManager;
+  public void run(Integer startingDelayTime, Integer numAgents,
+      Double simulationDelayTime, Integer learningDelayTime,
+      Integer numSimulations, Integer serverPort, Boolean parallelMarkets,
+      Integer parallelRuns, Boolean directTransport, Boolean deltaPublicState,
+      SlowConsumerPolicy slowConsumerPolicy, Integer maxPendingMessages,
+      Boolean sharedMemory, Boolean udpReserves, Integer ioThreads,
+      Map<String, Integer> responseDeadlines, String simulationJsonFileName)
+      throws InstantiationException, IllegalAccessException,
+      IllegalArgumentException, InvocationTargetException,
+      InterruptedException {
 
     if (this.agentConfig.size() == 0) {
-      simulationManager = new SimulationManager();
+      if (parallelRuns > 1) {
+        ErrorLogging.log(
+            "ERROR: ConfigRun: parallel runs are only supported offline, running sequentially");
+      }
+      ISimulationManager simulationManager =
+          new SimulationManager(parallelMarkets, deltaPublicState,
+              slowConsumerPolicy, maxPendingMessages, sharedMemory,
+              udpReserves, ioThreads);
+      createSimulations(simulationManager);
+      simulationManager.runSimulation(startingDelayTime, numAgents,
+          simulationDelayTime, learningDelayTime, numSimulations, serverPort,
+          simulationJsonFileName);
+      simulationManager.logResults();
+    } else if (parallelRuns <= 1) {
+      ISimulationManager simulationManager =
+          createOfflineSimulationManager(parallelMarkets, directTransport,
+              responseDeadlines);
+      // offline, the agents to expect are exactly those in the agent config.
+      simulationManager.runSimulation(startingDelayTime,
+          this.agentConfig.size(), simulationDelayTime, learningDelayTime,
+          numSimulations, serverPort, simulationJsonFileName);
+      simulationManager.logResults();
     } else {
-      // agent manager is only created and used in offline simulations.
-      IAgentManager agentManager = new AgentManager();
-      for (IAgentConfig aConfig : agentConfig) {
-        agentManager.createAgent(aConfig);
+      runParallel(startingDelayTime, simulationDelayTime, learningDelayTime,
+          numSimulations, serverPort, parallelMarkets, parallelRuns,
+          directTransport, responseDeadlines, simulationJsonFileName);
+    }
+  }
+
+  /**
+   * run independent repetitions of the simulation at the same time. Each of
+   * the parallel runs has its own agents, its own worlds built from the
+   * config, and its own simulation manager; the repetitions are split evenly
+   * between them. Utilities are merged once every run is done.
+   */
+  private void runParallel(Integer startingDelayTime,
+      Double simulationDelayTime, Integer learningDelayTime,
+      Integer numSimulations, Integer serverPort, Boolean parallelMarkets,
+      Integer parallelRuns, Boolean directTransport,
+      Map<String, Integer> responseDeadlines, String simulationJsonFileName)
+      throws InstantiationException, IllegalAccessException,
+      IllegalArgumentException, InvocationTargetException,
+      InterruptedException {
+    List<ISimulationManager> simulationManagers =
+        new LinkedList<ISimulationManager>();
+    List<Callable<Object>> runs = new LinkedList<Callable<Object>>();
+    for (int i = 0; i < parallelRuns; i++) {
+      int runShare = numSimulations / parallelRuns
+          + (i < numSimulations % parallelRuns ? 1 : 0);
+      if (runShare == 0) {
+        break;
+      }
+      ISimulationManager simulationManager =
+          createOfflineSimulationManager(parallelMarkets, directTransport,
+              responseDeadlines);
+      simulationManagers.add(simulationManager);
+      runs.add(() -> {
+        simulationManager.runSimulation(startingDelayTime,
+            this.agentConfig.size(), simulationDelayTime, learningDelayTime,
+            runShare, serverPort, simulationJsonFileName);
+        return null;
+      });
+    }
+    ExecutorService runPool = Executors.newFixedThreadPool(runs.size());
+    try {
+      for (Future<Object> run : runPool.invokeAll(runs)) {
+        run.get();
       }
-      agentManager.lock();
-      simulationManager = new OfflineSimulationManager(agentManager);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      runPool.shutdown();
     }
+    // agents register in config order, so public IDs match across runs.
+    ISimulationManager first = simulationManagers.get(0);
+    Map<Integer, Integer> publicToFirst = new HashMap<Integer, Integer>();
+    first.getAgentIDs()
+        .forEach((privateID, publicID) -> publicToFirst.put(publicID, privateID));
+    for (ISimulationManager other : simulationManagers.subList(1,
+        simulationManagers.size())) {
+      Map<Integer, Integer> otherToFirst = new HashMap<Integer, Integer>();
+      other.getAgentIDs().forEach((privateID, publicID) -> otherToFirst
+          .put(privateID, publicToFirst.get(publicID)));
+      first.getUtilityManager().mergeRecords(other.getUtilityManager(),
+          otherToFirst);
+    }
+    first.logResults();
+  }
 
+  private ISimulationManager createOfflineSimulationManager(
+      Boolean parallelMarkets, Boolean directTransport,
+      Map<String, Integer> responseDeadlines)
+      throws InstantiationException, IllegalAccessException,
+      IllegalArgumentException, InvocationTargetException {
+    // agent manager is only created and used in offline simulations.
+    IAgentManager agentManager = new AgentManager();
+    for (IAgentConfig aConfig : agentConfig) {
+      agentManager.createAgent(aConfig);
+    }
+    agentManager.lock();
+    ISimulationManager simulationManager =
+        new OfflineSimulationManager(agentManager, parallelMarkets,
+            directTransport, responseDeadlines);
+    createSimulations(simulationManager);
+    return simulationManager;
+  }
+
+  /**
+   * build a fresh world for each simulation config, and create its simulation
+   * in the simulation manager.
+   */
+  private void createSimulations(ISimulationManager simulationManager)
+      throws InstantiationException, IllegalAccessException,
+      IllegalArgumentException, InvocationTargetException {
     for (ISimulationConfig aConfig : this.config) {
       IWorldManager worldManager = new WorldManager();
       IDomainManager domainManager = new DomainManager();
@@ -152,9 +267,5 @@ public class ConfigRun {
       simulationManager.lock();
       marketManager.lock();
     }
-
-    simulationManager.runSimulation(startingDelayTime, simulationDelayTime,
-        learningDelayTime, numSimulations, serverPort, simulationJsonFileName);
-
   }
 }
@@ -9,6 +9,7 @@ import java.util.Map;
 
 import org.json.simple.parser.ParseException;
 
+import brown.communication.messageserver.SlowConsumerPolicy;
 import brown.user.main.IAgentConfig;
 import brown.user.main.IAgentConfigParser;
 import brown.user.main.IServerConfigParser;
@@ -52,10 +53,23 @@ public class Main {
     Map<String, Double> doubleParams =
         serverParser.parseServerConfigDoubleParameters(serverConfigFileName);
     Integer startingDelayTime = outerParams.get("startingDelayTime");
+    Integer numAgents = outerParams.get("numAgents");
     Integer learningDelayTime = outerParams.get("learningDelayTime"); 
     Double simulationDelayTime = doubleParams.get("simulationDelayTime");
     Integer numTotalRuns = outerParams.get("numTotalRuns");
     Integer serverPort = outerParams.get("serverPort");
+    Boolean parallelMarkets = outerParams.get("parallelMarkets") == 1;
+    Integer parallelRuns = outerParams.get("parallelRuns");
+    Boolean directTransport = outerParams.get("directTransport") == 1;
+    Boolean deltaPublicState = outerParams.get("deltaPublicState") == 1;
+    SlowConsumerPolicy slowConsumerPolicy =
+        SlowConsumerPolicy.values()[outerParams.get("slowConsumerPolicy")];
+    Integer maxPendingMessages = outerParams.get("maxPendingMessages");
+    Boolean sharedMemory = outerParams.get("sharedMemory") == 1;
+    Boolean udpReserves = outerParams.get("udpReserves") == 1;
+    Integer ioThreads = outerParams.get("ioThreads");
+    Map<String, Integer> responseDeadlines =
+        serverParser.parseResponseDeadlines(serverConfigFileName);
     
     ConfigRun configRun; 
     if (args.length > 1) {
@@ -76,8 +90,11 @@ public class Main {
     }
     
     
-    configRun.run(startingDelayTime, simulationDelayTime, learningDelayTime,
-        numTotalRuns, serverPort, serverConfigFileName);
+    configRun.run(startingDelayTime, numAgents, simulationDelayTime, learningDelayTime,
+        numTotalRuns, serverPort, parallelMarkets, parallelRuns,
+        directTransport, deltaPublicState, slowConsumerPolicy,
+        maxPendingMessages, sharedMemory, udpReserves, ioThreads,
+        responseDeadlines, serverConfigFileName);
   }
 
 }
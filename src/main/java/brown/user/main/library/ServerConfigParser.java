@@ -26,6 +26,10 @@ import brown.auction.rules.IInnerIRPolicy;
 import brown.auction.rules.IPaymentRule;
 import brown.auction.rules.IQueryRule;
 import brown.auction.rules.ITerminationCondition;
+import brown.auction.rules.payment.SATSPayment;
+import brown.auction.wd.IWinnerDetermination;
+import brown.auction.wd.library.BranchAndBoundWinnerDetermination;
+import brown.communication.messageserver.SlowConsumerPolicy;
 import brown.logging.library.ErrorLogging;
 import brown.logging.library.PlatformLogging;
 import brown.platform.item.ICart;
@@ -358,6 +362,13 @@ public class ServerConfigParser implements IServerConfigParser {
                               (String) marketRulesPair.getValue();
                           singleMarketRules.put(
                               (String) marketRulesPair.getKey(), tCondition);
+                        } else if (marketRulesPair.getKey().equals("wdRule")
+                            || marketRulesPair.getKey().equals("wdDeadline")) {
+                          // the payment rule's winner determination, and its
+                          // deadline in milliseconds.
+                          singleMarketRules.put(
+                              (String) marketRulesPair.getKey(),
+                              String.valueOf(marketRulesPair.getValue()));
                         } else {
                           ErrorLogging.log(
                               "ERROR: JSON Parse: MarketRules: unrecognized input key: "
@@ -615,7 +626,6 @@ public class ServerConfigParser implements IServerConfigParser {
               .forName("brown.auction.rules.termination." + tConditionString);
 
           Constructor<?> aRuleCons = aRuleClass.getConstructor();
-          Constructor<?> pRuleCons = pRuleClass.getConstructor();
           Constructor<?> qRuleCons = qRuleClass.getConstructor();
           Constructor<?> actRuleCons = actRuleClass.getConstructor();
           Constructor<?> irPolicyCons = irPolicyClass.getConstructor();
@@ -623,9 +633,28 @@ public class ServerConfigParser implements IServerConfigParser {
               innerIRPolicyClass.getConstructor();
           Constructor<?> tConditionCons = tConditionClass.getConstructor();
 
+          IPaymentRule pRule;
+          String wdString = singleMarketRules.get("wdRule");
+          String wdDeadlineString = singleMarketRules.get("wdDeadline");
+          if (wdString == null && wdDeadlineString == null) {
+            pRule = (IPaymentRule) pRuleClass.getConstructor().newInstance();
+          } else {
+            IWinnerDetermination wd = wdString == null
+                ? new BranchAndBoundWinnerDetermination()
+                : (IWinnerDetermination) Class
+                    .forName("brown.auction.wd.library." + wdString)
+                    .getConstructor().newInstance();
+            long wdDeadline = wdDeadlineString == null
+                ? SATSPayment.DEFAULT_DEADLINE_MILLIS
+                : Long.parseLong(wdDeadlineString);
+            pRule = (IPaymentRule) pRuleClass
+                .getConstructor(IWinnerDetermination.class, long.class)
+                .newInstance(wd, wdDeadline);
+          }
+
           IFlexibleRules marketRule =
               new FlexibleRules((IAllocationRule) aRuleCons.newInstance(),
-                  (IPaymentRule) pRuleCons.newInstance(),
+                  pRule,
                   (IQueryRule) qRuleCons.newInstance(),
                   (IActivityRule) actRuleCons.newInstance(),
                   (IInformationRevelationPolicy) irPolicyCons.newInstance(),
@@ -675,6 +704,10 @@ public class ServerConfigParser implements IServerConfigParser {
           ((Long) jo.get("startingDelayTime")).intValue());
     else
       outerParams.put("startingDelayTime", 0);
+    if (jo.containsKey("numAgents"))
+      outerParams.put("numAgents", ((Long) jo.get("numAgents")).intValue());
+    else
+      outerParams.put("numAgents", 0);
     if (jo.containsKey("serverPort"))
       outerParams.put("serverPort", ((Long) jo.get("serverPort")).intValue());
     else
@@ -684,6 +717,57 @@ public class ServerConfigParser implements IServerConfigParser {
           ((Long) jo.get("learningDelayTime")).intValue());
     else
       outerParams.put("learningDelayTime", 0);
+    // boolean flag, stored as 1 or 0.
+    if (jo.containsKey("parallelMarkets"))
+      outerParams.put("parallelMarkets",
+          ((Boolean) jo.get("parallelMarkets")) ? 1 : 0);
+    else
+      outerParams.put("parallelMarkets", 0);
+    if (jo.containsKey("parallelRuns"))
+      outerParams.put("parallelRuns",
+          ((Long) jo.get("parallelRuns")).intValue());
+    else
+      outerParams.put("parallelRuns", 1);
+    // boolean flag, stored as 1 or 0.
+    if (jo.containsKey("directTransport"))
+      outerParams.put("directTransport",
+          ((Boolean) jo.get("directTransport")) ? 1 : 0);
+    else
+      outerParams.put("directTransport", 0);
+    // boolean flag, stored as 1 or 0.
+    if (jo.containsKey("deltaPublicState"))
+      outerParams.put("deltaPublicState",
+          ((Boolean) jo.get("deltaPublicState")) ? 1 : 0);
+    else
+      outerParams.put("deltaPublicState", 0);
+    // one of BLOCK, DROP_INFORMATION or DISCONNECT, stored as its ordinal.
+    if (jo.containsKey("slowConsumerPolicy"))
+      outerParams.put("slowConsumerPolicy", SlowConsumerPolicy
+          .valueOf((String) jo.get("slowConsumerPolicy")).ordinal());
+    else
+      outerParams.put("slowConsumerPolicy", SlowConsumerPolicy.BLOCK.ordinal());
+    if (jo.containsKey("maxPendingMessages"))
+      outerParams.put("maxPendingMessages",
+          ((Long) jo.get("maxPendingMessages")).intValue());
+    else
+      outerParams.put("maxPendingMessages", 1024);
+    // boolean flag, stored as 1 or 0.
+    if (jo.containsKey("sharedMemory"))
+      outerParams.put("sharedMemory",
+          ((Boolean) jo.get("sharedMemory")) ? 1 : 0);
+    else
+      outerParams.put("sharedMemory", 0);
+    // boolean flag, stored as 1 or 0.
+    if (jo.containsKey("udpReserves"))
+      outerParams.put("udpReserves",
+          ((Boolean) jo.get("udpReserves")) ? 1 : 0);
+    else
+      outerParams.put("udpReserves", 0);
+    // 0 runs the server on kryonet's single network thread.
+    if (jo.containsKey("ioThreads"))
+      outerParams.put("ioThreads", ((Long) jo.get("ioThreads")).intValue());
+    else
+      outerParams.put("ioThreads", 0);
     return outerParams;
   }
 
@@ -704,4 +788,22 @@ public class ServerConfigParser implements IServerConfigParser {
 
   }
 
+  @Override
+  public Map<String, Integer> parseResponseDeadlines(String fileName)
+      throws FileNotFoundException, IOException, ParseException {
+    Object rawInput = new JSONParser().parse(new InputStreamReader(this.getClass().getClassLoader().getResourceAsStream(fileName)));
+
+    JSONObject jo = (JSONObject) rawInput;
+    // message class name, or "default", to milliseconds.
+    Map<String, Integer> deadlines = new HashMap<String, Integer>();
+    if (jo.containsKey("responseDeadlines")) {
+      JSONObject rawDeadlines = (JSONObject) jo.get("responseDeadlines");
+      for (Object messageType : rawDeadlines.keySet()) {
+        deadlines.put((String) messageType,
+            ((Long) rawDeadlines.get(messageType)).intValue());
+      }
+    }
+    return deadlines;
+  }
+
 }
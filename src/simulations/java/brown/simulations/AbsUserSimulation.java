@@ -24,6 +24,9 @@ public abstract class AbsUserSimulation {
 
   protected static String host = "localhost";
   protected static int port = 2121;
+  // set to a directory, like /dev/shm, for agents to offer the server shared
+  // memory channels.
+  protected static String sharedMemoryDirectory = null;
   protected String outFile;
   protected List<String> agentClass;
   protected String inputJSON;
@@ -108,7 +111,8 @@ public abstract class AbsUserSimulation {
         Class<?> cl = Class.forName(agentString);
         Constructor<?> cons = cl.getConstructor(String.class);
         IAgent agent = (IAgent) cons.newInstance(this.agentName);
-        IAgentBackend backend = new OnlineAgentBackend(host, port, new Setup(), agent);
+        IAgentBackend backend = new OnlineAgentBackend(host, port, new Setup(), agent,
+            sharedMemoryDirectory);
         agent.addAgentBackend(backend);
         while (true) {
         }
@@ -0,0 +1,96 @@
+package brown.auction.marketstate.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.IMarketPublicStateDelta;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.library.TradeMessage;
+
+public class MarketPublicStateDeltaTest {
+
+  private List<ITradeMessage> round(Integer agentID) {
+    List<ITradeMessage> round = new LinkedList<ITradeMessage>();
+    round.add(new TradeMessage(0, agentID, 0, null));
+    return round;
+  }
+
+  @Test
+  public void testMarketPublicStateDelta() {
+    IMarketPublicState state = new MarketPublicState();
+    state.addToTradeHistory(round(1));
+    IMarketPublicState sent = MarketPublicStateDelta.copyOf(state);
+
+    state.addToTradeHistory(round(2));
+    state.addToTradeHistory(round(3));
+    Map<String, Double> reserves = new HashMap<String, Double>();
+    reserves.put("a", 1.0);
+    state.setReserves(reserves);
+
+    assertTrue(MarketPublicStateDelta.canEncode(sent, state));
+    IMarketPublicStateDelta delta = new MarketPublicStateDelta(sent, state);
+    assertTrue(delta.appliesTo(sent));
+    IMarketPublicState rebuilt = delta.applyTo(sent);
+    assertEquals(state.getTradeHistory(), rebuilt.getTradeHistory());
+    assertEquals(state.getReserves(), rebuilt.getReserves());
+    assertEquals(state.getTime(), rebuilt.getTime());
+    // the base is left alone.
+    assertEquals(1, sent.getTradeHistory().size());
+    assertEquals(null, sent.getReserves());
+    // a delta only applies to the state it was taken against.
+    assertFalse(delta.appliesTo(rebuilt));
+    assertFalse(delta.appliesTo(null));
+  }
+
+  @Test
+  public void testUpdate() {
+    IMarketPublicState state = new MarketPublicState();
+    state.addToTradeHistory(round(1));
+    IMarketPublicState sent = MarketPublicStateDelta.copyOf(state);
+
+    state.addToTradeHistory(round(2));
+    Map<String, Double> reserves = new HashMap<String, Double>();
+    reserves.put("a", 1.0);
+    state.setReserves(reserves);
+    new MarketPublicStateDelta(sent, state).update(sent);
+    assertEquals(state.getTradeHistory(), sent.getTradeHistory());
+    assertEquals(state.getReserves(), sent.getReserves());
+
+    // the copy keeps what was sent.
+    reserves.put("a", 2.0);
+    assertEquals(1.0, sent.getReserves().get("a"), 0.0);
+    assertTrue(MarketPublicStateDelta.canEncode(sent, state));
+  }
+
+  @Test
+  public void testCanEncode() {
+    IMarketPublicState state = new MarketPublicState();
+    state.addToTradeHistory(round(1));
+    assertFalse(MarketPublicStateDelta.canEncode(null, state));
+
+    // a history that is not a prefix cannot be a base.
+    IMarketPublicState other = new MarketPublicState();
+    other.setTime(state.getTime());
+    other.addToTradeHistory(round(2));
+    assertFalse(MarketPublicStateDelta.canEncode(other, state));
+
+    IMarketPublicState longer = MarketPublicStateDelta.copyOf(state);
+    longer.addToTradeHistory(round(2));
+    assertFalse(MarketPublicStateDelta.canEncode(longer, state));
+
+    // nor can the state of another market.
+    IMarketPublicState later = MarketPublicStateDelta.copyOf(state);
+    later.setTime(state.getTime() + 1);
+    assertFalse(MarketPublicStateDelta.canEncode(later, state));
+  }
+
+}
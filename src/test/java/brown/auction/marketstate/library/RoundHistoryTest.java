@@ -0,0 +1,129 @@
+package brown.auction.marketstate.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import brown.auction.marketstate.IRoundHistory;
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.platform.item.ICart;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+
+public class RoundHistoryTest {
+
+  private ITradeMessage bid(Integer agentID, String item, double price) {
+    Map<ICart, Double> bids = new HashMap<ICart, Double>();
+    bids.put(new Cart(Arrays.asList(new Item(item))), price);
+    return new TradeMessage(0, agentID, 0, new OneSidedBidBundle(bids));
+  }
+
+  @Test
+  public void testBids() {
+    IRoundHistory history = new RoundHistory();
+    List<ITradeMessage> round = new LinkedList<ITradeMessage>();
+    round.add(bid(7, "a", 3.0));
+    round.add(bid(5, "a", 4.0));
+    round.add(bid(7, "b", 1.0));
+    round.add(new TradeMessage(0, 9, 0, null));
+    history.addRound(round);
+    history.addRound(new LinkedList<ITradeMessage>());
+
+    assertEquals(2, history.getNumRounds());
+    assertEquals(2, history.getNumAgents());
+    assertEquals(0, history.getAgentIndex(7));
+    assertEquals(1, history.getAgentIndex(5));
+    assertEquals(-1, history.getAgentIndex(9));
+    assertEquals(Integer.valueOf(5), history.getAgentID(1));
+    assertEquals(2, history.getNumItems());
+    int a = history.getItemIndex("a");
+    int b = history.getItemIndex("b");
+    assertEquals("b", history.getItemName(b));
+
+    // rows are ordered by agent, in the order they were bid.
+    assertEquals(3, history.getNumBids(0));
+    assertEquals(0, history.getBidAgent(0, 0));
+    assertEquals(a, history.getBidItem(0, 0));
+    assertEquals(b, history.getBidItem(0, 1));
+    assertEquals(1, history.getBidAgent(0, 2));
+    assertEquals(4.0, history.getBidPrice(0, 2), 0.0);
+    assertArrayEquals(new int[] {a, b}, history.getBundle(0, 0));
+    assertArrayEquals(new int[] {a}, history.getBundle(0, 1));
+    assertArrayEquals(new int[] {0, 2}, history.getItemBids(0, a));
+    assertArrayEquals(new int[] {1}, history.getItemBids(0, b));
+    assertEquals(0, history.getNumBids(1));
+    assertEquals(0, history.getBundle(1, 0).length);
+    assertEquals(0, history.getBundle(0, -1).length);
+  }
+
+  @Test
+  public void testReservesAndAllocation() {
+    IRoundHistory history = new RoundHistory();
+    List<ITradeMessage> round = new LinkedList<ITradeMessage>();
+    round.add(bid(1, "a", 3.0));
+    history.addRound(round);
+    history.addRound(new LinkedList<ITradeMessage>());
+    assertFalse(history.hasReserves(0));
+    assertFalse(history.hasAllocation(0));
+    assertEquals(0.0, history.getRevenue(0), 0.0);
+
+    Map<String, Double> reserves = new HashMap<String, Double>();
+    reserves.put("a", 2.5);
+    reserves.put("c", 2.5);
+    history.setReserves(0, reserves);
+    history.allocate(0, 1, "a", 2.5);
+    history.allocate(0, 2, "d", 1.0);
+    int a = history.getItemIndex("a");
+    int d = history.getItemIndex("d");
+    assertTrue(history.hasReserves(0));
+    assertEquals(2.5, history.getReserve(0, history.getItemIndex("c")), 0.0);
+    assertTrue(Double.isNaN(history.getReserve(0, d)));
+    assertEquals(0, history.getOwner(0, a));
+    assertEquals(Integer.valueOf(2), history.getAgentID(history.getOwner(0, d)));
+    assertEquals(-1, history.getOwner(0, history.getItemIndex("c")));
+    assertEquals(3.5, history.getRevenue(0), 1e-9);
+
+    // reallocating an item replaces its price.
+    history.allocate(0, 2, "a", 3.0);
+    assertEquals(1, history.getOwner(0, a));
+    assertEquals(4.0, history.getRevenue(0), 1e-9);
+    assertFalse(history.hasAllocation(1));
+    assertEquals(-1, history.getOwner(1, a));
+  }
+
+  @Test
+  public void testBestRound() {
+    IRoundHistory history = new RoundHistory();
+    for (int round = 0; round < 4; round++) {
+      history.addRound(new LinkedList<ITradeMessage>());
+    }
+    assertEquals(-1, history.getBestRound());
+
+    history.allocate(0, 1, "a", 3.0);
+    history.allocate(1, 1, "a", 2.0);
+    assertEquals(0, history.getBestRound());
+    history.allocate(1, 2, "b", 1.0);
+    // ties go to the later round.
+    assertEquals(1, history.getBestRound());
+    history.allocate(2, 1, "a", 4.0);
+    assertEquals(2, history.getBestRound());
+
+    // the best round losing revenue brings back the next best.
+    history.allocate(2, 1, "a", 1.0);
+    assertEquals(1, history.getBestRound());
+    history.allocate(3, 1, "a", 0.0);
+    assertEquals(1, history.getBestRound());
+  }
+
+}
@@ -0,0 +1,91 @@
+package brown.auction.rules.activity.onesided;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import brown.auction.marketstate.IMarketState;
+import brown.auction.marketstate.library.MarketState;
+import brown.auction.rules.IActivityRule;
+import brown.auction.rules.activity.SMRAActivity;
+import brown.auction.value.valuation.IGeneralValuation;
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.platform.item.ICart;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+
+public class SMRAActivityTest {
+
+  private ITradeMessage bid(Integer agentID, String... items) {
+    Map<ICart, Double> bids = new HashMap<ICart, Double>();
+    for (String item : items) {
+      bids.put(new Cart(Arrays.asList(new Item(item))), 10.0);
+    }
+    return new TradeMessage(0, agentID, 0, new OneSidedBidBundle(bids));
+  }
+
+  private Map<String, Double> reserves(double a, double b) {
+    Map<String, Double> reserves = new HashMap<String, Double>();
+    reserves.put("a", a);
+    reserves.put("b", b);
+    return reserves;
+  }
+
+  private boolean acceptable(IActivityRule rule, IMarketState state,
+      ITradeMessage message) {
+    rule.isAcceptable(state, message, new LinkedList<ITradeMessage>(),
+        new Cart(Arrays.asList(new Item("a"), new Item("b"))));
+    return state.getAcceptable();
+  }
+
+  // test the revealed preference rule against a past round.
+  @Test
+  public void testRevealedPreference() {
+    IMarketState state = new MarketState();
+    Map<Integer, IGeneralValuation> valuations =
+        new HashMap<Integer, IGeneralValuation>();
+    valuations.put(1, cart -> 1.0);
+    valuations.put(2, cart -> 1.0);
+    state.setAgentValuations(valuations);
+
+    // in round 0, agent 1 bid on a.
+    List<ITradeMessage> round = new LinkedList<ITradeMessage>();
+    round.add(bid(1, "a"));
+    state.addToTradeHistory(round);
+    state.getRoundHistory().setReserves(0, reserves(2.5, 2.5));
+
+    // a has gone up since, so switching to b is fine.
+    IActivityRule rule = new SMRAActivity();
+    state.setReserves(reserves(5.0, 2.5));
+    assertTrue(acceptable(rule, state, bid(1, "b")));
+    assertTrue(acceptable(rule, state, bid(1, "a", "b")));
+    assertTrue(acceptable(rule, state, bid(2, "b")));
+
+    // b has gone up since, so switching to it is not.
+    state.setReserves(reserves(2.5, 5.0));
+    assertFalse(acceptable(rule, state, bid(1, "b")));
+    assertTrue(acceptable(rule, state, bid(1, "a")));
+    assertFalse(acceptable(rule, state, bid(1, "a", "b")));
+    assertFalse(acceptable(rule, state, bid(2, "b")));
+    assertTrue(acceptable(rule, state, bid(2, "a")));
+
+    // later rounds are picked up as they are added.
+    round = new LinkedList<ITradeMessage>();
+    round.add(bid(1, "b"));
+    state.addToTradeHistory(round);
+    state.getRoundHistory().setReserves(1, reserves(2.5, 5.0));
+    state.setReserves(reserves(5.0, 5.0));
+    assertFalse(acceptable(rule, state, bid(1, "a")));
+    assertTrue(acceptable(rule, state, bid(1, "b")));
+  }
+
+}
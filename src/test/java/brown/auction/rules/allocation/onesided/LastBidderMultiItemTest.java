@@ -0,0 +1,66 @@
+package brown.auction.rules.allocation.onesided;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import brown.auction.marketstate.IMarketState;
+import brown.auction.marketstate.library.MarketState;
+import brown.auction.rules.IAllocationRule;
+import brown.auction.rules.allocation.LastBidderMultiItem;
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.platform.item.ICart;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+
+public class LastBidderMultiItemTest {
+
+  private ITradeMessage bid(Integer agentID, String item) {
+    Map<ICart, Double> bids = new HashMap<ICart, Double>();
+    bids.put(new Cart(Arrays.asList(new Item(item))), 1.0);
+    return new TradeMessage(0, agentID, 0, new OneSidedBidBundle(bids));
+  }
+
+  private List<ITradeMessage> round(ITradeMessage... bids) {
+    return new LinkedList<ITradeMessage>(Arrays.asList(bids));
+  }
+
+  // test that each item goes to the last agent to bid on it, as rounds are
+  // added.
+  @Test
+  public void testLastBidderMultiItem() {
+    IMarketState state = new MarketState();
+    IAllocationRule rule = new LastBidderMultiItem();
+    List<ITradeMessage> none = new LinkedList<ITradeMessage>();
+
+    rule.setAllocation(state, none);
+    assertTrue(state.getAllocation().isEmpty());
+
+    state.addToTradeHistory(round(bid(1, "a"), bid(2, "b")));
+    state.addToTradeHistory(round(bid(2, "a")));
+    rule.setAllocation(state, none);
+    assertEquals(1, state.getAllocation().size());
+    ICart cart = state.getAllocation().get(2).get(0);
+    assertTrue(cart.containsItem("a"));
+    assertTrue(cart.containsItem("b"));
+
+    state.addToTradeHistory(round(bid(1, "b")));
+    state.addToTradeHistory(round());
+    rule.setAllocation(state, none);
+    assertEquals(2, state.getAllocation().size());
+    assertTrue(state.getAllocation().get(2).get(0).containsItem("a"));
+    assertFalse(state.getAllocation().get(2).get(0).containsItem("b"));
+    assertTrue(state.getAllocation().get(1).get(0).containsItem("b"));
+  }
+
+}
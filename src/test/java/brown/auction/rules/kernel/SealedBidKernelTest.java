@@ -0,0 +1,134 @@
+package brown.auction.rules.kernel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import brown.auction.marketstate.IMarketState;
+import brown.auction.marketstate.library.MarketState;
+import brown.auction.rules.IAllocationRule;
+import brown.auction.rules.IPaymentRule;
+import brown.auction.rules.ISealedBidKernel;
+import brown.auction.rules.allocation.CombinedSingleItemBidHighestPriceAllocation;
+import brown.auction.rules.allocation.SMRAAllocation;
+import brown.auction.rules.allocation.SimpleHighestPriceAllocation;
+import brown.auction.rules.payment.CombinedSingleItemBidFirstPricePayment;
+import brown.auction.rules.payment.CombinedSingleItemBidSecondPricePayment;
+import brown.auction.rules.payment.FirstPricePayment;
+import brown.auction.rules.payment.SMRAPayment;
+import brown.auction.rules.payment.SecondPricePayment;
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.platform.accounting.IAccountUpdate;
+import brown.platform.item.ICart;
+import brown.platform.item.IItem;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+import brown.platform.market.library.FlexibleRules;
+
+public class SealedBidKernelTest {
+
+  private static final String[] ITEMS = {"a", "b", "c", "d"};
+
+  // distinct prices, so that no tie is broken at random.
+  private List<ITradeMessage> bids(Random random, int numAgents) {
+    List<ITradeMessage> messages = new LinkedList<ITradeMessage>();
+    Set<Double> prices = new HashSet<Double>();
+    for (int agent = 0; agent < numAgents; agent++) {
+      Map<ICart, Double> bids = new HashMap<ICart, Double>();
+      for (String item : ITEMS) {
+        if (random.nextDouble() < 0.6) {
+          double price = random.nextInt(1000) / 10.0;
+          while (!prices.add(price)) {
+            price += 0.01;
+          }
+          bids.put(new Cart(Arrays.asList(new Item(item))), price);
+        }
+      }
+      messages.add(new TradeMessage(0, agent, 0, new OneSidedBidBundle(bids)));
+    }
+    return messages;
+  }
+
+  private Map<Integer, Set<String>> allocation(IMarketState state) {
+    Map<Integer, Set<String>> allocation = new HashMap<Integer, Set<String>>();
+    for (Map.Entry<Integer, List<ICart>> entry : state.getAllocation()
+        .entrySet()) {
+      Set<String> items = new HashSet<String>();
+      for (ICart cart : entry.getValue()) {
+        for (IItem item : cart.getItems()) {
+          items.add(item.getName());
+        }
+      }
+      allocation.put(entry.getKey(), items);
+    }
+    return allocation;
+  }
+
+  private Map<String, Double> payments(IMarketState state) {
+    Map<String, Double> payments = new HashMap<String, Double>();
+    for (IAccountUpdate update : state.getPayments()) {
+      for (IItem item : update.getCart().getItems()) {
+        payments.put(update.getTo() + ":" + item.getName(), update.getCost());
+      }
+    }
+    return payments;
+  }
+
+  private void compare(IAllocationRule aRule, IPaymentRule pRule,
+      ISealedBidKernel kernel) {
+    Random random = new Random(7);
+    for (int trial = 0; trial < 20; trial++) {
+      List<ITradeMessage> messages = bids(random, 1 + random.nextInt(12));
+      IMarketState expected = new MarketState();
+      aRule.setAllocation(expected, messages);
+      pRule.setOrders(expected, messages);
+      IMarketState actual = new MarketState();
+      kernel.setAllocationAndOrders(actual, messages);
+      assertEquals(allocation(expected), allocation(actual));
+      assertEquals(payments(expected), payments(actual));
+      assertEquals(expected.getPayments().size(), actual.getPayments().size());
+    }
+  }
+
+  @Test
+  public void testSealedBidKernel() {
+    compare(new SimpleHighestPriceAllocation(), new FirstPricePayment(),
+        new SealedBidKernel(false, false));
+    compare(new SimpleHighestPriceAllocation(), new SecondPricePayment(),
+        new SealedBidKernel(false, true));
+    compare(new CombinedSingleItemBidHighestPriceAllocation(),
+        new CombinedSingleItemBidFirstPricePayment(),
+        new SealedBidKernel(true, false));
+    compare(new CombinedSingleItemBidHighestPriceAllocation(),
+        new CombinedSingleItemBidSecondPricePayment(),
+        new SealedBidKernel(true, true));
+  }
+
+  @Test
+  public void testForRules() {
+    assertNull(SealedBidKernel.forRules(new FlexibleRules(
+        new SMRAAllocation(), new SMRAPayment(), null, null, null, null,
+        null)));
+    assertNull(SealedBidKernel.forRules(new FlexibleRules(
+        new SimpleHighestPriceAllocation(),
+        new CombinedSingleItemBidSecondPricePayment(), null, null, null, null,
+        null)));
+    assertEquals(SealedBidKernel.class,
+        SealedBidKernel.forRules(new FlexibleRules(
+            new SimpleHighestPriceAllocation(), new SecondPricePayment(), null,
+            null, null, null, null)).getClass());
+  }
+
+}
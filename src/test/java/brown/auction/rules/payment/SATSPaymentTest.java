@@ -0,0 +1,160 @@
+package brown.auction.rules.payment;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.spectrumauctions.sats.core.bidlang.xor.XORBid;
+import org.spectrumauctions.sats.core.bidlang.xor.XORValue;
+import org.spectrumauctions.sats.core.model.Bidder;
+import org.spectrumauctions.sats.core.model.Bundle;
+import org.spectrumauctions.sats.core.model.Good;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMLicense;
+
+import brown.auction.marketstate.IMarketState;
+import brown.auction.wd.IWinnerDetermination;
+import brown.auction.wd.library.BranchAndBoundWinnerDetermination;
+import brown.auction.wd.library.XORAllocation;
+import brown.auction.wd.library.XORBids;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.library.SATSTradeMessage;
+import brown.platform.accounting.IAccountUpdate;
+import brown.platform.item.ICart;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+import brown.user.agent.library.SATSUtil;
+
+public class SATSPaymentTest {
+
+  private static final List<GSVMBidder> BIDDERS =
+      SATSUtil.createGSVM18Population(0);
+  private static final Map<Long, GSVMLicense> LICENSES =
+      SATSUtil.mapIDToGSVM18License(SATSUtil.WORLD);
+
+  // counts the rounds solved: VCG solves again without each winner, but a
+  // round is solved whole only once.
+  private static class CountingWinnerDetermination
+      implements IWinnerDetermination {
+
+    private final IWinnerDetermination wd =
+        new BranchAndBoundWinnerDetermination();
+    private int rounds = 0;
+
+    @Override
+    public XORAllocation solve(XORBids bids, int excludedBidder,
+        XORAllocation incumbent, long deadline) {
+      if (excludedBidder == -1) {
+        this.rounds++;
+      }
+      return this.wd.solve(bids, excludedBidder, incumbent, deadline);
+    }
+
+  }
+
+  // an XOR bid of a single bundle of the given licenses.
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static ITradeMessage bid(Integer agentID, int bidder, double value,
+      long... licenses) {
+    Bundle<Good> bundle = new Bundle<Good>();
+    for (long license : licenses) {
+      bundle.add(LICENSES.get(license));
+    }
+    XORBid.Builder<Good> xor =
+        new XORBid.Builder<Good>((Bidder) BIDDERS.get(bidder));
+    xor.add(new XORValue<Good>(bundle, value));
+    return new SATSTradeMessage(0, agentID, 0, null, xor.build());
+  }
+
+  private static ICart cart(String name) {
+    ICart cart = new Cart();
+    cart.addToCart(new Item(name));
+    return cart;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<IAccountUpdate> setOrders(SATSPayment payment,
+      IMarketState state, List<List<ITradeMessage>> history) {
+    when(state.getTradeHistory()).thenReturn(history);
+    payment.setOrders(state, new LinkedList<ITradeMessage>());
+    ArgumentCaptor<List> updates = ArgumentCaptor.forClass(List.class);
+    verify(state, atLeastOnce()).setPayments(updates.capture());
+    return updates.getValue();
+  }
+
+  private static Map<Integer, Double> costs(List<IAccountUpdate> updates) {
+    Map<Integer, Double> costs = new HashMap<Integer, Double>();
+    for (IAccountUpdate update : updates) {
+      costs.put(update.getTo(), update.getCost());
+    }
+    return costs;
+  }
+
+  @Test
+  public void testSetOrders() {
+    CountingWinnerDetermination wd = new CountingWinnerDetermination();
+    SATSPayment payment = new SATSPayment(wd, 30000).newInstance();
+    IMarketState state = mock(IMarketState.class);
+    Map<Integer, List<ICart>> allocation = new HashMap<Integer, List<ICart>>();
+    allocation.put(20, Arrays.asList(cart("A")));
+    allocation.put(30, Arrays.asList(cart("B")));
+    when(state.getAllocation()).thenReturn(allocation);
+
+    // 10 wins license 0 for 20's bid of 3; 30 has no rival for license 1.
+    List<List<ITradeMessage>> history = new ArrayList<List<ITradeMessage>>();
+    history.add(Arrays.asList(bid(10, 0, 5.0, 0), bid(20, 1, 3.0, 0),
+        bid(30, 2, 4.0, 1)));
+    Map<Integer, Double> expected = new HashMap<Integer, Double>();
+    expected.put(10, 3.0);
+    expected.put(30, 0.0);
+    List<IAccountUpdate> updates = setOrders(payment, state, history);
+    assertEquals(expected, costs(updates));
+    assertEquals(1, wd.rounds);
+    // each agent gets its allocated cart, or none.
+    for (IAccountUpdate update : updates) {
+      if (update.getTo() == 30) {
+        assertEquals(cart("B"), update.getCart());
+      } else {
+        assertEquals(new Cart(), update.getCart());
+      }
+    }
+
+    // only the new round is solved; it has the higher revenue. without 20,
+    // 10 would win both for 10, so 20 pays 10 - 5, and 30 pays 10 - 6.
+    history.add(Arrays.asList(bid(10, 0, 10.0, 0, 1), bid(20, 1, 6.0, 0),
+        bid(30, 2, 5.0, 1)));
+    expected.clear();
+    expected.put(20, 5.0);
+    expected.put(30, 4.0);
+    updates = setOrders(payment, state, history);
+    assertEquals(expected, costs(updates));
+    assertEquals(2, wd.rounds);
+    for (IAccountUpdate update : updates) {
+      assertEquals(allocation.get(update.getTo()).get(0), update.getCart());
+    }
+    setOrders(payment, state, history);
+    assertEquals(2, wd.rounds);
+
+    // a new history is solved from its start. 10 wins with two bids, and
+    // pays for both.
+    List<List<ITradeMessage>> next = new ArrayList<List<ITradeMessage>>();
+    next.add(Arrays.asList(bid(10, 0, 5.0, 0), bid(10, 1, 4.0, 1),
+        bid(20, 2, 3.0, 0)));
+    expected.clear();
+    expected.put(10, 3.0);
+    assertEquals(expected, costs(setOrders(payment, state, next)));
+    assertEquals(3, wd.rounds);
+  }
+
+}
@@ -0,0 +1,105 @@
+package brown.auction.wd.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import brown.auction.wd.IWinnerDetermination;
+
+public class BranchAndBoundWinnerDeterminationTest {
+
+  static XORBids randomBids(Random random, int numBidders, int numGoods,
+      int bidsPerBidder) {
+    XORBids bids = new XORBids(numBidders, numGoods);
+    for (int bidder = 0; bidder < numBidders; bidder++) {
+      for (int i = 0; i < bidsPerBidder; i++) {
+        int size = 1 + random.nextInt(3);
+        int[] goods = new int[size];
+        for (int g = 0; g < size; g++) {
+          goods[g] = random.nextInt(numGoods);
+        }
+        bids.addBid(bidder, goods, random.nextInt(100) / 4.0);
+      }
+    }
+    return bids;
+  }
+
+  // the best value by trying every choice of bids.
+  static double bruteForce(XORBids bids, int bidder, int excluded,
+      long[] taken) {
+    if (bidder == bids.getNumBidders()) {
+      return 0.0;
+    }
+    double best = bruteForce(bids, bidder + 1, excluded, taken);
+    if (bidder == excluded) {
+      return best;
+    }
+    for (int bid = 0; bid < bids.getNumBids(); bid++) {
+      if (bids.getBidder(bid) == bidder && !bids.overlaps(bid, taken)) {
+        bids.toggle(bid, taken);
+        best = Math.max(best, bids.getValue(bid)
+            + bruteForce(bids, bidder + 1, excluded, taken));
+        bids.toggle(bid, taken);
+      }
+    }
+    return best;
+  }
+
+  // check that the allocation is feasible and worth what it says.
+  private void assertFeasible(XORBids bids, XORAllocation allocation,
+      int excluded) {
+    long[] taken = bids.noGoods();
+    double value = 0.0;
+    for (int bidder = 0; bidder < bids.getNumBidders(); bidder++) {
+      int bid = allocation.getBid(bidder);
+      if (bid != -1) {
+        assertTrue(bidder != excluded);
+        assertEquals(bidder, bids.getBidder(bid));
+        assertFalse(bids.overlaps(bid, taken));
+        bids.toggle(bid, taken);
+        value += bids.getValue(bid);
+      }
+    }
+    assertEquals(value, allocation.getValue(), 1e-9);
+  }
+
+  @Test
+  public void testOptimal() {
+    Random random = new Random(3);
+    IWinnerDetermination wd = new BranchAndBoundWinnerDetermination();
+    for (int trial = 0; trial < 30; trial++) {
+      XORBids bids = randomBids(random, 1 + random.nextInt(5),
+          1 + random.nextInt(70), 1 + random.nextInt(4));
+      for (int excluded = -1; excluded < bids.getNumBidders(); excluded++) {
+        XORAllocation allocation =
+            wd.solve(bids, excluded, null, IWinnerDetermination.NO_DEADLINE);
+        assertTrue(allocation.isOptimal());
+        assertFeasible(bids, allocation, excluded);
+        assertEquals(bruteForce(bids, 0, excluded, bids.noGoods()),
+            allocation.getValue(), 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testDeadline() {
+    // far too many bids to search in time.
+    XORBids bids = randomBids(new Random(5), 40, 30, 40);
+    IWinnerDetermination wd = new BranchAndBoundWinnerDetermination();
+    long start = System.nanoTime();
+    XORAllocation allocation = wd.solve(bids, -1, null, start);
+    assertTrue(System.nanoTime() - start < 5000000000L);
+    assertFalse(allocation.isOptimal());
+    assertFeasible(bids, allocation, -1);
+    assertTrue(allocation.getValue() > 0.0);
+
+    // an incumbent is never given up for anything worse.
+    XORAllocation better = wd.solve(bids, -1, allocation, start);
+    assertTrue(better.getValue() >= allocation.getValue());
+  }
+
+}
@@ -0,0 +1,31 @@
+package brown.auction.wd.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import brown.auction.wd.IWinnerDetermination;
+
+public class LPSolveWinnerDeterminationTest {
+
+  // with or without lp_solve's native library, the solution is optimal.
+  @Test
+  public void testSolve() {
+    Random random = new Random(17);
+    IWinnerDetermination wd = new LPSolveWinnerDetermination();
+    for (int trial = 0; trial < 10; trial++) {
+      XORBids bids = BranchAndBoundWinnerDeterminationTest.randomBids(random,
+          1 + random.nextInt(5), 1 + random.nextInt(10), 1 + random.nextInt(4));
+      XORAllocation allocation =
+          wd.solve(bids, 0, null, IWinnerDetermination.NO_DEADLINE);
+      assertTrue(allocation.isOptimal());
+      assertEquals(-1, allocation.getBid(0));
+      assertEquals(BranchAndBoundWinnerDeterminationTest.bruteForce(bids, 0, 0,
+          bids.noGoods()), allocation.getValue(), 1e-9);
+    }
+  }
+
+}
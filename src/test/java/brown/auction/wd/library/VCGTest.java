@@ -0,0 +1,61 @@
+package brown.auction.wd.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import brown.auction.wd.IWinnerDetermination;
+
+public class VCGTest {
+
+  @Test
+  public void testPayments() {
+    // bidder 0 wants a and b together; 1 and 2 want one each.
+    XORBids bids = new XORBids(3, 2);
+    bids.addBid(0, new int[] {0, 1}, 10.0);
+    bids.addBid(1, new int[] {0}, 6.0);
+    bids.addBid(2, new int[] {1}, 7.0);
+    bids.addBid(2, new int[] {0, 1}, 8.0);
+    IWinnerDetermination wd = new BranchAndBoundWinnerDetermination();
+    XORAllocation allocation =
+        wd.solve(bids, -1, null, IWinnerDetermination.NO_DEADLINE);
+    assertEquals(13.0, allocation.getValue(), 1e-9);
+    assertEquals(-1, allocation.getBid(0));
+
+    // 1 pays 10 - 7, and 2 pays 10 - 6.
+    double[] payments = VCG.payments(wd, bids, allocation,
+        IWinnerDetermination.NO_DEADLINE);
+    assertArrayEquals(new double[] {0.0, 3.0, 4.0}, payments, 1e-9);
+  }
+
+  @Test
+  public void testAgainstBruteForce() {
+    Random random = new Random(11);
+    IWinnerDetermination wd = new BranchAndBoundWinnerDetermination();
+    for (int trial = 0; trial < 20; trial++) {
+      XORBids bids = BranchAndBoundWinnerDeterminationTest.randomBids(random,
+          2 + random.nextInt(4), 1 + random.nextInt(8), 1 + random.nextInt(3));
+      XORAllocation allocation =
+          wd.solve(bids, -1, null, IWinnerDetermination.NO_DEADLINE);
+      double[] payments = VCG.payments(wd, bids, allocation,
+          IWinnerDetermination.NO_DEADLINE);
+      for (int bidder = 0; bidder < bids.getNumBidders(); bidder++) {
+        int bid = allocation.getBid(bidder);
+        if (bid == -1) {
+          assertEquals(0.0, payments[bidder], 0.0);
+          continue;
+        }
+        double others = BranchAndBoundWinnerDeterminationTest.bruteForce(bids,
+            0, bidder, bids.noGoods());
+        assertEquals(others - (allocation.getValue() - bids.getValue(bid)),
+            payments[bidder], 1e-9);
+        assertTrue(payments[bidder] <= bids.getValue(bid) + 1e-9);
+      }
+    }
+  }
+
+}
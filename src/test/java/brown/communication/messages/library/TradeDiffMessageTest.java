@@ -0,0 +1,52 @@
+package brown.communication.messages.library;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.ITradeMessage;
+import brown.platform.item.ICart;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+
+public class TradeDiffMessageTest {
+
+  private static ICart cart(String name) {
+    ICart cart = new Cart();
+    cart.addToCart(new Item(name));
+    return cart;
+  }
+
+  @Test
+  public void testExpand() {
+    Map<ICart, Double> previousBids = new HashMap<ICart, Double>();
+    previousBids.put(cart("a"), 1.0);
+    previousBids.put(cart("b"), 2.0);
+    previousBids.put(cart("c"), 3.0);
+    ITradeMessage previous =
+        new TradeMessage(0, 5, 7, new OneSidedBidBundle(previousBids));
+
+    // c is dropped, b repriced and d added.
+    Map<ICart, Double> changed = new HashMap<ICart, Double>();
+    changed.put(cart("b"), 2.5);
+    changed.put(cart("d"), 4.0);
+    TradeDiffMessage diff = new TradeDiffMessage(1, 5, 7, 0,
+        new OneSidedBidBundle(changed), Arrays.asList(cart("c")));
+
+    Map<ICart, Double> expected = new HashMap<ICart, Double>();
+    expected.put(cart("a"), 1.0);
+    expected.put(cart("b"), 2.5);
+    expected.put(cart("d"), 4.0);
+    ITradeMessage expanded = diff.expand(previous);
+    assertEquals(new TradeMessage(1, 5, 7, new OneSidedBidBundle(expected)),
+        expanded);
+    // the previous bid is left as it was.
+    assertEquals(3, previous.getBid().getBids().size());
+  }
+
+}
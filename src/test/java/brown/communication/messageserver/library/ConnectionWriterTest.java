@@ -0,0 +1,124 @@
+package brown.communication.messageserver.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import brown.communication.messageserver.SlowConsumerPolicy;
+
+public class ConnectionWriterTest {
+
+  private Connection connection(List<Object> written) {
+    Connection connection = mock(Connection.class);
+    when(connection.sendTCP(any())).thenAnswer(invocation -> {
+      written.add(invocation.getArguments()[0]);
+      return 1;
+    });
+    return connection;
+  }
+
+  @Test
+  public void testConnectionWriter() throws InterruptedException {
+    List<Object> written = new LinkedList<Object>();
+    Connection connection = connection(written);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    ConnectionWriter writer = new ConnectionWriter(connection, pool,
+        SlowConsumerPolicy.BLOCK, 10, 100);
+
+    for (int i = 0; i < 50; i++) {
+      writer.send(i, false);
+    }
+    assertTrue(writer.awaitWritten(5000));
+    assertEquals(50, written.size());
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i, written.get(i));
+    }
+    pool.shutdown();
+  }
+
+  @Test
+  public void testFullBuffer() throws InterruptedException {
+    List<Object> written = new LinkedList<Object>();
+    Connection connection = connection(written);
+    when(connection.getTcpWriteBufferSize()).thenReturn(1000);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    ConnectionWriter writer = new ConnectionWriter(connection, pool,
+        SlowConsumerPolicy.DROP_INFORMATION, 2, 100);
+
+    // nothing is written while the write buffer is too full.
+    writer.send("a", true);
+    writer.send("b", false);
+    writer.send("c", true);
+    writer.send("d", true);
+    assertFalse(writer.awaitWritten(50));
+    assertTrue(written.isEmpty());
+    assertEquals(2, writer.pendingMessages());
+
+    // once the buffer empties, what was not dropped is written in order.
+    when(connection.getTcpWriteBufferSize()).thenReturn(0);
+    writer.flush();
+    assertTrue(writer.awaitWritten(5000));
+    assertEquals(Arrays.asList("b", "d"), written);
+    pool.shutdown();
+  }
+
+  @Test
+  public void testBlockWithoutWaiting() throws InterruptedException {
+    List<Object> written = new LinkedList<Object>();
+    Connection connection = connection(written);
+    when(connection.getTcpWriteBufferSize()).thenReturn(1000);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    ConnectionWriter writer = new ConnectionWriter(connection, pool,
+        SlowConsumerPolicy.BLOCK, 2, 100);
+
+    // a sender that may not wait drops information messages instead, and
+    // goes over the limit if there are none.
+    writer.send(Arrays.<Object>asList("a"), true, false);
+    writer.send(Arrays.<Object>asList("b"), false, false);
+    writer.send(Arrays.<Object>asList("c"), false, false);
+    writer.send(Arrays.<Object>asList("d"), false, false);
+    assertEquals(3, writer.pendingMessages());
+
+    when(connection.getTcpWriteBufferSize()).thenReturn(0);
+    writer.flush();
+    assertTrue(writer.awaitWritten(5000));
+    assertEquals(Arrays.asList("b", "c", "d"), written);
+    pool.shutdown();
+  }
+
+  @Test
+  public void testDisconnect() throws InterruptedException {
+    List<Object> written = new LinkedList<Object>();
+    Connection connection = connection(written);
+    when(connection.getTcpWriteBufferSize()).thenReturn(1000);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    ConnectionWriter writer = new ConnectionWriter(connection, pool,
+        SlowConsumerPolicy.DISCONNECT, 1, 100);
+
+    writer.send("a", false);
+    verify(connection, never()).close();
+    writer.send("b", false);
+    verify(connection).close();
+    assertEquals(0, writer.pendingMessages());
+    // nothing more is queued once disconnected.
+    writer.send("c", false);
+    assertEquals(0, writer.pendingMessages());
+    pool.shutdown();
+  }
+
+}
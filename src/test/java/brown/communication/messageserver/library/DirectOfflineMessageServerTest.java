@@ -0,0 +1,64 @@
+package brown.communication.messageserver.library;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import brown.communication.messages.IRegistrationMessage;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.ITradeRequestMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.communication.messages.library.TradeRequestMessage;
+import brown.communication.messageserver.IOfflineMessageServer;
+import brown.platform.managers.ISimulationManager;
+import brown.user.agent.IAgent;
+import brown.user.agent.IAgentBackend;
+
+public class DirectOfflineMessageServerTest {
+
+  @Test
+  public void testDirectOfflineMessageServer() {
+    Map<Integer, Integer> agentIDs = new HashMap<Integer, Integer>();
+    ISimulationManager manager = mock(ISimulationManager.class);
+    when(manager.handleRegistration(any(IRegistrationMessage.class), anyInt()))
+        .thenAnswer(invocation -> {
+          Integer privateID = (Integer) invocation.getArguments()[1];
+          agentIDs.put(privateID, 0);
+          return privateID;
+        });
+    when(manager.getAgentIDs()).thenReturn(agentIDs);
+
+    IAgent agent = mock(IAgent.class);
+    when(agent.getAgentName()).thenReturn("agent");
+
+    IOfflineMessageServer server = new DirectOfflineMessageServer(manager);
+    IAgentBackend backend = server.createAgentBackend(agent);
+
+    // registration is handled before the backend is even returned.
+    assertTrue(agentIDs.size() == 1);
+    Integer privateID = agentIDs.keySet().iterator().next();
+    assertTrue(backend.getPrivateID().equals(privateID));
+    assertTrue(backend.getPublicID().equals(0));
+
+    // messages are handled by the time they are sent, and need no acks.
+    ITradeRequestMessage request =
+        new TradeRequestMessage(0, 0, privateID, null);
+    server.sendMessage(privateID, request, true);
+    verify(agent).onTradeRequestMessage(request);
+    assertTrue(server.ready());
+
+    // agent messages go straight to the simulation manager.
+    ITradeMessage bid = new TradeMessage(0, privateID, 0, null);
+    backend.sendMessage(bid);
+    verify(manager).giveTradeMessage(bid);
+  }
+
+}
@@ -0,0 +1,147 @@
+package brown.communication.messageserver.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import brown.communication.messages.IRegistrationMessage;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.ITradeRequestMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.communication.messages.library.TradeRequestMessage;
+import brown.communication.messageserver.IOfflineMessageServer;
+import brown.platform.managers.ISimulationManager;
+import brown.user.agent.IAgent;
+import brown.user.agent.IAgentBackend;
+
+public class OfflineMessageServerTest {
+
+  private static ISimulationManager manager(Map<Integer, Integer> agentIDs) {
+    ISimulationManager manager = mock(ISimulationManager.class);
+    when(manager.handleRegistration(any(IRegistrationMessage.class), anyInt()))
+        .thenAnswer(invocation -> {
+          Integer privateID = (Integer) invocation.getArguments()[1];
+          agentIDs.put(privateID, agentIDs.size());
+          return privateID;
+        });
+    when(manager.getAgentIDs()).thenReturn(agentIDs);
+    return manager;
+  }
+
+  @Test
+  public void testAwaitMessages() throws InterruptedException {
+    Map<Integer, Integer> agentIDs = new ConcurrentHashMap<Integer, Integer>();
+    ISimulationManager manager = manager(agentIDs);
+
+    IAgent agentOne = mock(IAgent.class);
+    IAgent agentTwo = mock(IAgent.class);
+    when(agentOne.getAgentName()).thenReturn("agentOne");
+    when(agentTwo.getAgentName()).thenReturn("agentTwo");
+
+    IOfflineMessageServer server = new OfflineMessageServer(manager);
+    server.createAgentBackend(agentOne);
+    server.createAgentBackend(agentTwo);
+    assertTrue(agentIDs.size() == 2);
+
+    // nothing sent, nothing to wait for.
+    server.awaitMessages();
+    assertTrue(server.ready());
+
+    // a broadcast completes once every agent has handled its message.
+    for (int round = 0; round < 50; round++) {
+      for (Integer privateID : agentIDs.keySet()) {
+        ITradeRequestMessage request =
+            new TradeRequestMessage(0, round, privateID, null);
+        server.sendMessage(privateID, request, true);
+      }
+      server.awaitMessages();
+      assertTrue(server.ready());
+    }
+    verify(agentOne, times(50))
+        .onTradeRequestMessage(any(ITradeRequestMessage.class));
+    verify(agentTwo, times(50))
+        .onTradeRequestMessage(any(ITradeRequestMessage.class));
+  }
+
+  @Test
+  public void testResponseDeadlines() throws InterruptedException {
+    Map<Integer, Integer> agentIDs = new ConcurrentHashMap<Integer, Integer>();
+    ISimulationManager manager = manager(agentIDs);
+    Map<String, Integer> deadlines = new HashMap<String, Integer>();
+    deadlines.put("TradeRequestMessage", 100);
+
+    // the slow agent bids, but only once it is let go, long after its
+    // deadline.
+    CountDownLatch release = new CountDownLatch(1);
+    IAgentBackend[] slowBackend = new IAgentBackend[1];
+    IAgent fast = mock(IAgent.class);
+    IAgent slow = mock(IAgent.class);
+    when(fast.getAgentName()).thenReturn("fast");
+    when(slow.getAgentName()).thenReturn("slow");
+    doAnswer(invocation -> {
+      release.await();
+      slowBackend[0].sendMessage(new TradeMessage(0,
+          slowBackend[0].getPrivateID(), 0, null));
+      return null;
+    }).when(slow).onTradeRequestMessage(any(ITradeRequestMessage.class));
+
+    OfflineMessageServer server = new OfflineMessageServer(manager, deadlines);
+    server.createAgentBackend(fast);
+    slowBackend[0] = server.createAgentBackend(slow);
+    Integer fastID = null;
+    Integer slowID = null;
+    for (Map.Entry<Integer, Integer> agent : agentIDs.entrySet()) {
+      if (agent.getValue() == 0) {
+        fastID = agent.getKey();
+      } else {
+        slowID = agent.getKey();
+      }
+    }
+
+    // the fast agent is waited for before the slow one is sent to, so that it
+    // is not queued behind it when the pool has a single thread.
+    long start = System.currentTimeMillis();
+    for (Integer privateID : Arrays.asList(fastID, slowID)) {
+      server.sendMessage(privateID,
+          new TradeRequestMessage(0, 0, privateID, null), true);
+      server.awaitMessages();
+    }
+    assertTrue(server.ready());
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    ResponseTimes times = server.getResponseTimes();
+    assertEquals(1,
+        times.getAnswered(fastID, "TradeRequestMessage"));
+    assertEquals(0, times.getTimeouts(fastID));
+    assertEquals(1,
+        times.getTimeouts(slowID, "TradeRequestMessage"));
+
+    // once it has caught up, the agent is waited for as usual. the late bid
+    // is dropped, and the late answer is still timed.
+    release.countDown();
+    for (Integer privateID : agentIDs.keySet()) {
+      server.sendMessage(privateID,
+          new TradeRequestMessage(0, 1, privateID, null), true);
+    }
+    server.awaitMessages();
+    verify(manager, times(1)).giveTradeMessage(any(ITradeMessage.class));
+    assertEquals(2, times.getAnswered(slowID, "TradeRequestMessage"));
+    assertEquals(1,
+        times.getTimeouts(slowID, "TradeRequestMessage"));
+    server.stopMessageServer();
+  }
+
+}
@@ -2,6 +2,7 @@ package brown.platform.managers.library;
 
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -94,4 +95,30 @@ public class UtilityManagerTest {
     }
   }
 
+  @Test
+  public void testMergeRecords() {
+
+    IUtilityManager utilManager = new UtilityManager();
+    utilManager.addAgentRecord(0);
+    utilManager.addAgentRecord(1);
+    utilManager.getAgentRecords().get(0).add(1.0);
+    utilManager.getAgentRecords().get(1).add(2.0);
+
+    IUtilityManager otherManager = new UtilityManager();
+    otherManager.addAgentRecord(10);
+    otherManager.addAgentRecord(11);
+    otherManager.getAgentRecords().get(10).add(3.0);
+    otherManager.getAgentRecords().get(11).add(4.0);
+
+    Map<Integer, Integer> otherToThis = new HashMap<Integer, Integer>();
+    otherToThis.put(10, 0);
+    otherToThis.put(11, 1);
+
+    utilManager.mergeRecords(otherManager, otherToThis);
+
+    assertTrue(utilManager.getAgentRecords().keySet().size() == 2);
+    assertTrue(utilManager.getAgentRecords().get(0).equals(Arrays.asList(1.0, 3.0)));
+    assertTrue(utilManager.getAgentRecords().get(1).equals(Arrays.asList(2.0, 4.0)));
+  }
+
 }
@@ -1,6 +1,7 @@
 package brown.platform.market.library;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.mockito.Mockito.mock;
 
 import org.junit.Test;
@@ -12,6 +13,14 @@ import brown.auction.rules.IInnerIRPolicy;
 import brown.auction.rules.IPaymentRule;
 import brown.auction.rules.IQueryRule;
 import brown.auction.rules.ITerminationCondition;
+import brown.auction.rules.activity.SMRAActivity;
+import brown.auction.rules.allocation.SMRAAllocation;
+import brown.auction.rules.innerir.SMRAInnerIR;
+import brown.auction.rules.ir.NonAnonymousPolicy;
+import brown.auction.rules.payment.SMRAPayment;
+import brown.auction.rules.query.SimpleOneSidedQuery;
+import brown.auction.rules.termination.SMRATermination;
+import brown.platform.market.IFlexibleRules;
 import brown.platform.market.IMarketRules;
 
 public class FlexibleRulesTest {
@@ -38,4 +47,25 @@ public class FlexibleRulesTest {
     assertEquals(mRules.getTerminationCondition(), mocktCondition);
     
   }
+  
+  @Test
+  public void testNewInstance() {
+    
+    IFlexibleRules mRules = new FlexibleRules(new SMRAAllocation(), new SMRAPayment(), 
+        new SimpleOneSidedQuery(), new SMRAActivity(), new NonAnonymousPolicy(), 
+        new SMRAInnerIR(), new SMRATermination());
+    
+    IFlexibleRules newRules = mRules.newInstance(); 
+    
+    // same rules, but no rule instance is shared. 
+    assertEquals(mRules.getARule().getClass(), newRules.getARule().getClass()); 
+    assertEquals(mRules.getTerminationCondition().getClass(), newRules.getTerminationCondition().getClass()); 
+    assertNotSame(mRules.getARule(), newRules.getARule()); 
+    assertNotSame(mRules.getPRule(), newRules.getPRule()); 
+    assertNotSame(mRules.getQRule(), newRules.getQRule()); 
+    assertNotSame(mRules.getActRule(), newRules.getActRule()); 
+    assertNotSame(mRules.getIRPolicy(), newRules.getIRPolicy()); 
+    assertNotSame(mRules.getInnerIRPolicy(), newRules.getInnerIRPolicy()); 
+    assertNotSame(mRules.getTerminationCondition(), newRules.getTerminationCondition()); 
+  }
 }
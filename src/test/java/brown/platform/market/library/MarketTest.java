@@ -0,0 +1,160 @@
+package brown.platform.market.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.IMarketState;
+import brown.auction.rules.IActivityRule;
+import brown.auction.rules.IAllocationRule;
+import brown.auction.rules.IInformationRevelationPolicy;
+import brown.auction.rules.IInnerIRPolicy;
+import brown.auction.rules.IPaymentRule;
+import brown.auction.rules.IQueryRule;
+import brown.auction.rules.ITerminationCondition;
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.library.TradeDiffMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.communication.messages.library.TradeRequestMessage;
+import brown.platform.item.ICart;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+import brown.platform.market.IFlexibleRules;
+import brown.platform.market.IMarket;
+
+public class MarketTest {
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testProcessBids() throws InterruptedException {
+    IActivityRule activityRule = mock(IActivityRule.class);
+    IFlexibleRules rules = new FlexibleRules(mock(IAllocationRule.class),
+        mock(IPaymentRule.class), mock(IQueryRule.class), activityRule,
+        mock(IInformationRevelationPolicy.class), mock(IInnerIRPolicy.class),
+        mock(ITerminationCondition.class));
+    IMarketState state = mock(IMarketState.class);
+    // the second bid checked is rejected.
+    when(state.getAcceptable()).thenReturn(true, false, true);
+    ICart tradeables = new Cart();
+
+    IMarket market = new Market(0, rules, state, mock(IMarketPublicState.class),
+        new HashSet<Integer>(), tradeables);
+
+    ITradeMessage bidOne = new TradeMessage(0, 1, 0, null);
+    ITradeMessage bidTwo = new TradeMessage(0, 2, 0, null);
+    ITradeMessage bidThree = new TradeMessage(0, 3, 0, null);
+    market.submitBid(bidOne);
+    market.submitBid(bidTwo);
+    market.submitBid(bidThree);
+
+    // submitting never runs the activity rule.
+    verify(activityRule, never()).isAcceptable(any(IMarketState.class),
+        any(ITradeMessage.class), any(List.class), any(ICart.class));
+
+    List<ITradeMessage> rejected = market.processBids();
+    List<ITradeMessage> expected = new LinkedList<ITradeMessage>();
+    expected.add(bidTwo);
+    assertEquals(expected, rejected);
+    verify(activityRule, times(3)).isAcceptable(any(IMarketState.class),
+        any(ITradeMessage.class), any(List.class), any(ICart.class));
+
+    // the inbox is empty once processed.
+    assertTrue(market.processBids().isEmpty());
+
+    // bids from many threads at once are all processed.
+    when(state.getAcceptable()).thenReturn(true);
+    List<Thread> bidders = new LinkedList<Thread>();
+    for (int i = 0; i < 8; i++) {
+      int agentID = i;
+      Thread bidder = new Thread(() -> {
+        for (int j = 0; j < 100; j++) {
+          market.submitBid(new TradeMessage(0, agentID, 0, null));
+        }
+      });
+      bidders.add(bidder);
+      bidder.start();
+    }
+    for (Thread bidder : bidders) {
+      bidder.join();
+    }
+    assertTrue(market.processBids().isEmpty());
+    verify(activityRule, times(803)).isAcceptable(any(IMarketState.class),
+        any(ITradeMessage.class), any(List.class), any(ICart.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testProcessBidDiffs() {
+    IActivityRule activityRule = mock(IActivityRule.class);
+    IFlexibleRules rules = new FlexibleRules(mock(IAllocationRule.class),
+        mock(IPaymentRule.class), mock(IQueryRule.class), activityRule,
+        mock(IInformationRevelationPolicy.class), mock(IInnerIRPolicy.class),
+        mock(ITerminationCondition.class));
+    IMarketState state = mock(IMarketState.class);
+    when(state.getAcceptable()).thenReturn(true);
+    IMarket market = new Market(0, rules, state, mock(IMarketPublicState.class),
+        new HashSet<Integer>(), new Cart());
+
+    ICart a = new Cart();
+    a.addToCart(new Item("a"));
+    ICart b = new Cart();
+    b.addToCart(new Item("b"));
+    Map<ICart, Double> first = new HashMap<ICart, Double>();
+    first.put(a, 1.0);
+    first.put(b, 2.0);
+    Map<ICart, Double> changed = new HashMap<ICart, Double>();
+    changed.put(a, 1.5);
+
+    // a diff with no earlier bid to apply it to is rejected.
+    TradeDiffMessage early = new TradeDiffMessage(0, 1, 0, 0,
+        new OneSidedBidBundle(changed), new LinkedList<ICart>());
+    market.submitBid(early);
+    assertEquals(Arrays.asList(early), market.processBids());
+    verify(activityRule, never()).isAcceptable(any(IMarketState.class),
+        any(ITradeMessage.class), any(List.class), any(ICart.class));
+
+    // otherwise the activity rule sees the whole bid.
+    market.submitBid(new TradeMessage(0, 1, 0, new OneSidedBidBundle(first)));
+    market.submitBid(new TradeDiffMessage(1, 1, 0, 0,
+        new OneSidedBidBundle(changed), Arrays.asList(b)));
+    assertTrue(market.processBids().isEmpty());
+    Map<ICart, Double> expanded = new HashMap<ICart, Double>();
+    expanded.put(a, 1.5);
+    verify(activityRule).isAcceptable(any(IMarketState.class),
+        eq(new TradeMessage(1, 1, 0, new OneSidedBidBundle(expanded))),
+        any(List.class), any(ICart.class));
+    when(state.getTRequest())
+        .thenReturn(new TradeRequestMessage(0, 0, 1, null));
+    assertEquals(Integer.valueOf(1),
+        market.constructTradeRequest(1).getLastBidID());
+
+    // a diff from a bid the market never saw is rejected, and the agent is
+    // asked for a whole bid.
+    TradeDiffMessage stale = new TradeDiffMessage(3, 1, 0, 2,
+        new OneSidedBidBundle(changed), new LinkedList<ICart>());
+    market.submitBid(stale);
+    assertEquals(Arrays.asList(stale), market.processBids());
+    when(state.getTRequest())
+        .thenReturn(new TradeRequestMessage(0, 0, 1, null));
+    assertNull(market.constructTradeRequest(1).getLastBidID());
+  }
+
+}
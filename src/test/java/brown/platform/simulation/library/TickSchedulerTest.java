@@ -0,0 +1,64 @@
+package brown.platform.simulation.library;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import brown.platform.simulation.ITickScheduler;
+
+public class TickSchedulerTest {
+
+  @Test
+  public void testRegistration() throws InterruptedException {
+    ITickScheduler scheduler = new TickScheduler();
+    scheduler.registerAgent();
+    assertFalse(scheduler.awaitRegistration(2, 10));
+    scheduler.registerAgent();
+    // returns immediately, well before the deadline.
+    long start = System.currentTimeMillis();
+    assertTrue(scheduler.awaitRegistration(2, 10000));
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    // with no expected count, the full deadline is waited out.
+    assertFalse(scheduler.awaitRegistration(0, 10));
+  }
+
+  @Test
+  public void testTick() throws InterruptedException {
+    ITickScheduler scheduler = new TickScheduler();
+    scheduler.beginTick();
+    // nothing expected, so the tick is already complete.
+    assertTrue(scheduler.awaitTick(10000));
+
+    scheduler.beginTick();
+    scheduler.expectResponses(0, Arrays.asList(1, 2));
+    scheduler.expectResponses(1, Arrays.asList(1));
+    scheduler.recordResponse(0, 1);
+    scheduler.recordResponse(1, 2);
+    assertFalse(scheduler.awaitTick(10));
+    scheduler.recordResponse(0, 2);
+    assertFalse(scheduler.awaitTick(10));
+
+    Thread responder = new Thread(() -> {
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        return;
+      }
+      scheduler.recordResponse(1, 1);
+    });
+    responder.start();
+    long start = System.currentTimeMillis();
+    assertTrue(scheduler.awaitTick(10000));
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    responder.join();
+
+    // a new tick forgets the responses still outstanding.
+    scheduler.expectResponses(0, Arrays.asList(3));
+    scheduler.beginTick();
+    assertTrue(scheduler.awaitTick(10000));
+  }
+
+}
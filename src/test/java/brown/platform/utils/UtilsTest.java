@@ -0,0 +1,69 @@
+package brown.platform.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.library.MarketPublicState;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.ITradeRequestMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.communication.messages.library.TradeRequestMessage;
+import brown.platform.accounting.IAccountUpdate;
+import brown.platform.accounting.library.AccountUpdate;
+import brown.platform.item.ICart;
+
+public class UtilsTest {
+
+  @Test
+  public void testSanitize() {
+    Map<Integer, Integer> agentIDs = new HashMap<Integer, Integer>();
+    agentIDs.put(1000, 0);
+    agentIDs.put(2000, 1);
+
+    IMarketPublicState state = new MarketPublicState();
+    List<ITradeMessage> round = new LinkedList<ITradeMessage>();
+    round.add(new TradeMessage(0, 2000, 0, null));
+    state.addToTradeHistory(round);
+    List<IAccountUpdate> payments = new LinkedList<IAccountUpdate>();
+    payments.add(new AccountUpdate(1000, -1, 1.0, null));
+    state.setPayments(payments);
+    Map<Integer, List<ICart>> allocation = new HashMap<Integer, List<ICart>>();
+    allocation.put(2000, new LinkedList<ICart>());
+    state.setAllocation(allocation);
+
+    ITradeRequestMessage first = new TradeRequestMessage(0, 0, 1000, null);
+    first.addInformation(state);
+    ITradeRequestMessage second = new TradeRequestMessage(0, 0, 2000, null);
+    second.addInformation(state);
+
+    // requests sent together share one sanitized state.
+    Map<IMarketPublicState, IMarketPublicState> sanitized =
+        new IdentityHashMap<IMarketPublicState, IMarketPublicState>();
+    Utils.sanitize(first, agentIDs, sanitized);
+    Utils.sanitize(second, agentIDs, sanitized);
+    assertNotSame(state, first.getState());
+    assertSame(first.getState(), second.getState());
+
+    IMarketPublicState publicState = first.getState();
+    assertEquals(Integer.valueOf(1),
+        publicState.getTradeHistory().get(0).get(0).getAgentID());
+    assertEquals(Integer.valueOf(0), publicState.getPayments().get(0).getTo());
+    assertEquals(Integer.valueOf(-1),
+        publicState.getPayments().get(0).getFrom());
+    assertEquals(allocation.get(2000), publicState.getAllocation().get(1));
+    // the market's own state keeps the private IDs.
+    assertEquals(Integer.valueOf(2000),
+        state.getTradeHistory().get(0).get(0).getAgentID());
+  }
+
+}
@@ -0,0 +1,138 @@
+package brown.system.kryoserver.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.library.MarketPublicState;
+import brown.communication.messages.IBatchMessage;
+import brown.communication.messages.IInformationMessage;
+import brown.communication.messages.IServerToAgentMessage;
+import brown.communication.messages.ISimulationReportMessage;
+import brown.communication.messages.IStatusMessage;
+import brown.communication.messages.library.BatchMessage;
+import brown.communication.messages.library.ErrorMessage;
+import brown.communication.messages.library.InformationMessage;
+import brown.communication.messages.library.SimulationReportMessage;
+import brown.system.serialization.IChunkAssembler;
+import brown.system.serialization.library.ChunkAssembler;
+import brown.system.serialization.library.MessageChunk;
+import brown.system.setup.library.Setup;
+
+public class BroadcastSerializationTest {
+
+  private byte[] written(BroadcastSerialization serialization, Object object) {
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    serialization.write(null, buffer, object);
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
+  @Test
+  public void testBroadcastSerialization() {
+    BroadcastSerialization serialization = new BroadcastSerialization();
+    new Setup(Arrays.asList("a")).setup(serialization.getKryo());
+
+    IMarketPublicState state = new MarketPublicState();
+    state.setReserves(new HashMap<String, Double>());
+    InformationMessage first = new InformationMessage(1, 100, state);
+    InformationMessage second = new InformationMessage(2, 200000, state);
+    assertTrue(serialization.canBroadcast(first));
+    assertFalse(serialization.canBroadcast(new ErrorMessage(0, 1, "")));
+
+    // each agent's copy is exactly what sending it on its own would give.
+    byte[] body = serialization.encodeBody(first);
+    for (InformationMessage message : Arrays.asList(first, second)) {
+      byte[] frame = written(serialization, serialization.encode(message, body));
+      assertArrayEquals(written(serialization, message), frame);
+
+      IInformationMessage read = (IInformationMessage) serialization.read(null,
+          ByteBuffer.wrap(frame));
+      assertEquals(message.getMessageID(), read.getMessageID());
+      assertEquals(message.getAgentID(), read.getAgentID());
+      assertEquals(state.getReserves(), read.getPublicState().getReserves());
+    }
+  }
+
+  @Test
+  public void testSplit() {
+    BroadcastSerialization serialization = new BroadcastSerialization();
+    new Setup(Arrays.asList("a")).setup(serialization.getKryo());
+
+    Map<Integer, IMarketPublicState> results =
+        new HashMap<Integer, IMarketPublicState>();
+    for (int i = 0; i < 50; i++) {
+      results.put(i, new MarketPublicState());
+    }
+    SimulationReportMessage report =
+        new SimulationReportMessage(3, 100, results);
+    BroadcastSerialization.Frame frame =
+        serialization.encode(report, serialization.encodeBody(report));
+
+    // small frames are sent whole.
+    assertEquals(Arrays.asList(frame), frame.split(frame.length()));
+
+    // large ones in chunks, each sent as its own message, that join back up.
+    List<Object> pieces = frame.split(64);
+    assertTrue(pieces.size() > 2);
+    IChunkAssembler assembler = new ChunkAssembler();
+    List<ByteBuffer> assembled = new LinkedList<ByteBuffer>();
+    for (Object piece : pieces) {
+      MessageChunk chunk = (MessageChunk) serialization.read(null,
+          ByteBuffer.wrap(written(serialization, piece)));
+      assertTrue(chunk.getLength() <= 64);
+      ByteBuffer serialized = assembler.add(chunk);
+      if (serialized != null) {
+        assembled.add(serialized);
+      }
+    }
+    assertEquals(1, assembled.size());
+    // the first chunk gives the length, so the message is never copied.
+    assertEquals(frame.length(), assembled.get(0).array().length);
+    ISimulationReportMessage read = (ISimulationReportMessage) serialization
+        .read(null, assembled.get(0));
+    assertEquals(Integer.valueOf(3), read.getMessageID());
+    assertEquals(results.keySet(), read.getMarketResults().keySet());
+  }
+
+  @Test
+  public void testBatch() {
+    BroadcastSerialization serialization = new BroadcastSerialization();
+    new Setup(Arrays.asList("a")).setup(serialization.getKryo());
+
+    IMarketPublicState state = new MarketPublicState();
+    state.setReserves(new HashMap<String, Double>());
+    InformationMessage information = new InformationMessage(1, 100, state);
+    ErrorMessage error = new ErrorMessage(2, 100, "late");
+    BroadcastSerialization.Frame informationFrame = serialization
+        .encode(information, serialization.encodeBody(information));
+    BroadcastSerialization.Frame errorFrame = serialization.encode(error);
+    assertArrayEquals(written(serialization, error),
+        written(serialization, errorFrame));
+
+    // the frames are joined as if the batch had been serialized whole.
+    BroadcastSerialization.Frame batch =
+        serialization.batch(Arrays.asList(informationFrame, errorFrame));
+    assertArrayEquals(
+        written(serialization, new BatchMessage(null, null,
+            Arrays.<IServerToAgentMessage>asList(information, error))),
+        written(serialization, batch));
+    IBatchMessage read = (IBatchMessage) serialization.read(null,
+        ByteBuffer.wrap(written(serialization, batch)));
+    assertEquals(2, read.getMessages().size());
+    assertEquals(Integer.valueOf(1), read.getMessages().get(0).getMessageID());
+    assertEquals("late",
+        ((IStatusMessage) read.getMessages().get(1)).getStatus());
+  }
+
+}
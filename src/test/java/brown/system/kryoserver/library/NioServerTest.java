@@ -0,0 +1,168 @@
+package brown.system.kryoserver.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryonet.Client;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.Listener;
+
+import brown.communication.messages.IStatusMessage;
+import brown.communication.messages.library.ErrorMessage;
+import brown.system.setup.library.Setup;
+
+public class NioServerTest {
+
+  private static final int PORT = 54777;
+
+  private static BroadcastSerialization serialization() {
+    BroadcastSerialization serialization = new BroadcastSerialization();
+    new Setup(Arrays.asList("a")).setup(serialization.getKryo());
+    return serialization;
+  }
+
+  @Test
+  public void testNioServer() throws IOException, InterruptedException {
+    NioServer server = new NioServer(2, 65536, 65536, serialization(),
+        NioServerTest::serialization, 16);
+    Thread[] receivedOn = new Thread[1];
+    server.addListener(new Listener() {
+      public void received(Connection connection, Object message) {
+        receivedOn[0] = Thread.currentThread();
+        String status = ((IStatusMessage) message).getStatus();
+        connection.sendTCP(new ErrorMessage(0, connection.getID(), status));
+        connection.sendUDP(new ErrorMessage(1, connection.getID(), status));
+      }
+    });
+    server.start();
+    server.bind(PORT, PORT);
+
+    // unchanged kryonet clients connect, register UDP, and are answered.
+    List<Client> clients = new LinkedList<Client>();
+    BlockingQueue<IStatusMessage> replies =
+        new LinkedBlockingQueue<IStatusMessage>();
+    try {
+      for (int i = 0; i < 3; i++) {
+        Client client = new Client(65536, 65536);
+        new Setup(Arrays.asList("a")).setup(client.getKryo());
+        client.addListener(new Listener() {
+          public void received(Connection connection, Object message) {
+            if (message instanceof IStatusMessage) {
+              replies.add((IStatusMessage) message);
+            }
+          }
+        });
+        client.start();
+        client.connect(5000, "localhost", PORT, PORT);
+        assertEquals(i + 1, client.getID());
+        clients.add(client);
+        client.sendTCP(new ErrorMessage(0, 0, "agent " + i));
+      }
+      int tcp = 0;
+      int udp = 0;
+      for (int i = 0; i < 6; i++) {
+        IStatusMessage reply = replies.poll(5, TimeUnit.SECONDS);
+        assertTrue(reply.getStatus().startsWith("agent "));
+        if (reply.getMessageID() == 0) {
+          tcp++;
+        } else {
+          udp++;
+        }
+      }
+      assertEquals(3, tcp);
+      assertEquals(3, udp);
+      // listeners are called on the dispatch thread.
+      assertEquals(server.getUpdateThread(), receivedOn[0]);
+    } finally {
+      for (Client client : clients) {
+        client.stop();
+      }
+      server.close();
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testFullHandoff() throws IOException, InterruptedException {
+    NioServer server = new NioServer(1, 65536, 65536, serialization(),
+        NioServerTest::serialization, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingQueue<Connection> connected = new LinkedBlockingQueue<Connection>();
+    List<String> received = new CopyOnWriteArrayList<String>();
+    CountDownLatch allReceived = new CountDownLatch(50);
+    server.addListener(new Listener() {
+      public void connected(Connection connection) {
+        connected.add(connection);
+      }
+
+      public void received(Connection connection, Object message) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    server.start();
+    server.bind(PORT + 1, -1);
+    server.update(0);
+
+    Client client = new Client(65536, 65536);
+    new Setup(Arrays.asList("a")).setup(client.getKryo());
+    BlockingQueue<IStatusMessage> replies =
+        new LinkedBlockingQueue<IStatusMessage>();
+    client.addListener(new Listener() {
+      public void received(Connection connection, Object message) {
+        if (message instanceof IStatusMessage) {
+          replies.add((IStatusMessage) message);
+        }
+      }
+    });
+    try {
+      client.start();
+      client.connect(5000, "localhost", PORT + 1);
+      Connection connection = connected.poll(5, TimeUnit.SECONDS);
+      connection.addListener(new Listener() {
+        public void received(Connection connection, Object message) {
+          received.add(((IStatusMessage) message).getStatus());
+          allReceived.countDown();
+        }
+      });
+      for (int i = 0; i < 50; i++) {
+        client.sendTCP(new ErrorMessage(0, 0, "bid " + i));
+      }
+
+      // with the dispatch thread stuck and its queue full, the server still
+      // writes to the agent.
+      Thread.sleep(200);
+      connection.sendTCP(new ErrorMessage(0, 0, "request"));
+      IStatusMessage reply = replies.poll(5, TimeUnit.SECONDS);
+      assertEquals("request", reply.getStatus());
+      assertTrue(connection.isConnected());
+
+      // once it catches up, nothing was lost or reordered.
+      release.countDown();
+      assertTrue(allReceived.await(5, TimeUnit.SECONDS));
+      for (int i = 0; i < 50; i++) {
+        assertEquals("bid " + i, received.get(i));
+      }
+    } finally {
+      client.stop();
+      server.close();
+      server.stop();
+    }
+  }
+
+}
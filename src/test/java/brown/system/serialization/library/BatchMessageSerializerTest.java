@@ -0,0 +1,53 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.messages.IServerToAgentMessage;
+import brown.communication.messages.library.BatchMessage;
+import brown.communication.messages.library.ErrorMessage;
+import brown.communication.messages.library.ReserveUpdateMessage;
+import brown.system.setup.library.Setup;
+
+public class BatchMessageSerializerTest {
+
+  @Test
+  public void testBatchMessageSerializer() {
+    Kryo kryo = new Kryo();
+    Setup.start(kryo);
+
+    Map<String, Double> reserves = new HashMap<String, Double>();
+    reserves.put("a", 10.0);
+    BatchMessage message = new BatchMessage(null, 42,
+        Arrays.<IServerToAgentMessage>asList(
+            new ReserveUpdateMessage(3, 42, 7, 12, reserves),
+            new ErrorMessage(4, 42, "late")));
+
+    Output output = new Output(4096);
+    kryo.writeObject(output, message);
+    BatchMessage read = kryo.readObject(new Input(output.toBytes()),
+        BatchMessage.class);
+    assertEquals(null, read.getMessageID());
+    assertEquals(Integer.valueOf(42), read.getAgentID());
+    // the messages come back whole, in order.
+    assertEquals(2, read.getMessages().size());
+    assertTrue(read.getMessages().get(0) instanceof ReserveUpdateMessage);
+    ReserveUpdateMessage update =
+        (ReserveUpdateMessage) read.getMessages().get(0);
+    assertEquals(Integer.valueOf(3), update.getMessageID());
+    assertEquals(Integer.valueOf(12), update.getSequence());
+    assertEquals(reserves, update.getReserves());
+    assertEquals(Integer.valueOf(4), read.getMessages().get(1).getMessageID());
+  }
+
+}
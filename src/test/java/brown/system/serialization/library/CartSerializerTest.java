@@ -0,0 +1,49 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.platform.item.IItem;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+import brown.system.setup.library.Setup;
+
+public class CartSerializerTest {
+
+  @Test
+  public void testCartSerializer() {
+    Kryo kryo = new Kryo();
+    Setup.start(kryo);
+    Setup.getItemTable(kryo).setItemNames(Arrays.asList("a", "b"));
+
+    List<IItem> items = new LinkedList<IItem>();
+    items.add(new Item("a", 1));
+    items.add(new Item("b", 2));
+    items.add(new Item("c", 3));
+    Cart cart = new Cart(items);
+
+    Output output = new Output(256);
+    kryo.writeObject(output, cart);
+    Cart read = kryo.readObject(new Input(output.toBytes()), Cart.class);
+    assertEquals(cart, read);
+    // the name index is rebuilt.
+    assertTrue(read.containsItem("c"));
+    assertEquals(new Item("b", 2), read.getItemByName("b"));
+
+    Output empty = new Output(256);
+    kryo.writeObject(empty, new Cart());
+    assertEquals(new Cart(),
+        kryo.readObject(new Input(empty.toBytes()), Cart.class));
+  }
+
+}
@@ -0,0 +1,64 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import brown.system.serialization.IChunkAssembler;
+
+public class ChunkAssemblerTest {
+
+  private static byte[] bytes(ByteBuffer buffer) {
+    return Arrays.copyOfRange(buffer.array(), buffer.position(),
+        buffer.limit());
+  }
+
+  @Test
+  public void testChunkAssembler() {
+    byte[] message = new byte[10000];
+    for (int i = 0; i < message.length; i++) {
+      message[i] = (byte) i;
+    }
+    IChunkAssembler assembler = new ChunkAssembler();
+    assertNull(assembler.add(new MessageChunk(message, 0, 3000, false)));
+    assertNull(assembler.add(new MessageChunk(message, 3000, 6000, false)));
+    assertEquals(9000, assembler.size());
+    assertArrayEquals(message,
+        bytes(assembler.add(new MessageChunk(message, 9000, 1000, true))));
+    // the next message starts from scratch.
+    assertEquals(0, assembler.size());
+    assertArrayEquals(new byte[] { 1, 2 }, bytes(assembler
+        .add(new MessageChunk(new byte[] { 0, 1, 2 }, 1, 2, true))));
+
+    // with the length on the first chunk, the buffer is the message itself.
+    assertNull(assembler.add(new MessageChunk(message, 0, 5000, false, 10000)));
+    ByteBuffer whole =
+        assembler.add(new MessageChunk(message, 5000, 5000, true));
+    assertEquals(10000, whole.array().length);
+    assertArrayEquals(message, whole.array());
+  }
+
+  @Test
+  public void testMaxSize() {
+    byte[] message = new byte[10000];
+    IChunkAssembler assembler = new ChunkAssembler(6000);
+    // a message that grows past the maximum is dropped, to its last chunk.
+    assertNull(assembler.add(new MessageChunk(message, 0, 4000, false)));
+    assertNull(assembler.add(new MessageChunk(message, 4000, 4000, false)));
+    assertEquals(0, assembler.size());
+    assertNull(assembler.add(new MessageChunk(message, 8000, 2000, true)));
+    // as is one that says it is too large up front.
+    assertNull(assembler.add(new MessageChunk(message, 0, 10, false, 10000)));
+    assertNull(assembler.add(new MessageChunk(message, 10, 10, true)));
+
+    // and the next one is assembled as usual.
+    ByteBuffer next = assembler.add(new MessageChunk(message, 0, 6000, true));
+    assertEquals(6000, next.remaining());
+  }
+
+}
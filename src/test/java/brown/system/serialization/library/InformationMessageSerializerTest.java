@@ -0,0 +1,36 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.auction.marketstate.library.MarketPublicState;
+import brown.communication.messages.library.InformationMessage;
+import brown.system.setup.library.Setup;
+
+public class InformationMessageSerializerTest {
+
+  @Test
+  public void testInformationMessageSerializer() {
+    Kryo kryo = new Kryo();
+    Setup.start(kryo);
+
+    InformationMessage message =
+        new InformationMessage(0, 42, new MarketPublicState());
+    message.setMessageID(null);
+
+    Output output = new Output(4096);
+    kryo.writeObject(output, message);
+    InformationMessage read =
+        kryo.readObject(new Input(output.toBytes()), InformationMessage.class);
+    assertNull(read.getMessageID());
+    assertEquals(Integer.valueOf(42), read.getAgentID());
+    assertEquals(MarketPublicState.class, read.getPublicState().getClass());
+  }
+
+}
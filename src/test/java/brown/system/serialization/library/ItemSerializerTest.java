@@ -0,0 +1,53 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.platform.item.library.Item;
+import brown.system.setup.library.Setup;
+
+public class ItemSerializerTest {
+
+  @Test
+  public void testItemSerializer() {
+    Kryo kryo = new Kryo();
+    Setup.start(kryo);
+    Setup.getItemTable(kryo).setItemNames(Arrays.asList("apple", "banana"));
+
+    // names in the table go by index.
+    Output indexed = new Output(256);
+    kryo.writeObject(indexed, new Item("banana", 3));
+    Item read = kryo.readObject(new Input(indexed.toBytes()), Item.class);
+    assertEquals(new Item("banana", 3), read);
+    assertEquals(3, read.getItemCount());
+    assertSame(Setup.getItemTable(kryo).nameOf(1), read.getName());
+    // a reference marker, the index and the count.
+    assertEquals(3, indexed.position());
+
+    // other names are written out, and negative counts survive.
+    Output inline = new Output(256);
+    kryo.writeObject(inline, new Item("cherry", -2));
+    Item readInline = kryo.readObject(new Input(inline.toBytes()), Item.class);
+    assertEquals(new Item("cherry", -2), readInline);
+    assertEquals(-2, readInline.getItemCount());
+    assertTrue(inline.position() > indexed.position());
+
+    // an item made for kryo has neither, and is read as a single item.
+    Output empty = new Output(256);
+    kryo.writeObject(empty, new Item());
+    Item readEmpty = kryo.readObject(new Input(empty.toBytes()), Item.class);
+    assertNull(readEmpty.getName());
+    assertEquals(1, readEmpty.getItemCount());
+  }
+
+}
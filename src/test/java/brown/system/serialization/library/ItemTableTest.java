@@ -0,0 +1,27 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import brown.system.serialization.IItemTable;
+
+public class ItemTableTest {
+
+  @Test
+  public void testItemTable() {
+    IItemTable table = new ItemTable();
+    assertEquals(-1, table.indexOf("a"));
+    assertEquals(0, table.getItemNames().size());
+
+    table.setItemNames(Arrays.asList("a", "b", "c"));
+    assertEquals(0, table.indexOf("a"));
+    assertEquals(2, table.indexOf("c"));
+    assertEquals(-1, table.indexOf("d"));
+    assertEquals("b", table.nameOf(1));
+    assertEquals(Arrays.asList("a", "b", "c"), table.getItemNames());
+  }
+
+}
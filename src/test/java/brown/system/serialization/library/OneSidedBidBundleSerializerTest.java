@@ -0,0 +1,48 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.platform.item.ICart;
+import brown.platform.item.IItem;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+import brown.system.setup.library.Setup;
+
+public class OneSidedBidBundleSerializerTest {
+
+  @Test
+  public void testOneSidedBidBundleSerializer() {
+    Kryo kryo = new Kryo();
+    Setup.start(kryo);
+    Setup.getItemTable(kryo).setItemNames(Arrays.asList("a", "b"));
+
+    Map<ICart, Double> bids = new HashMap<ICart, Double>();
+    bids.put(new Cart(Arrays.<IItem>asList(new Item("a", 1))), 1.5);
+    bids.put(new Cart(Arrays.<IItem>asList(new Item("a", 1), new Item("b", 1))),
+        -0.25);
+    OneSidedBidBundle bundle = new OneSidedBidBundle(bids);
+
+    Output output = new Output(256);
+    kryo.writeObject(output, bundle);
+    assertEquals(bundle, kryo.readObject(new Input(output.toBytes()),
+        OneSidedBidBundle.class));
+
+    Output empty = new Output(256);
+    kryo.writeObject(empty, new OneSidedBidBundle());
+    assertNull(kryo.readObject(new Input(empty.toBytes()),
+        OneSidedBidBundle.class).getBids());
+  }
+
+}
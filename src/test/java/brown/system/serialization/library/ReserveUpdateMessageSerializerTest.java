@@ -0,0 +1,41 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.messages.library.ReserveUpdateMessage;
+import brown.system.setup.library.Setup;
+
+public class ReserveUpdateMessageSerializerTest {
+
+  @Test
+  public void testReserveUpdateMessageSerializer() {
+    Kryo kryo = new Kryo();
+    Setup.start(kryo);
+
+    Map<String, Double> reserves = new HashMap<String, Double>();
+    reserves.put("a", 10.0);
+    reserves.put("b", 20.0);
+    ReserveUpdateMessage message =
+        new ReserveUpdateMessage(3, 42, 7, 12, reserves);
+
+    Output output = new Output(4096);
+    kryo.writeObject(output, message);
+    ReserveUpdateMessage read = kryo.readObject(new Input(output.toBytes()),
+        ReserveUpdateMessage.class);
+    assertEquals(Integer.valueOf(3), read.getMessageID());
+    assertEquals(Integer.valueOf(42), read.getAgentID());
+    assertEquals(Integer.valueOf(7), read.getAuctionID());
+    assertEquals(Integer.valueOf(12), read.getSequence());
+    assertEquals(reserves, read.getReserves());
+  }
+
+}
@@ -0,0 +1,50 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.auction.marketstate.IMarketPublicState;
+import brown.auction.marketstate.library.MarketPublicState;
+import brown.communication.messages.library.SimulationReportMessage;
+import brown.system.setup.library.Setup;
+
+public class SimulationReportMessageSerializerTest {
+
+  @Test
+  public void testSimulationReportMessageSerializer() {
+    Kryo kryo = new Kryo();
+    Setup.start(kryo);
+
+    Map<Integer, IMarketPublicState> results =
+        new HashMap<Integer, IMarketPublicState>();
+    results.put(0, new MarketPublicState());
+    results.put(3, new MarketPublicState());
+    SimulationReportMessage message =
+        new SimulationReportMessage(7, 42, results);
+
+    Output output = new Output(4096);
+    kryo.writeObject(output, message);
+    SimulationReportMessage read = kryo.readObject(
+        new Input(output.toBytes()), SimulationReportMessage.class);
+    assertEquals(Integer.valueOf(7), read.getMessageID());
+    assertEquals(Integer.valueOf(42), read.getAgentID());
+    assertEquals(results.keySet(), read.getMarketResults().keySet());
+
+    output = new Output(4096);
+    kryo.writeObject(output, new SimulationReportMessage(null, 42, null));
+    read = kryo.readObject(new Input(output.toBytes()),
+        SimulationReportMessage.class);
+    assertNull(read.getMessageID());
+    assertNull(read.getMarketResults());
+  }
+
+}
@@ -0,0 +1,51 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.library.TradeDiffMessage;
+import brown.platform.item.ICart;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+import brown.system.setup.library.Setup;
+
+public class TradeDiffMessageSerializerTest {
+
+  @Test
+  public void testTradeDiffMessageSerializer() {
+    Kryo kryo = new Kryo();
+    new Setup(Arrays.asList("a", "b")).setup(kryo);
+
+    ICart added = new Cart();
+    added.addToCart(new Item("a"));
+    ICart removed = new Cart();
+    removed.addToCart(new Item("b"));
+    Map<ICart, Double> changed = new HashMap<ICart, Double>();
+    changed.put(added, 12.5);
+    TradeDiffMessage message = new TradeDiffMessage(3, 42, 9, 7, 2,
+        new OneSidedBidBundle(changed), Arrays.asList(removed));
+
+    Output output = new Output(4096);
+    kryo.writeObject(output, message);
+    TradeDiffMessage read = kryo.readObject(new Input(output.toBytes()),
+        TradeDiffMessage.class);
+    assertEquals(Integer.valueOf(3), read.getMessageID());
+    assertEquals(Integer.valueOf(42), read.getAgentID());
+    assertEquals(Integer.valueOf(9), read.getCorrespondingMessageID());
+    assertEquals(Integer.valueOf(7), read.getAuctionID());
+    assertEquals(Integer.valueOf(2), read.getBaseID());
+    assertEquals(changed, read.getBid().getBids());
+    assertEquals(Arrays.asList(removed), read.getRemoved());
+  }
+
+}
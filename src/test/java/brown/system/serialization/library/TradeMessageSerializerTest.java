@@ -0,0 +1,65 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.library.TradeMessage;
+import brown.platform.item.ICart;
+import brown.platform.item.IItem;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+import brown.system.setup.library.Setup;
+
+public class TradeMessageSerializerTest {
+
+  @Test
+  public void testTradeMessageSerializer() {
+    Kryo kryo = new Kryo();
+    Setup.start(kryo);
+
+    Map<ICart, Double> bids = new HashMap<ICart, Double>();
+    bids.put(new Cart(Arrays.<IItem>asList(new Item("a", 1))), 2.0);
+    TradeMessage message =
+        new TradeMessage(-1, 123456789, 7, 3, new OneSidedBidBundle(bids));
+
+    Output output = new Output(256);
+    kryo.writeObject(output, message);
+    TradeMessage read =
+        kryo.readObject(new Input(output.toBytes()), TradeMessage.class);
+    assertEquals(message, read);
+    assertEquals(Integer.valueOf(-1), read.getMessageID());
+    assertEquals(Integer.valueOf(7), read.getCorrespondingMessageID());
+
+    // null fields stay null.
+    Output empty = new Output(256);
+    kryo.writeObject(empty, new TradeMessage());
+    TradeMessage readEmpty =
+        kryo.readObject(new Input(empty.toBytes()), TradeMessage.class);
+    assertNull(readEmpty.getMessageID());
+    assertNull(readEmpty.getAgentID());
+    assertNull(readEmpty.getCorrespondingMessageID());
+    assertNull(readEmpty.getAuctionID());
+    assertNull(readEmpty.getBid());
+
+    // extreme values survive.
+    Output extreme = new Output(256);
+    kryo.writeObject(extreme,
+        new TradeMessage(Integer.MIN_VALUE, Integer.MAX_VALUE, 0, null));
+    TradeMessage readExtreme =
+        kryo.readObject(new Input(extreme.toBytes()), TradeMessage.class);
+    assertEquals(Integer.valueOf(Integer.MIN_VALUE), readExtreme.getMessageID());
+    assertEquals(Integer.valueOf(Integer.MAX_VALUE), readExtreme.getAgentID());
+  }
+
+}
@@ -0,0 +1,58 @@
+package brown.system.serialization.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import brown.auction.marketstate.library.MarketPublicState;
+import brown.communication.messages.library.TradeRequestMessage;
+import brown.platform.item.IItem;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+import brown.system.setup.library.Setup;
+
+public class TradeRequestMessageSerializerTest {
+
+  @Test
+  public void testTradeRequestMessageSerializer() {
+    Kryo kryo = new Kryo();
+    Setup.start(kryo);
+    Setup.getItemTable(kryo).setItemNames(Arrays.asList("a"));
+
+    TradeRequestMessage message = new TradeRequestMessage(4, 2, 99,
+        new Cart(Arrays.<IItem>asList(new Item("a", 5))));
+    message.addInformation(new MarketPublicState());
+    message.setReserveSequence(3);
+    message.setLastBidID(6);
+
+    Output output = new Output(4096);
+    kryo.writeObject(output, message);
+    TradeRequestMessage read =
+        kryo.readObject(new Input(output.toBytes()), TradeRequestMessage.class);
+    assertEquals(Integer.valueOf(4), read.getMessageID());
+    assertEquals(Integer.valueOf(2), read.getAuctionID());
+    assertEquals(Integer.valueOf(99), read.getAgentID());
+    assertEquals(message.getItems(), read.getItems());
+    assertEquals(MarketPublicState.class, read.getState().getClass());
+    assertEquals(Integer.valueOf(3), read.getReserveSequence());
+    assertEquals(Integer.valueOf(6), read.getLastBidID());
+
+    // a request without information.
+    Output bare = new Output(256);
+    kryo.writeObject(bare, new TradeRequestMessage(0, 1, 2, null));
+    TradeRequestMessage readBare =
+        kryo.readObject(new Input(bare.toBytes()), TradeRequestMessage.class);
+    assertNull(readBare.getItems());
+    assertNull(readBare.getState());
+    assertNull(readBare.getReserveSequence());
+    assertNull(readBare.getLastBidID());
+  }
+
+}
@@ -1,10 +1,32 @@
 package brown.system.setup.library;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Test;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryonet.Client;
 
+import brown.communication.bid.library.OneSidedBidBundle;
+import brown.communication.messages.ITradeMessage;
+import brown.communication.messages.library.TradeMessage;
+import brown.platform.item.ICart;
+import brown.platform.item.IItem;
+import brown.platform.item.library.Cart;
+import brown.platform.item.library.Item;
+
 public class StartupTest {
 
   @Test
@@ -18,4 +40,79 @@ public class StartupTest {
     Kryo agentKryo = c.getKryo();
     s.setup(agentKryo);
   }
+
+  @Test
+  public void testRegistrationTable() throws IOException, ClassNotFoundException {
+    // every concrete class in the registered packages is in the table.
+    String[] packages = { "brown.communication.", "brown.platform.item.",
+        "brown.auction.marketstate.", "brown.platform.accounting." };
+    List<Class<?>> table = Setup.getRegistrationTable();
+    for (String className : Setup.getJavaFiles("src/main/java/")) {
+      boolean registeredPackage = false;
+      for (String aPackage : packages) {
+        registeredPackage |= className.startsWith(aPackage);
+      }
+      // message servers are never sent.
+      if (!registeredPackage
+          || className.startsWith("brown.communication.messageserver.")) {
+        continue;
+      }
+      Class<?> cl = Class.forName(className);
+      if (!cl.isInterface() && !Modifier.isAbstract(cl.getModifiers())) {
+        assertTrue(className + " not registered", table.contains(cl));
+      }
+    }
+
+    // two kryos get the same IDs.
+    Kryo serverKryo = new Kryo();
+    Kryo agentKryo = new Kryo();
+    Setup.start(serverKryo);
+    Setup.start(agentKryo);
+    for (int i = 0; i < table.size(); i++) {
+      assertEquals(Setup.FIRST_ID + i,
+          serverKryo.getRegistration(table.get(i)).getId());
+      assertEquals(Setup.FIRST_ID + i,
+          agentKryo.getRegistration(table.get(i)).getId());
+    }
+    assertEquals(Setup.getTableFingerprint(serverKryo),
+        Setup.getTableFingerprint(agentKryo));
+    assertEquals(Setup.getTableFingerprint(),
+        Setup.getTableFingerprint(agentKryo));
+
+    // a different serializer for any class changes it.
+    Kryo otherSerializer = new Kryo();
+    Setup.start(otherSerializer);
+    otherSerializer.register(table.get(0), new JavaSerializer(),
+        Setup.FIRST_ID);
+    assertNotEquals(Setup.getTableFingerprint(serverKryo),
+        Setup.getTableFingerprint(otherSerializer));
+  }
+
+  @Test
+  public void testRegisteredRoundTrip() {
+    List<IItem> items = new LinkedList<IItem>();
+    items.add(new Item("a", 1));
+    Map<ICart, Double> bids = new HashMap<ICart, Double>();
+    bids.put(new Cart(items), 1.0);
+    ITradeMessage bid =
+        new TradeMessage(0, 1, 2, new OneSidedBidBundle(bids));
+
+    Kryo serverKryo = new Kryo();
+    Kryo agentKryo = new Kryo();
+    Setup.start(serverKryo);
+    Setup.start(agentKryo);
+    Output registered = new Output(4096);
+    agentKryo.writeClassAndObject(registered, bid);
+    Object received =
+        serverKryo.readClassAndObject(new Input(registered.toBytes()));
+    assertEquals(bid, received);
+
+    // without the table, class names go over the wire.
+    Kryo unregisteredKryo = new Kryo();
+    unregisteredKryo.setRegistrationRequired(false);
+    Output unregistered = new Output(4096);
+    unregisteredKryo.writeClassAndObject(unregistered, bid);
+    assertTrue(registered.position() < unregistered.position());
+  }
+
 }
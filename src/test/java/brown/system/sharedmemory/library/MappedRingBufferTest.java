@@ -0,0 +1,72 @@
+package brown.system.sharedmemory.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import brown.system.sharedmemory.IRingBuffer;
+
+public class MappedRingBufferTest {
+
+  private static ByteBuffer record(int length, int seed) {
+    ByteBuffer record = ByteBuffer.allocate(length);
+    for (int i = 0; i < length; i++) {
+      record.put((byte) (seed + i));
+    }
+    record.flip();
+    return record;
+  }
+
+  @Test
+  public void testMappedRingBuffer() throws IOException {
+    File file = File.createTempFile("ring", ".buf");
+    file.deleteOnExit();
+    IRingBuffer writer = MappedRingBuffer.create(file, 256);
+    // the reader has its own mapping, like a second process would.
+    IRingBuffer reader = MappedRingBuffer.open(file);
+    assertEquals(124, writer.maxRecordSize());
+
+    ByteBuffer destination = ByteBuffer.allocate(writer.maxRecordSize());
+    assertFalse(reader.read(destination));
+
+    // records wrap around the end of the buffer many times.
+    for (int i = 0; i < 50; i++) {
+      assertTrue(writer.write(record(60, i)));
+      assertTrue(writer.write(record(i % 7, i)));
+      assertTrue(reader.read(destination));
+      assertEquals(record(60, i), destination);
+      assertTrue(reader.read(destination));
+      assertEquals(record(i % 7, i), destination);
+    }
+    assertFalse(reader.read(destination));
+
+    // a full buffer takes nothing more until the reader catches up.
+    int written = 0;
+    while (writer.write(record(20, written))) {
+      written++;
+    }
+    assertEquals(256 / 24, written);
+    assertTrue(reader.read(destination));
+    assertEquals(record(20, 0), destination);
+    assertTrue(writer.write(record(20, written)));
+    for (int i = 1; i <= written; i++) {
+      assertTrue(reader.read(destination));
+      assertEquals(record(20, i), destination);
+    }
+    assertFalse(reader.read(destination));
+  }
+
+  @Test(expected = IOException.class)
+  public void testOpenInvalid() throws IOException {
+    File file = File.createTempFile("ring", ".buf");
+    file.deleteOnExit();
+    MappedRingBuffer.open(file);
+  }
+
+}
@@ -0,0 +1,76 @@
+package brown.user.agent.library;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SerialAgentExecutorTest {
+
+  @Test
+  public void testSerialAgentExecutor() throws InterruptedException {
+    // many more agents than threads.
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    int numAgents = 100;
+    int numTasks = 200;
+    List<SerialAgentExecutor> executors = new LinkedList<SerialAgentExecutor>();
+    List<List<Integer>> handled = new LinkedList<List<Integer>>();
+    List<AtomicInteger> running = new LinkedList<AtomicInteger>();
+    AtomicBoolean overlapped = new AtomicBoolean(false);
+    for (int i = 0; i < numAgents; i++) {
+      executors.add(new SerialAgentExecutor(pool));
+      handled.add(new LinkedList<Integer>());
+      running.add(new AtomicInteger(0));
+    }
+
+    for (int j = 0; j < numTasks; j++) {
+      for (int i = 0; i < numAgents; i++) {
+        List<Integer> agentHandled = handled.get(i);
+        AtomicInteger agentRunning = running.get(i);
+        int task = j;
+        executors.get(i).execute(() -> {
+          if (agentRunning.incrementAndGet() > 1) {
+            overlapped.set(true);
+          }
+          agentHandled.add(task);
+          agentRunning.decrementAndGet();
+        });
+      }
+    }
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+    // each agent handles its tasks one at a time, in order.
+    assertFalse(overlapped.get());
+    for (List<Integer> agentHandled : handled) {
+      assertTrue(agentHandled.size() == numTasks);
+      for (int j = 0; j < numTasks; j++) {
+        assertTrue(agentHandled.get(j) == j);
+      }
+    }
+  }
+
+  @Test
+  public void testFailingTask() throws InterruptedException {
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    SerialAgentExecutor executor = new SerialAgentExecutor(pool);
+    AtomicInteger handled = new AtomicInteger(0);
+    executor.execute(() -> {
+      throw new RuntimeException("agent failure");
+    });
+    // a failing task does not stop the ones after it.
+    executor.execute(() -> handled.incrementAndGet());
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    assertTrue(handled.get() == 1);
+  }
+
+}